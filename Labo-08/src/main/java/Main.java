@@ -2,6 +2,11 @@ import chess.ChessController;
 import chess.ChessView;
 import chess.views.gui.GUIView;
 import engine.ChessEngine;
+import engine.journal.GameJournal;
+import engine.tools.Bench;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Main program who will allow us to play a chess game.
@@ -9,8 +14,17 @@ import engine.ChessEngine;
  * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
  */
 public class Main {
-    public static void main(String[] args) {
-        ChessController engine = new ChessEngine();
+    public static void main(String[] args) throws IOException {
+        // "bench [depth]" runs the speed smoke test instead of the game
+        if (args.length > 0 && args[0].equals("bench")) {
+            Bench.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "--journal <directory>" journals the game, which is resumed after a crash or a restart
+        GameJournal journal = null;
+        if (args.length > 1 && args[0].equals("--journal"))
+            journal = GameJournal.open(Path.of(args[1]), GameJournal.Durability.GROUP_COMMIT);
+        ChessController engine = new ChessEngine(journal);
 
         // View choice (GUI or CLI)
         ChessView view = new GUIView(engine);
@@ -34,6 +34,14 @@ public class GuiAssets {
     }
   }
 
+  /**
+   * Loads the sprite of a piece, the one registered in the view by loadAssets.
+   * Used by the renderers drawing the board without any Swing component.
+   */
+  public static BufferedImage pieceImage(PieceType type, PlayerColor color) throws IOException {
+    return assetsImage(type.name().toLowerCase() + "_" + color.name().toLowerCase() + ".png");
+  }
+
   private static BufferedImage assetsImage(String imageName) throws IOException {
     java.net.URL URL = GuiAssets.class.getResource("images/" + imageName);
     return ImageIO.read(URL);
@@ -5,8 +5,15 @@ import chess.ChessView;
 import chess.PlayerColor;
 import engine.board.Board;
 import engine.board.Cell;
+import engine.board.Move;
+import engine.board.Position;
+import engine.journal.GameJournal;
 import engine.listeners.EngineObserver;
+import engine.notation.Fen;
 import engine.pieces.*;
+import engine.session.GameReplay;
+import engine.session.SessionSnapshot;
+import java.nio.ByteBuffer;
 
 /**
  * The engine who creates, show and resolve a game of chess.
@@ -30,11 +37,64 @@ public class ChessEngine implements ChessController, EngineObserver {
      */
     private int turn;
 
+    /**
+     * The position of the game played, with its moves, kept along the board to snapshot the session.
+     */
+    private Position position = new Position();
+
+    /**
+     * The codec of the session snapshots, created at the first one.
+     */
+    private SessionSnapshot snapshot;
+
+    /**
+     * The journal of the moves played, or null.
+     */
+    private final GameJournal journal;
+
+    /**
+     * The identifier of the game in the journal, or -1 if the game isn't journaled.
+     */
+    private int game = -1;
+
+    /**
+     * The game recovered from the journal to resume at the first new game, or null.
+     */
+    private Position resume;
+
+    /**
+     * The squares of the move being played, to journal a castling.
+     */
+    private int moveFrom, moveTo;
+
+    /**
+     * The piece type chosen for the promotion of the move being played, or 0.
+     */
+    private int promotion;
+
     /**
      * Constructor
      */
     public ChessEngine() {
+        this(null);
+    }
+
+    /**
+     * Constructor of an engine journaling its games, so that a game survives a crash or a restart.
+     * The first new game resumes the most recent game recovered by the journal.
+     *
+     * @param journal The journal, or null.
+     */
+    public ChessEngine(GameJournal journal) {
         board = new Board(this);
+        this.journal = journal;
+        if (journal != null && !journal.getRecovered().isEmpty()) {
+            int last = 0;
+            for (int id : journal.getRecovered().keySet())
+                last = id;
+            game = last;
+            resume = journal.getRecovered().get(last);
+        }
     }
 
     /**
@@ -63,6 +123,9 @@ public class ChessEngine implements ChessController, EngineObserver {
     public void start(ChessView view) {
         this.view = view;
         view.startView();
+        // a game recovered from the journal is shown at once
+        if (resume != null)
+            newGame();
     }
 
     /**
@@ -72,9 +135,93 @@ public class ChessEngine implements ChessController, EngineObserver {
     public void newGame() {
         for (Piece piece : board.getPieces().values())
             view.removePiece(piece.getCell().getX(), piece.getCell().getY());
-        turn = 0;
-        board.clear();
-        board.init();
+        if (resume != null) {
+            turn = resume.ply();
+            board.setUp(resume);
+            position = new Position(resume);
+            resume = null;
+        } else {
+            turn = 0;
+            board.clear();
+            board.init();
+            position.reset();
+            if (journal != null) {
+                if (game >= 0)
+                    journal.endGame(game);
+                game = journal.startGame();
+            }
+        }
+        displayMessage();
+    }
+
+    /**
+     * Starts a new game from a position written in FEN, e.g. to analyse or replay a position.
+     *
+     * @param fen The FEN of the position.
+     * @throws IllegalArgumentException If the text is not a valid FEN.
+     */
+    public void newGame(String fen) {
+        setUp(Fen.parse(fen));
+    }
+
+    /**
+     * Writes the snapshot of the game played: its start position, its moves and its clocks.
+     *
+     * @param buffer The buffer, with at least SessionSnapshot.maxBytes(plies) bytes of room.
+     * @return The number of bytes written.
+     */
+    public int saveSession(ByteBuffer buffer) {
+        if (snapshot == null)
+            snapshot = new SessionSnapshot();
+        return snapshot.write(position, buffer);
+    }
+
+    /**
+     * Resumes a game from its snapshot, e.g. one saved by another process.
+     *
+     * @param buffer The buffer, positioned at the snapshot.
+     * @throws IllegalArgumentException If the bytes are not a valid snapshot.
+     */
+    public void restoreSession(ByteBuffer buffer) {
+        if (snapshot == null)
+            snapshot = new SessionSnapshot();
+        Position restored = new Position();
+        snapshot.read(buffer, restored);
+        setUp(restored);
+    }
+
+    /**
+     * Shows the position of a game after a number of plies, e.g. to browse a game read from a PGN file.
+     * The position is set up from the nearest checkpoint of the replay, and only the final position is
+     * shown by the view.
+     *
+     * @param replay The replay of the game.
+     * @param ply    The number of plies played, from 0 for the start position.
+     * @throws IndexOutOfBoundsException If the game has no such ply.
+     */
+    public void showPly(GameReplay replay, int ply) {
+        Position position = new Position();
+        replay.seek(ply, position);
+        setUp(position);
+    }
+
+    /**
+     * Starts a game from a position which is not the result of the journaled moves.
+     *
+     * @param position The position, owned by the engine from now on.
+     */
+    private void setUp(Position position) {
+        // the journal replays from the initial position, so a game set up from elsewhere isn't journaled
+        if (journal != null && game >= 0)
+            journal.endGame(game);
+        game = -1;
+        resume = null;
+        for (Piece piece : board.getPieces().values())
+            view.removePiece(piece.getCell().getX(), piece.getCell().getY());
+        // the turn counts the plies from a white move, like the FEN of the start position
+        turn = position.ply() + ((position.sideToMove() ^ position.ply()) & 1);
+        board.setUp(position);
+        this.position = position;
         displayMessage();
     }
 
@@ -90,13 +237,41 @@ public class ChessEngine implements ChessController, EngineObserver {
     @Override
     public boolean move(int fromX, int fromY, int toX, int toY){
         displayMessage();
+        moveFrom = fromY * 8 + fromX;
+        moveTo = toY * 8 + toX;
+        promotion = 0;
+        // the board misses some illegal moves (e.g. kings side by side), so the position has the last word
+        if(position.findMove(moveFrom, moveTo, 0) == Move.NONE)
+            return false;
         if(board.move(fromX, fromY, toX, toY, playerTurn())){
+            record(promotion == 0 ? Move.of(moveFrom, moveTo)
+                    : Move.of(moveFrom, moveTo, Move.PROMOTION, promotion));
             nextTurn();
             return true;
         }
         return false;
     }
 
+    /**
+     * Makes a move played in the position of the game and appends it to the journal. A move the position
+     * can't match, the board having already played it, ends the journaling of the game.
+     *
+     * @param move The move, its squares and promotion being enough to replay it.
+     */
+    private void record(int move) {
+        int played = position.findMove(Move.from(move), Move.to(move), Move.promotion(move));
+        if (played == Move.NONE) {
+            // the journal would replay a game that was never played
+            if (journal != null && game >= 0)
+                journal.endGame(game);
+            game = -1;
+            return;
+        }
+        position.make(played);
+        if (journal != null && game >= 0)
+            journal.append(game, turn, move);
+    }
+
     /**
      * displays the current player turn (color) on the view.
      */
@@ -136,6 +311,8 @@ public class ChessEngine implements ChessController, EngineObserver {
      * Changes the current turn.
      */
     public void updateNextTurn(){
+        // only a castling changes the turn from the board, the king moving to the square played
+        record(Move.of(moveFrom, moveTo));
         nextTurn();
     }
 
@@ -154,7 +331,10 @@ public class ChessEngine implements ChessController, EngineObserver {
         };
 
         //ask the user to choose a piece to promote to
-        return  view.askUser("Promotion", "Choose a piece to promote", promoteTo);
+        Piece chosen = view.askUser("Promotion", "Choose a piece to promote", promoteTo);
+        if (chosen != null)
+            promotion = chosen.getType().ordinal() + 1;
+        return chosen;
     }
 
     @Override
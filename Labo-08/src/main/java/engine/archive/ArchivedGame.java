@@ -0,0 +1,93 @@
+package engine.archive;
+
+import engine.board.Position;
+import engine.notation.Fen;
+
+/**
+ * A game read from an archive: its start position, its moves and its result.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class ArchivedGame {
+
+    /**
+     * The number of the game in the archive.
+     */
+    private final long number;
+
+    /**
+     * The FEN of the start position, or null for the initial position.
+     */
+    private final String fen;
+
+    /**
+     * The moves.
+     */
+    private final int[] moves;
+
+    /**
+     * The result.
+     */
+    private final String result;
+
+    /**
+     * Constructs a game.
+     *
+     * @param number The number of the game in the archive.
+     * @param fen    The FEN of the start position, or null for the initial position.
+     * @param moves  The moves.
+     * @param result The result.
+     */
+    ArchivedGame(long number, String fen, int[] moves, String result) {
+        this.number = number;
+        this.fen = fen;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /**
+     * Gets the number of the game in the archive.
+     *
+     * @return The number, from 0.
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the moves. The array is shared, it must not be modified.
+     *
+     * @return The moves.
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the result.
+     *
+     * @return "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Creates the start position of the game.
+     *
+     * @return A new position, the initial one unless the game was set up from a FEN.
+     */
+    public Position startPosition() {
+        return fen == null ? new Position() : Fen.parse(fen);
+    }
+
+    /**
+     * Describes the game.
+     *
+     * @return The number, the number of plies and the result.
+     */
+    @Override
+    public String toString() {
+        return "game " + number + ": " + moves.length + " plies, " + result;
+    }
+}
@@ -0,0 +1,319 @@
+package engine.archive;
+
+import engine.board.Position;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed archive of games, read with random access by game number or as a stream.
+ * <p>
+ * A game takes a few dozen bytes: each move is coded as its rank among the legal moves of its position,
+ * with a range coder (see MoveCoder). The file starts with a header (magic, version), followed by the
+ * games, each one its size then its record: a flag byte (result, start position given), the FEN of the
+ * start position if given, the number of plies and the code of the moves. The games are followed by
+ * the offset of the first game of each block of 16 games, and a trailer (offset of the table, number of
+ * games, games by block, magic). Reading a game seeks its block then skips the sizes of the games
+ * before it, so the table costs half a byte per game.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class GameArchive implements AutoCloseable, Iterable<ArchivedGame> {
+
+    /**
+     * The magic number of the file format ("GARC").
+     */
+    public static final int MAGIC = 0x47415243;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * The size of the trailer, in bytes.
+     */
+    static final int TRAILER_BYTES = 24;
+
+    /**
+     * The number of games of a block of the offset table.
+     */
+    static final int BLOCK = 16;
+
+    /**
+     * The results, by code.
+     */
+    static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    /**
+     * The flag of a record giving its start position.
+     */
+    static final int FEN_FLAG = 4;
+
+    /**
+     * The number of bytes read at once to find a game in its block.
+     */
+    private static final int WINDOW = 4096;
+
+    /**
+     * The channel read.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The offset of the first game of each block.
+     */
+    private final long[] blocks;
+
+    /**
+     * The number of games.
+     */
+    private final long size;
+
+    /**
+     * The offset of the offset table, which ends the games.
+     */
+    private final long table;
+
+    /**
+     * Constructs an archive over a file.
+     *
+     * @param channel The channel of the file.
+     * @param blocks  The offset of the first game of each block.
+     * @param size    The number of games.
+     * @param table   The offset of the offset table.
+     */
+    private GameArchive(FileChannel channel, long[] blocks, long size, long table) {
+        this.channel = channel;
+        this.blocks = blocks;
+        this.size = size;
+        this.table = table;
+    }
+
+    /**
+     * Opens an archive file.
+     *
+     * @param path The path of the archive.
+     * @return The archive, to close.
+     * @throws IOException If the file can't be read or is not an archive.
+     */
+    public static GameArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length < HEADER_BYTES + TRAILER_BYTES)
+                throw new IOException("Not a game archive file: " + path);
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Not a game archive file of version " + VERSION + ": " + path);
+
+            ByteBuffer trailer = read(channel, length - TRAILER_BYTES, TRAILER_BYTES);
+            long table = trailer.getLong(0), size = trailer.getLong(8);
+            long blockCount = (size + BLOCK - 1) / BLOCK;
+            if (trailer.getInt(20) != MAGIC || trailer.getInt(16) != BLOCK || size < 0
+                    || table < HEADER_BYTES || table + blockCount * 8 + TRAILER_BYTES != length)
+                throw new IOException("Truncated game archive file: " + path);
+            long[] blocks = new long[(int) blockCount];
+            read(channel, table, (int) blockCount * 8).asLongBuffer().get(blocks);
+            return new GameArchive(channel, blocks, size, table);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of games.
+     *
+     * @return The number of games.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads a game. Several threads may read games at once.
+     *
+     * @param number The number of the game, from 0.
+     * @return The game.
+     * @throws IOException If the file can't be read.
+     */
+    public ArchivedGame get(long number) throws IOException {
+        if (number < 0 || number >= size)
+            throw new IndexOutOfBoundsException("No game " + number + " in an archive of " + size + " games");
+        // the games of a block usually fit in one read, the window is read again when they don't
+        long at = blocks[(int) (number / BLOCK)], windowStart = at;
+        ByteBuffer window = read(channel, at, (int) Math.min(WINDOW, table - at));
+        for (long game = number / BLOCK * BLOCK; ; game++) {
+            if (at - windowStart > window.limit() - 5 && windowStart + window.limit() < table) {
+                windowStart = at;
+                window = read(channel, at, (int) Math.min(WINDOW, table - at));
+            }
+            window.position((int) (at - windowStart));
+            int recordSize = readVarInt(window);
+            if (game == number) {
+                if (window.remaining() >= recordSize)
+                    return decode(number, window.array(), window.position(), recordSize, new MoveCoder());
+                ByteBuffer record = read(channel, windowStart + window.position(), recordSize);
+                return decode(number, record.array(), 0, recordSize, new MoveCoder());
+            }
+            at = windowStart + window.position() + recordSize;
+        }
+    }
+
+    /**
+     * Reads the games in order, as a stream of the file.
+     *
+     * @return The games.
+     */
+    @Override
+    public Iterator<ArchivedGame> iterator() {
+        return new Iterator<>() {
+
+            /**
+             * The bytes read from the file and not decoded yet.
+             */
+            private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).limit(0);
+
+            /**
+             * The offset of the file after the buffer.
+             */
+            private long offset = HEADER_BYTES;
+
+            /**
+             * The number of the next game.
+             */
+            private long number;
+
+            /**
+             * The coder of the moves.
+             */
+            private final MoveCoder coder = new MoveCoder();
+
+            @Override
+            public boolean hasNext() {
+                return number < size;
+            }
+
+            @Override
+            public ArchivedGame next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                try {
+                    fill(5);
+                    int recordSize = readVarInt(buffer);
+                    fill(recordSize);
+                    ArchivedGame game = decode(number++, buffer.array(), buffer.position(), recordSize, coder);
+                    buffer.position(buffer.position() + recordSize);
+                    return game;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            /**
+             * Reads the file until the buffer holds enough bytes, or the games end.
+             *
+             * @param needed The number of bytes needed.
+             * @throws IOException If the file can't be read.
+             */
+            private void fill(int needed) throws IOException {
+                if (buffer.remaining() >= needed || offset == table)
+                    return;
+                if (needed > buffer.capacity())
+                    buffer = ByteBuffer.allocate(needed * 2).put(buffer).flip();
+                buffer.compact();
+                while (buffer.position() < needed && offset < table) {
+                    buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + table - offset));
+                    int read = channel.read(buffer, offset);
+                    if (read < 0)
+                        throw new EOFException("Truncated game archive");
+                    offset += read;
+                }
+                buffer.flip();
+            }
+        };
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decodes a record.
+     *
+     * @param number The number of the game.
+     * @param bytes  The bytes holding the record.
+     * @param offset The index of the record.
+     * @param length The size of the record.
+     * @param coder  The coder of the moves.
+     * @return The game.
+     */
+    private static ArchivedGame decode(long number, byte[] bytes, int offset, int length, MoveCoder coder) {
+        ByteBuffer record = ByteBuffer.wrap(bytes, offset, length);
+        int flags = record.get();
+        String fen = null;
+        if ((flags & FEN_FLAG) != 0) {
+            int fenLength = readVarInt(record);
+            fen = new String(bytes, record.position(), fenLength, StandardCharsets.US_ASCII);
+            record.position(record.position() + fenLength);
+        }
+        int[] moves = new int[readVarInt(record)];
+        ArchivedGame game = new ArchivedGame(number, fen, moves, RESULTS[flags & 3]);
+        Position position = game.startPosition();
+        coder.decode(position, bytes, record.position(), offset + length - record.position(), moves, moves.length);
+        return game;
+    }
+
+    /**
+     * Reads a number written in bytes of 7 bits, the lowest first, the high bit telling that more follow.
+     *
+     * @param buffer The buffer, positioned after the number when it returns.
+     * @return The number.
+     */
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0, shift = 0, b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Reads bytes of the file.
+     *
+     * @param channel The channel of the file.
+     * @param offset  The offset of the bytes.
+     * @param length  The number of bytes.
+     * @return A buffer holding the bytes, positioned at 0.
+     * @throws IOException If the file can't be read or is too short.
+     */
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new EOFException("Truncated game archive");
+        }
+        return buffer.flip();
+    }
+}
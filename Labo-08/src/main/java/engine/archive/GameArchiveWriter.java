@@ -0,0 +1,228 @@
+package engine.archive;
+
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.pgn.PgnGame;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a game archive as a stream to a channel: the games one after the other, then the offset table
+ * of the blocks of games and the trailer. See GameArchive for the format.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class GameArchiveWriter implements AutoCloseable {
+
+    /**
+     * The channel written.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The bytes not written to the channel yet.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * The coder of the moves.
+     */
+    private final MoveCoder coder = new MoveCoder();
+
+    /**
+     * The record of the game being written, before its size.
+     */
+    private byte[] record = new byte[256];
+
+    /**
+     * The offset of the first game of each block.
+     */
+    private long[] blocks = new long[64];
+
+    /**
+     * The number of bytes written.
+     */
+    private long position;
+
+    /**
+     * The number of games written.
+     */
+    private long games;
+
+    /**
+     * Constructs a writer and writes the header.
+     *
+     * @param channel The channel, closed with the writer.
+     * @throws IOException If the channel can't be written.
+     */
+    public GameArchiveWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.putInt(GameArchive.MAGIC).putInt(GameArchive.VERSION);
+        position = GameArchive.HEADER_BYTES;
+    }
+
+    /**
+     * Creates an archive file.
+     *
+     * @param path The path of the archive, replaced if it exists.
+     * @return The writer.
+     * @throws IOException If the file can't be created.
+     */
+    public static GameArchiveWriter create(Path path) throws IOException {
+        return new GameArchiveWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Adds a game read from a PGN file, up to its error if any.
+     *
+     * @param game The game.
+     * @return The number of the game in the archive.
+     * @throws IOException If the channel can't be written.
+     */
+    public long add(PgnGame game) throws IOException {
+        return add(game.startPosition(), game.getMoves(), game.getMoves().length, game.getResult());
+    }
+
+    /**
+     * Adds a game.
+     *
+     * @param start  The start position, at the end of the game when it returns.
+     * @param moves  The moves, legal from the start position.
+     * @param count  The number of moves.
+     * @param result The result: "1-0", "0-1", "1/2-1/2" or "*".
+     * @return The number of the game in the archive.
+     * @throws IOException              If the channel can't be written.
+     * @throws IllegalArgumentException If a move is not legal.
+     */
+    public long add(Position start, int[] moves, int count, String result) throws IOException {
+        int resultCode = Arrays.asList(GameArchive.RESULTS).indexOf(result);
+        String fen = Fen.toString(start);
+        boolean initial = fen.equals(Fen.INITIAL);
+        int size = 0;
+        record[size++] = (byte) (Math.max(resultCode, 0) | (initial ? 0 : GameArchive.FEN_FLAG));
+        if (!initial) {
+            byte[] text = fen.getBytes(StandardCharsets.US_ASCII);
+            size = putVarInt(size, text.length);
+            ensure(size + text.length);
+            System.arraycopy(text, 0, record, size, text.length);
+            size += text.length;
+        }
+        size = putVarInt(size, count);
+        int codeLength = coder.encode(start, moves, count);
+        ensure(size + codeLength);
+        System.arraycopy(coder.bytes(), 0, record, size, codeLength);
+        size += codeLength;
+
+        if (games % GameArchive.BLOCK == 0) {
+            int block = (int) (games / GameArchive.BLOCK);
+            if (block == blocks.length)
+                blocks = Arrays.copyOf(blocks, block * 2);
+            blocks[block] = position;
+        }
+        writeVarInt(size);
+        write(record, size);
+        return games++;
+    }
+
+    /**
+     * Writes the offset table and the trailer, then closes the channel.
+     *
+     * @throws IOException If the channel can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        try {
+            long table = position;
+            int blockCount = (int) ((games + GameArchive.BLOCK - 1) / GameArchive.BLOCK);
+            for (int block = 0; block < blockCount; block++) {
+                flushIfFull(8);
+                buffer.putLong(blocks[block]);
+            }
+            flushIfFull(GameArchive.TRAILER_BYTES);
+            buffer.putLong(table).putLong(games).putInt(GameArchive.BLOCK).putInt(GameArchive.MAGIC);
+            flushIfFull(buffer.capacity());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a number in bytes of 7 bits in the record.
+     *
+     * @param size  The size of the record.
+     * @param value The number, not negative.
+     * @return The size of the record after the number.
+     */
+    private int putVarInt(int size, int value) {
+        ensure(size + 5);
+        for (; value >= 0x80; value >>>= 7)
+            record[size++] = (byte) (value | 0x80);
+        record[size++] = (byte) value;
+        return size;
+    }
+
+    /**
+     * Grows the record.
+     *
+     * @param size The size needed.
+     */
+    private void ensure(int size) {
+        if (size > record.length)
+            record = Arrays.copyOf(record, Math.max(size, record.length * 2));
+    }
+
+    /**
+     * Writes a number in bytes of 7 bits, the lowest first, the high bit telling that more follow.
+     *
+     * @param value The number, not negative.
+     * @throws IOException If the channel can't be written.
+     */
+    private void writeVarInt(int value) throws IOException {
+        flushIfFull(5);
+        for (; value >= 0x80; value >>>= 7, position++)
+            buffer.put((byte) (value | 0x80));
+        buffer.put((byte) value);
+        position++;
+    }
+
+    /**
+     * Writes bytes.
+     *
+     * @param bytes  The bytes.
+     * @param length The number of bytes.
+     * @throws IOException If the channel can't be written.
+     */
+    private void write(byte[] bytes, int length) throws IOException {
+        for (int done = 0; done < length; ) {
+            flushIfFull(1);
+            int chunk = Math.min(length - done, buffer.remaining());
+            buffer.put(bytes, done, chunk);
+            done += chunk;
+        }
+        position += length;
+    }
+
+    /**
+     * Writes the buffer to the channel if it has less room than needed.
+     *
+     * @param needed The number of bytes about to be put.
+     * @throws IOException If the channel can't be written.
+     */
+    private void flushIfFull(int needed) throws IOException {
+        if (buffer.remaining() >= needed)
+            return;
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,312 @@
+package engine.archive;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.util.Arrays;
+
+/**
+ * Codes the moves of a game as their rank among the legal moves of each position, with a range coder.
+ * <p>
+ * The legal moves are sorted the same way by the encoder and the decoder: captures of the most
+ * valuable piece by the least valuable one first, then promotions, castlings and the moves toward the
+ * centre, the move itself breaking the ties. The moves of a game are usually among the first ones, so
+ * the model of the ranks starts from a prior favouring the low ranks and adapts to the game. Only the
+ * ranks below the number of legal moves take part in the coding, so a forced move costs nothing.
+ * <p>
+ * The range coder is the carry-less coder of Subbotin: 32 bits of low and range, a byte written
+ * whenever the top byte of the interval is settled.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class MoveCoder {
+
+    /**
+     * The interval is renormalized when its top byte is settled.
+     */
+    private static final long TOP = 1L << 24;
+
+    /**
+     * The smallest range, which bounds the total of the frequencies.
+     */
+    private static final long BOTTOM = 1L << 16;
+
+    /**
+     * The increment of the frequency of a rank coded.
+     */
+    private static final int INCREMENT = 24;
+
+    /**
+     * The total of the frequencies above which they are halved.
+     */
+    private static final int LIMIT = 60000;
+
+    /**
+     * The value of the pieces for the ordering, by type.
+     */
+    private static final int[] VALUES = {0, 1, 5, 3, 3, 9, 20};
+
+    /**
+     * The frequencies of the ranks.
+     */
+    private final int[] frequencies = new int[Position.MAX_MOVES];
+
+    /**
+     * The total of the frequencies.
+     */
+    private int total;
+
+    /**
+     * The legal moves of the position.
+     */
+    private final int[] moves = new int[Position.MAX_MOVES];
+
+    /**
+     * The legal moves with their sort key.
+     */
+    private final long[] sorted = new long[Position.MAX_MOVES];
+
+    /**
+     * The bytes written.
+     */
+    private byte[] bytes = new byte[64];
+
+    /**
+     * The bytes read.
+     */
+    private byte[] source;
+
+    /**
+     * The number of bytes written, or the index of the next byte read.
+     */
+    private int length;
+
+    /**
+     * The number of bytes to read.
+     */
+    private int end;
+
+    /**
+     * The low end of the interval.
+     */
+    private long low;
+
+    /**
+     * The size of the interval.
+     */
+    private long range;
+
+    /**
+     * The code read, between low and low + range.
+     */
+    private long code;
+
+    /**
+     * Encodes the moves of a game.
+     *
+     * @param position The start position, at the end of the game when it returns.
+     * @param game     The moves, legal from the start position.
+     * @param count    The number of moves.
+     * @return The number of bytes of the code, available with bytes().
+     */
+    int encode(Position position, int[] game, int count) {
+        reset();
+        length = 0;
+        for (int ply = 0; ply < count; ply++) {
+            int legal = order(position), rank = 0;
+            while (rank < legal && moves[rank] != game[ply])
+                rank++;
+            if (rank == legal)
+                throw new IllegalArgumentException("The move " + Move.toString(game[ply]) + " of the ply " + ply
+                        + " is not legal");
+            int cumulative = 0, sum = 0;
+            for (int i = 0; i < legal; i++) {
+                if (i == rank)
+                    cumulative = sum;
+                sum += frequencies[i];
+            }
+            encode(cumulative, frequencies[rank], sum);
+            update(rank);
+            position.make(game[ply]);
+        }
+        for (int i = 0; i < 4; i++) {
+            put((int) (low >>> 24));
+            low = low << 8 & 0xFFFFFFFFL;
+        }
+        // the decoder reads zeros past the end, so the last zeros needn't be stored
+        while (length > 0 && bytes[length - 1] == 0)
+            length--;
+        return length;
+    }
+
+    /**
+     * Decodes the moves of a game.
+     *
+     * @param position The start position, at the end of the game when it returns.
+     * @param source   The code.
+     * @param offset   The index of the code.
+     * @param size     The number of bytes of the code.
+     * @param game     Receives the moves.
+     * @param count    The number of moves.
+     */
+    void decode(Position position, byte[] source, int offset, int size, int[] game, int count) {
+        reset();
+        this.source = source;
+        length = offset;
+        end = offset + size;
+        for (int i = 0; i < 4; i++)
+            code = code << 8 | next();
+        for (int ply = 0; ply < count; ply++) {
+            int legal = order(position), sum = 0;
+            for (int i = 0; i < legal; i++)
+                sum += frequencies[i];
+            range /= sum;
+            long target = Math.min((code - low & 0xFFFFFFFFL) / range, sum - 1);
+            int rank = 0, cumulative = 0;
+            while (cumulative + frequencies[rank] <= target)
+                cumulative += frequencies[rank++];
+            low = low + cumulative * range & 0xFFFFFFFFL;
+            range *= frequencies[rank];
+            normalize(true);
+            update(rank);
+            game[ply] = moves[rank];
+            position.make(moves[rank]);
+        }
+        this.source = null;
+    }
+
+    /**
+     * Gets the bytes of the code encoded.
+     *
+     * @return The bytes, the code being the first ones.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Resets the model and the coder.
+     */
+    private void reset() {
+        total = 0;
+        for (int rank = 0; rank < frequencies.length; rank++) {
+            frequencies[rank] = 2 + 480 / (rank + 2);
+            total += frequencies[rank];
+        }
+        low = 0;
+        range = 0xFFFFFFFFL;
+        code = 0;
+    }
+
+    /**
+     * Counts a rank coded, halving the frequencies when their total reaches the limit.
+     *
+     * @param rank The rank.
+     */
+    private void update(int rank) {
+        frequencies[rank] += INCREMENT;
+        total += INCREMENT;
+        if (total > LIMIT) {
+            total = 0;
+            for (int i = 0; i < frequencies.length; i++) {
+                frequencies[i] = frequencies[i] + 1 >>> 1;
+                total += frequencies[i];
+            }
+        }
+    }
+
+    /**
+     * Narrows the interval to a symbol.
+     *
+     * @param cumulative The total of the frequencies of the symbols before it.
+     * @param frequency  The frequency of the symbol.
+     * @param sum        The total of the frequencies.
+     */
+    private void encode(int cumulative, int frequency, int sum) {
+        range /= sum;
+        low = low + cumulative * range & 0xFFFFFFFFL;
+        range *= frequency;
+        normalize(false);
+    }
+
+    /**
+     * Shifts the bytes settled out of the interval, and shrinks an interval too small to be coded.
+     *
+     * @param decoding true to read the bytes shifted in, false to write the bytes shifted out.
+     */
+    private void normalize(boolean decoding) {
+        while (true) {
+            if (((low ^ low + range) & 0xFFFFFFFFL) >= TOP) {
+                if (range >= BOTTOM)
+                    return;
+                range = -low & BOTTOM - 1;
+            }
+            if (decoding)
+                code = (code << 8 | next()) & 0xFFFFFFFFL;
+            else
+                put((int) (low >>> 24));
+            low = low << 8 & 0xFFFFFFFFL;
+            range = range << 8 & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * Writes a byte of the code.
+     *
+     * @param b The byte.
+     */
+    private void put(int b) {
+        if (length == bytes.length)
+            bytes = Arrays.copyOf(bytes, length * 2);
+        bytes[length++] = (byte) b;
+    }
+
+    /**
+     * Reads a byte of the code, 0 past its end.
+     *
+     * @return The byte.
+     */
+    private int next() {
+        return length < end ? source[length++] & 0xFF : 0;
+    }
+
+    /**
+     * Generates the legal moves of a position in the order of the coding.
+     *
+     * @param position The position.
+     * @return The number of legal moves, sorted in moves.
+     */
+    private int order(Position position) {
+        int count = position.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i], from = Move.from(move), to = Move.to(move), score;
+            int piece = position.pieceAt(from) & 7, victim = position.pieceAt(to) & 7;
+            if (Move.kind(move) == Move.EN_PASSANT)
+                victim = Position.PAWN;
+            if (victim != 0)
+                score = 3000 + VALUES[victim] * 32 - VALUES[piece];
+            else if (Move.kind(move) == Move.PROMOTION)
+                score = 2000 + VALUES[Move.promotion(move)];
+            else if (Move.kind(move) == Move.CASTLING)
+                score = 1500;
+            else
+                score = 1000 + centrality(to) - centrality(from) + (piece == Position.KING ? -8 : 0);
+            // the highest score first, then the lowest move
+            sorted[i] = (long) (4096 - score) << 32 | move & 0xFFFFFFFFL;
+        }
+        Arrays.sort(sorted, 0, count);
+        for (int i = 0; i < count; i++)
+            moves[i] = (int) sorted[i];
+        return count;
+    }
+
+    /**
+     * Gets how central a square is.
+     *
+     * @param square The square.
+     * @return 0 on the edge to 3 in the centre.
+     */
+    private static int centrality(int square) {
+        int x = square & 7, y = square >>> 3;
+        return Math.min(Math.min(x, 7 - x), Math.min(y, 7 - y));
+    }
+}
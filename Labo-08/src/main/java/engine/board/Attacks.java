@@ -0,0 +1,120 @@
+package engine.board;
+
+/**
+ * Precomputed attack tables used by the position to generate moves and detect checks.
+ * Squares are indexed from 0 (a1) to 63 (h8), the index being y * 8 + x like a Cell.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Attacks {
+
+    /**
+     * The x and y offsets of the eight sliding directions: the four first ones are orthogonal
+     * (rook and queen), the four last ones are diagonal (bishop and queen).
+     */
+    public static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {-1, 1}, {1, -1}, {-1, -1}
+    };
+
+    /**
+     * The squares reached by a knight from each square.
+     */
+    public static final int[][] KNIGHT = new int[64][];
+
+    /**
+     * The squares reached by a king from each square.
+     */
+    public static final int[][] KING = new int[64][];
+
+    /**
+     * The squares crossed by a sliding piece from each square in each direction, nearest first.
+     */
+    public static final int[][][] RAYS = new int[64][8][];
+
+    static {
+        int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = targets(square, knightJumps);
+            KING[square] = targets(square, DIRECTIONS);
+            for (int direction = 0; direction < DIRECTIONS.length; direction++)
+                RAYS[square][direction] = ray(square, DIRECTIONS[direction]);
+        }
+    }
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private Attacks() {
+    }
+
+    /**
+     * Gets the x coordinate (file) of a square.
+     *
+     * @param square The square index.
+     * @return The x coordinate of the square.
+     */
+    public static int x(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Gets the y coordinate (rank) of a square.
+     *
+     * @param square The square index.
+     * @return The y coordinate of the square.
+     */
+    public static int y(int square) {
+        return square >> 3;
+    }
+
+    /**
+     * Gets the square index of the given coordinates.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The square index, or -1 if the coordinates are outside the board.
+     */
+    public static int square(int x, int y) {
+        return x < 0 || x > 7 || y < 0 || y > 7 ? -1 : y * 8 + x;
+    }
+
+    /**
+     * Gathers the squares reached by single jumps of the given offsets.
+     *
+     * @param from    The starting square.
+     * @param offsets The x and y offsets of the jumps.
+     * @return The reachable squares.
+     */
+    private static int[] targets(int from, int[][] offsets) {
+        int[] buffer = new int[offsets.length];
+        int count = 0;
+        for (int[] offset : offsets) {
+            int to = square(x(from) + offset[0], y(from) + offset[1]);
+            if (to >= 0)
+                buffer[count++] = to;
+        }
+        int[] result = new int[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Gathers the squares crossed from a square in a direction until the edge of the board.
+     *
+     * @param from      The starting square (not included).
+     * @param direction The x and y offsets of the direction.
+     * @return The crossed squares, nearest first.
+     */
+    private static int[] ray(int from, int[] direction) {
+        int[] buffer = new int[7];
+        int count = 0;
+        for (int x = x(from) + direction[0], y = y(from) + direction[1]; square(x, y) >= 0;
+             x += direction[0], y += direction[1])
+            buffer[count++] = square(x, y);
+
+        int[] result = new int[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+}
@@ -134,6 +134,60 @@ public class Board implements BoardObserver {
         }
     }
 
+    /**
+     * Initializes the board with the pieces of a position, e.g. read from a FEN. The castling rights
+     * and the en passant square are restored through the moved flags of the kings, rooks and pawns.
+     * The side to move and the clocks are not part of the board, the caller keeps them.
+     *
+     * @param position The position to copy.
+     */
+    public void setUp(Position position) {
+        clear();
+        kings = new Kings(board, this);
+        int castling = position.castlingRights();
+        int enPassant = position.enPassantSquare();
+
+        for (int square = 0; square < 64; square++) {
+            int code = position.pieceAt(square);
+            if (code == Position.EMPTY)
+                continue;
+            PlayerColor color = Position.colorOf(code) == Position.WHITE ? PlayerColor.WHITE : PlayerColor.BLACK;
+            Cell cell = new Cell(square % BOARD_SIZE, square / BOARD_SIZE);
+            int homeRank = color == PlayerColor.WHITE ? 0 : BOARD_SIZE - 1;
+            int rights = color == PlayerColor.WHITE ? castling : castling >> 2;
+            Piece piece;
+            switch (Position.typeOf(code)) {
+                case Position.PAWN:
+                    Pawn pawn = new Pawn(color, cell, this);
+                    pawn.setHasMoved(cell.getY() != (color == PlayerColor.WHITE ? 1 : BOARD_SIZE - 2));
+                    pawn.setTargetEnPassant(enPassant >= 0 && (enPassant ^ 8) == square);
+                    piece = pawn;
+                    break;
+                case Position.ROOK:
+                    Rook rook = new Rook(color, cell);
+                    int side = cell.getX() == 0 ? Position.WHITE_QUEEN_SIDE : Position.WHITE_KING_SIDE;
+                    rook.setHasMoved(cell.getY() != homeRank || cell.getX() % 7 != 0 || (rights & side) == 0);
+                    piece = rook;
+                    break;
+                case Position.KNIGHT:
+                    piece = new Knight(color, cell);
+                    break;
+                case Position.BISHOP:
+                    piece = new Bishop(color, cell);
+                    break;
+                case Position.QUEEN:
+                    piece = new Queen(color, cell);
+                    break;
+                default:
+                    King king = kings.getKing(color);
+                    king.setCell(cell);
+                    king.setHasMoved((rights & (Position.WHITE_KING_SIDE | Position.WHITE_QUEEN_SIDE)) == 0);
+                    piece = king;
+            }
+            addPiece(piece);
+        }
+    }
+
     /**
      * Moves a piece from a cell to another if the move is legal.
      *
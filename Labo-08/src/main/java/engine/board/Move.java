@@ -0,0 +1,134 @@
+package engine.board;
+
+/**
+ * Helpers for moves encoded in a single int, so that the move lists never allocate.
+ * Bits 0-5 hold the origin square, bits 6-11 the destination square, bits 12-13 the kind of move
+ * and bits 14-16 the piece type of a promotion.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Move {
+
+    /**
+     * The absence of move.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * A normal move or capture.
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * A pawn reaching the last rank.
+     */
+    public static final int PROMOTION = 1;
+
+    /**
+     * A pawn taking en passant.
+     */
+    public static final int EN_PASSANT = 2;
+
+    /**
+     * A king castling, encoded as the move of the king.
+     */
+    public static final int CASTLING = 3;
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private Move() {
+    }
+
+    /**
+     * Encodes a normal move.
+     *
+     * @param from The origin square.
+     * @param to   The destination square.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    /**
+     * Encodes a move of any kind.
+     *
+     * @param from      The origin square.
+     * @param to        The destination square.
+     * @param kind      The kind of move.
+     * @param promotion The piece type of the promotion, or 0.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to, int kind, int promotion) {
+        return from | to << 6 | kind << 12 | promotion << 14;
+    }
+
+    /**
+     * Gets the origin square of a move.
+     *
+     * @param move The encoded move.
+     * @return The origin square.
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Gets the destination square of a move.
+     *
+     * @param move The encoded move.
+     * @return The destination square.
+     */
+    public static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    /**
+     * Gets the kind of a move.
+     *
+     * @param move The encoded move.
+     * @return NORMAL, PROMOTION, EN_PASSANT or CASTLING.
+     */
+    public static int kind(int move) {
+        return move >>> 12 & 3;
+    }
+
+    /**
+     * Gets the piece type a pawn is promoted to.
+     *
+     * @param move The encoded move.
+     * @return The piece type of the promotion, or 0 if the move is not a promotion.
+     */
+    public static int promotion(int move) {
+        return move >>> 14 & 7;
+    }
+
+    /**
+     * Converts a move in the coordinate notation understood by the console view (e.g. e2e4, e7e8q).
+     *
+     * @param move The encoded move.
+     * @return The coordinate notation of the move.
+     */
+    public static String toString(int move) {
+        if (move == NONE)
+            return "0000";
+
+        StringBuilder builder = new StringBuilder(5);
+        appendSquare(builder, from(move));
+        appendSquare(builder, to(move));
+        if (kind(move) == PROMOTION)
+            builder.append(Character.toLowerCase(Position.LETTERS.charAt(promotion(move))));
+        return builder.toString();
+    }
+
+    /**
+     * Appends the name of a square (e.g. e4) to a builder.
+     *
+     * @param builder The builder to append to.
+     * @param square  The square index.
+     */
+    public static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + Attacks.x(square))).append((char) ('1' + Attacks.y(square)));
+    }
+}
@@ -0,0 +1,843 @@
+package engine.board;
+
+import engine.listeners.PositionEventsSource;
+import engine.listeners.PositionObserver;
+import java.util.Arrays;
+
+/**
+ * A compact representation of a chess position used by the bots, the tools and the analysis.
+ * Unlike the Board, which holds piece objects for the views, the position stores piece codes in a
+ * 64 squares array and can make and unmake moves without any allocation.
+ * <p>
+ * A piece code is its type (1 to 6, following the order of PieceType) with the bit 3 set for black.
+ * Squares are indexed from 0 (a1) to 63 (h8), the index being y * 8 + x like a Cell.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Position {
+
+    /**
+     * The white side.
+     */
+    public static final int WHITE = 0;
+
+    /**
+     * The black side.
+     */
+    public static final int BLACK = 1;
+
+    /**
+     * The piece types, in the order of PieceType.
+     */
+    public static final int PAWN = 1, ROOK = 2, KNIGHT = 3, BISHOP = 4, QUEEN = 5, KING = 6;
+
+    /**
+     * The code of an empty square.
+     */
+    public static final int EMPTY = 0;
+
+    /**
+     * The castling rights bits.
+     */
+    public static final int WHITE_KING_SIDE = 1, WHITE_QUEEN_SIDE = 2, BLACK_KING_SIDE = 4, BLACK_QUEEN_SIDE = 8;
+
+    /**
+     * The maximum number of moves in any position, used to size the move buffers.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * The letters of the piece types, indexed by type.
+     */
+    public static final String LETTERS = " PRNBQK";
+
+    /**
+     * The castling rights kept when a piece leaves or reaches each square.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] = ~WHITE_QUEEN_SIDE & 15;
+        CASTLING_MASK[7] = ~WHITE_KING_SIDE & 15;
+        CASTLING_MASK[4] = ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE) & 15;
+        CASTLING_MASK[56] = ~BLACK_QUEEN_SIDE & 15;
+        CASTLING_MASK[63] = ~BLACK_KING_SIDE & 15;
+        CASTLING_MASK[60] = ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE) & 15;
+    }
+
+    /**
+     * The piece code on each square.
+     */
+    private final int[] squares = new int[64];
+
+    /**
+     * The square of the king of each side.
+     */
+    private final int[] kings = new int[2];
+
+    /**
+     * The number of pieces on the board, kings included.
+     */
+    private int pieceCount;
+
+    /**
+     * The side to move.
+     */
+    private int side;
+
+    /**
+     * The castling rights bits still available.
+     */
+    private int castling;
+
+    /**
+     * The square a pawn can take en passant, or -1.
+     */
+    private int enPassant = -1;
+
+    /**
+     * The number of half moves since the last capture or pawn move.
+     */
+    private int halfmoveClock;
+
+    /**
+     * The number of the full move, starting at 1 and incremented after each black move.
+     */
+    private int fullmoveNumber = 1;
+
+    /**
+     * The Zobrist hash of the position.
+     */
+    private long key;
+
+    /**
+     * The number of moves made since the position was set up.
+     */
+    private int ply;
+
+    /**
+     * The moves made since the position was set up.
+     */
+    private int[] moves = new int[256];
+
+    /**
+     * The state overwritten by each move: captured piece, castling rights, en passant and clock.
+     */
+    private int[] undo = new int[256];
+
+    /**
+     * The hash before each move, used to unmake and to detect repetitions.
+     */
+    private long[] keys = new long[256];
+
+    /**
+     * Inner class used for notification handling to the observer.
+     */
+    private final PositionEventsSource events = new PositionEventsSource() {};
+
+    /**
+     * Constructs a position set to the initial chess position.
+     */
+    public Position() {
+        reset();
+    }
+
+    /**
+     * Constructs a copy of a position, including the moves made, without its observer.
+     *
+     * @param other The position to copy.
+     */
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Sets the position to a copy of another one, including the moves made, reusing the history
+     * arrays when they are large enough.
+     *
+     * @param other The position to copy.
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.squares, 0, squares, 0, 64);
+        kings[WHITE] = other.kings[WHITE];
+        kings[BLACK] = other.kings[BLACK];
+        pieceCount = other.pieceCount;
+        side = other.side;
+        castling = other.castling;
+        enPassant = other.enPassant;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        ply = other.ply;
+        if (moves.length < other.moves.length) {
+            moves = new int[other.moves.length];
+            undo = new int[other.moves.length];
+            keys = new long[other.moves.length];
+        }
+        System.arraycopy(other.moves, 0, moves, 0, ply);
+        System.arraycopy(other.undo, 0, undo, 0, ply);
+        System.arraycopy(other.keys, 0, keys, 0, ply);
+        events.notifyReset(this);
+    }
+
+    /**
+     * Gets the code of a piece.
+     *
+     * @param color The color of the piece (WHITE or BLACK).
+     * @param type  The type of the piece.
+     * @return The piece code.
+     */
+    public static int piece(int color, int type) {
+        return type | color << 3;
+    }
+
+    /**
+     * Gets the type of a piece code.
+     *
+     * @param piece The piece code.
+     * @return The type of the piece, or 0 for an empty square.
+     */
+    public static int typeOf(int piece) {
+        return piece & 7;
+    }
+
+    /**
+     * Gets the color of a piece code.
+     *
+     * @param piece The piece code, not empty.
+     * @return The color of the piece (WHITE or BLACK).
+     */
+    public static int colorOf(int piece) {
+        return piece >> 3;
+    }
+
+    /**
+     * Attaches an observer that follows the changes of the pieces.
+     *
+     * @param observer The observer, or null to detach the current one.
+     */
+    public void attach(PositionObserver observer) {
+        events.attach(observer);
+        events.notifyReset(this);
+    }
+
+    /**
+     * Sets the position to the initial chess position.
+     */
+    public void reset() {
+        int[] pieces = new int[64];
+        int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+        for (int x = 0; x < 8; x++) {
+            pieces[x] = piece(WHITE, backRank[x]);
+            pieces[8 + x] = piece(WHITE, PAWN);
+            pieces[48 + x] = piece(BLACK, PAWN);
+            pieces[56 + x] = piece(BLACK, backRank[x]);
+        }
+        setUp(pieces, WHITE, 15, -1, 0, 1);
+    }
+
+    /**
+     * Sets up an arbitrary position and forgets the moves made.
+     *
+     * @param pieces         The piece code on each square.
+     * @param sideToMove     The side to move.
+     * @param castlingRights The castling rights bits.
+     * @param enPassant      The en passant square, or -1.
+     * @param halfmoveClock  The number of half moves since the last capture or pawn move.
+     * @param fullmoveNumber The number of the full move.
+     */
+    public void setUp(int[] pieces, int sideToMove, int castlingRights, int enPassant, int halfmoveClock,
+                      int fullmoveNumber) {
+        System.arraycopy(pieces, 0, squares, 0, 64);
+        side = sideToMove;
+        castling = castlingRights;
+        this.enPassant = enPassant;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        ply = 0;
+
+        key = side == BLACK ? Zobrist.BLACK_TO_MOVE : 0;
+        key ^= Zobrist.CASTLING[castling];
+        if (enPassant >= 0)
+            key ^= Zobrist.EN_PASSANT[Attacks.x(enPassant)];
+        kings[WHITE] = kings[BLACK] = -1;
+        pieceCount = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = squares[square];
+            if (piece == EMPTY)
+                continue;
+            pieceCount++;
+            key ^= Zobrist.PIECES[piece][square];
+            if (typeOf(piece) == KING)
+                kings[colorOf(piece)] = square;
+        }
+        events.notifyReset(this);
+    }
+
+    /**
+     * Gets the piece code on a square.
+     *
+     * @param square The square index.
+     * @return The piece code, or EMPTY.
+     */
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Gets the number of pieces on the board, e.g. to know if the tablebases cover the position.
+     *
+     * @return The number of pieces, kings included.
+     */
+    public int pieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * Gets the side to move.
+     *
+     * @return WHITE or BLACK.
+     */
+    public int sideToMove() {
+        return side;
+    }
+
+    /**
+     * Gets the castling rights still available.
+     *
+     * @return The castling rights bits.
+     */
+    public int castlingRights() {
+        return castling;
+    }
+
+    /**
+     * Gets the square a pawn can take en passant.
+     *
+     * @return The en passant square, or -1.
+     */
+    public int enPassantSquare() {
+        return enPassant;
+    }
+
+    /**
+     * Gets the number of half moves since the last capture or pawn move.
+     *
+     * @return The half move clock.
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Gets the number of the full move.
+     *
+     * @return The full move number.
+     */
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Gets the Zobrist hash of the position.
+     *
+     * @return The hash of the position.
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Gets the square of the king of a side.
+     *
+     * @param color WHITE or BLACK.
+     * @return The square of the king, or -1 if there is none.
+     */
+    public int kingSquare(int color) {
+        return kings[color];
+    }
+
+    /**
+     * Gets the number of moves made since the position was set up.
+     *
+     * @return The number of moves that can be unmade.
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Gets a move made since the position was set up.
+     *
+     * @param index The index of the move, from 0 to ply() - 1.
+     * @return The encoded move, NONE for a null move.
+     */
+    public int moveAt(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Indicates if the side to move is in check.
+     *
+     * @return true if the king of the side to move is attacked.
+     */
+    public boolean inCheck() {
+        return kings[side] >= 0 && isAttacked(kings[side], side ^ 1);
+    }
+
+    /**
+     * Indicates if the last move left the king of the side that played it in check, i.e. was illegal.
+     *
+     * @return true if the king of the side that just moved is attacked.
+     */
+    public boolean leftInCheck() {
+        return kings[side ^ 1] >= 0 && isAttacked(kings[side ^ 1], side);
+    }
+
+    /**
+     * Indicates if a square is attacked by a side.
+     *
+     * @param square The square index.
+     * @param by     The attacking side.
+     * @return true if at least one piece of the side attacks the square.
+     */
+    public boolean isAttacked(int square, int by) {
+        int x = Attacks.x(square), y = Attacks.y(square);
+        int pawnY = by == WHITE ? y - 1 : y + 1, pawn = piece(by, PAWN);
+        if (pawnY >= 0 && pawnY < 8
+                && (x > 0 && squares[pawnY * 8 + x - 1] == pawn || x < 7 && squares[pawnY * 8 + x + 1] == pawn))
+            return true;
+
+        int knight = piece(by, KNIGHT);
+        for (int target : Attacks.KNIGHT[square])
+            if (squares[target] == knight)
+                return true;
+
+        int king = piece(by, KING);
+        for (int target : Attacks.KING[square])
+            if (squares[target] == king)
+                return true;
+
+        int queen = piece(by, QUEEN);
+        for (int direction = 0; direction < 8; direction++) {
+            int slider = piece(by, direction < 4 ? ROOK : BISHOP);
+            for (int target : Attacks.RAYS[square][direction]) {
+                int piece = squares[target];
+                if (piece == EMPTY)
+                    continue;
+                if (piece == slider || piece == queen)
+                    return true;
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the pseudo-legal moves of the side to move: they may leave the king in check.
+     *
+     * @param buffer       The buffer receiving the moves.
+     * @param count        The index of the first free slot of the buffer.
+     * @param capturesOnly true to generate only the captures and the queen promotions.
+     * @return The index of the first free slot after the generated moves.
+     */
+    public int generate(int[] buffer, int count, boolean capturesOnly) {
+        int them = side ^ 1;
+        for (int from = 0; from < 64; from++) {
+            int piece = squares[from];
+            if (piece == EMPTY || colorOf(piece) != side)
+                continue;
+
+            switch (typeOf(piece)) {
+                case PAWN:
+                    count = generatePawn(buffer, count, from, capturesOnly);
+                    break;
+                case KNIGHT:
+                    count = generateJumps(buffer, count, from, Attacks.KNIGHT[from], capturesOnly);
+                    break;
+                case KING:
+                    count = generateJumps(buffer, count, from, Attacks.KING[from], capturesOnly);
+                    if (!capturesOnly)
+                        count = generateCastling(buffer, count, from, them);
+                    break;
+                case ROOK:
+                    count = generateSlides(buffer, count, from, 0, 4, capturesOnly);
+                    break;
+                case BISHOP:
+                    count = generateSlides(buffer, count, from, 4, 8, capturesOnly);
+                    break;
+                default:
+                    count = generateSlides(buffer, count, from, 0, 8, capturesOnly);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the legal moves of the side to move.
+     *
+     * @param buffer The buffer receiving the moves, at least MAX_MOVES long.
+     * @return The number of legal moves.
+     */
+    public int legalMoves(int[] buffer) {
+        int count = generate(buffer, 0, false), legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            make(move);
+            if (!leftInCheck())
+                buffer[legal++] = move;
+            unmake();
+        }
+        return legal;
+    }
+
+    /**
+     * Indicates if a pseudo-legal move leaves the king of the side to move safe.
+     *
+     * @param move The encoded move, castling moves must come from the generator.
+     * @return true if the move is legal.
+     */
+    public boolean isLegal(int move) {
+        make(move);
+        boolean legal = !leftInCheck();
+        unmake();
+        return legal;
+    }
+
+    /**
+     * Finds the legal move matching the given squares.
+     *
+     * @param from      The origin square.
+     * @param to        The destination square.
+     * @param promotion The piece type of the promotion, or 0 for a queen if the move is a promotion.
+     * @return The encoded move, or NONE if no legal move matches.
+     */
+    public int findMove(int from, int to, int promotion) {
+        int[] buffer = new int[MAX_MOVES];
+        int count = legalMoves(buffer);
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.kind(move) != Move.PROMOTION || Move.promotion(move) == (promotion == 0 ? QUEEN : promotion)))
+                return move;
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Makes a pseudo-legal move. Use leftInCheck() to know if the move was legal.
+     *
+     * @param move The encoded move.
+     */
+    public void make(int move) {
+        int from = Move.from(move), to = Move.to(move), kind = Move.kind(move);
+        int piece = squares[from];
+        int capturedSquare = kind == Move.EN_PASSANT ? to ^ 8 : to;
+        int captured = squares[capturedSquare];
+
+        push(move, captured);
+        events.notifyPush();
+        key ^= Zobrist.CASTLING[castling];
+        if (enPassant >= 0)
+            key ^= Zobrist.EN_PASSANT[Attacks.x(enPassant)];
+
+        if (captured != EMPTY) {
+            remove(capturedSquare);
+            pieceCount--;
+        }
+        remove(from);
+        add(kind == Move.PROMOTION ? piece(side, Move.promotion(move)) : piece, to);
+
+        if (kind == Move.CASTLING) {
+            boolean kingSide = to > from;
+            int rook = remove(kingSide ? from + 3 : from - 4);
+            add(rook, kingSide ? from + 1 : from - 1);
+        }
+        if (typeOf(piece) == KING)
+            kings[side] = to;
+
+        castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= Zobrist.CASTLING[castling];
+
+        enPassant = -1;
+        if (typeOf(piece) == PAWN && (from ^ to) == 16 && hasAdjacentPawn(to, side ^ 1)) {
+            enPassant = (from + to) >> 1;
+            key ^= Zobrist.EN_PASSANT[Attacks.x(enPassant)];
+        }
+
+        halfmoveClock = typeOf(piece) == PAWN || captured != EMPTY ? 0 : halfmoveClock + 1;
+        if (side == BLACK)
+            fullmoveNumber++;
+        side ^= 1;
+        key ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Unmakes the last move made.
+     */
+    public void unmake() {
+        ply--;
+        int move = moves[ply], state = undo[ply];
+        key = keys[ply];
+        castling = state >>> 4 & 15;
+        enPassant = (state >>> 8 & 127) - 1;
+        halfmoveClock = state >>> 16;
+        side ^= 1;
+        if (side == BLACK)
+            fullmoveNumber--;
+
+        if (move != Move.NONE) {
+            int from = Move.from(move), to = Move.to(move), kind = Move.kind(move);
+            int piece = kind == Move.PROMOTION ? piece(side, PAWN) : squares[to];
+            squares[from] = piece;
+            squares[to] = EMPTY;
+            squares[kind == Move.EN_PASSANT ? to ^ 8 : to] = state & 15;
+            if ((state & 15) != EMPTY)
+                pieceCount++;
+
+            if (kind == Move.CASTLING) {
+                boolean kingSide = to > from;
+                squares[kingSide ? from + 3 : from - 4] = squares[kingSide ? from + 1 : from - 1];
+                squares[kingSide ? from + 1 : from - 1] = EMPTY;
+            }
+            if (typeOf(piece) == KING)
+                kings[side] = from;
+        }
+        events.notifyPop();
+    }
+
+    /**
+     * Passes the turn without moving, used by the search to prune.
+     */
+    public void makeNull() {
+        push(Move.NONE, EMPTY);
+        events.notifyPush();
+        if (enPassant >= 0)
+            key ^= Zobrist.EN_PASSANT[Attacks.x(enPassant)];
+        enPassant = -1;
+        halfmoveClock++;
+        if (side == BLACK)
+            fullmoveNumber++;
+        side ^= 1;
+        key ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Indicates if the position already occurred since the last capture or pawn move.
+     *
+     * @return true if the position is a repetition.
+     */
+    public boolean isRepetition() {
+        int stop = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= stop; i -= 2)
+            if (keys[i] == key)
+                return true;
+        return false;
+    }
+
+    /**
+     * Converts the position in a text diagram, rank 8 on top, white pieces in upper case.
+     *
+     * @return The diagram of the position.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(72);
+        for (int y = 7; y >= 0; y--) {
+            for (int x = 0; x < 8; x++) {
+                int piece = squares[y * 8 + x];
+                char letter = piece == EMPTY ? '.' : LETTERS.charAt(typeOf(piece));
+                builder.append(piece != EMPTY && colorOf(piece) == BLACK ? Character.toLowerCase(letter) : letter);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Saves the state overwritten by a move, growing the history if needed.
+     *
+     * @param move     The move being made.
+     * @param captured The piece being captured, or EMPTY.
+     */
+    private void push(int move, int captured) {
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, ply * 2);
+            undo = Arrays.copyOf(undo, ply * 2);
+            keys = Arrays.copyOf(keys, ply * 2);
+        }
+        moves[ply] = move;
+        undo[ply] = captured | castling << 4 | (enPassant + 1) << 8 | Math.min(halfmoveClock, 0x7FFF) << 16;
+        keys[ply] = key;
+        ply++;
+    }
+
+    /**
+     * Puts a piece on an empty square during a move.
+     *
+     * @param piece  The piece code.
+     * @param square The square index.
+     */
+    private void add(int piece, int square) {
+        squares[square] = piece;
+        key ^= Zobrist.PIECES[piece][square];
+        events.notifyAdd(piece, square);
+    }
+
+    /**
+     * Takes a piece from a square during a move.
+     *
+     * @param square The square index.
+     * @return The piece code that was on the square.
+     */
+    private int remove(int square) {
+        int piece = squares[square];
+        squares[square] = EMPTY;
+        key ^= Zobrist.PIECES[piece][square];
+        events.notifyRemove(piece, square);
+        return piece;
+    }
+
+    /**
+     * Indicates if a pawn of a side stands next to a square, i.e. could take en passant.
+     *
+     * @param square The square of the pawn that just advanced two squares.
+     * @param color  The side of the pawns looked for.
+     * @return true if a pawn of the side is on the same rank, on an adjacent file.
+     */
+    private boolean hasAdjacentPawn(int square, int color) {
+        int pawn = piece(color, PAWN), x = Attacks.x(square);
+        return x > 0 && squares[square - 1] == pawn || x < 7 && squares[square + 1] == pawn;
+    }
+
+    /**
+     * Generates the moves of a pawn.
+     *
+     * @param buffer       The buffer receiving the moves.
+     * @param count        The index of the first free slot of the buffer.
+     * @param from         The square of the pawn.
+     * @param capturesOnly true to generate only the captures and the queen promotions.
+     * @return The index of the first free slot after the generated moves.
+     */
+    private int generatePawn(int[] buffer, int count, int from, boolean capturesOnly) {
+        int forward = side == WHITE ? 8 : -8, x = Attacks.x(from), y = Attacks.y(from);
+        int to = from + forward;
+        boolean promotes = Attacks.y(to) == (side == WHITE ? 7 : 0);
+
+        if (squares[to] == EMPTY) {
+            if (promotes)
+                count = addPromotions(buffer, count, from, to, capturesOnly);
+            else if (!capturesOnly) {
+                buffer[count++] = Move.of(from, to);
+                if (y == (side == WHITE ? 1 : 6) && squares[to + forward] == EMPTY)
+                    buffer[count++] = Move.of(from, to + forward);
+            }
+        }
+        for (int dx = -1; dx <= 1; dx += 2) {
+            if (x + dx < 0 || x + dx > 7)
+                continue;
+            int target = to + dx, piece = squares[target];
+            if (piece != EMPTY && colorOf(piece) != side) {
+                if (promotes)
+                    count = addPromotions(buffer, count, from, target, false);
+                else
+                    buffer[count++] = Move.of(from, target);
+            } else if (target == enPassant)
+                buffer[count++] = Move.of(from, target, Move.EN_PASSANT, 0);
+        }
+        return count;
+    }
+
+    /**
+     * Adds the promotions of a pawn reaching the last rank.
+     *
+     * @param buffer    The buffer receiving the moves.
+     * @param count     The index of the first free slot of the buffer.
+     * @param from      The square of the pawn.
+     * @param to        The square reached.
+     * @param queenOnly true to generate only the promotion to a queen.
+     * @return The index of the first free slot after the generated moves.
+     */
+    private int addPromotions(int[] buffer, int count, int from, int to, boolean queenOnly) {
+        buffer[count++] = Move.of(from, to, Move.PROMOTION, QUEEN);
+        if (!queenOnly) {
+            buffer[count++] = Move.of(from, to, Move.PROMOTION, KNIGHT);
+            buffer[count++] = Move.of(from, to, Move.PROMOTION, ROOK);
+            buffer[count++] = Move.of(from, to, Move.PROMOTION, BISHOP);
+        }
+        return count;
+    }
+
+    /**
+     * Generates the moves of a knight or a king, castling excepted.
+     *
+     * @param buffer       The buffer receiving the moves.
+     * @param count        The index of the first free slot of the buffer.
+     * @param from         The square of the piece.
+     * @param targets      The squares reached by the piece.
+     * @param capturesOnly true to generate only the captures.
+     * @return The index of the first free slot after the generated moves.
+     */
+    private int generateJumps(int[] buffer, int count, int from, int[] targets, boolean capturesOnly) {
+        for (int to : targets) {
+            int piece = squares[to];
+            if (piece == EMPTY ? !capturesOnly : colorOf(piece) != side)
+                buffer[count++] = Move.of(from, to);
+        }
+        return count;
+    }
+
+    /**
+     * Generates the moves of a sliding piece along a range of directions.
+     *
+     * @param buffer       The buffer receiving the moves.
+     * @param count        The index of the first free slot of the buffer.
+     * @param from         The square of the piece.
+     * @param first        The first direction (see Attacks.DIRECTIONS).
+     * @param last         The direction after the last one.
+     * @param capturesOnly true to generate only the captures.
+     * @return The index of the first free slot after the generated moves.
+     */
+    private int generateSlides(int[] buffer, int count, int from, int first, int last, boolean capturesOnly) {
+        for (int direction = first; direction < last; direction++) {
+            for (int to : Attacks.RAYS[from][direction]) {
+                int piece = squares[to];
+                if (piece == EMPTY) {
+                    if (!capturesOnly)
+                        buffer[count++] = Move.of(from, to);
+                    continue;
+                }
+                if (colorOf(piece) != side)
+                    buffer[count++] = Move.of(from, to);
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the castling moves of the king. The destination square is checked by the legality filter.
+     *
+     * @param buffer The buffer receiving the moves.
+     * @param count  The index of the first free slot of the buffer.
+     * @param from   The square of the king.
+     * @param them   The opponent side.
+     * @return The index of the first free slot after the generated moves.
+     */
+    private int generateCastling(int[] buffer, int count, int from, int them) {
+        int kingSide = side == WHITE ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = side == WHITE ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if ((castling & (kingSide | queenSide)) == 0 || from != (side == WHITE ? 4 : 60) || isAttacked(from, them))
+            return count;
+
+        if ((castling & kingSide) != 0 && squares[from + 1] == EMPTY && squares[from + 2] == EMPTY
+                && squares[from + 3] == piece(side, ROOK) && !isAttacked(from + 1, them))
+            buffer[count++] = Move.of(from, from + 2, Move.CASTLING, 0);
+
+        if ((castling & queenSide) != 0 && squares[from - 1] == EMPTY && squares[from - 2] == EMPTY
+                && squares[from - 3] == EMPTY && squares[from - 4] == piece(side, ROOK) && !isAttacked(from - 1, them))
+            buffer[count++] = Move.of(from, from - 2, Move.CASTLING, 0);
+        return count;
+    }
+}
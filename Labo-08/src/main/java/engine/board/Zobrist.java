@@ -0,0 +1,61 @@
+package engine.board;
+
+/**
+ * Random keys used to compute the hash of a position incrementally (Zobrist hashing).
+ * The keys are generated from a fixed seed so that hashes are stable across runs and can be stored.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Zobrist {
+
+    /**
+     * The keys of each piece code on each square.
+     */
+    public static final long[][] PIECES = new long[16][64];
+
+    /**
+     * The keys of each combination of castling rights.
+     */
+    public static final long[] CASTLING = new long[16];
+
+    /**
+     * The keys of the file of the en passant square.
+     */
+    public static final long[] EN_PASSANT = new long[8];
+
+    /**
+     * The key added when black is to move.
+     */
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        long[] seed = {0x9E3779B97F4A7C15L};
+        for (long[] piece : PIECES)
+            for (int square = 0; square < 64; square++)
+                piece[square] = next(seed);
+        for (int i = 0; i < CASTLING.length; i++)
+            CASTLING[i] = next(seed);
+        for (int i = 0; i < EN_PASSANT.length; i++)
+            EN_PASSANT[i] = next(seed);
+        BLACK_TO_MOVE = next(seed);
+    }
+
+    /**
+     * Utility class, not instantiable.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Draws the next key of a SplitMix64 sequence.
+     *
+     * @param state The state of the generator, updated in place.
+     * @return The next key.
+     */
+    private static long next(long[] state) {
+        long z = state[0] += 0x9E3779B97F4A7C15L;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
@@ -0,0 +1,128 @@
+package engine.book;
+
+import engine.board.Position;
+import engine.pgn.PgnGame;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an opening book from PGN games: every move played in the first plies of a game is weighted
+ * by the result for the side that played it (2 for a win, 1 for a draw, 0 for a loss), and the
+ * weights are summed over the games.
+ * <p>
+ * The games are read by PgnReader. A game with an illegal or unreadable move only contributes the moves
+ * before it.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class BookBuilder {
+
+    /**
+     * The number of plies of each game added to the book.
+     */
+    private final int maxPly;
+
+    /**
+     * The summed weights of the moves of each position, by key then by move.
+     */
+    private final Map<Long, Map<Integer, Integer>> entries = new HashMap<>();
+
+    /**
+     * The position of the game being added.
+     */
+    private final Position position = new Position();
+
+    /**
+     * The number of games added.
+     */
+    private int games;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param maxPly The number of plies of each game added to the book.
+     */
+    public BookBuilder(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Gets the number of games added.
+     *
+     * @return The number of games.
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Adds games. The games not finished, without moves or not starting from the initial position are
+     * skipped.
+     *
+     * @param source The games, e.g. read by PgnReader.
+     */
+    public void add(Iterator<PgnGame> source) {
+        while (source.hasNext()) {
+            PgnGame game = source.next();
+            int[] moves = game.getMoves();
+            // only the games from the initial position belong to an opening book
+            if (game.getResult().equals("*") || moves.length == 0 || game.getTag("FEN") != null)
+                continue;
+
+            int white = game.getResult().equals("1-0") ? 2 : game.getResult().equals("0-1") ? 0 : 1;
+            position.reset();
+            for (int ply = 0; ply < moves.length && ply < maxPly; ply++) {
+                int weight = ply % 2 == 0 ? white : 2 - white;
+                entries.computeIfAbsent(position.key(), key -> new HashMap<>()).merge(moves[ply], weight,
+                        Integer::sum);
+                position.make(moves[ply]);
+            }
+            games++;
+        }
+    }
+
+    /**
+     * Writes the book, dropping the moves whose weight is too low.
+     *
+     * @param path      The path of the book.
+     * @param minWeight The minimum weight of a move.
+     * @return The number of entries written.
+     * @throws IOException If the file can't be written.
+     */
+    public long write(Path path, int minWeight) throws IOException {
+        List<Long> sortedKeys = new ArrayList<>(entries.keySet());
+        sortedKeys.sort(Long::compare);
+
+        List<long[]> rows = new ArrayList<>();
+        for (long key : sortedKeys) {
+            List<Map.Entry<Integer, Integer>> positionMoves = new ArrayList<>(entries.get(key).entrySet());
+            positionMoves.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<Integer, Integer> entry : positionMoves)
+                if (entry.getValue() >= minWeight)
+                    rows.add(new long[]{key, entry.getKey(), entry.getValue()});
+        }
+
+        try (OutputStream file = Files.newOutputStream(path)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeLong(rows.size());
+            for (long[] row : rows) {
+                out.writeLong(row[0]);
+                out.writeInt((int) row[1]);
+                out.writeInt((int) row[2]);
+            }
+            out.flush();
+        }
+        return rows.size();
+    }
+}
@@ -0,0 +1,193 @@
+package engine.book;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * An opening book read from a memory-mapped file, so that opening it costs nothing and its pages are
+ * shared through the page cache by all the engines running on the host.
+ * <p>
+ * The file starts with a header (magic, version, number of entries) followed by entries of 16 bytes
+ * (Zobrist key, move, weight) sorted by key, the moves of a position by decreasing weight. A lookup is
+ * a binary search directly in the mapped file; nothing is loaded on the heap.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class OpeningBook {
+
+    /**
+     * The magic number of the file format ("BOOK").
+     */
+    public static final int MAGIC = 0x424F4F4B;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * The size of an entry, in bytes.
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of entries.
+     */
+    private final int size;
+
+    /**
+     * Constructs a book over a mapped file.
+     *
+     * @param buffer The mapped file, header included.
+     * @param size   The number of entries.
+     */
+    private OpeningBook(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file. The file can be closed right away, the mapping stays valid.
+     *
+     * @param path The path of the book.
+     * @return The book.
+     * @throws IOException If the file can't be read or is not a book.
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE)
+                throw new IOException("Not a book file: " + path);
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Not a book file of version " + VERSION + ": " + path);
+            long size = buffer.getLong(8);
+            if (size < 0 || HEADER_BYTES + size * ENTRY_BYTES != length)
+                throw new IOException("Truncated book file: " + path);
+            return new OpeningBook(buffer, (int) size);
+        }
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of (position, move) entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the moves of a position, by decreasing weight.
+     *
+     * @param key     The Zobrist key of the position.
+     * @param moves   Receives the moves.
+     * @param weights Receives the weights, or null.
+     * @return The number of moves written, at most moves.length.
+     */
+    public int lookup(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for (int i = lowerBound(key); i < size && keyAt(i) == key && count < moves.length; i++) {
+            int offset = HEADER_BYTES + i * ENTRY_BYTES;
+            moves[count] = buffer.getInt(offset + 8);
+            if (weights != null)
+                weights[count] = buffer.getInt(offset + 12);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Picks a book move at random, in proportion to the weights.
+     *
+     * @param position The position.
+     * @param random   The random generator.
+     * @return A legal move of the book, or Move.NONE if the position is not in the book.
+     */
+    public int pick(Position position, Random random) {
+        int[] moves = new int[Position.MAX_MOVES], weights = new int[Position.MAX_MOVES];
+        int count = lookup(position.key(), moves, weights);
+        if (count == 0)
+            return Move.NONE;
+
+        int[] legal = new int[Position.MAX_MOVES];
+        int legalCount = position.legalMoves(legal);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            // a hash collision or a damaged file must never play an illegal move
+            if (!contains(legal, legalCount, moves[i]))
+                weights[i] = 0;
+            total += weights[i];
+        }
+        if (total == 0)
+            return Move.NONE;
+
+        long sample = (long) (random.nextDouble() * total);
+        for (int i = 0; i < count; i++) {
+            sample -= weights[i];
+            if (sample < 0)
+                return moves[i];
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Indicates if a move is among the legal moves.
+     *
+     * @param legal The legal moves.
+     * @param count The number of legal moves.
+     * @param move  The move.
+     * @return true if the move is legal.
+     */
+    private static boolean contains(int[] legal, int count, int move) {
+        for (int i = 0; i < count; i++)
+            if (legal[i] == move)
+                return true;
+        return false;
+    }
+
+    /**
+     * Finds the first entry whose key is not less than a key.
+     *
+     * @param key The key.
+     * @return The index of the entry, or size if all keys are less.
+     */
+    private int lowerBound(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = low + high >>> 1;
+            if (keyAt(middle) < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Gets the key of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The key.
+     */
+    private long keyAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+}
@@ -0,0 +1,253 @@
+package engine.eval;
+
+import engine.board.Position;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The table of parameters of the handcrafted evaluation: the material and the piece-square values
+ * of each piece type, for the middle game and for the end game.
+ * <p>
+ * The piece-square values are written from the white point of view, rank 8 first, like a diagram.
+ * A table tuned on games (see TexelTuner) can be shipped as a resource, which then replaces these
+ * values at runtime.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class EvalParameters {
+
+    /**
+     * The number of parameters of one game phase: the material then 64 squares for each piece type.
+     */
+    public static final int PHASE_SIZE = 6 + 6 * 64;
+
+    /**
+     * The total number of parameters.
+     */
+    public static final int SIZE = 2 * PHASE_SIZE;
+
+    /**
+     * The resource of the tuned parameters, used instead of the built-in ones when present.
+     */
+    public static final String DEFAULT_RESOURCE = "/engine/eval/default.params";
+
+    /**
+     * The magic number of the file format ("EVAL").
+     */
+    private static final int MAGIC = 0x4556414C;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The default material values, indexed by piece type - 1, for the middle game then the end game.
+     */
+    private static final int[][] MATERIAL = {
+            {100, 500, 320, 330, 900, 0},
+            {120, 530, 300, 320, 950, 0}
+    };
+
+    /**
+     * The default piece-square values, indexed by piece type - 1, then the end game table of the king.
+     */
+    private static final int[][] SQUARES = {
+            { // pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            { // rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            { // knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            { // bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            { // queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            { // king, middle game
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            },
+            { // king, end game
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50
+            }
+    };
+
+    /**
+     * The values of the parameters.
+     */
+    private final int[] values;
+
+    /**
+     * Constructs the default parameters.
+     */
+    public EvalParameters() {
+        values = new int[SIZE];
+        for (int phase = 0; phase < 2; phase++) {
+            for (int type = Position.PAWN; type <= Position.KING; type++) {
+                values[material(phase, type)] = MATERIAL[phase][type - 1];
+                int[] table = SQUARES[phase == 1 && type == Position.KING ? 6 : type - 1];
+                for (int square = 0; square < 64; square++)
+                    values[square(phase, type, square)] = table[(7 - (square >> 3)) * 8 + (square & 7)];
+            }
+        }
+    }
+
+    /**
+     * Constructs parameters from raw values.
+     *
+     * @param values The values of the parameters, SIZE long.
+     */
+    public EvalParameters(int[] values) {
+        if (values.length != SIZE)
+            throw new IllegalArgumentException("Expected " + SIZE + " evaluation parameters, got " + values.length);
+        this.values = values.clone();
+    }
+
+    /**
+     * Loads the tuned parameters from the resources, or the built-in ones if none are shipped.
+     *
+     * @return The default parameters.
+     */
+    public static EvalParameters loadDefault() {
+        try (InputStream in = EvalParameters.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            return in == null ? new EvalParameters() : load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the parameters resource " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Loads parameters from a stream.
+     *
+     * @param in The stream to read.
+     * @return The parameters.
+     * @throws IOException If the stream can't be read or has not the expected format.
+     */
+    public static EvalParameters load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+            throw new IOException("Not a parameters file of version " + VERSION);
+        if (data.readInt() != SIZE)
+            throw new IOException("The number of parameters doesn't match " + SIZE);
+        int[] values = new int[SIZE];
+        for (int i = 0; i < SIZE; i++)
+            values[i] = data.readInt();
+        return new EvalParameters(values);
+    }
+
+    /**
+     * Writes the parameters to a stream.
+     *
+     * @param out The stream to write.
+     * @throws IOException If the stream can't be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(SIZE);
+        for (int value : values)
+            data.writeInt(value);
+        data.flush();
+    }
+
+    /**
+     * Gets the index of a material value.
+     *
+     * @param phase 0 for the middle game, 1 for the end game.
+     * @param type  The piece type.
+     * @return The index of the parameter.
+     */
+    public static int material(int phase, int type) {
+        return phase * PHASE_SIZE + type - 1;
+    }
+
+    /**
+     * Gets the index of a piece-square value.
+     *
+     * @param phase  0 for the middle game, 1 for the end game.
+     * @param type   The piece type.
+     * @param square The square index from the white point of view (0 is a1).
+     * @return The index of the parameter.
+     */
+    public static int square(int phase, int type, int square) {
+        return phase * PHASE_SIZE + 6 + (type - 1) * 64 + square;
+    }
+
+    /**
+     * Gets the value of a parameter.
+     *
+     * @param index The index of the parameter.
+     * @return The value of the parameter.
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets a copy of all the values.
+     *
+     * @return The values of the parameters, SIZE long.
+     */
+    public int[] toArray() {
+        return values.clone();
+    }
+}
@@ -0,0 +1,19 @@
+package engine.eval;
+
+import engine.board.Position;
+
+/**
+ * Interface that defines the static evaluation of a position used by the bots.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public interface Evaluator {
+
+    /**
+     * Evaluates a position without searching.
+     *
+     * @param position The position to evaluate.
+     * @return The score in centipawns, positive when the side to move is better.
+     */
+    int evaluate(Position position);
+}
@@ -0,0 +1,83 @@
+package engine.eval;
+
+import engine.board.Position;
+
+/**
+ * Evaluator counting the material and the piece-square values, tapered between the middle game and
+ * the end game according to the material left on the board.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class HandcraftedEvaluator implements Evaluator {
+
+    /**
+     * The weight of each piece type in the game phase, indexed by type.
+     */
+    public static final int[] PHASE_WEIGHTS = {0, 0, 2, 1, 1, 4, 0};
+
+    /**
+     * The game phase of the initial position.
+     */
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * The middle game value of each piece code on each square, negative for black.
+     */
+    private final int[][] middleGame = new int[16][64];
+
+    /**
+     * The end game value of each piece code on each square, negative for black.
+     */
+    private final int[][] endGame = new int[16][64];
+
+    /**
+     * Constructs an evaluator with the default parameters, the tuned ones if they are shipped.
+     */
+    public HandcraftedEvaluator() {
+        this(EvalParameters.loadDefault());
+    }
+
+    /**
+     * Constructs an evaluator with the given parameters.
+     *
+     * @param parameters The parameters of the evaluation.
+     */
+    public HandcraftedEvaluator(EvalParameters parameters) {
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            for (int type = Position.PAWN; type <= Position.KING; type++) {
+                int piece = Position.piece(color, type);
+                for (int square = 0; square < 64; square++) {
+                    // black reads the white tables upside down
+                    int relative = color == Position.WHITE ? square : square ^ 56;
+                    middleGame[piece][square] = sign * (parameters.get(EvalParameters.material(0, type))
+                            + parameters.get(EvalParameters.square(0, type, relative)));
+                    endGame[piece][square] = sign * (parameters.get(EvalParameters.material(1, type))
+                            + parameters.get(EvalParameters.square(1, type, relative)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a position without searching.
+     *
+     * @param position The position to evaluate.
+     * @return The score in centipawns, positive when the side to move is better.
+     */
+    @Override
+    public int evaluate(Position position) {
+        int middle = 0, end = 0, phase = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece == Position.EMPTY)
+                continue;
+            middle += middleGame[piece][square];
+            end += endGame[piece][square];
+            phase += PHASE_WEIGHTS[Position.typeOf(piece)];
+        }
+        phase = Math.min(phase, MAX_PHASE);
+        int score = (middle * phase + end * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.sideToMove() == Position.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,412 @@
+package engine.eval;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Tunes the parameters of the handcrafted evaluation on positions labelled with the result of their
+ * game (Texel's method): the evaluation, squashed by a logistic curve, should predict the result, and
+ * the mean squared error of that prediction is minimised by gradient descent.
+ * <p>
+ * The evaluation is linear in its parameters, so a position is kept as the list of its pieces, the
+ * game phase and the result, in flat primitive arrays: a few tens of bytes per position, so that ten
+ * millions of them fit in memory. Only the quiet positions are kept, where the static evaluation is
+ * meaningful. The error and its gradient are summed in parallel over blocks of positions.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TexelTuner {
+
+    /**
+     * The number of positions of a block of the parallel sums.
+     */
+    private static final int BLOCK = 1 << 14;
+
+    /**
+     * The material values used by the quiet filter, indexed by piece type.
+     */
+    private static final int[] EXCHANGE_VALUES = {0, 1, 5, 3, 3, 9, 100};
+
+    /**
+     * The decay rate of the mean of the gradients (Adam).
+     */
+    private static final double BETA1 = 0.9;
+
+    /**
+     * The decay rate of the mean of the squared gradients (Adam).
+     */
+    private static final double BETA2 = 0.999;
+
+    /**
+     * The pieces of all positions: the color in bit 9, then (type - 1) * 64 + the square from the
+     * point of view of the piece's color.
+     */
+    private short[] pieces = new short[1 << 16];
+
+    /**
+     * The index of the first piece of each position in pieces, one more than the number of positions.
+     */
+    private int[] offsets = new int[1 << 12];
+
+    /**
+     * The game phase of each position, from 0 (end game) to MAX_PHASE (middle game).
+     */
+    private byte[] phases = new byte[1 << 12];
+
+    /**
+     * The result of the game of each position, in half points for white.
+     */
+    private byte[] results = new byte[1 << 12];
+
+    /**
+     * The number of positions.
+     */
+    private int size;
+
+    /**
+     * The number of positions rejected by the quiet filter.
+     */
+    private long rejected;
+
+    /**
+     * The buffer of the moves of the quiet filter.
+     */
+    private final int[] buffer = new int[Position.MAX_MOVES];
+
+    /**
+     * Gets the number of positions kept.
+     *
+     * @return The number of positions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of positions rejected by the quiet filter.
+     *
+     * @return The number of positions.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Reads labelled positions, one per line: the piece placement and the side to move of a FEN, then
+     * the result anywhere on the line, either as a score ("1-0", "0-1", "1/2-1/2") or as a bracketed
+     * number ("[1.0]", "[0.5]", "[0.0]"). The lines without result are skipped.
+     *
+     * @param in The positions.
+     * @return The number of positions kept.
+     * @throws IOException If the text can't be read.
+     */
+    public int read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in, 1 << 16);
+        Position position = new Position();
+        int[] board = new int[64];
+        int before = size;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            double result = result(line);
+            int end = line.indexOf(' ');
+            if (result < 0 || end < 0 || end + 1 >= line.length())
+                continue;
+
+            Arrays.fill(board, Position.EMPTY);
+            int x = 0, y = 7;
+            boolean valid = true;
+            for (int i = 0; i < end && valid; i++) {
+                char c = line.charAt(i);
+                if (c == '/') {
+                    x = 0;
+                    y--;
+                } else if (c >= '1' && c <= '8') {
+                    x += c - '0';
+                } else {
+                    int type = Position.LETTERS.indexOf(Character.toUpperCase(c));
+                    int color = Character.isUpperCase(c) ? Position.WHITE : Position.BLACK;
+                    valid = type > 0 && x < 8 && y >= 0;
+                    if (valid)
+                        board[y * 8 + x++] = Position.piece(color, type);
+                }
+            }
+            if (!valid)
+                continue;
+            position.setUp(board, line.charAt(end + 1) == 'b' ? Position.BLACK : Position.WHITE, 0, -1, 0, 1);
+            add(position, result);
+        }
+        return size - before;
+    }
+
+    /**
+     * Finds the result written on a line.
+     *
+     * @param line The line.
+     * @return The result for white (1, 0.5 or 0), or -1 if there is none.
+     */
+    private static double result(String line) {
+        if (line.contains("1/2-1/2") || line.contains("[0.5]"))
+            return 0.5;
+        if (line.contains("1-0") || line.contains("[1.0]") || line.contains("[1]"))
+            return 1;
+        if (line.contains("0-1") || line.contains("[0.0]") || line.contains("[0]"))
+            return 0;
+        return -1;
+    }
+
+    /**
+     * Adds a position if it is quiet.
+     *
+     * @param position The position.
+     * @param result   The result of the game for white: 1, 0.5 or 0.
+     * @return true if the position was kept.
+     */
+    public boolean add(Position position, double result) {
+        if (!isQuiet(position)) {
+            rejected++;
+            return false;
+        }
+
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            phases = Arrays.copyOf(phases, offsets.length);
+            results = Arrays.copyOf(results, offsets.length);
+        }
+        if (offsets[size] + 32 > pieces.length)
+            pieces = Arrays.copyOf(pieces, pieces.length * 2);
+
+        int count = offsets[size], phase = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece == Position.EMPTY)
+                continue;
+            int color = Position.colorOf(piece), type = Position.typeOf(piece);
+            int relative = color == Position.WHITE ? square : square ^ 56;
+            pieces[count++] = (short) (color << 9 | (type - 1) << 6 | relative);
+            phase += HandcraftedEvaluator.PHASE_WEIGHTS[type];
+        }
+        phases[size] = (byte) Math.min(phase, HandcraftedEvaluator.MAX_PHASE);
+        results[size] = (byte) Math.round(result * 2);
+        offsets[++size] = count;
+        return true;
+    }
+
+    /**
+     * Indicates if the evaluation of a position is meaningful: the side to move is not in check, can't
+     * promote, and can't capture an undefended piece or a piece worth more than the capturing one.
+     *
+     * @param position The position.
+     * @return true if the position is quiet.
+     */
+    public boolean isQuiet(Position position) {
+        return isQuiet(position, buffer);
+    }
+
+    /**
+     * Indicates if the evaluation of a position is meaningful, see isQuiet(Position).
+     *
+     * @param position The position.
+     * @param buffer   A buffer of MAX_MOVES moves.
+     * @return true if the position is quiet.
+     */
+    public static boolean isQuiet(Position position, int[] buffer) {
+        if (position.inCheck())
+            return false;
+        int side = position.sideToMove();
+        int count = position.generate(buffer, 0, true);
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i], from = Move.from(move), to = Move.to(move);
+            if (Move.kind(move) == Move.EN_PASSANT)
+                continue;
+            position.make(move);
+            boolean legal = !position.leftInCheck();
+            position.unmake();
+            if (!legal)
+                continue;
+            if (Move.kind(move) == Move.PROMOTION || !position.isAttacked(to, side ^ 1)
+                    || EXCHANGE_VALUES[Position.typeOf(position.pieceAt(to))]
+                    > EXCHANGE_VALUES[Position.typeOf(position.pieceAt(from))])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the mean squared error of the predictions of the positions.
+     *
+     * @param parameters The parameters of the evaluation.
+     * @param scale      The scale of the logistic curve.
+     * @return The error.
+     */
+    public double error(double[] parameters, double scale) {
+        return sum(parameters, scale, false).error / size;
+    }
+
+    /**
+     * Finds the scale of the logistic curve fitting best the current parameters, by golden section
+     * search: it converts the centipawns of this evaluation into winning chances.
+     *
+     * @param parameters The parameters of the evaluation.
+     * @return The scale.
+     */
+    public double fitScale(double[] parameters) {
+        double ratio = (Math.sqrt(5) - 1) / 2, low = 0.1, high = 4;
+        double a = high - ratio * (high - low), b = low + ratio * (high - low);
+        double errorA = error(parameters, a), errorB = error(parameters, b);
+        for (int i = 0; i < 40; i++) {
+            if (errorA < errorB) {
+                high = b;
+                b = a;
+                errorB = errorA;
+                a = high - ratio * (high - low);
+                errorA = error(parameters, a);
+            } else {
+                low = a;
+                a = b;
+                errorA = errorB;
+                b = low + ratio * (high - low);
+                errorB = error(parameters, b);
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Tunes parameters with the Adam gradient descent, the scale of the logistic curve being fitted
+     * first to the initial parameters and then kept.
+     *
+     * @param initial      The parameters to start from.
+     * @param iterations   The number of steps, each one over all the positions.
+     * @param learningRate The size of a step, in centipawns.
+     * @return The tuned parameters, rounded.
+     */
+    public EvalParameters tune(EvalParameters initial, int iterations, double learningRate) {
+        double[] parameters = new double[EvalParameters.SIZE];
+        for (int i = 0; i < parameters.length; i++)
+            parameters[i] = initial.get(i);
+        double scale = fitScale(parameters);
+
+        double[] mean = new double[parameters.length], squares = new double[parameters.length];
+        for (int step = 1; step <= iterations; step++) {
+            double[] gradient = sum(parameters, scale, true).gradient;
+            double correction1 = 1 - Math.pow(BETA1, step), correction2 = 1 - Math.pow(BETA2, step);
+            for (int i = 0; i < parameters.length; i++) {
+                double g = gradient[i] / size;
+                mean[i] = BETA1 * mean[i] + (1 - BETA1) * g;
+                squares[i] = BETA2 * squares[i] + (1 - BETA2) * g * g;
+                parameters[i] -= learningRate * (mean[i] / correction1)
+                        / (Math.sqrt(squares[i] / correction2) + 1e-12);
+            }
+        }
+
+        int[] values = new int[parameters.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (int) Math.round(parameters[i]);
+        return new EvalParameters(values);
+    }
+
+    /**
+     * Sums the squared errors, and optionally their gradient, over all positions, block by block in
+     * parallel.
+     *
+     * @param parameters The parameters of the evaluation.
+     * @param scale      The scale of the logistic curve.
+     * @param gradient   Whether the gradient is needed.
+     * @return The sums.
+     */
+    private Sum sum(double[] parameters, double scale, boolean gradient) {
+        return IntStream.range(0, (size + BLOCK - 1) / BLOCK).parallel()
+                .mapToObj(block -> sum(parameters, scale, gradient, block * BLOCK,
+                        Math.min(size, (block + 1) * BLOCK)))
+                .reduce(Sum::add)
+                .orElseGet(() -> new Sum(gradient));
+    }
+
+    /**
+     * Sums the squared errors, and optionally their gradient, over a block of positions.
+     *
+     * @param parameters The parameters of the evaluation.
+     * @param scale      The scale of the logistic curve.
+     * @param gradient   Whether the gradient is needed.
+     * @param from       The first position.
+     * @param to         The position after the last one.
+     * @return The sums of the block.
+     */
+    private Sum sum(double[] parameters, double scale, boolean gradient, int from, int to) {
+        Sum sum = new Sum(gradient);
+        double k = scale * Math.log(10) / 400;
+        for (int i = from; i < to; i++) {
+            double middle = 0, end = 0;
+            for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                int piece = pieces[p], type = piece >>> 6 & 7, square = piece & 63;
+                int sign = (piece & 512) == 0 ? 1 : -1;
+                middle += sign * (parameters[type] + parameters[6 + type * 64 + square]);
+                end += sign * (parameters[EvalParameters.PHASE_SIZE + type]
+                        + parameters[EvalParameters.PHASE_SIZE + 6 + type * 64 + square]);
+            }
+            double phase = phases[i] / (double) HandcraftedEvaluator.MAX_PHASE;
+            double evaluation = middle * phase + end * (1 - phase);
+            double prediction = 1 / (1 + Math.exp(-k * evaluation)), error = results[i] / 2.0 - prediction;
+            sum.error += error * error;
+
+            if (gradient) {
+                // d(error^2)/d(evaluation), then spread to each parameter of the pieces
+                double slope = -2 * error * prediction * (1 - prediction) * k;
+                for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                    int piece = pieces[p], type = piece >>> 6 & 7, square = piece & 63;
+                    double signed = (piece & 512) == 0 ? slope : -slope;
+                    sum.gradient[type] += signed * phase;
+                    sum.gradient[6 + type * 64 + square] += signed * phase;
+                    sum.gradient[EvalParameters.PHASE_SIZE + type] += signed * (1 - phase);
+                    sum.gradient[EvalParameters.PHASE_SIZE + 6 + type * 64 + square] += signed * (1 - phase);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * The sums of the squared errors and of their gradient over some positions.
+     */
+    private static final class Sum {
+
+        /**
+         * The sum of the squared errors.
+         */
+        private double error;
+
+        /**
+         * The sum of the gradients, or null if not needed.
+         */
+        private final double[] gradient;
+
+        /**
+         * Constructs empty sums.
+         *
+         * @param gradient Whether the gradient is needed.
+         */
+        private Sum(boolean gradient) {
+            this.gradient = gradient ? new double[EvalParameters.SIZE] : null;
+        }
+
+        /**
+         * Adds the sums of other positions.
+         *
+         * @param other The other sums.
+         * @return These sums.
+         */
+        private Sum add(Sum other) {
+            error += other.error;
+            if (gradient != null)
+                for (int i = 0; i < gradient.length; i++)
+                    gradient[i] += other.gradient[i];
+            return this;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package engine.eval.nnue;
+
+/**
+ * Interface that defines the vector operations of the network, so that the SIMD implementation can be
+ * replaced by a scalar one when the incubating Vector API is not available.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public interface DenseKernel {
+
+    /**
+     * Adds a row of weights to an accumulator.
+     *
+     * @param accumulator The accumulator, updated in place.
+     * @param offset      The index of the first value of the accumulator.
+     * @param weights     The weights.
+     * @param row         The index of the first weight of the row.
+     * @param length      The number of values.
+     */
+    void add(float[] accumulator, int offset, float[] weights, int row, int length);
+
+    /**
+     * Subtracts a row of weights from an accumulator.
+     *
+     * @param accumulator The accumulator, updated in place.
+     * @param offset      The index of the first value of the accumulator.
+     * @param weights     The weights.
+     * @param row         The index of the first weight of the row.
+     * @param length      The number of values.
+     */
+    void subtract(float[] accumulator, int offset, float[] weights, int row, int length);
+
+    /**
+     * Computes the dot product of the inputs clipped to [0, 1] and a row of weights.
+     *
+     * @param inputs  The inputs.
+     * @param offset  The index of the first input.
+     * @param weights The weights.
+     * @param row     The index of the first weight of the row.
+     * @param length  The number of values.
+     * @return The dot product.
+     */
+    float dotClipped(float[] inputs, int offset, float[] weights, int row, int length);
+
+    /**
+     * Gets the fastest kernel available: the SIMD one if the jdk.incubator.vector module is enabled
+     * (--add-modules jdk.incubator.vector), the scalar one otherwise.
+     *
+     * @return The kernel to use.
+     */
+    static DenseKernel best() {
+        try {
+            return (DenseKernel) Class.forName("engine.eval.nnue.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarKernel();
+        }
+    }
+}
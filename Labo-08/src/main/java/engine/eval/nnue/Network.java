@@ -0,0 +1,249 @@
+package engine.eval.nnue;
+
+import engine.board.Attacks;
+import engine.board.Position;
+import engine.eval.EvalParameters;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The weights of an efficiently updatable neural network (NNUE).
+ * <p>
+ * Each side has its own point of view: the pieces are seen relatively to its king, the board being
+ * flipped for black, mirrored when the king stands on the files e to h, and split in two buckets
+ * whether the king is still on its two first ranks or not. The active features of each side are summed
+ * in an accumulator of HIDDEN values, then both accumulators go through a clipped dense layer of
+ * L1 neurons and a linear output in centipawns.
+ * <p>
+ * The weights are stored quantized to 16 bits, one scale per tensor, so the file stays small.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Network {
+
+    /**
+     * The resource holding the default network.
+     */
+    public static final String DEFAULT_RESOURCE = "/engine/eval/nnue/default.nnue";
+
+    /**
+     * The number of king buckets.
+     */
+    public static final int BUCKETS = 2;
+
+    /**
+     * The number of input features of one point of view.
+     */
+    public static final int FEATURES = BUCKETS * 12 * 64;
+
+    /**
+     * The size of the accumulator of one point of view.
+     */
+    public static final int HIDDEN = 32;
+
+    /**
+     * The number of neurons of the dense layer.
+     */
+    public static final int L1 = 8;
+
+    /**
+     * The magic number of the file format ("NNUE").
+     */
+    private static final int MAGIC = 0x4E4E5545;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The weights of each feature, one row of HIDDEN values per feature.
+     */
+    final float[] featureWeights = new float[FEATURES * HIDDEN];
+
+    /**
+     * The initial value of the accumulator.
+     */
+    final float[] featureBias = new float[HIDDEN];
+
+    /**
+     * The weights of the dense layer, one row of 2 * HIDDEN values per neuron (side to move first).
+     */
+    final float[] denseWeights = new float[L1 * 2 * HIDDEN];
+
+    /**
+     * The biases of the dense layer.
+     */
+    final float[] denseBias = new float[L1];
+
+    /**
+     * The weights of the output.
+     */
+    final float[] outputWeights = new float[L1];
+
+    /**
+     * The bias of the output.
+     */
+    float outputBias;
+
+    /**
+     * Loads the default network from the resources.
+     *
+     * @return The default network.
+     */
+    public static Network loadDefault() {
+        try (InputStream in = Network.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null)
+                throw new IllegalStateException("Missing network resource " + DEFAULT_RESOURCE);
+            return load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the network resource " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Loads a network from a stream.
+     *
+     * @param in The stream to read.
+     * @return The network.
+     * @throws IOException If the stream can't be read or has not the expected format.
+     */
+    public static Network load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+            throw new IOException("Not a network file of version " + VERSION);
+        if (data.readInt() != FEATURES || data.readInt() != HIDDEN || data.readInt() != L1)
+            throw new IOException("The network dimensions don't match " + FEATURES + "x" + HIDDEN + "x" + L1);
+
+        Network network = new Network();
+        readTensor(data, network.featureWeights);
+        readTensor(data, network.featureBias);
+        readTensor(data, network.denseWeights);
+        readTensor(data, network.denseBias);
+        readTensor(data, network.outputWeights);
+        float[] bias = new float[1];
+        readTensor(data, bias);
+        network.outputBias = bias[0];
+        return network;
+    }
+
+    /**
+     * Writes the network to a stream.
+     *
+     * @param out The stream to write.
+     * @throws IOException If the stream can't be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(FEATURES);
+        data.writeInt(HIDDEN);
+        data.writeInt(L1);
+        writeTensor(data, featureWeights);
+        writeTensor(data, featureBias);
+        writeTensor(data, denseWeights);
+        writeTensor(data, denseBias);
+        writeTensor(data, outputWeights);
+        writeTensor(data, new float[]{outputBias});
+        data.flush();
+    }
+
+    /**
+     * Builds the network shipped before any training: it approximates the middle game material and
+     * piece-square values of the handcrafted evaluation (the mirroring ignores the few asymmetric
+     * squares), so that it plays sensibly and can be used as the starting point of the training.
+     *
+     * @param parameters The handcrafted parameters to reproduce.
+     * @return The network.
+     */
+    public static Network bootstrap(EvalParameters parameters) {
+        final float scale = 8192f, gain = 0.45f;
+        Network network = new Network();
+
+        // neurons 0 and 1 sum the material of each side, neurons 2 and 3 their piece-square values
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            for (int kind = 0; kind < 12; kind++) {
+                boolean own = kind < 6;
+                int type = kind % 6 + 1;
+                for (int square = 0; square < 64; square++) {
+                    int row = ((bucket * 12 + kind) * 64 + square) * HIDDEN;
+                    int relative = own ? square : square ^ 56;
+                    network.featureWeights[row + (own ? 0 : 1)] =
+                            parameters.get(EvalParameters.material(0, type)) / scale;
+                    network.featureWeights[row + (own ? 2 : 3)] =
+                            parameters.get(EvalParameters.square(0, type, relative)) / scale;
+                }
+            }
+        }
+        network.featureBias[2] = network.featureBias[3] = 0.5f;
+
+        network.denseWeights[0] = network.denseWeights[2] = gain;
+        network.denseWeights[1] = network.denseWeights[3] = -gain;
+        network.denseBias[0] = 0.5f;
+        network.outputWeights[0] = scale / gain;
+        network.outputBias = -0.5f * scale / gain;
+        return network;
+    }
+
+    /**
+     * Gets the feature of a piece seen from the point of view of a side.
+     *
+     * @param perspective The side whose point of view is used.
+     * @param king        The square of the king of that side.
+     * @param piece       The piece code.
+     * @param square      The square of the piece.
+     * @return The index of the feature.
+     */
+    public static int feature(int perspective, int king, int piece, int square) {
+        if (perspective == Position.BLACK) {
+            square ^= 56;
+            king ^= 56;
+        }
+        if (Attacks.x(king) >= 4)
+            square ^= 7;
+
+        int bucket = Attacks.y(king) >= 2 ? 1 : 0;
+        int kind = (Position.colorOf(piece) == perspective ? 0 : 6) + Position.typeOf(piece) - 1;
+        return (bucket * 12 + kind) * 64 + square;
+    }
+
+    /**
+     * Reads a quantized tensor.
+     *
+     * @param data   The stream to read.
+     * @param values The values read.
+     * @throws IOException If the stream can't be read.
+     */
+    private static void readTensor(DataInputStream data, float[] values) throws IOException {
+        float step = data.readFloat();
+        if (data.readInt() != values.length)
+            throw new IOException("Unexpected tensor size");
+        for (int i = 0; i < values.length; i++)
+            values[i] = data.readShort() * step;
+    }
+
+    /**
+     * Writes a tensor quantized to 16 bits.
+     *
+     * @param data   The stream to write.
+     * @param values The values to write.
+     * @throws IOException If the stream can't be written.
+     */
+    private static void writeTensor(DataOutputStream data, float[] values) throws IOException {
+        float max = 0;
+        for (float value : values)
+            max = Math.max(max, Math.abs(value));
+        float step = max == 0 ? 1 : max / Short.MAX_VALUE;
+
+        data.writeFloat(step);
+        data.writeInt(values.length);
+        for (float value : values)
+            data.writeShort(Math.round(value / step));
+    }
+}
@@ -0,0 +1,206 @@
+package engine.eval.nnue;
+
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.listeners.PositionObserver;
+import java.util.Arrays;
+
+/**
+ * Evaluator running an efficiently updatable neural network. Once attached to a position, it keeps
+ * one accumulator per ply: a move copies the accumulator and applies the features of the moved pieces,
+ * an unmake simply drops it. Only a king move forces its side to sum all its features again.
+ * <p>
+ * An evaluator holds scratch state, so each search thread needs its own.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class NnueEvaluator implements Evaluator, PositionObserver {
+
+    /**
+     * The weights of the network.
+     */
+    private final Network network;
+
+    /**
+     * The vector operations used to run the network.
+     */
+    private final DenseKernel kernel;
+
+    /**
+     * The accumulators of both sides for each ply, white values first.
+     */
+    private float[][] accumulators = new float[128][2 * Network.HIDDEN];
+
+    /**
+     * Whether the accumulator of each side of each ply must be summed again from the position.
+     */
+    private boolean[][] dirty = new boolean[128][2];
+
+    /**
+     * The ply of the current accumulator.
+     */
+    private int top;
+
+    /**
+     * The position the evaluator is attached to.
+     */
+    private Position position;
+
+    /**
+     * The accumulator used to evaluate a position the evaluator is not attached to.
+     */
+    private final float[] scratch = new float[2 * Network.HIDDEN];
+
+    /**
+     * Constructs an evaluator with the default network and the fastest kernel available.
+     */
+    public NnueEvaluator() {
+        this(Network.loadDefault(), DenseKernel.best());
+    }
+
+    /**
+     * Constructs an evaluator.
+     *
+     * @param network The weights of the network.
+     * @param kernel  The vector operations to use.
+     */
+    public NnueEvaluator(Network network, DenseKernel kernel) {
+        this.network = network;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Gets the vector operations used to run the network.
+     *
+     * @return The kernel.
+     */
+    public DenseKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Evaluates a position. The evaluation is incremental if the evaluator is attached to the position,
+     * otherwise the features are summed from scratch.
+     *
+     * @param position The position to evaluate.
+     * @return The score in centipawns, positive when the side to move is better.
+     */
+    @Override
+    public int evaluate(Position position) {
+        float[] accumulator;
+        if (position == this.position) {
+            accumulator = accumulators[top];
+            for (int side = Position.WHITE; side <= Position.BLACK; side++) {
+                if (dirty[top][side]) {
+                    refresh(position, accumulator, side);
+                    dirty[top][side] = false;
+                }
+            }
+        } else {
+            accumulator = scratch;
+            refresh(position, accumulator, Position.WHITE);
+            refresh(position, accumulator, Position.BLACK);
+        }
+        return forward(accumulator, position.sideToMove());
+    }
+
+    @Override
+    public void updateReset(Position position) {
+        this.position = position;
+        top = 0;
+        dirty[0][Position.WHITE] = dirty[0][Position.BLACK] = true;
+    }
+
+    @Override
+    public void updatePush() {
+        if (top + 1 == accumulators.length) {
+            int size = accumulators.length * 2;
+            accumulators = Arrays.copyOf(accumulators, size);
+            dirty = Arrays.copyOf(dirty, size);
+            for (int i = top + 1; i < size; i++) {
+                accumulators[i] = new float[2 * Network.HIDDEN];
+                dirty[i] = new boolean[2];
+            }
+        }
+        System.arraycopy(accumulators[top], 0, accumulators[top + 1], 0, 2 * Network.HIDDEN);
+        dirty[top + 1][Position.WHITE] = dirty[top][Position.WHITE];
+        dirty[top + 1][Position.BLACK] = dirty[top][Position.BLACK];
+        top++;
+    }
+
+    @Override
+    public void updateAdd(int piece, int square) {
+        // a king move changes the point of view of its side, which is summed again when evaluating
+        if (Position.typeOf(piece) == Position.KING)
+            dirty[top][Position.colorOf(piece)] = true;
+
+        for (int side = Position.WHITE; side <= Position.BLACK; side++)
+            if (!dirty[top][side])
+                kernel.add(accumulators[top], side * Network.HIDDEN, network.featureWeights,
+                        row(side, piece, square), Network.HIDDEN);
+    }
+
+    @Override
+    public void updateRemove(int piece, int square) {
+        for (int side = Position.WHITE; side <= Position.BLACK; side++)
+            if (!dirty[top][side])
+                kernel.subtract(accumulators[top], side * Network.HIDDEN, network.featureWeights,
+                        row(side, piece, square), Network.HIDDEN);
+    }
+
+    @Override
+    public void updatePop() {
+        top--;
+    }
+
+    /**
+     * Gets the first weight of the row of a feature.
+     *
+     * @param side   The side whose point of view is used.
+     * @param piece  The piece code.
+     * @param square The square of the piece.
+     * @return The index of the row in the feature weights.
+     */
+    private int row(int side, int piece, int square) {
+        return Network.feature(side, position.kingSquare(side), piece, square) * Network.HIDDEN;
+    }
+
+    /**
+     * Sums all the features of a side in its accumulator.
+     *
+     * @param position    The position to read.
+     * @param accumulator The accumulators of both sides.
+     * @param side        The side whose accumulator is summed.
+     */
+    private void refresh(Position position, float[] accumulator, int side) {
+        int offset = side * Network.HIDDEN, king = position.kingSquare(side);
+        System.arraycopy(network.featureBias, 0, accumulator, offset, Network.HIDDEN);
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.EMPTY)
+                kernel.add(accumulator, offset, network.featureWeights,
+                        Network.feature(side, king, piece, square) * Network.HIDDEN, Network.HIDDEN);
+        }
+    }
+
+    /**
+     * Runs the dense layers on the accumulators.
+     *
+     * @param accumulator The accumulators of both sides.
+     * @param us          The side to move.
+     * @return The score in centipawns, positive when the side to move is better.
+     */
+    private int forward(float[] accumulator, int us) {
+        int them = us ^ 1, width = 2 * Network.HIDDEN;
+        float output = network.outputBias;
+        for (int neuron = 0; neuron < Network.L1; neuron++) {
+            float sum = network.denseBias[neuron]
+                    + kernel.dotClipped(accumulator, us * Network.HIDDEN, network.denseWeights,
+                    neuron * width, Network.HIDDEN)
+                    + kernel.dotClipped(accumulator, them * Network.HIDDEN, network.denseWeights,
+                    neuron * width + Network.HIDDEN, Network.HIDDEN);
+            output += Math.min(Math.max(sum, 0f), 1f) * network.outputWeights[neuron];
+        }
+        return Math.round(output);
+    }
+}
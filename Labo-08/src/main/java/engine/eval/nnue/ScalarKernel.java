@@ -0,0 +1,39 @@
+package engine.eval.nnue;
+
+/**
+ * Plain Java implementation of the vector operations of the network.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class ScalarKernel implements DenseKernel {
+
+    @Override
+    public void add(float[] accumulator, int offset, float[] weights, int row, int length) {
+        for (int i = 0; i < length; i++)
+            accumulator[offset + i] += weights[row + i];
+    }
+
+    @Override
+    public void subtract(float[] accumulator, int offset, float[] weights, int row, int length) {
+        for (int i = 0; i < length; i++)
+            accumulator[offset + i] -= weights[row + i];
+    }
+
+    @Override
+    public float dotClipped(float[] inputs, int offset, float[] weights, int row, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += Math.min(Math.max(inputs[offset + i], 0f), 1f) * weights[row + i];
+        return sum;
+    }
+
+    /**
+     * Names the kernel for the reports.
+     *
+     * @return The name of the kernel.
+     */
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,65 @@
+package engine.eval.nnue;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the vector operations of the network, using the widest vectors of the CPU
+ * (AVX on x86, NEON on ARM). Only loaded when the jdk.incubator.vector module is enabled.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class VectorKernel implements DenseKernel {
+
+    /**
+     * The preferred vector shape of the platform.
+     */
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(float[] accumulator, int offset, float[] weights, int row, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            FloatVector.fromArray(SPECIES, accumulator, offset + i)
+                    .add(FloatVector.fromArray(SPECIES, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        for (; i < length; i++)
+            accumulator[offset + i] += weights[row + i];
+    }
+
+    @Override
+    public void subtract(float[] accumulator, int offset, float[] weights, int row, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            FloatVector.fromArray(SPECIES, accumulator, offset + i)
+                    .sub(FloatVector.fromArray(SPECIES, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        for (; i < length; i++)
+            accumulator[offset + i] -= weights[row + i];
+    }
+
+    @Override
+    public float dotClipped(float[] inputs, int offset, float[] weights, int row, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector input = FloatVector.fromArray(SPECIES, inputs, offset + i).max(0f).min(1f);
+            sum = input.fma(FloatVector.fromArray(SPECIES, weights, row + i), sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            result += Math.min(Math.max(inputs[offset + i], 0f), 1f) * weights[row + i];
+        return result;
+    }
+
+    /**
+     * Names the kernel for the reports.
+     *
+     * @return The name of the kernel with the width of its vectors.
+     */
+    @Override
+    public String toString() {
+        return "vector (" + SPECIES.vectorBitSize() + " bits)";
+    }
+}
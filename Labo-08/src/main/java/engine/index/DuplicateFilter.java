@@ -0,0 +1,185 @@
+package engine.index;
+
+import engine.board.Position;
+import engine.pgn.PgnGame;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Detects the games already seen while importing PGN files, so that merging databases which overlap
+ * keeps one copy of each game.
+ * <p>
+ * A game is identified by a fingerprint of 128 bits: a hash of its start position and of its moves in
+ * order, and the hash of its final position. The fingerprints seen are kept exactly in a store on disk
+ * (see FingerprintStore), and in memory in a scalable Bloom filter, about 20 bits per game: a new game
+ * is almost always rejected by the filter, and the disk is only searched when the filter answers that
+ * the game may have been seen, for the duplicates and about 1% of the new games. The store survives
+ * the import, so that the next imports also skip the games already imported.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class DuplicateFilter implements AutoCloseable {
+
+    /**
+     * The number of games of the first stage of the Bloom filter.
+     */
+    private static final long FILTER_CAPACITY = 1 << 20;
+
+    /**
+     * The error rate of the first stage of the Bloom filter.
+     */
+    private static final double FILTER_ERROR_RATE = 0.004;
+
+    /**
+     * The fingerprints seen.
+     */
+    private final FingerprintStore store;
+
+    /**
+     * The fingerprints seen, approximately.
+     */
+    private final ScalableBloomFilter filter;
+
+    /**
+     * The position of the game being fingerprinted.
+     */
+    private final Position position = new Position();
+
+    /**
+     * The number of games tested.
+     */
+    private long games;
+
+    /**
+     * The number of duplicates found.
+     */
+    private long duplicates;
+
+    /**
+     * The number of searches of the store.
+     */
+    private long lookups;
+
+    /**
+     * Constructs a filter over a store.
+     *
+     * @param store The store, owned by the filter.
+     */
+    private DuplicateFilter(FingerprintStore store) {
+        this.store = store;
+        filter = new ScalableBloomFilter(Math.max(FILTER_CAPACITY, store.size()), FILTER_ERROR_RATE);
+        store.forEach(filter::add);
+    }
+
+    /**
+     * Opens a filter, with the games of the previous imports into the same directory.
+     *
+     * @param directory The directory of the fingerprints, created if needed.
+     * @return The filter, to close.
+     * @throws IOException If the fingerprints can't be read.
+     */
+    public static DuplicateFilter open(Path directory) throws IOException {
+        return new DuplicateFilter(FingerprintStore.open(directory));
+    }
+
+    /**
+     * Tests a game read from a PGN file and remembers it, up to its error if any.
+     *
+     * @param game The game.
+     * @return true if the game is new, false if it is a duplicate.
+     * @throws IOException If the fingerprints can't be read or written.
+     */
+    public boolean add(PgnGame game) throws IOException {
+        return add(game.startPosition(), game.getMoves(), game.getMoves().length);
+    }
+
+    /**
+     * Tests a game and remembers it.
+     *
+     * @param start The start position, left unchanged.
+     * @param moves The moves, legal from the start position.
+     * @param count The number of moves.
+     * @return true if the game is new, false if it is a duplicate.
+     * @throws IOException If the fingerprints can't be read or written.
+     */
+    public boolean add(Position start, int[] moves, int count) throws IOException {
+        position.copyFrom(start);
+        long sequence = mix(start.key() ^ count);
+        for (int ply = 0; ply < count; ply++) {
+            sequence = mix(sequence ^ moves[ply]);
+            position.make(moves[ply]);
+        }
+        // 0 marks the empty slots of the store
+        long high = sequence | 1, low = position.key();
+
+        games++;
+        if (filter.mightContain(high, low)) {
+            lookups++;
+            if (store.contains(high, low)) {
+                duplicates++;
+                return false;
+            }
+        }
+        filter.add(high, low);
+        store.add(high, low);
+        return true;
+    }
+
+    /**
+     * Gets the number of games tested.
+     *
+     * @return The number of games.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of duplicates found.
+     *
+     * @return The number of games already seen.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets the number of searches on disk, the duplicates and the false positives of the Bloom filter.
+     *
+     * @return The number of searches.
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Gets the memory used by the Bloom filter.
+     *
+     * @return The number of bytes.
+     */
+    public long getFilterBytes() {
+        return filter.bytes();
+    }
+
+    /**
+     * Writes the fingerprints not on disk yet.
+     *
+     * @throws IOException If the fingerprints can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Mixes the bits of a hash (the finalizer of SplitMix64).
+     *
+     * @param h The hash.
+     * @return The mixed hash.
+     */
+    private static long mix(long h) {
+        h = (h ^ h >>> 30) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ h >>> 27) * 0x94D049BB133111EBL;
+        return h ^ h >>> 31;
+    }
+}
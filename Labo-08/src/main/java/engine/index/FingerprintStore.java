@@ -0,0 +1,448 @@
+package engine.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An exact set of 128 bits fingerprints kept on disk, with a bounded memory.
+ * <p>
+ * The fingerprints added go to a hash table in memory. When it is half full, it is sorted by the high
+ * half of the fingerprints and written as a run file, which is then memory-mapped. Like a binary
+ * counter, the last two runs are merged while the last one is at least half as large as the one before
+ * it, so that there are only a logarithmic number of runs, each fingerprint being written a logarithmic
+ * number of times. Testing a fingerprint probes the table, then searches the runs by dichotomy.
+ * <p>
+ * A run file is a header (magic, version, number of fingerprints) followed by the fingerprints, 16
+ * bytes each, sorted by the unsigned order of their high half.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class FingerprintStore implements AutoCloseable {
+
+    /**
+     * The magic number of the run files ("DUPF").
+     */
+    static final int MAGIC = 0x44555046;
+
+    /**
+     * The version of the format of the run files.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the header of a run, in bytes.
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * The number of bits of the number of fingerprints of a mapped segment of a run.
+     */
+    private static final int SEGMENT_BITS = 26;
+
+    /**
+     * The number of slots of the hash table, which is written as a run when half full.
+     */
+    private static final int TABLE_SLOTS = 1 << 20;
+
+    /**
+     * Receives the fingerprints of the store.
+     */
+    interface Visitor {
+
+        /**
+         * Receives a fingerprint.
+         *
+         * @param high The high half of the fingerprint.
+         * @param low  The low half of the fingerprint.
+         */
+        void visit(long high, long low);
+    }
+
+    /**
+     * The directory of the runs.
+     */
+    private final Path directory;
+
+    /**
+     * The runs, the oldest and largest first.
+     */
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * The high halves of the fingerprints of the hash table, 0 for an empty slot.
+     */
+    private final long[] highs = new long[TABLE_SLOTS];
+
+    /**
+     * The low halves of the fingerprints of the hash table.
+     */
+    private final long[] lows = new long[TABLE_SLOTS];
+
+    /**
+     * The number of fingerprints of the hash table.
+     */
+    private int pending;
+
+    /**
+     * The number of the next run file.
+     */
+    private int nextRun;
+
+    /**
+     * The high halves of the fingerprints of the hash table being sorted.
+     */
+    private final long[] keys = new long[TABLE_SLOTS / 2];
+
+    /**
+     * The slots of the fingerprints being sorted.
+     */
+    private final int[] slots = new int[TABLE_SLOTS / 2];
+
+    /**
+     * The sort of the fingerprints written as a run.
+     */
+    private final RadixSort sort = new RadixSort();
+
+    /**
+     * Constructs a store.
+     *
+     * @param directory The directory of the runs.
+     */
+    private FingerprintStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens a store, created if the directory has no run.
+     *
+     * @param directory The directory of the runs, created if needed.
+     * @return The store, to close.
+     * @throws IOException If a run can't be read or is not valid.
+     */
+    static FingerprintStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FingerprintStore store = new FingerprintStore(directory);
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "run-*.fp")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring(4, name.length() - 3)));
+            }
+        }
+        numbers.sort(null);
+        try {
+            for (int number : numbers)
+                store.runs.add(Run.open(store.path(number)));
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        store.nextRun = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1;
+        return store;
+    }
+
+    /**
+     * Gets the number of fingerprints.
+     *
+     * @return The number of fingerprints added, merged runs counting the duplicates of a crash.
+     */
+    long size() {
+        long size = pending;
+        for (Run run : runs)
+            size += run.count;
+        return size;
+    }
+
+    /**
+     * Indicates if a fingerprint was added.
+     *
+     * @param high The high half of the fingerprint, not 0.
+     * @param low  The low half of the fingerprint.
+     * @return true if the fingerprint is in the store.
+     */
+    boolean contains(long high, long low) {
+        for (int slot = slot(high); highs[slot] != 0; slot = slot + 1 & TABLE_SLOTS - 1) {
+            if (highs[slot] == high && lows[slot] == low)
+                return true;
+        }
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (runs.get(i).contains(high, low))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a fingerprint which is not in the store.
+     *
+     * @param high The high half of the fingerprint, not 0.
+     * @param low  The low half of the fingerprint.
+     * @throws IOException If a run can't be written.
+     */
+    void add(long high, long low) throws IOException {
+        int slot = slot(high);
+        while (highs[slot] != 0)
+            slot = slot + 1 & TABLE_SLOTS - 1;
+        highs[slot] = high;
+        lows[slot] = low;
+        if (++pending == TABLE_SLOTS / 2)
+            spill();
+    }
+
+    /**
+     * Visits all the fingerprints.
+     *
+     * @param visitor The visitor.
+     */
+    void forEach(Visitor visitor) {
+        for (Run run : runs) {
+            for (long i = 0; i < run.count; i++)
+                visitor.visit(run.high(i), run.low(i));
+        }
+        for (int slot = 0; slot < TABLE_SLOTS; slot++) {
+            if (highs[slot] != 0)
+                visitor.visit(highs[slot], lows[slot]);
+        }
+    }
+
+    /**
+     * Writes the fingerprints of the hash table as a run.
+     *
+     * @throws IOException If the run can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (pending > 0)
+            spill();
+    }
+
+    /**
+     * Writes the hash table as a run, then merges the last runs while they are of similar sizes.
+     *
+     * @throws IOException If a run can't be written.
+     */
+    private void spill() throws IOException {
+        for (int slot = 0, i = 0; slot < TABLE_SLOTS; slot++) {
+            if (highs[slot] != 0) {
+                keys[i] = highs[slot];
+                slots[i++] = slot;
+            }
+        }
+        sort.sort(keys, slots, pending);
+
+        Path path = path(nextRun++), temporary = temporary(path);
+        try (DataOutputStream out = output(temporary)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(pending);
+            for (int i = 0; i < pending; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(lows[slots[i]]);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        runs.add(Run.open(path));
+        Arrays.fill(highs, 0);
+        pending = 0;
+
+        while (runs.size() >= 2 && runs.get(runs.size() - 1).count * 2 >= runs.get(runs.size() - 2).count)
+            merge();
+    }
+
+    /**
+     * Merges the last two runs into a new one, then deletes them.
+     *
+     * @throws IOException If the run can't be written.
+     */
+    private void merge() throws IOException {
+        Run older = runs.get(runs.size() - 2), newer = runs.get(runs.size() - 1);
+        Path path = path(nextRun++), temporary = temporary(path);
+        try (DataOutputStream out = output(temporary)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(older.count + newer.count);
+            long i = 0, j = 0;
+            while (i < older.count || j < newer.count) {
+                Run run;
+                long index;
+                if (j == newer.count || i < older.count
+                        && Long.compareUnsigned(older.high(i), newer.high(j)) <= 0) {
+                    run = older;
+                    index = i++;
+                } else {
+                    run = newer;
+                    index = j++;
+                }
+                out.writeLong(run.high(index));
+                out.writeLong(run.low(index));
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        runs.remove(runs.size() - 1);
+        runs.set(runs.size() - 1, Run.open(path));
+        // the runs merged are deleted once the merged run is in place, a crash in between leaving duplicates only
+        Files.delete(older.path);
+        Files.delete(newer.path);
+    }
+
+    /**
+     * Gets the first slot of a fingerprint in the hash table.
+     *
+     * @param high The high half of the fingerprint.
+     * @return The slot.
+     */
+    private static int slot(long high) {
+        return (int) (high * 0x9E3779B97F4A7C15L >>> 44);
+    }
+
+    /**
+     * Gets the path of a run.
+     *
+     * @param number The number of the run.
+     * @return The path.
+     */
+    private Path path(int number) {
+        return directory.resolve(String.format("run-%06d.fp", number));
+    }
+
+    /**
+     * Gets the path a run is written to before being moved in place.
+     *
+     * @param path The path of the run.
+     * @return The temporary path.
+     */
+    private static Path temporary(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Opens a buffered output to a new file.
+     *
+     * @param path The path of the file.
+     * @return The output.
+     * @throws IOException If the file can't be created.
+     */
+    private static DataOutputStream output(Path path) throws IOException {
+        OutputStream file = Files.newOutputStream(path);
+        return new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+    }
+
+    /**
+     * A run of sorted fingerprints, memory-mapped.
+     */
+    private static final class Run {
+
+        /**
+         * The path of the run.
+         */
+        private final Path path;
+
+        /**
+         * The mapped segments, each one of 1 &lt;&lt; SEGMENT_BITS fingerprints except the last one.
+         */
+        private final ByteBuffer[] segments;
+
+        /**
+         * The number of fingerprints.
+         */
+        private final long count;
+
+        /**
+         * Constructs a run.
+         *
+         * @param path     The path of the run.
+         * @param segments The mapped segments.
+         * @param count    The number of fingerprints.
+         */
+        private Run(Path path, ByteBuffer[] segments, long count) {
+            this.path = path;
+            this.segments = segments;
+            this.count = count;
+        }
+
+        /**
+         * Maps a run. The mapping stays valid once the channel is closed.
+         *
+         * @param path The path of the run.
+         * @return The run.
+         * @throws IOException If the file can't be read or is not a run.
+         */
+        private static Run open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining()) {
+                    if (channel.read(header) < 0)
+                        throw new IOException("Not a fingerprint run file of version " + VERSION + ": " + path);
+                }
+                long count = header.getLong(8);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                    throw new IOException("Not a fingerprint run file of version " + VERSION + ": " + path);
+                if (count < 0 || channel.size() != HEADER_BYTES + count * 16)
+                    throw new IOException("Truncated fingerprint run file: " + path);
+                ByteBuffer[] segments = new ByteBuffer[(int) ((count + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+                for (int i = 0; i < segments.length; i++) {
+                    long first = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * 16,
+                            Math.min(1L << SEGMENT_BITS, count - first) * 16);
+                }
+                return new Run(path, segments, count);
+            }
+        }
+
+        /**
+         * Gets the high half of a fingerprint.
+         *
+         * @param index The index of the fingerprint.
+         * @return The high half.
+         */
+        private long high(long index) {
+            return segments[(int) (index >>> SEGMENT_BITS)].getLong((int) (index & (1L << SEGMENT_BITS) - 1) << 4);
+        }
+
+        /**
+         * Gets the low half of a fingerprint.
+         *
+         * @param index The index of the fingerprint.
+         * @return The low half.
+         */
+        private long low(long index) {
+            return segments[(int) (index >>> SEGMENT_BITS)]
+                    .getLong(((int) (index & (1L << SEGMENT_BITS) - 1) << 4) + 8);
+        }
+
+        /**
+         * Searches a fingerprint by dichotomy.
+         *
+         * @param high The high half of the fingerprint.
+         * @param low  The low half of the fingerprint.
+         * @return true if the run holds the fingerprint.
+         */
+        private boolean contains(long high, long low) {
+            long from = 0, to = count;
+            while (from < to) {
+                long middle = from + to >>> 1;
+                if (Long.compareUnsigned(high(middle), high) < 0)
+                    from = middle + 1;
+                else
+                    to = middle;
+            }
+            for (; from < count && high(from) == high; from++) {
+                if (low(from) == low)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
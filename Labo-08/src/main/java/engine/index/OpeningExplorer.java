@@ -0,0 +1,186 @@
+package engine.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An opening explorer read from a memory-mapped file: for a position, the moves played in the games
+ * of a database with the number of games won by white, drawn and won by black after each move.
+ * <p>
+ * The positions are keyed by their Zobrist key, so the games reaching a position by a transposition
+ * are merged, and the explorer forms a tree whose children are found by the key after each move.
+ * The file holds records of 24 bytes: a header (magic, version, number of entries, number of games)
+ * then the entries (key, move, white wins, draws, black wins), sorted by unsigned key then by
+ * decreasing number of games. A lookup is a binary search in the mapped file.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class OpeningExplorer {
+
+    /**
+     * The magic number of the file format ("EXPL").
+     */
+    public static final int MAGIC = 0x4558504C;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header and of an entry, in bytes.
+     */
+    public static final int ENTRY_BYTES = 24;
+
+    /**
+     * The number of records of a mapped segment, so that no record straddles two segments.
+     */
+    private static final int SEGMENT_RECORDS = (1 << 30) / ENTRY_BYTES;
+
+    /**
+     * The mapped segments, the header being the record 0.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * The number of entries.
+     */
+    private final long size;
+
+    /**
+     * The number of games.
+     */
+    private final long games;
+
+    /**
+     * Constructs an explorer over a mapped file.
+     *
+     * @param segments The mapped segments.
+     * @param size     The number of entries.
+     * @param games    The number of games.
+     */
+    private OpeningExplorer(ByteBuffer[] segments, long size, long games) {
+        this.segments = segments;
+        this.size = size;
+        this.games = games;
+    }
+
+    /**
+     * Maps an explorer file. The file can be closed right away, the mapping stays valid.
+     *
+     * @param path The path of the explorer.
+     * @return The explorer.
+     * @throws IOException If the file can't be read or is not an explorer.
+     */
+    public static OpeningExplorer open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < ENTRY_BYTES)
+                throw new IOException("Not an opening explorer file: " + path);
+
+            long segmentBytes = (long) SEGMENT_RECORDS * ENTRY_BYTES;
+            ByteBuffer[] segments = new ByteBuffer[(int) ((length + segmentBytes - 1) / segmentBytes)];
+            for (int i = 0; i < segments.length; i++)
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, i * segmentBytes,
+                        Math.min(segmentBytes, length - i * segmentBytes));
+            ByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Not an opening explorer file of version " + VERSION + ": " + path);
+            long size = header.getLong(8);
+            if (size < 0 || (size + 1) * ENTRY_BYTES != length)
+                throw new IOException("Truncated opening explorer file: " + path);
+            return new OpeningExplorer(segments, size, header.getLong(16));
+        }
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of (position, move) entries.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of games of the database.
+     *
+     * @return The number of games.
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * Gets the moves played in a position, by decreasing number of games.
+     *
+     * @param key     The Zobrist key of the position.
+     * @param moves   Receives the moves.
+     * @param results Receives the white wins, draws and black wins after each move, 3 ints per move.
+     * @return The number of moves written, at most moves.length.
+     */
+    public int lookup(long key, int[] moves, int[] results) {
+        int count = 0;
+        for (long i = lowerBound(key); i < size && keyAt(i) == key && count < moves.length; i++) {
+            ByteBuffer segment = segment(i);
+            int offset = offset(i);
+            moves[count] = segment.getInt(offset + 8);
+            results[count * 3] = segment.getInt(offset + 12);
+            results[count * 3 + 1] = segment.getInt(offset + 16);
+            results[count * 3 + 2] = segment.getInt(offset + 20);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first entry whose key is not less than a key.
+     *
+     * @param key The key.
+     * @return The index of the entry, or size if all keys are less.
+     */
+    private long lowerBound(long key) {
+        long low = 0, high = size;
+        while (low < high) {
+            long middle = low + high >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Gets the key of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The key.
+     */
+    private long keyAt(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    /**
+     * Gets the segment of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The segment.
+     */
+    private ByteBuffer segment(long index) {
+        return segments[(int) ((index + 1) / SEGMENT_RECORDS)];
+    }
+
+    /**
+     * Gets the offset of an entry in its segment.
+     *
+     * @param index The index of the entry.
+     * @return The offset.
+     */
+    private static int offset(long index) {
+        return (int) ((index + 1) % SEGMENT_RECORDS) * ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,391 @@
+package engine.index;
+
+import engine.board.Position;
+import engine.pgn.PgnGame;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Builds an opening explorer from PGN games: every move played in the first plies of a finished
+ * game is counted with the result of the game.
+ * <p>
+ * The games are replayed by worker threads, each counting in its own hash table of primitive arrays,
+ * so that the workers share nothing. Writing the explorer sorts the tables by key in parallel, then
+ * merges them: the counts of a move found in several tables are summed.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class OpeningExplorerBuilder {
+
+    /**
+     * The number of games handed to a worker at once.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The number of plies of each game added to the explorer.
+     */
+    private final int maxPly;
+
+    /**
+     * The counts of each worker.
+     */
+    private final Table[] tables;
+
+    /**
+     * The number of games added.
+     */
+    private long games;
+
+    /**
+     * The first error of a worker, or null.
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param maxPly  The number of plies of each game added to the explorer.
+     * @param threads The number of workers replaying the games.
+     */
+    public OpeningExplorerBuilder(int maxPly, int threads) {
+        this.maxPly = maxPly;
+        tables = new Table[Math.max(1, threads)];
+        for (int i = 0; i < tables.length; i++)
+            tables[i] = new Table();
+    }
+
+    /**
+     * Gets the number of games added.
+     *
+     * @return The number of finished games.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Adds games, replaying them on the workers. The games not finished are skipped, the games with an
+     * error only contribute the moves before it. If a game can't be replayed, the games still queued are
+     * skipped and the error is thrown once the workers are done.
+     *
+     * @param source The games.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public void add(Iterator<PgnGame> source) throws InterruptedException {
+        BlockingQueue<List<PgnGame>> queue = new ArrayBlockingQueue<>(tables.length * 4);
+        List<PgnGame> end = new ArrayList<>();
+        Thread[] workers = new Thread[tables.length];
+        for (int i = 0; i < workers.length; i++) {
+            Table table = tables[i];
+            workers[i] = new Thread(() -> {
+                try {
+                    for (List<PgnGame> batch = queue.take(); batch != end; batch = queue.take()) {
+                        // a worker which failed still takes its batches, so that the reader never waits for it
+                        for (int j = 0; j < batch.size() && failure == null; j++) {
+                            try {
+                                replay(batch.get(j), table);
+                            } catch (RuntimeException e) {
+                                if (failure == null)
+                                    failure = e;
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "explorer-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        try {
+            List<PgnGame> batch = new ArrayList<>(BATCH);
+            while (source.hasNext() && failure == null) {
+                PgnGame game = source.next();
+                if (result(game) < 0)
+                    continue;
+                games++;
+                batch.add(game);
+                if (batch.size() == BATCH) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty())
+                queue.put(batch);
+            for (int i = 0; i < workers.length; i++)
+                queue.put(end);
+            for (Thread worker : workers)
+                worker.join();
+        } finally {
+            for (Thread worker : workers)
+                worker.interrupt();
+        }
+
+        RuntimeException error = failure;
+        failure = null;
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Writes the explorer.
+     *
+     * @param path The path of the explorer.
+     * @return The number of entries written.
+     * @throws IOException If the file can't be written.
+     */
+    public long write(Path path) throws IOException {
+        IntStream.range(0, tables.length).parallel().forEach(i -> tables[i].sort());
+
+        long entries = 0;
+        int[] moves = new int[Position.MAX_MOVES], results = new int[Position.MAX_MOVES * 3];
+        int[] cursors = new int[tables.length];
+        try (OutputStream file = Files.newOutputStream(path)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            out.writeInt(OpeningExplorer.MAGIC);
+            out.writeInt(OpeningExplorer.VERSION);
+            out.writeLong(0);
+            out.writeLong(games);
+
+            while (true) {
+                // the smallest key at the cursors, the workers being few a scan is enough
+                long key = 0;
+                boolean found = false;
+                for (int t = 0; t < tables.length; t++) {
+                    if (cursors[t] < tables[t].size
+                            && (!found || Long.compareUnsigned(tables[t].sortedKeys[cursors[t]], key) < 0)) {
+                        key = tables[t].sortedKeys[cursors[t]];
+                        found = true;
+                    }
+                }
+                if (!found)
+                    break;
+
+                int count = 0;
+                for (int t = 0; t < tables.length; t++)
+                    for (Table table = tables[t]; cursors[t] < table.size
+                            && table.sortedKeys[cursors[t]] == key; cursors[t]++)
+                        count = table.merge(table.slots[cursors[t]], moves, results, count);
+                sortByGames(moves, results, count);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(key);
+                    out.writeInt(moves[i]);
+                    out.writeInt(results[i * 3]);
+                    out.writeInt(results[i * 3 + 1]);
+                    out.writeInt(results[i * 3 + 2]);
+                }
+                entries += count;
+            }
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, entries), 8);
+        }
+        return entries;
+    }
+
+    /**
+     * Replays the first plies of a game and counts its moves.
+     *
+     * @param game  The game.
+     * @param table The counts of the worker.
+     */
+    private void replay(PgnGame game, Table table) {
+        Position position = game.startPosition();
+        int result = result(game);
+        int[] moves = game.getMoves();
+        for (int ply = 0; ply < moves.length && ply < maxPly; ply++) {
+            table.add(position.key(), moves[ply], result);
+            position.make(moves[ply]);
+        }
+    }
+
+    /**
+     * Gets the result of a game.
+     *
+     * @param game The game.
+     * @return 0 for a white win, 1 for a draw, 2 for a black win or -1 if the game isn't finished.
+     */
+    private static int result(PgnGame game) {
+        switch (game.getResult()) {
+            case "1-0":
+                return 0;
+            case "1/2-1/2":
+                return 1;
+            case "0-1":
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Sorts the moves of a position by decreasing number of games, then by move so that the file
+     * doesn't depend on the number of workers.
+     *
+     * @param moves   The moves.
+     * @param results The results, 3 ints per move.
+     * @param count   The number of moves.
+     */
+    private static void sortByGames(int[] moves, int[] results, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i], white = results[i * 3], draws = results[i * 3 + 1], black = results[i * 3 + 2];
+            int games = white + draws + black, j = i;
+            for (; j > 0; j--) {
+                int previous = results[j * 3 - 3] + results[j * 3 - 2] + results[j * 3 - 1];
+                if (previous > games || previous == games && moves[j - 1] < move)
+                    break;
+                moves[j] = moves[j - 1];
+                System.arraycopy(results, j * 3 - 3, results, j * 3, 3);
+            }
+            moves[j] = move;
+            results[j * 3] = white;
+            results[j * 3 + 1] = draws;
+            results[j * 3 + 2] = black;
+        }
+    }
+
+    /**
+     * The counts of a worker: an open addressing hash table of (key, move) pairs.
+     */
+    private static final class Table {
+
+        /**
+         * The keys of the slots.
+         */
+        long[] keys = new long[1 << 12];
+
+        /**
+         * The moves of the slots, Move.NONE for a free slot.
+         */
+        int[] moves = new int[1 << 12];
+
+        /**
+         * The white wins, draws and black wins of the slots, 3 ints per slot.
+         */
+        int[] results = new int[3 << 12];
+
+        /**
+         * The number of pairs.
+         */
+        int size;
+
+        /**
+         * The keys of the pairs, sorted.
+         */
+        long[] sortedKeys;
+
+        /**
+         * The slots of the sorted pairs.
+         */
+        int[] slots;
+
+        /**
+         * Counts a move.
+         *
+         * @param key    The key of the position.
+         * @param move   The move.
+         * @param result The result of the game.
+         */
+        void add(long key, int move, int result) {
+            if (size * 2 >= moves.length)
+                grow();
+            int slot = find(key, move);
+            if (moves[slot] == 0) {
+                keys[slot] = key;
+                moves[slot] = move;
+                size++;
+            }
+            results[slot * 3 + result]++;
+        }
+
+        /**
+         * Finds the slot of a pair, or the free slot where it goes.
+         *
+         * @param key  The key of the position.
+         * @param move The move.
+         * @return The slot.
+         */
+        private int find(long key, int move) {
+            long hash = (key ^ move * 0x9E3779B97F4A7C15L) * 0xC2B2AE3D27D4EB4FL;
+            int mask = moves.length - 1, slot = (int) (hash >>> 32) & mask;
+            while (moves[slot] != 0 && (keys[slot] != key || moves[slot] != move))
+                slot = slot + 1 & mask;
+            return slot;
+        }
+
+        /**
+         * Doubles the table.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldMoves = moves, oldResults = results;
+            keys = new long[oldKeys.length * 2];
+            moves = new int[oldMoves.length * 2];
+            results = new int[oldResults.length * 2];
+            for (int i = 0; i < oldMoves.length; i++) {
+                if (oldMoves[i] == 0)
+                    continue;
+                int slot = find(oldKeys[i], oldMoves[i]);
+                keys[slot] = oldKeys[i];
+                moves[slot] = oldMoves[i];
+                System.arraycopy(oldResults, i * 3, results, slot * 3, 3);
+            }
+        }
+
+        /**
+         * Sorts the pairs by key.
+         */
+        void sort() {
+            sortedKeys = new long[size];
+            slots = new int[size];
+            for (int i = 0, count = 0; i < moves.length; i++) {
+                if (moves[i] != 0) {
+                    sortedKeys[count] = keys[i];
+                    slots[count++] = i;
+                }
+            }
+            new RadixSort().sort(sortedKeys, slots, size);
+        }
+
+        /**
+         * Adds the counts of a slot to the moves of a position.
+         *
+         * @param slot    The slot.
+         * @param moves   The moves of the position.
+         * @param results The results of the moves, 3 ints per move.
+         * @param count   The number of moves.
+         * @return The number of moves, one more if the move is new.
+         */
+        int merge(int slot, int[] moves, int[] results, int count) {
+            int i = 0;
+            while (i < count && moves[i] != this.moves[slot])
+                i++;
+            if (i == count) {
+                // only a collision of keys could give a position more moves than the buffer
+                if (count == moves.length)
+                    return count;
+                moves[count++] = this.moves[slot];
+                results[i * 3] = results[i * 3 + 1] = results[i * 3 + 2] = 0;
+            }
+            for (int r = 0; r < 3; r++)
+                results[i * 3 + r] += this.results[slot * 3 + r];
+            return count;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package engine.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An index of the positions reached by the games of a PGN database, read from a memory-mapped file:
+ * the games reaching a position are found with a binary search in the sorted keys then a sequential
+ * read of their postings, without loading anything on the heap.
+ * <p>
+ * The file starts with a header (magic, version, number of games, number of keys, offset of the key
+ * table), followed by the offset of each game in the PGN file, the postings and the key table. The
+ * key table holds entries of 16 bytes (Zobrist key, offset of the postings) sorted by unsigned key.
+ * The postings of a key are the number of games then the game numbers in increasing order, each one
+ * written as the difference from the previous one, in variable-length bytes of 7 bits.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class PositionIndex {
+
+    /**
+     * The magic number of the file format ("PIDX").
+     */
+    public static final int MAGIC = 0x50494458;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    public static final int HEADER_BYTES = 32;
+
+    /**
+     * The size of an entry of the key table, in bytes.
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * The base 2 logarithm of the size of a mapped segment.
+     */
+    private static final int SEGMENT_BITS = 30;
+
+    /**
+     * The mapped segments, each one SEGMENT_BITS long except the last one.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * The number of games.
+     */
+    private final long games;
+
+    /**
+     * The number of keys.
+     */
+    private final long keys;
+
+    /**
+     * The offset of the key table.
+     */
+    private final long keyTable;
+
+    /**
+     * Constructs an index over a mapped file.
+     *
+     * @param segments The mapped segments.
+     * @param games    The number of games.
+     * @param keys     The number of keys.
+     * @param keyTable The offset of the key table.
+     */
+    private PositionIndex(ByteBuffer[] segments, long games, long keys, long keyTable) {
+        this.segments = segments;
+        this.games = games;
+        this.keys = keys;
+        this.keyTable = keyTable;
+    }
+
+    /**
+     * Maps an index file. The file can be closed right away, the mapping stays valid.
+     *
+     * @param path The path of the index.
+     * @return The index.
+     * @throws IOException If the file can't be read or is not an index.
+     */
+    public static PositionIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException("Not a position index file: " + path);
+
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(1L << SEGMENT_BITS, size - start));
+            }
+            ByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Not a position index file of version " + VERSION + ": " + path);
+            long games = header.getLong(8), keys = header.getLong(16), keyTable = header.getLong(24);
+            if (games < 0 || keys < 0 || keyTable < HEADER_BYTES + games * 8
+                    || keyTable + keys * ENTRY_BYTES != size)
+                throw new IOException("Truncated position index file: " + path);
+            return new PositionIndex(segments, games, keys, keyTable);
+        }
+    }
+
+    /**
+     * Gets the number of games indexed.
+     *
+     * @return The number of games.
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * Gets the number of distinct positions indexed.
+     *
+     * @return The number of keys.
+     */
+    public long keys() {
+        return keys;
+    }
+
+    /**
+     * Gets the offset of a game in the PGN file, to read it again.
+     *
+     * @param game The number of the game, from 0.
+     * @return The offset of its first byte.
+     */
+    public long offset(long game) {
+        if (game < 0 || game >= games)
+            throw new IndexOutOfBoundsException("No game " + game + " in an index of " + games + " games");
+        return getLong(HEADER_BYTES + game * 8);
+    }
+
+    /**
+     * Counts the games reaching a position.
+     *
+     * @param key The Zobrist key of the position.
+     * @return The number of games.
+     */
+    public int count(long key) {
+        long postings = find(key);
+        return postings < 0 ? 0 : (int) readVarLong(postings, null);
+    }
+
+    /**
+     * Gets the games reaching a position.
+     *
+     * @param key   The Zobrist key of the position.
+     * @param games Receives the game numbers, in increasing order.
+     * @return The number of games written, at most games.length.
+     */
+    public int lookup(long key, long[] games) {
+        long postings = find(key);
+        if (postings < 0)
+            return 0;
+        long[] at = {postings};
+        int count = (int) Math.min(readVarLong(postings, at), games.length);
+        long game = 0;
+        for (int i = 0; i < count; i++) {
+            game += readVarLong(at[0], at);
+            games[i] = game;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the postings of a key with a binary search in the key table.
+     *
+     * @param key The key.
+     * @return The offset of the postings, or -1 if the key is not indexed.
+     */
+    private long find(long key) {
+        long low = 0, high = keys;
+        while (low < high) {
+            long middle = low + high >>> 1;
+            if (Long.compareUnsigned(getLong(keyTable + middle * ENTRY_BYTES), key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        if (low == keys || getLong(keyTable + low * ENTRY_BYTES) != key)
+            return -1;
+        return getLong(keyTable + low * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Reads a number written in bytes of 7 bits, the lowest first, the high bit telling that more follow.
+     *
+     * @param offset The offset of the first byte.
+     * @param next   Receives the offset after the number, or null.
+     * @return The number.
+     */
+    private long readVarLong(long offset, long[] next) {
+        long value = 0;
+        int shift = 0, b;
+        do {
+            b = getByte(offset++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        if (next != null)
+            next[0] = offset;
+        return value;
+    }
+
+    /**
+     * Reads a byte of the file.
+     *
+     * @param offset The offset of the byte.
+     * @return The byte.
+     */
+    private byte getByte(long offset) {
+        return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & ((1L << SEGMENT_BITS) - 1)));
+    }
+
+    /**
+     * Reads a long of the file, possibly spread over two segments.
+     *
+     * @param offset The offset of the long.
+     * @return The long.
+     */
+    private long getLong(long offset) {
+        int inSegment = (int) (offset & ((1L << SEGMENT_BITS) - 1));
+        ByteBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+        if (inSegment <= segment.limit() - 8)
+            return segment.getLong(inSegment);
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = value << 8 | getByte(offset + i) & 0xFF;
+        return value;
+    }
+}
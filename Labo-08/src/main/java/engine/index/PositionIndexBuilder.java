@@ -0,0 +1,295 @@
+package engine.index;
+
+import engine.board.Position;
+import engine.pgn.PgnGame;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds a position index from PGN games: every game is replayed and the key of each position it
+ * reaches is paired with the number of the game.
+ * <p>
+ * The pairs are gathered in a buffer of a fixed size; when it is full they are sorted by key and
+ * written to a temporary run file, so that a database of any size can be indexed with a bounded heap.
+ * Writing the index merges the runs: the runs hold increasing game numbers and the sort keeps the
+ * order of the games of a key, so the merged postings come out sorted without another sort.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class PositionIndexBuilder {
+
+    /**
+     * The default number of pairs of a run, 48 MB of buffers.
+     */
+    public static final int DEFAULT_RUN_PAIRS = 1 << 21;
+
+    /**
+     * The directory of the temporary files.
+     */
+    private final Path temporary;
+
+    /**
+     * The keys of the pairs of the current run.
+     */
+    private final long[] keys;
+
+    /**
+     * The games of the pairs of the current run.
+     */
+    private final int[] games;
+
+    /**
+     * The sort of the runs, which keeps the order of the games of a key.
+     */
+    private final RadixSort sort = new RadixSort();
+
+    /**
+     * The number of pairs of the current run.
+     */
+    private int size;
+
+    /**
+     * The run files written.
+     */
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * The offset of each game in its PGN file.
+     */
+    private long[] offsets = new long[1024];
+
+    /**
+     * The number of games added.
+     */
+    private int gameCount;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param temporary The directory of the temporary run files.
+     * @param runPairs  The number of pairs sorted in memory before being written to a run.
+     */
+    public PositionIndexBuilder(Path temporary, int runPairs) {
+        this.temporary = temporary;
+        keys = new long[runPairs];
+        games = new int[runPairs];
+    }
+
+    /**
+     * Gets the number of games added.
+     *
+     * @return The number of games, which are numbered from 0 in the order they were added.
+     */
+    public int getGames() {
+        return gameCount;
+    }
+
+    /**
+     * Adds the positions of a game, up to its error if any.
+     *
+     * @param game The game.
+     * @throws IOException If a run can't be written.
+     */
+    public void add(PgnGame game) throws IOException {
+        if (gameCount == offsets.length)
+            offsets = Arrays.copyOf(offsets, gameCount * 2);
+        offsets[gameCount] = game.getOffset();
+        int number = gameCount++;
+
+        Position position = game.startPosition();
+        add(position.key(), number);
+        for (int move : game.getMoves()) {
+            position.make(move);
+            add(position.key(), number);
+        }
+    }
+
+    /**
+     * Writes the index and deletes the runs.
+     *
+     * @param path The path of the index.
+     * @return The number of distinct positions.
+     * @throws IOException If a file can't be read or written.
+     */
+    public long write(Path path) throws IOException {
+        spill();
+        Path keyTable = Files.createTempFile(temporary, "keys", ".tmp");
+        long keyCount = 0, position = PositionIndex.HEADER_BYTES + (long) gameCount * 8;
+        List<DataInputStream> inputs = new ArrayList<>();
+        try (OutputStream file = Files.newOutputStream(path);
+             OutputStream keyFile = Files.newOutputStream(keyTable)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            DataOutputStream keyOut = new DataOutputStream(new BufferedOutputStream(keyFile, 1 << 16));
+            out.write(new byte[PositionIndex.HEADER_BYTES]);
+            for (int game = 0; game < gameCount; game++)
+                out.writeLong(offsets[game]);
+
+            // the heads of the runs, by key then by run, the earlier runs holding the earlier games
+            long[] headKeys = new long[runs.size()];
+            int[] headGames = new int[runs.size()];
+            PriorityQueue<Integer> heads = new PriorityQueue<>((a, b) -> {
+                int order = Long.compareUnsigned(headKeys[a], headKeys[b]);
+                return order != 0 ? order : Integer.compare(a, b);
+            });
+            for (int run = 0; run < runs.size(); run++) {
+                inputs.add(new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(run)), 1 << 16)));
+                if (next(inputs.get(run), headKeys, headGames, run))
+                    heads.add(run);
+            }
+
+            int[] postings = new int[256];
+            int count = 0;
+            long key = 0;
+            while (!heads.isEmpty()) {
+                int run = heads.poll();
+                if (count > 0 && headKeys[run] != key) {
+                    keyOut.writeLong(key);
+                    keyOut.writeLong(position);
+                    position += writePostings(out, postings, count);
+                    keyCount++;
+                    count = 0;
+                }
+                // a game whose pairs were split over two runs may repeat a position
+                if (count == 0 || postings[count - 1] != headGames[run]) {
+                    if (count == postings.length)
+                        postings = Arrays.copyOf(postings, count * 2);
+                    postings[count++] = headGames[run];
+                }
+                key = headKeys[run];
+                if (next(inputs.get(run), headKeys, headGames, run))
+                    heads.add(run);
+            }
+            if (count > 0) {
+                keyOut.writeLong(key);
+                keyOut.writeLong(position);
+                position += writePostings(out, postings, count);
+                keyCount++;
+            }
+            keyOut.flush();
+            out.flush();
+            Files.copy(keyTable, file);
+        } finally {
+            for (DataInputStream input : inputs)
+                input.close();
+            for (Path run : runs)
+                Files.deleteIfExists(run);
+            runs.clear();
+            Files.deleteIfExists(keyTable);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+        header.putInt(PositionIndex.MAGIC).putInt(PositionIndex.VERSION);
+        header.putLong(gameCount).putLong(keyCount).putLong(position).flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(header, 0);
+        }
+        return keyCount;
+    }
+
+    /**
+     * Adds a pair, writing the run when the buffer is full.
+     *
+     * @param key  The key of the position.
+     * @param game The number of the game.
+     * @throws IOException If the run can't be written.
+     */
+    private void add(long key, int game) throws IOException {
+        if (size == keys.length)
+            spill();
+        keys[size] = key;
+        games[size++] = game;
+    }
+
+    /**
+     * Sorts the pairs of the buffer and writes them to a run, dropping the positions repeated in a game.
+     *
+     * @throws IOException If the run can't be written.
+     */
+    private void spill() throws IOException {
+        if (size == 0)
+            return;
+        sort.sort(keys, games, size);
+        Path run = Files.createTempFile(temporary, "run", ".tmp");
+        runs.add(run);
+        try (OutputStream file = Files.newOutputStream(run)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && keys[i] == keys[i - 1] && games[i] == games[i - 1])
+                    continue;
+                out.writeLong(keys[i]);
+                out.writeInt(games[i]);
+            }
+            out.flush();
+        }
+        size = 0;
+    }
+
+    /**
+     * Reads the next pair of a run.
+     *
+     * @param input     The run.
+     * @param headKeys  Receives the key at index run.
+     * @param headGames Receives the game at index run.
+     * @param run       The index of the run.
+     * @return false if the run is exhausted.
+     * @throws IOException If the run can't be read.
+     */
+    private static boolean next(DataInputStream input, long[] headKeys, int[] headGames, int run)
+            throws IOException {
+        try {
+            headKeys[run] = input.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        headGames[run] = input.readInt();
+        return true;
+    }
+
+    /**
+     * Writes the postings of a key: their number, then the difference of each game from the previous.
+     *
+     * @param out      The output.
+     * @param postings The games, in increasing order.
+     * @param count    The number of games.
+     * @return The number of bytes written.
+     * @throws IOException If the output can't be written.
+     */
+    private static int writePostings(DataOutputStream out, int[] postings, int count) throws IOException {
+        int bytes = writeVarLong(out, count), previous = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += writeVarLong(out, postings[i] - previous);
+            previous = postings[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes a number in bytes of 7 bits, the lowest first, the high bit telling that more follow.
+     *
+     * @param out   The output.
+     * @param value The number, not negative.
+     * @return The number of bytes written.
+     * @throws IOException If the output can't be written.
+     */
+    private static int writeVarLong(DataOutputStream out, long value) throws IOException {
+        int bytes = 1;
+        for (; value >= 0x80; value >>>= 7, bytes++)
+            out.write((int) value | 0x80);
+        out.write((int) value);
+        return bytes;
+    }
+}
@@ -0,0 +1,70 @@
+package engine.index;
+
+import java.util.Arrays;
+
+/**
+ * A least significant digit radix sort of long keys carrying an int each, in the unsigned order of the
+ * keys. It is stable, so the values of equal keys stay in the order they were given, and it runs in
+ * 4 linear passes whatever the keys.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class RadixSort {
+
+    /**
+     * The number of bits of key sorted by each pass.
+     */
+    private static final int BITS = 16;
+
+    /**
+     * The counts of the digits, then the index of the next value of each digit.
+     */
+    private final int[] counts = new int[1 << BITS];
+
+    /**
+     * The buffer of the keys.
+     */
+    private long[] scratchKeys = new long[0];
+
+    /**
+     * The buffer of the values.
+     */
+    private int[] scratchValues = new int[0];
+
+    /**
+     * Sorts the first pairs of two arrays. The even number of passes leaves the result in the arrays given.
+     *
+     * @param keys   The keys.
+     * @param values The values, moved with their key.
+     * @param size   The number of pairs.
+     */
+    void sort(long[] keys, int[] values, int size) {
+        if (scratchKeys.length < size) {
+            scratchKeys = new long[size];
+            scratchValues = new int[size];
+        }
+        long[] fromKeys = keys, toKeys = scratchKeys;
+        int[] fromValues = values, toValues = scratchValues;
+        for (int shift = 0; shift < Long.SIZE; shift += BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++)
+                counts[(int) (fromKeys[i] >>> shift) & (1 << BITS) - 1]++;
+            for (int digit = 0, sum = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int to = counts[(int) (fromKeys[i] >>> shift) & (1 << BITS) - 1]++;
+                toKeys[to] = fromKeys[i];
+                toValues[to] = fromValues[i];
+            }
+            long[] swapKeys = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swapKeys;
+            int[] swapValues = fromValues;
+            fromValues = toValues;
+            toValues = swapValues;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package engine.index;
+
+/**
+ * A Bloom filter of 128 bits keys which grows with the keys added (scalable Bloom filter, Almeida et
+ * al.): when a stage is full, a stage twice larger with a lower error rate is added, so that the error
+ * rate of all the stages stays bounded without knowing the number of keys in advance.
+ * <p>
+ * Each stage is blocked: the bits of a key are all in a block of 512 bits, the size of a cache line,
+ * chosen by the high half of the key. Testing a key costs one cache miss per stage at most.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class ScalableBloomFilter {
+
+    /**
+     * The factor between the capacity of a stage and the next one.
+     */
+    private static final int GROWTH = 2;
+
+    /**
+     * The factor between the error rate of a stage and the next one.
+     */
+    private static final double TIGHTENING = 0.8;
+
+    /**
+     * The number of longs of a block.
+     */
+    private static final int BLOCK_LONGS = 8;
+
+    /**
+     * The factor of the error rate a stage is sized for: the keys are unevenly spread among the blocks,
+     * which makes a blocked filter err more often than a classic one of the same size.
+     */
+    private static final double BLOCKING = 0.6;
+
+    /**
+     * The stages, the last one receiving the keys.
+     */
+    private Stage[] stages;
+
+    /**
+     * The number of keys added.
+     */
+    private long size;
+
+    /**
+     * Constructs a filter.
+     *
+     * @param capacity  The number of keys of the first stage.
+     * @param errorRate The error rate of the first stage, the error rate of the filter being at most
+     *                  5 times more.
+     */
+    public ScalableBloomFilter(long capacity, double errorRate) {
+        if (capacity <= 0 || errorRate <= 0 || errorRate >= 1)
+            throw new IllegalArgumentException("Invalid capacity or error rate: " + capacity + ", " + errorRate);
+        stages = new Stage[]{new Stage(capacity, errorRate)};
+    }
+
+    /**
+     * Gets the number of keys added.
+     *
+     * @return The number of keys.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the memory used by the bits of the stages.
+     *
+     * @return The number of bytes.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Stage stage : stages)
+            bytes += stage.bits.length * 8L;
+        return bytes;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param high The high half of the key.
+     * @param low  The low half of the key.
+     */
+    public void add(long high, long low) {
+        Stage stage = stages[stages.length - 1];
+        if (stage.count >= stage.capacity) {
+            Stage[] grown = new Stage[stages.length + 1];
+            System.arraycopy(stages, 0, grown, 0, stages.length);
+            stage = new Stage(stage.capacity * GROWTH, stage.errorRate * TIGHTENING);
+            grown[stages.length] = stage;
+            stages = grown;
+        }
+        stage.add(high, low);
+        size++;
+    }
+
+    /**
+     * Indicates if a key may have been added.
+     *
+     * @param high The high half of the key.
+     * @param low  The low half of the key.
+     * @return false if the key was never added, true if it was or if it is a false positive.
+     */
+    public boolean mightContain(long high, long low) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(high, low))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * A stage, a blocked Bloom filter sized for its capacity and error rate.
+     */
+    private static final class Stage {
+
+        /**
+         * The bits, by blocks of 512.
+         */
+        private final long[] bits;
+
+        /**
+         * The number of blocks.
+         */
+        private final long blocks;
+
+        /**
+         * The number of bits set by a key.
+         */
+        private final int hashes;
+
+        /**
+         * The number of keys for which the stage is sized.
+         */
+        private final long capacity;
+
+        /**
+         * The error rate for which the stage is sized.
+         */
+        private final double errorRate;
+
+        /**
+         * The number of keys added.
+         */
+        private long count;
+
+        /**
+         * Constructs an empty stage.
+         *
+         * @param capacity  The number of keys.
+         * @param errorRate The error rate once the stage is full.
+         */
+        private Stage(long capacity, double errorRate) {
+            double ln2 = Math.log(2);
+            long size = (long) Math.ceil(-capacity * Math.log(errorRate * BLOCKING) / (ln2 * ln2));
+            long blocks = (size + 511) / 512;
+            if (blocks * BLOCK_LONGS > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too large a Bloom filter stage: " + capacity + " keys");
+            this.blocks = blocks;
+            this.bits = new long[(int) blocks * BLOCK_LONGS];
+            this.hashes = Math.max(1, (int) Math.ceil(-Math.log(errorRate) / ln2));
+            this.capacity = capacity;
+            this.errorRate = errorRate;
+        }
+
+        /**
+         * Sets the bits of a key.
+         *
+         * @param high The high half of the key.
+         * @param low  The low half of the key.
+         */
+        private void add(long high, long low) {
+            int block = block(high);
+            long h = low;
+            for (int i = 0; i < hashes; i++) {
+                h = next(h);
+                int bit = (int) (h >>> 55);
+                bits[block + (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+
+        /**
+         * Tests the bits of a key.
+         *
+         * @param high The high half of the key.
+         * @param low  The low half of the key.
+         * @return true if all the bits of the key are set.
+         */
+        private boolean mightContain(long high, long low) {
+            int block = block(high);
+            long h = low;
+            for (int i = 0; i < hashes; i++) {
+                h = next(h);
+                int bit = (int) (h >>> 55);
+                if ((bits[block + (bit >>> 6)] & 1L << bit) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Gets the block of a key.
+         *
+         * @param high The high half of the key.
+         * @return The index of the first long of the block.
+         */
+        private int block(long high) {
+            return (int) ((high >>> 32) * blocks >>> 32) * BLOCK_LONGS;
+        }
+
+        /**
+         * Mixes the bits of a hash to get the next one.
+         *
+         * @param h The hash.
+         * @return The next hash, its 9 high bits giving a bit of the block.
+         */
+        private static long next(long h) {
+            h ^= h >>> 31;
+            return h * 0x9E3779B97F4A7C15L;
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package engine.journal;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only journal of the games being played, so that they survive a crash or a restart.
+ * <p>
+ * Every event is a fixed-size record of 16 bytes written in a memory-mapped segment file: the game,
+ * the ply, the kind of event, the move and a checksum. A write is a few stores in memory; when the
+ * records reach the disk depends on the durability:
+ * <ul>
+ * <li>OS: the operating system writes the pages back, which survives a crash of the process but not
+ * of the machine.</li>
+ * <li>PERIODIC: a flusher thread forces the new records every interval, the writers never wait.</li>
+ * <li>GROUP_COMMIT: a writer waits until its record is forced; the flusher forces once for all the
+ * writers waiting, so the cost of a sync is shared by all the moves played meanwhile.</li>
+ * </ul>
+ * Opening a journal recovers it: the segments are scanned in parallel up to their first invalid
+ * record, the games not ended are replayed in parallel, then written to a new segment and the old
+ * segments deleted, so that the journal only grows with the games being played.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class GameJournal implements AutoCloseable {
+
+    /**
+     * When the records are forced to the disk.
+     */
+    public enum Durability {
+        /**
+         * Never forced, the operating system writes the pages back.
+         */
+        OS,
+        /**
+         * Forced every interval by the flusher, without waiting.
+         */
+        PERIODIC,
+        /**
+         * Forced before the write returns, one sync being shared by the concurrent writers.
+         */
+        GROUP_COMMIT
+    }
+
+    /**
+     * The magic number of a segment, "GJRN".
+     */
+    public static final int MAGIC = 0x474A524E;
+
+    /**
+     * The version of the segment format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The default size of a segment, a million records.
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 24;
+
+    /**
+     * The size of a record, and of the segment header.
+     */
+    static final int RECORD_BYTES = 16;
+
+    /**
+     * The kinds of records: a game starting from the initial position, a move and a game ending.
+     */
+    static final int START = 1, MOVE = 2, END = 3;
+
+    /**
+     * The interval of the PERIODIC flushes, in milliseconds.
+     */
+    private static final long FLUSH_INTERVAL = 10;
+
+    /**
+     * The directory of the segments.
+     */
+    private final Path directory;
+
+    /**
+     * When the records are forced.
+     */
+    private final Durability durability;
+
+    /**
+     * The number of records of a segment, header excluded.
+     */
+    private final int capacity;
+
+    /**
+     * The games recovered when the journal was opened, by identifier.
+     */
+    private final Map<Integer, Position> recovered;
+
+    /**
+     * The thread forcing the records, or null for the OS durability.
+     */
+    private final Thread flusher;
+
+    /**
+     * The segment being written.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * The number of the segment being written.
+     */
+    private int segmentNumber = -1;
+
+    /**
+     * The index of the next record of the segment.
+     */
+    private int slot;
+
+    /**
+     * The index of the first record of the segment not forced yet.
+     */
+    private int forcedSlot;
+
+    /**
+     * The number of records written since the journal was opened.
+     */
+    private long written;
+
+    /**
+     * The number of records known to be on the disk.
+     */
+    private long durable;
+
+    /**
+     * The number of writers waiting for their record to be forced.
+     */
+    private int waiting;
+
+    /**
+     * The identifier of the next game.
+     */
+    private int nextGame;
+
+    /**
+     * Whether the journal was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Opens a journal, recovering the games it holds.
+     *
+     * @param directory    The directory of the segments, created if needed.
+     * @param durability   When the records are forced to the disk.
+     * @param segmentBytes The size of a new segment.
+     * @throws IOException If a segment can't be read or written.
+     */
+    private GameJournal(Path directory, Durability durability, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        capacity = segmentBytes / RECORD_BYTES - 1;
+        if (capacity < 1)
+            throw new IllegalArgumentException("A segment must hold at least one record");
+        Files.createDirectories(directory);
+
+        List<Path> old = segments(directory);
+        List<int[]> records = Collections.synchronizedList(new ArrayList<>(Collections.nCopies(old.size(), null)));
+        int[] headers = new int[old.size() * 2];
+        try {
+            old.parallelStream().forEach(path -> {
+                int index = old.indexOf(path);
+                try {
+                    records.set(index, scan(path, headers, index));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // the live games are the ones started and not ended, their moves overwriting from their ply
+        Map<Integer, int[]> games = new HashMap<>();
+        for (int i = 0; i < old.size(); i++) {
+            segmentNumber = Math.max(segmentNumber, headers[i * 2]);
+            nextGame = Math.max(nextGame, headers[i * 2 + 1]);
+            int[] segmentRecords = records.get(i);
+            for (int r = 0; r < segmentRecords.length; r += 3) {
+                int game = segmentRecords[r], ply = segmentRecords[r + 1] >>> 16, kind = segmentRecords[r + 1] & 0xFFFF;
+                nextGame = Math.max(nextGame, game + 1);
+                if (kind == START)
+                    games.put(game, new int[]{0});
+                else if (kind == END)
+                    games.remove(game);
+                else if (games.containsKey(game))
+                    games.put(game, addMove(games.get(game), ply, segmentRecords[r + 2]));
+            }
+        }
+        Map<Integer, Position> positions = new ConcurrentHashMap<>();
+        games.entrySet().parallelStream().forEach(game -> positions.put(game.getKey(), replay(game.getValue())));
+        recovered = Collections.unmodifiableMap(new TreeMap<>(positions));
+
+        // the live games are written again, then the old segments can go
+        roll();
+        for (Map.Entry<Integer, Position> game : recovered.entrySet()) {
+            write(game.getKey(), 0, START, Move.NONE);
+            Position position = game.getValue();
+            for (int ply = 0; ply < position.ply(); ply++)
+                write(game.getKey(), ply, MOVE, position.moveAt(ply));
+        }
+        segment.force();
+        durable = written;
+        forcedSlot = slot;
+        for (Path path : old)
+            Files.delete(path);
+
+        if (durability == Durability.OS) {
+            flusher = null;
+        } else {
+            flusher = new Thread(this::flush, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Opens a journal with segments of the default size, recovering the games it holds.
+     *
+     * @param directory  The directory of the segments, created if needed.
+     * @param durability When the records are forced to the disk.
+     * @return The journal.
+     * @throws IOException If a segment can't be read or written.
+     */
+    public static GameJournal open(Path directory, Durability durability) throws IOException {
+        return open(directory, durability, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a journal, recovering the games it holds.
+     *
+     * @param directory    The directory of the segments, created if needed.
+     * @param durability   When the records are forced to the disk.
+     * @param segmentBytes The size of a new segment, a multiple of 16.
+     * @return The journal.
+     * @throws IOException If a segment can't be read or written.
+     */
+    public static GameJournal open(Path directory, Durability durability, int segmentBytes) throws IOException {
+        return new GameJournal(directory, durability, segmentBytes);
+    }
+
+    /**
+     * Gets the games recovered when the journal was opened: the moves of each game not ended,
+     * replayed from the initial position up to the first move that isn't legal.
+     *
+     * @return The positions by game identifier, their moves available with ply() and moveAt().
+     */
+    public Map<Integer, Position> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Starts a game from the initial position.
+     *
+     * @return The identifier of the game.
+     */
+    public int startGame() {
+        int game;
+        synchronized (this) {
+            game = nextGame++;
+        }
+        commit(write(game, 0, START, Move.NONE));
+        return game;
+    }
+
+    /**
+     * Records a move. A move at a ply already played replaces the moves from that ply, to take back.
+     *
+     * @param game The identifier of the game.
+     * @param ply  The ply of the move, from 0.
+     * @param move The move; only its squares and promotion are used to replay it.
+     */
+    public void append(int game, int ply, int move) {
+        if (ply < 0 || ply > 0xFFFF)
+            throw new IllegalArgumentException("The ply " + ply + " can't be recorded");
+        commit(write(game, ply, MOVE, move));
+    }
+
+    /**
+     * Ends a game, which won't be recovered anymore.
+     *
+     * @param game The identifier of the game.
+     */
+    public void endGame(int game) {
+        commit(write(game, 0, END, Move.NONE));
+    }
+
+    /**
+     * Forces the records written and closes the journal. The segments stay for the next opening.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (durability != Durability.OS)
+                segment.force();
+        }
+    }
+
+    /**
+     * Writes a record in the current segment, starting a new segment when it is full.
+     *
+     * @param game The identifier of the game.
+     * @param ply  The ply.
+     * @param kind The kind of record.
+     * @param move The move, or Move.NONE.
+     * @return The sequence number of the record, to wait for it to be durable.
+     */
+    private synchronized long write(int game, int ply, int kind, int move) {
+        if (closed)
+            throw new IllegalStateException("The journal is closed");
+        if (slot == capacity) {
+            segment.force();
+            durable = written;
+            roll();
+        }
+        int offset = (slot + 1) * RECORD_BYTES, plyKind = ply << 16 | kind;
+        segment.putInt(offset, game);
+        segment.putInt(offset + 4, plyKind);
+        segment.putInt(offset + 8, move);
+        segment.putInt(offset + 12, checksum(segmentNumber, slot, game, plyKind, move));
+        slot++;
+        return ++written;
+    }
+
+    /**
+     * Waits, for the GROUP_COMMIT durability, until a record is on the disk.
+     *
+     * @param sequence The sequence number of the record.
+     */
+    private void commit(long sequence) {
+        if (durability != Durability.GROUP_COMMIT)
+            return;
+        synchronized (this) {
+            waiting++;
+            notifyAll();
+            try {
+                while (durable < sequence && !closed)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting--;
+            }
+        }
+    }
+
+    /**
+     * Forces the new records, every interval or as soon as a writer waits, until the journal is
+     * closed. The sync runs outside the lock, so that the writers go on meanwhile.
+     */
+    private void flush() {
+        while (true) {
+            MappedByteBuffer toForce;
+            long target;
+            int from, to;
+            synchronized (this) {
+                try {
+                    if (durability == Durability.PERIODIC && !closed)
+                        wait(FLUSH_INTERVAL);
+                    while (durability == Durability.GROUP_COMMIT && waiting == 0 && !closed)
+                        wait();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed)
+                    return;
+                toForce = segment;
+                target = written;
+                from = forcedSlot;
+                to = slot;
+            }
+            if (to > from)
+                toForce.force((from + 1) * RECORD_BYTES, (to - from) * RECORD_BYTES);
+            synchronized (this) {
+                if (toForce == segment)
+                    forcedSlot = Math.max(forcedSlot, to);
+                durable = Math.max(durable, target);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Creates and maps the next segment.
+     *
+     * @throws UncheckedIOException If the segment can't be created.
+     */
+    private void roll() {
+        segmentNumber++;
+        Path path = directory.resolve(String.format("journal-%08d.seg", segmentNumber));
+        long size = (long) (capacity + 1) * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(8, segmentNumber);
+        segment.putInt(12, nextGame);
+        slot = forcedSlot = 0;
+    }
+
+    /**
+     * Lists the segments of a directory, in the order they were written.
+     *
+     * @param directory The directory.
+     * @return The paths of the segments.
+     * @throws IOException If the directory can't be listed.
+     */
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    /**
+     * Reads the valid records of a segment, up to the first record whose checksum doesn't match:
+     * the end of the segment, or a record torn by a crash.
+     *
+     * @param path    The path of the segment.
+     * @param headers The number and next game of each segment, filled at index * 2.
+     * @param index   The index of the segment.
+     * @return The game, ply and kind, and move of each record, 3 ints per record.
+     * @throws IOException If the segment can't be read or isn't a journal segment.
+     */
+    private static int[] scan(Path path, int[] headers, int index) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < RECORD_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not a game journal segment of version " + VERSION + ": " + path);
+        int number = buffer.getInt(8);
+        headers[index * 2] = number;
+        headers[index * 2 + 1] = buffer.getInt(12);
+
+        int count = buffer.limit() / RECORD_BYTES - 1, valid = 0;
+        int[] records = new int[count * 3];
+        for (; valid < count; valid++) {
+            int offset = (valid + 1) * RECORD_BYTES;
+            int game = buffer.getInt(offset), plyKind = buffer.getInt(offset + 4), move = buffer.getInt(offset + 8);
+            if (buffer.getInt(offset + 12) != checksum(number, valid, game, plyKind, move))
+                break;
+            records[valid * 3] = game;
+            records[valid * 3 + 1] = plyKind;
+            records[valid * 3 + 2] = move;
+        }
+        return Arrays.copyOf(records, valid * 3);
+    }
+
+    /**
+     * Adds a move to the moves of a game, dropping the moves from its ply.
+     *
+     * @param moves The number of moves followed by the moves.
+     * @param ply   The ply of the move.
+     * @param move  The move.
+     * @return The moves, grown if needed.
+     */
+    private static int[] addMove(int[] moves, int ply, int move) {
+        // a ply past the end means a record was lost, the game stops at the gap whatever follows
+        if (moves[0] < 0)
+            return moves;
+        if (ply > moves[0]) {
+            moves[0] = -moves[0] - 1;
+            return moves;
+        }
+        if (ply + 1 >= moves.length)
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, ply + 2));
+        moves[ply + 1] = move;
+        moves[0] = ply + 1;
+        return moves;
+    }
+
+    /**
+     * Replays the moves of a game from the initial position, up to the first one that isn't legal.
+     * Only the pseudo-legal move matching the squares and the promotion is checked for legality.
+     *
+     * @param moves The number of moves, negative if the game has a gap, followed by the moves.
+     * @return The position reached.
+     */
+    private static Position replay(int[] moves) {
+        Position position = new Position();
+        int[] buffer = new int[Position.MAX_MOVES];
+        int count = moves[0] < 0 ? -moves[0] - 1 : moves[0];
+        for (int ply = 0; ply < count; ply++) {
+            int move = moves[ply + 1], from = Move.from(move), to = Move.to(move), legal = Move.NONE;
+            int promotion = Move.promotion(move) == 0 ? Position.QUEEN : Move.promotion(move);
+            for (int i = 0, generated = position.generate(buffer, 0, false); i < generated; i++) {
+                int candidate = buffer[i];
+                if (Move.from(candidate) == from && Move.to(candidate) == to
+                        && (Move.kind(candidate) != Move.PROMOTION || Move.promotion(candidate) == promotion)) {
+                    legal = candidate;
+                    break;
+                }
+            }
+            if (legal == Move.NONE || !position.isLegal(legal))
+                break;
+            position.make(legal);
+        }
+        return position;
+    }
+
+    /**
+     * Computes the checksum of a record. The segment and the slot are part of it, so that a record
+     * left from another segment or slot is never taken for a valid one, and it is never 0, so that
+     * the zeroed end of a segment is never valid either.
+     *
+     * @param segment The number of the segment.
+     * @param slot    The index of the record in the segment.
+     * @param game    The identifier of the game.
+     * @param plyKind The ply and the kind.
+     * @param move    The move.
+     * @return The checksum.
+     */
+    private static int checksum(int segment, int slot, int game, int plyKind, int move) {
+        long hash = ((long) game << 32 | plyKind & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+        hash ^= ((long) segment << 32 | slot & 0xFFFFFFFFL) * 0xC2B2AE3D27D4EB4FL;
+        hash ^= (move & 0xFFFFFFFFL) * 0x165667B19E3779F9L;
+        hash ^= hash >>> 31;
+        return (int) (hash ^ hash >>> 32) | 1;
+    }
+}
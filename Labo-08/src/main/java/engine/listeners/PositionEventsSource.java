@@ -0,0 +1,73 @@
+package engine.listeners;
+
+import engine.board.Position;
+
+/**
+ * Events source class that notifies the PositionObserver, if one is attached.
+ *
+ * @author Emilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public abstract class PositionEventsSource {
+
+    /**
+     * Observer that follows the changes of the position, null if there is none.
+     */
+    private PositionObserver observer = null;
+
+    /**
+     * Method that allows an observer (listener) to attach itself to this events source.
+     *
+     * @param positionObserver The Observer that wants to attach itself to the subject, or null to detach.
+     */
+    public void attach(PositionObserver positionObserver) {
+        observer = positionObserver;
+    }
+
+    /**
+     * Notifies the observer that the position has been set up again.
+     *
+     * @param position The position that has been set up.
+     */
+    public void notifyReset(Position position) {
+        if (observer != null)
+            observer.updateReset(position);
+    }
+
+    /**
+     * Notifies the observer that a move starts being made.
+     */
+    public void notifyPush() {
+        if (observer != null)
+            observer.updatePush();
+    }
+
+    /**
+     * Notifies the observer that a piece has been put on a square.
+     *
+     * @param piece  The piece code.
+     * @param square The square index.
+     */
+    public void notifyAdd(int piece, int square) {
+        if (observer != null)
+            observer.updateAdd(piece, square);
+    }
+
+    /**
+     * Notifies the observer that a piece has been taken from a square.
+     *
+     * @param piece  The piece code.
+     * @param square The square index.
+     */
+    public void notifyRemove(int piece, int square) {
+        if (observer != null)
+            observer.updateRemove(piece, square);
+    }
+
+    /**
+     * Notifies the observer that the last move has been unmade.
+     */
+    public void notifyPop() {
+        if (observer != null)
+            observer.updatePop();
+    }
+}
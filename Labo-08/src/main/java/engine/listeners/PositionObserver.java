@@ -0,0 +1,45 @@
+package engine.listeners;
+
+import engine.board.Position;
+
+/**
+ * Interface that defines the methods called by a position when its pieces change, so that
+ * incremental structures (e.g. the accumulators of a neural evaluator) can follow make and unmake.
+ *
+ * @author Emilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public interface PositionObserver {
+
+    /**
+     * Method that is called when the whole position has been set up again.
+     *
+     * @param position The position that has been set up.
+     */
+    void updateReset(Position position);
+
+    /**
+     * Method that is called when a move starts being made, before its pieces are changed.
+     */
+    void updatePush();
+
+    /**
+     * Method that is called when a piece is put on a square during a move.
+     *
+     * @param piece  The piece code.
+     * @param square The square index.
+     */
+    void updateAdd(int piece, int square);
+
+    /**
+     * Method that is called when a piece is taken from a square during a move.
+     *
+     * @param piece  The piece code.
+     * @param square The square index.
+     */
+    void updateRemove(int piece, int square);
+
+    /**
+     * Method that is called when the last move has been unmade.
+     */
+    void updatePop();
+}
@@ -0,0 +1,35 @@
+package engine.listeners;
+
+import engine.search.SearchResult;
+
+/**
+ * Events source class that notifies the SearchObserver, if one is attached.
+ *
+ * @author Emilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public abstract class SearchEventsSource {
+
+    /**
+     * Observer that follows the progress of the search, null if there is none.
+     */
+    private SearchObserver observer = null;
+
+    /**
+     * Method that allows an observer (listener) to attach itself to this events source.
+     *
+     * @param searchObserver The Observer that wants to attach itself to the subject, or null to detach.
+     */
+    public void attach(SearchObserver searchObserver) {
+        observer = searchObserver;
+    }
+
+    /**
+     * Notifies the observer that an iteration is completed.
+     *
+     * @param result The best line found by the iteration.
+     */
+    public void notifyIteration(SearchResult result) {
+        if (observer != null)
+            observer.updateIteration(result);
+    }
+}
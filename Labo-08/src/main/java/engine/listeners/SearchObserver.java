@@ -0,0 +1,18 @@
+package engine.listeners;
+
+import engine.search.SearchResult;
+
+/**
+ * Interface that defines the methods called by a search while it deepens.
+ *
+ * @author Emilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public interface SearchObserver {
+
+    /**
+     * Method that is called each time an iteration of the search is completed.
+     *
+     * @param result The best line found by the iteration.
+     */
+    void updateIteration(SearchResult result);
+}
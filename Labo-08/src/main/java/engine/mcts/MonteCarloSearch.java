@@ -0,0 +1,511 @@
+package engine.mcts;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.listeners.PositionObserver;
+import engine.search.Search;
+import engine.search.SearchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Chooses moves with a Monte-Carlo tree search (MCTS), a bot personality playing more like a human
+ * than the alpha-beta search: it spends its playouts on the moves that look natural and, with a
+ * temperature, picks among the good moves instead of always the best one.
+ * <p>
+ * Each playout descends the tree choosing the child maximizing the PUCT formula (average value plus a
+ * bonus for the moves with a high prior and few visits), expands the leaf, evaluates it with a short
+ * capture search and backs the value up. Several workers of a fork-join pool run playouts on the same
+ * tree; a virtual loss on the nodes being explored sends the other workers elsewhere.
+ * <p>
+ * The tree lives in a NodeArena. After a move, the subtree of the new position is kept as long as
+ * the arena has room, so the playouts of the previous moves are not lost.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class MonteCarloSearch implements AutoCloseable {
+
+    /**
+     * The weight of the exploration bonus.
+     */
+    private static final double C_PUCT = 1.5;
+
+    /**
+     * The scale of the priors: a move scoring that many centipawns more is e times more likely.
+     */
+    private static final double PRIOR_SCALE = 150;
+
+    /**
+     * The maximum number of plies of the capture search of a leaf.
+     */
+    private static final int CAPTURE_DEPTH = 6;
+
+    /**
+     * The fraction of the arena above which the tree is not reused.
+     */
+    private static final double REUSE_LIMIT = 0.5;
+
+    /**
+     * The values of the pieces used by the priors.
+     */
+    private static final int[] PIECE_VALUES = {0, 100, 500, 320, 330, 900, 0};
+
+    /**
+     * The nodes of the tree.
+     */
+    private final NodeArena arena;
+
+    /**
+     * The workers running the playouts.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The state of each worker: its position and its evaluator.
+     */
+    private final Worker[] workers;
+
+    /**
+     * The position of the root of the tree, or null if the tree is empty.
+     */
+    private Position rootPosition;
+
+    /**
+     * The root node.
+     */
+    private int root;
+
+    /**
+     * Whether the playouts must stop.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a search.
+     *
+     * @param megabytes  The memory of the tree, in megabytes.
+     * @param threads    The number of workers.
+     * @param evaluators Creates the evaluation of each worker.
+     */
+    public MonteCarloSearch(int megabytes, int threads, Supplier<Evaluator> evaluators) {
+        arena = new NodeArena(megabytes);
+        pool = new ForkJoinPool(threads);
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(evaluators.get());
+    }
+
+    /**
+     * Gets the arena holding the tree, e.g. to report its size.
+     *
+     * @return The arena.
+     */
+    public NodeArena getArena() {
+        return arena;
+    }
+
+    /**
+     * Gets the number of playouts that went through the current root, including the reused ones.
+     *
+     * @return The visits of the root, or 0 if the tree is empty.
+     */
+    public int getRootVisits() {
+        return rootPosition == null ? 0 : arena.visits(root);
+    }
+
+    /**
+     * Stops the playouts of the running search.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Runs playouts from a position and chooses a move.
+     *
+     * @param position    The position, left unchanged.
+     * @param playouts    The number of playouts.
+     * @param millis      The maximum thinking time in milliseconds, or Long.MAX_VALUE.
+     * @param temperature 0 to play the most visited move, more to sample the moves by visits^(1 / temperature).
+     * @param random      The random generator used when sampling.
+     * @return The chosen move followed by the most visited line, its score from the average value and
+     * the number of playouts; the move is Move.NONE if there is no legal move.
+     */
+    public SearchResult think(Position position, long playouts, long millis, double temperature, Random random) {
+        long start = System.nanoTime();
+        stopped = false;
+        setRoot(position);
+
+        long deadline = millis == Long.MAX_VALUE ? Long.MAX_VALUE : start + millis * 1_000_000;
+        long quota = Math.max(1, playouts / workers.length);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Worker worker : workers) {
+            tasks.add(() -> {
+                worker.run(quota, deadline);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        int move = choose(temperature, random);
+        int[] pv = principalVariation(move);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(pv.length, score(move), arena.visits(root), elapsed, pv);
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @Override
+    public void close() {
+        stop();
+        pool.shutdown();
+    }
+
+    /**
+     * Sets the root of the tree, reusing the node of the position if it is a child or a grandchild of
+     * the previous root and the arena has room enough.
+     *
+     * @param position The position to search.
+     */
+    private void setRoot(Position position) {
+        int reused = -1;
+        if (rootPosition != null && arena.size() < arena.capacity() * REUSE_LIMIT)
+            reused = find(root, rootPosition, position.key(), 2);
+        if (reused >= 0) {
+            root = reused;
+        } else {
+            arena.clear();
+            root = arena.allocate(1);
+        }
+        rootPosition = new Position(position);
+        for (Worker worker : workers)
+            worker.setUp(rootPosition);
+    }
+
+    /**
+     * Searches the node of a position among the descendants of a node.
+     *
+     * @param node     The node.
+     * @param position The position of the node, restored.
+     * @param key      The key of the position searched.
+     * @param depth    The number of plies searched.
+     * @return The node of the position, or -1 if it is not found.
+     */
+    private int find(int node, Position position, long key, int depth) {
+        if (position.key() == key)
+            return node;
+        int first = arena.firstChild(node);
+        if (depth == 0 || first < 0)
+            return -1;
+        for (int child = first; child < first + arena.childCount(node); child++) {
+            position.make(arena.move(child));
+            int found = find(child, position, key, depth - 1);
+            position.unmake();
+            if (found >= 0)
+                return found;
+        }
+        return -1;
+    }
+
+    /**
+     * Chooses the move to play among the children of the root.
+     *
+     * @param temperature 0 for the most visited move, more to sample.
+     * @param random      The random generator.
+     * @return The child chosen, or -1 if the root has no child.
+     */
+    private int choose(double temperature, Random random) {
+        int first = arena.firstChild(root), count = first < 0 ? 0 : arena.childCount(root);
+        if (count == 0)
+            return -1;
+
+        int best = first;
+        for (int child = first; child < first + count; child++)
+            if (arena.visits(child) > arena.visits(best))
+                best = child;
+        if (temperature <= 0)
+            return best;
+
+        double[] weights = new double[count];
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            weights[i] = Math.pow((double) arena.visits(first + i) / Math.max(1, arena.visits(best)), 1 / temperature);
+            total += weights[i];
+        }
+        double sample = random.nextDouble() * total;
+        for (int i = 0; i < count; i++) {
+            sample -= weights[i];
+            if (sample < 0)
+                return first + i;
+        }
+        return best;
+    }
+
+    /**
+     * Builds the line starting with a child of the root and following the most visited children.
+     *
+     * @param child The child chosen, or -1.
+     * @return The moves of the line.
+     */
+    private int[] principalVariation(int child) {
+        int[] pv = new int[Search.MAX_PLY];
+        int length = 0;
+        for (int node = child; node >= 0 && length < pv.length; ) {
+            pv[length++] = arena.move(node);
+            int first = arena.firstChild(node), next = -1;
+            for (int i = first; first >= 0 && i < first + arena.childCount(node); i++)
+                if (arena.visits(i) > 0 && (next < 0 || arena.visits(i) > arena.visits(next)))
+                    next = i;
+            node = next;
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    /**
+     * Converts the average value of a child of the root to centipawns.
+     *
+     * @param child The child, or -1.
+     * @return The score, from the side to move point of view.
+     */
+    private int score(int child) {
+        if (child < 0 || arena.visits(child) == 0)
+            return 0;
+        double value = Math.min(0.999, Math.max(0.001, arena.valueSum(child) / arena.visits(child)));
+        return (int) Math.round(-400 * Math.log10(1 / value - 1));
+    }
+
+    /**
+     * The state of a worker, only used by its own thread.
+     */
+    private class Worker {
+
+        /**
+         * The position of the playouts.
+         */
+        private Position position;
+
+        /**
+         * The evaluation of the leaves.
+         */
+        private final Evaluator evaluator;
+
+        /**
+         * The nodes of the current playout.
+         */
+        private final int[] path = new int[Search.MAX_PLY + 1];
+
+        /**
+         * The moves of each ply of the capture search, then of an expansion.
+         */
+        private final int[][] moves = new int[CAPTURE_DEPTH + 1][Position.MAX_MOVES];
+
+        /**
+         * The priors of an expansion.
+         */
+        private final double[] priors = new double[Position.MAX_MOVES];
+
+        /**
+         * Constructs a worker.
+         *
+         * @param evaluator The evaluation of the leaves, owned by the worker.
+         */
+        Worker(Evaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * Copies the root position, with its history for the repetitions.
+         *
+         * @param root The position of the root.
+         */
+        void setUp(Position root) {
+            position = new Position(root);
+            if (evaluator instanceof PositionObserver)
+                position.attach((PositionObserver) evaluator);
+        }
+
+        /**
+         * Runs playouts until the quota, the deadline or a stop.
+         *
+         * @param quota    The number of playouts.
+         * @param deadline The deadline, as System.nanoTime().
+         */
+        void run(long quota, long deadline) {
+            for (long i = 0; i < quota && !stopped; i++) {
+                if ((i & 63) == 0 && System.nanoTime() >= deadline)
+                    break;
+                playout();
+            }
+        }
+
+        /**
+         * Descends the tree, expands and evaluates a leaf, and backs up its value.
+         */
+        private void playout() {
+            int node = root, length = 0;
+            double value;
+            while (true) {
+                path[length] = node;
+                int first = arena.firstChild(node);
+                if (first == NodeArena.UNEXPANDED && arena.tryExpand(node)) {
+                    value = expand(node);
+                    break;
+                }
+                if (first < 0) {
+                    value = evaluate();
+                    break;
+                }
+                int count = arena.childCount(node);
+                if (count == 0) {
+                    value = position.inCheck() ? 0 : 0.5;
+                    break;
+                }
+
+                node = select(node, first, count);
+                arena.addVirtualLoss(node);
+                position.make(arena.move(node));
+                length++;
+                if (position.isRepetition() || position.halfmoveClock() >= 100 || length == Search.MAX_PLY) {
+                    path[length] = node;
+                    value = 0.5;
+                    break;
+                }
+            }
+
+            // the value is for the side to move at the leaf, each node stores it for the side that moved
+            for (int i = length; i >= 0; i--) {
+                value = 1 - value;
+                arena.update(path[i], value, i > 0);
+                if (i > 0)
+                    position.unmake();
+            }
+        }
+
+        /**
+         * Chooses the child maximizing the PUCT formula, counting the virtual losses as lost visits.
+         *
+         * @param node  The parent.
+         * @param first The first child.
+         * @param count The number of children.
+         * @return The child chosen.
+         */
+        private int select(int node, int first, int count) {
+            double exploration = C_PUCT * Math.sqrt(Math.max(1, arena.visits(node) + arena.virtualLoss(node)));
+            // an unvisited child is valued as its parent, seen from the other side
+            double parentValue = arena.visits(node) == 0 ? 0.5 : 1 - arena.valueSum(node) / arena.visits(node);
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + count; child++) {
+                int visits = arena.visits(child), loss = arena.virtualLoss(child);
+                double q = visits + loss == 0 ? parentValue : arena.valueSum(child) / (visits + loss);
+                double score = q + exploration * arena.prior(child) / (1 + visits + loss);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Creates the children of a leaf with their priors and evaluates it.
+         *
+         * @param node The leaf, whose expansion was taken by this worker.
+         * @return The value of the leaf for its side to move.
+         */
+        private double expand(int node) {
+            int[] buffer = moves[0];
+            int count = position.legalMoves(buffer);
+            int first = count == 0 ? 0 : arena.allocate(count);
+            if (first < 0) {
+                arena.release(node);
+                return evaluate();
+            }
+
+            double max = Double.NEGATIVE_INFINITY, total = 0;
+            for (int i = 0; i < count; i++) {
+                priors[i] = moveScore(buffer[i]) / PRIOR_SCALE;
+                max = Math.max(max, priors[i]);
+            }
+            for (int i = 0; i < count; i++)
+                total += priors[i] = Math.exp(priors[i] - max);
+            for (int i = 0; i < count; i++)
+                arena.init(first + i, buffer[i], (float) (priors[i] / total));
+            arena.publish(node, first, count);
+
+            if (count == 0)
+                return position.inCheck() ? 0 : 0.5;
+            return evaluate();
+        }
+
+        /**
+         * Scores a move for the priors: the material it wins.
+         *
+         * @param move The move.
+         * @return The score, in centipawns.
+         */
+        private int moveScore(int move) {
+            int victim = Position.typeOf(position.pieceAt(Move.to(move)));
+            int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+            int score = 0;
+            if (victim != Position.EMPTY)
+                score += PIECE_VALUES[victim] - PIECE_VALUES[attacker] / 10;
+            if (Move.kind(move) == Move.PROMOTION)
+                score += PIECE_VALUES[Move.promotion(move)] - PIECE_VALUES[Position.PAWN];
+            if (position.isAttacked(Move.to(move), position.sideToMove() ^ 1))
+                score -= PIECE_VALUES[attacker] / 2;
+            return score;
+        }
+
+        /**
+         * Evaluates a leaf with a short capture search, as a winning probability.
+         *
+         * @return The value for the side to move, between 0 and 1.
+         */
+        private double evaluate() {
+            int score = captures(0, -Search.INFINITY, Search.INFINITY);
+            return 1 / (1 + Math.pow(10, -score / 400.0));
+        }
+
+        /**
+         * Searches the captures, standing pat on the static evaluation.
+         *
+         * @param ply   The ply of the capture search.
+         * @param alpha The lower bound.
+         * @param beta  The upper bound.
+         * @return The score, from the side to move point of view.
+         */
+        private int captures(int ply, int alpha, int beta) {
+            int best = evaluator.evaluate(position);
+            if (best >= beta || ply == CAPTURE_DEPTH)
+                return best;
+            alpha = Math.max(alpha, best);
+
+            int[] buffer = moves[ply + 1];
+            int count = position.generate(buffer, 0, true);
+            for (int i = 0; i < count; i++) {
+                position.make(buffer[i]);
+                if (position.leftInCheck()) {
+                    position.unmake();
+                    continue;
+                }
+                int score = -captures(ply + 1, -beta, -alpha);
+                position.unmake();
+                if (score > best) {
+                    best = score;
+                    alpha = Math.max(alpha, score);
+                    if (score >= beta)
+                        break;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package engine.mcts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The nodes of a Monte-Carlo tree, stored off-heap in direct buffers allocated once, so that tens of
+ * millions of nodes cost no object header and are never scanned by the garbage collector.
+ * <p>
+ * A node is an index into the arena and its fields are fixed offsets of a 32 bytes record:
+ * <pre>
+ *   0  long  sum of the values backed up, in 1 / VALUE_SCALE
+ *   8  int   number of visits
+ *  12  int   number of virtual losses, i.e. playouts currently going through the node
+ *  16  int   index of the first child, or UNEXPANDED / EXPANDING
+ *  20  int   move leading to the node
+ *  24  float prior probability of the move
+ *  28  int   number of children
+ * </pre>
+ * The children of a node are allocated contiguously by bumping a shared counter. The fields updated
+ * by several threads are accessed atomically through var handles.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class NodeArena {
+
+    /**
+     * The size of a node, in bytes.
+     */
+    public static final int NODE_BYTES = 32;
+
+    /**
+     * The value of the first child index of a node not expanded yet.
+     */
+    public static final int UNEXPANDED = -1;
+
+    /**
+     * The value of the first child index of a node being expanded by a thread.
+     */
+    public static final int EXPANDING = -2;
+
+    /**
+     * The fixed-point scale of the values.
+     */
+    private static final long VALUE_SCALE = 1 << 20;
+
+    /**
+     * The number of nodes of a buffer, as a power of two.
+     */
+    private static final int CHUNK_SHIFT = 21;
+
+    /**
+     * The offsets of the fields in a node.
+     */
+    private static final int SUM = 0, VISITS = 8, VIRTUAL_LOSS = 12, FIRST_CHILD = 16, MOVE = 20, PRIOR = 24,
+            CHILD_COUNT = 28;
+
+    /**
+     * The atomic access to the int fields.
+     */
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.nativeOrder());
+
+    /**
+     * The atomic access to the long fields.
+     */
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    /**
+     * The buffers holding the nodes.
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * The maximum number of nodes.
+     */
+    private final int capacity;
+
+    /**
+     * The number of nodes allocated.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructs an arena.
+     *
+     * @param megabytes The memory of the arena, in megabytes.
+     */
+    public NodeArena(int megabytes) {
+        long nodes = Math.min((long) megabytes * 1024 * 1024 / NODE_BYTES, Integer.MAX_VALUE);
+        capacity = (int) Math.max(1, nodes);
+        int perChunk = 1 << CHUNK_SHIFT;
+        chunks = new ByteBuffer[(capacity + perChunk - 1) / perChunk];
+        for (int i = 0; i < chunks.length; i++) {
+            int count = Math.min(perChunk, capacity - i * perChunk);
+            chunks[i] = ByteBuffer.allocateDirect(count * NODE_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Gets the maximum number of nodes.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of nodes allocated.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Frees all the nodes. The memory is kept.
+     */
+    public void clear() {
+        size.set(0);
+    }
+
+    /**
+     * Allocates contiguous nodes, each initialized without visit and not expanded.
+     *
+     * @param count The number of nodes.
+     * @return The index of the first node, or -1 if the arena is full.
+     */
+    public int allocate(int count) {
+        if (count > 1 << CHUNK_SHIFT)
+            return -1;
+        int size, first;
+        do {
+            size = this.size.get();
+            // the children of a node never straddle two buffers: the end of the buffer is skipped
+            first = size >>> CHUNK_SHIFT == size + count - 1 >>> CHUNK_SHIFT ? size
+                    : size + count - 1 >>> CHUNK_SHIFT << CHUNK_SHIFT;
+            if (first > capacity - count)
+                return -1;
+        } while (!this.size.compareAndSet(size, first + count));
+
+        for (int node = first; node < first + count; node++) {
+            ByteBuffer chunk = chunk(node);
+            int offset = offset(node);
+            chunk.putLong(offset + SUM, 0);
+            chunk.putInt(offset + VISITS, 0);
+            chunk.putInt(offset + VIRTUAL_LOSS, 0);
+            chunk.putInt(offset + FIRST_CHILD, UNEXPANDED);
+            chunk.putInt(offset + CHILD_COUNT, 0);
+        }
+        return first;
+    }
+
+    /**
+     * Sets the move of a node and its prior probability.
+     *
+     * @param node  The node.
+     * @param move  The move leading to the node.
+     * @param prior The prior probability of the move.
+     */
+    public void init(int node, int move, float prior) {
+        chunk(node).putInt(offset(node) + MOVE, move);
+        chunk(node).putFloat(offset(node) + PRIOR, prior);
+    }
+
+    /**
+     * Gets the move leading to a node.
+     *
+     * @param node The node.
+     * @return The move.
+     */
+    public int move(int node) {
+        return chunk(node).getInt(offset(node) + MOVE);
+    }
+
+    /**
+     * Gets the prior probability of the move leading to a node.
+     *
+     * @param node The node.
+     * @return The prior.
+     */
+    public float prior(int node) {
+        return chunk(node).getFloat(offset(node) + PRIOR);
+    }
+
+    /**
+     * Gets the number of visits of a node.
+     *
+     * @param node The node.
+     * @return The visits.
+     */
+    public int visits(int node) {
+        return (int) INT.getVolatile(chunk(node), offset(node) + VISITS);
+    }
+
+    /**
+     * Gets the number of playouts currently going through a node.
+     *
+     * @param node The node.
+     * @return The virtual losses.
+     */
+    public int virtualLoss(int node) {
+        return (int) INT.getVolatile(chunk(node), offset(node) + VIRTUAL_LOSS);
+    }
+
+    /**
+     * Gets the sum of the values of a node, for the side that played its move.
+     *
+     * @param node The node.
+     * @return The sum of the values, between 0 and the visits.
+     */
+    public double valueSum(int node) {
+        return (long) LONG.getVolatile(chunk(node), offset(node) + SUM) / (double) VALUE_SCALE;
+    }
+
+    /**
+     * Marks a playout as going through a node, so that the other threads explore elsewhere.
+     *
+     * @param node The node.
+     */
+    public void addVirtualLoss(int node) {
+        INT.getAndAdd(chunk(node), offset(node) + VIRTUAL_LOSS, 1);
+    }
+
+    /**
+     * Backs up the value of a playout that went through a node and removes its virtual loss.
+     *
+     * @param node        The node.
+     * @param value       The value, between 0 and 1, for the side that played the move of the node.
+     * @param virtualLoss Whether a virtual loss was added by the playout.
+     */
+    public void update(int node, double value, boolean virtualLoss) {
+        ByteBuffer chunk = chunk(node);
+        int offset = offset(node);
+        LONG.getAndAdd(chunk, offset + SUM, Math.round(value * VALUE_SCALE));
+        INT.getAndAdd(chunk, offset + VISITS, 1);
+        if (virtualLoss)
+            INT.getAndAdd(chunk, offset + VIRTUAL_LOSS, -1);
+    }
+
+    /**
+     * Gets the first child of a node.
+     *
+     * @param node The node.
+     * @return The index of the first child, or UNEXPANDED / EXPANDING.
+     */
+    public int firstChild(int node) {
+        return (int) INT.getAcquire(chunk(node), offset(node) + FIRST_CHILD);
+    }
+
+    /**
+     * Gets the number of children of an expanded node.
+     *
+     * @param node The node.
+     * @return The number of children, 0 for a mate or a stalemate.
+     */
+    public int childCount(int node) {
+        return chunk(node).getInt(offset(node) + CHILD_COUNT);
+    }
+
+    /**
+     * Tries to take the right to expand a node.
+     *
+     * @param node The node.
+     * @return true if the caller must expand the node and then call publish() or release().
+     */
+    public boolean tryExpand(int node) {
+        return INT.compareAndSet(chunk(node), offset(node) + FIRST_CHILD, UNEXPANDED, EXPANDING);
+    }
+
+    /**
+     * Publishes the children of a node being expanded.
+     *
+     * @param node  The node.
+     * @param first The index of the first child, initialized.
+     * @param count The number of children.
+     */
+    public void publish(int node, int first, int count) {
+        chunk(node).putInt(offset(node) + CHILD_COUNT, count);
+        INT.setRelease(chunk(node), offset(node) + FIRST_CHILD, first);
+    }
+
+    /**
+     * Gives up the expansion of a node, e.g. when the arena is full.
+     *
+     * @param node The node.
+     */
+    public void release(int node) {
+        INT.setRelease(chunk(node), offset(node) + FIRST_CHILD, UNEXPANDED);
+    }
+
+    /**
+     * Gets the buffer holding a node.
+     *
+     * @param node The node.
+     * @return The buffer.
+     */
+    private ByteBuffer chunk(int node) {
+        return chunks[node >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Gets the offset of a node in its buffer.
+     *
+     * @param node The node.
+     * @return The offset, in bytes.
+     */
+    private static int offset(int node) {
+        return (node & (1 << CHUNK_SHIFT) - 1) * NODE_BYTES;
+    }
+}
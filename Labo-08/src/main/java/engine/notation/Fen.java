@@ -0,0 +1,309 @@
+package engine.notation;
+
+import engine.board.Attacks;
+import engine.board.Position;
+
+/**
+ * Reads and writes the Forsyth-Edwards notation (FEN) of a position, e.g.
+ * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1".
+ * <p>
+ * The text is decoded character by character into a pieces buffer given by the caller, so that a
+ * file of positions can be read without any allocation. The position is only set up once the whole
+ * text is known to be valid. The clocks may be omitted, like in the EPD records.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Fen {
+
+    /**
+     * The FEN of the initial chess position.
+     */
+    public static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * The letters of the castling rights, indexed by the bit of the right.
+     */
+    private static final String CASTLING = "KQkq";
+
+    /**
+     * The largest clock accepted, so that a number never overflows.
+     */
+    private static final int MAX_CLOCK = 1 << 20;
+
+    /**
+     * Prevents the instantiation.
+     */
+    private Fen() {
+    }
+
+    /**
+     * Sets up the position written in FEN.
+     *
+     * @param position The position to set up, left unchanged if the text is not valid.
+     * @param text     The text holding the FEN.
+     * @param start    The index of the first character of the FEN.
+     * @param end      The index after the last character that may belong to the FEN.
+     * @param pieces   A buffer of 64 squares.
+     * @return The index after the last field read, or -1 if the text is not a valid FEN.
+     */
+    public static int parse(Position position, CharSequence text, int start, int end, int[] pieces) {
+        int i = skipSpaces(text, start, end);
+        int x = 0, y = 7, whiteKings = 0, blackKings = 0;
+        for (int square = 0; square < 64; square++)
+            pieces[square] = Position.EMPTY;
+
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                if (x != 8 || y == 0)
+                    return -1;
+                x = 0;
+                y--;
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+                if (x > 8)
+                    return -1;
+            } else if (c == ' ') {
+                break;
+            } else {
+                int color = c >= 'a' ? Position.BLACK : Position.WHITE;
+                int type = Position.LETTERS.indexOf(color == Position.BLACK ? c - 'a' + 'A' : c);
+                if (type <= 0 || x > 7 || type == Position.PAWN && (y == 0 || y == 7))
+                    return -1;
+                if (type == Position.KING && color == Position.WHITE)
+                    whiteKings++;
+                else if (type == Position.KING)
+                    blackKings++;
+                pieces[y * 8 + x++] = Position.piece(color, type);
+            }
+        }
+        if (x != 8 || y != 0 || whiteKings != 1 || blackKings != 1)
+            return -1;
+
+        i = skipSpaces(text, i, end);
+        if (i >= end)
+            return -1;
+        char c = text.charAt(i++);
+        if (c != 'w' && c != 'b')
+            return -1;
+        int side = c == 'w' ? Position.WHITE : Position.BLACK;
+
+        i = skipSpaces(text, i, end);
+        int castling = 0;
+        if (i < end && text.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && text.charAt(i) != ' '; i++) {
+                int right = CASTLING.indexOf(text.charAt(i));
+                if (right < 0)
+                    return -1;
+                castling |= 1 << right;
+            }
+            if (castling == 0)
+                return -1;
+        }
+        castling &= castlingAvailable(pieces);
+
+        i = skipSpaces(text, i, end);
+        if (i >= end)
+            return -1;
+        int enPassant = -1;
+        if (text.charAt(i) == '-') {
+            i++;
+        } else {
+            if (i + 1 >= end)
+                return -1;
+            int fileX = text.charAt(i) - 'a', rankY = text.charAt(i + 1) - '1';
+            if (fileX < 0 || fileX > 7 || rankY != (side == Position.WHITE ? 5 : 2))
+                return -1;
+            i += 2;
+            enPassant = capturable(pieces, Attacks.square(fileX, rankY), side) ? Attacks.square(fileX, rankY) : -1;
+        }
+
+        // the clocks are optional, an EPD record goes on with its operations instead
+        int halfmoveClock = 0, fullmoveNumber = 1;
+        int next = skipSpaces(text, i, end);
+        if (next < end && isDigit(text.charAt(next))) {
+            int digits = skipDigits(text, next, end);
+            int fullmove = skipSpaces(text, digits, end);
+            if (fullmove == digits || fullmove >= end || !isDigit(text.charAt(fullmove)))
+                return -1;
+            halfmoveClock = readNumber(text, next, digits);
+            i = skipDigits(text, fullmove, end);
+            fullmoveNumber = readNumber(text, fullmove, i);
+            if (halfmoveClock < 0 || fullmoveNumber < 0)
+                return -1;
+            fullmoveNumber = Math.max(1, fullmoveNumber);
+        }
+        if (i < end && text.charAt(i) != ' ')
+            return -1;
+
+        position.setUp(pieces, side, castling, enPassant, halfmoveClock, fullmoveNumber);
+        return i;
+    }
+
+    /**
+     * Sets up a new position written in FEN.
+     *
+     * @param text The FEN, the clocks may be omitted.
+     * @return The position.
+     * @throws IllegalArgumentException If the text is not a valid FEN.
+     */
+    public static Position parse(String text) {
+        Position position = new Position();
+        int end = parse(position, text, 0, text.length(), new int[64]);
+        if (end < 0 || skipSpaces(text, end, text.length()) != text.length())
+            throw new IllegalArgumentException("Not a valid FEN: " + text);
+        return position;
+    }
+
+    /**
+     * Appends the FEN of a position.
+     *
+     * @param position The position.
+     * @param builder  The builder receiving the FEN.
+     * @return The builder.
+     */
+    public static StringBuilder write(Position position, StringBuilder builder) {
+        for (int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < 8; x++) {
+                int piece = position.pieceAt(y * 8 + x);
+                if (piece == Position.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0)
+                    builder.append((char) ('0' + empty));
+                empty = 0;
+                char letter = Position.LETTERS.charAt(Position.typeOf(piece));
+                builder.append(Position.colorOf(piece) == Position.BLACK ? (char) (letter - 'A' + 'a') : letter);
+            }
+            if (empty > 0)
+                builder.append((char) ('0' + empty));
+            if (y > 0)
+                builder.append('/');
+        }
+
+        builder.append(position.sideToMove() == Position.WHITE ? " w " : " b ");
+        int castling = position.castlingRights();
+        if (castling == 0)
+            builder.append('-');
+        for (int right = 0; right < 4; right++)
+            if ((castling & 1 << right) != 0)
+                builder.append(CASTLING.charAt(right));
+
+        int enPassant = position.enPassantSquare();
+        builder.append(' ');
+        if (enPassant < 0)
+            builder.append('-');
+        else
+            builder.append((char) ('a' + Attacks.x(enPassant))).append((char) ('1' + Attacks.y(enPassant)));
+        return builder.append(' ').append(position.halfmoveClock()).append(' ').append(position.fullmoveNumber());
+    }
+
+    /**
+     * Writes the FEN of a position.
+     *
+     * @param position The position.
+     * @return The FEN.
+     */
+    public static String toString(Position position) {
+        return write(position, new StringBuilder(90)).toString();
+    }
+
+    /**
+     * Keeps the castling rights whose king and rook are still on their initial squares, so that a
+     * careless FEN can't let a missing rook castle.
+     *
+     * @param pieces The piece code on each square.
+     * @return The castling rights bits possible.
+     */
+    private static int castlingAvailable(int[] pieces) {
+        int available = 0;
+        int whiteRook = Position.piece(Position.WHITE, Position.ROOK);
+        int blackRook = Position.piece(Position.BLACK, Position.ROOK);
+        if (pieces[4] == Position.piece(Position.WHITE, Position.KING)) {
+            available |= pieces[7] == whiteRook ? Position.WHITE_KING_SIDE : 0;
+            available |= pieces[0] == whiteRook ? Position.WHITE_QUEEN_SIDE : 0;
+        }
+        if (pieces[60] == Position.piece(Position.BLACK, Position.KING)) {
+            available |= pieces[63] == blackRook ? Position.BLACK_KING_SIDE : 0;
+            available |= pieces[56] == blackRook ? Position.BLACK_QUEEN_SIDE : 0;
+        }
+        return available;
+    }
+
+    /**
+     * Tells if an en passant square can be used, like the position does after a pawn advances two
+     * squares: the square is only kept when a pawn of the side to move stands next to the pawn that
+     * advanced, so that the same position always has the same hash.
+     *
+     * @param pieces    The piece code on each square.
+     * @param enPassant The en passant square.
+     * @param side      The side to move.
+     * @return true if the square can be kept.
+     */
+    private static boolean capturable(int[] pieces, int enPassant, int side) {
+        int pawn = enPassant ^ 8, x = Attacks.x(enPassant);
+        int ours = Position.piece(side, Position.PAWN);
+        return pieces[pawn] == Position.piece(side ^ 1, Position.PAWN) && pieces[enPassant] == Position.EMPTY
+                && (x > 0 && pieces[pawn - 1] == ours || x < 7 && pieces[pawn + 1] == ours);
+    }
+
+    /**
+     * Skips the spaces.
+     *
+     * @param text  The text.
+     * @param start The index of the first character.
+     * @param end   The index after the last character.
+     * @return The index of the first character that isn't a space, or end.
+     */
+    private static int skipSpaces(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ')
+            start++;
+        return start;
+    }
+
+    /**
+     * Skips the digits.
+     *
+     * @param text  The text.
+     * @param start The index of the first character.
+     * @param end   The index after the last character.
+     * @return The index of the first character that isn't a digit, or end.
+     */
+    private static int skipDigits(CharSequence text, int start, int end) {
+        while (start < end && isDigit(text.charAt(start)))
+            start++;
+        return start;
+    }
+
+    /**
+     * Tells if a character is a decimal digit.
+     *
+     * @param c The character.
+     * @return true if it is a digit.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Reads a decimal number.
+     *
+     * @param text  The text.
+     * @param start The index of the first digit.
+     * @param end   The index after the last digit.
+     * @return The number, or -1 if it is too large.
+     */
+    private static int readNumber(CharSequence text, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            number = number * 10 + text.charAt(i) - '0';
+            if (number > MAX_CLOCK)
+                return -1;
+        }
+        return number;
+    }
+}
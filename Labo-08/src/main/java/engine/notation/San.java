@@ -0,0 +1,409 @@
+package engine.notation;
+
+import engine.board.Attacks;
+import engine.board.Move;
+import engine.board.Position;
+
+/**
+ * Reads and writes the standard algebraic notation (SAN) of the PGN files, e.g. "Nbd7", "exd5", "O-O",
+ * "e8=Q+", and the long algebraic notation (LAN) of the game logs, e.g. "Ng1-f3", "e4xd5".
+ * <p>
+ * The text is decoded character by character into a piece type, a destination, the optional
+ * disambiguation and promotion. The pieces that can reach the destination are then found from the
+ * attack tables, walking back from the destination, instead of generating all the moves; only these
+ * candidates are checked for legality. The reader also accepts the LAN and the coordinates of the
+ * console view ("g1f3", "e7e8q").
+ * <p>
+ * The writers append to a reusable StringBuilder or byte array and allocate nothing: the notation,
+ * at most 8 characters, is built in a long before being copied.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class San {
+
+    /**
+     * Prevents the instantiation.
+     */
+    private San() {
+    }
+
+    /**
+     * Finds the legal move written in SAN, LAN or coordinates.
+     *
+     * @param position The position before the move.
+     * @param text     The text holding the move.
+     * @param start    The index of the first character of the move.
+     * @param end      The index after the last character of the move, suffixes (+, #, !, ?) included.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The move, or Move.NONE if the text is not a legal move.
+     */
+    public static int parse(Position position, CharSequence text, int start, int end, int[] buffer) {
+        while (end > start && "+#!?".indexOf(text.charAt(end - 1)) >= 0)
+            end--;
+        if (end - start < 2)
+            return Move.NONE;
+
+        int side = position.sideToMove();
+        char first = text.charAt(start);
+        if (first == 'O' || first == '0')
+            return castling(position, end - start >= 5, buffer);
+
+        int type = Position.PAWN;
+        if (first >= 'A' && first <= 'Z') {
+            type = Position.LETTERS.indexOf(first);
+            if (type <= Position.PAWN)
+                return Move.NONE;
+            start++;
+        }
+
+        // "=Q" or "Q" in SAN, "q" after the destination rank in coordinates
+        int promotion = 0;
+        char last = text.charAt(end - 1);
+        if (last >= 'A' && last <= 'Z' || "qrbn".indexOf(last) >= 0 && end - start >= 3
+                && text.charAt(end - 2) >= '1' && text.charAt(end - 2) <= '8') {
+            promotion = Position.LETTERS.indexOf(Character.toUpperCase(last));
+            end -= text.charAt(end - 2) == '=' ? 2 : 1;
+            if (promotion < Position.ROOK || promotion > Position.QUEEN)
+                return Move.NONE;
+        }
+        if (end - start < 2)
+            return Move.NONE;
+
+        int toX = text.charAt(end - 2) - 'a', toY = text.charAt(end - 1) - '1';
+        if (toX < 0 || toX > 7 || toY < 0 || toY > 7)
+            return Move.NONE;
+        int to = Attacks.square(toX, toY);
+
+        // what is left between the piece and the destination: a file, a rank, both, and a capture
+        int fromX = -1, fromY = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h')
+                fromX = c - 'a';
+            else if (c >= '1' && c <= '8')
+                fromY = c - '1';
+            else if (c != 'x' && c != '-' && c != ':')
+                return Move.NONE;
+        }
+
+        // in coordinates the type is the one of the piece on the origin square
+        if (type == Position.PAWN && fromX >= 0 && fromY >= 0) {
+            int piece = position.pieceAt(Attacks.square(fromX, fromY));
+            if (piece == Position.EMPTY || Position.colorOf(piece) != side)
+                return Move.NONE;
+            type = Position.typeOf(piece);
+            if (type == Position.KING && Math.abs(toX - fromX) == 2)
+                return castling(position, toX < fromX, buffer);
+        }
+
+        int target = position.pieceAt(to);
+        if (target != Position.EMPTY && Position.colorOf(target) == side)
+            return Move.NONE;
+        if (type == Position.PAWN)
+            return pawn(position, to, fromX, fromY, promotion);
+        if (promotion != 0)
+            return Move.NONE;
+
+        int count = sources(position, type, side, to, buffer), found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int from = buffer[i];
+            if (fromX >= 0 && Attacks.x(from) != fromX || fromY >= 0 && Attacks.y(from) != fromY)
+                continue;
+            int move = Move.of(from, to);
+            if (!position.isLegal(move))
+                continue;
+            if (found != Move.NONE)
+                return Move.NONE;
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Finds the legal move written in SAN, LAN or coordinates.
+     *
+     * @param position The position before the move.
+     * @param text     The move.
+     * @return The move, or Move.NONE if the text is not a legal move.
+     */
+    public static int parse(Position position, String text) {
+        return parse(position, text, 0, text.length(), new int[Position.MAX_MOVES]);
+    }
+
+    /**
+     * Appends the SAN of a legal move, with its check or mate suffix.
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @param builder  The builder receiving the notation.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The builder.
+     */
+    public static StringBuilder write(Position position, int move, StringBuilder builder, int[] buffer) {
+        return append(encode(position, move, false, buffer), builder);
+    }
+
+    /**
+     * Writes the SAN of a legal move, with its check or mate suffix, as ASCII bytes.
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @param bytes    The array receiving the notation, with room for 8 bytes.
+     * @param offset   The index of the first byte written.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The index after the last byte written.
+     */
+    public static int write(Position position, int move, byte[] bytes, int offset, int[] buffer) {
+        return copy(encode(position, move, false, buffer), bytes, offset);
+    }
+
+    /**
+     * Appends the LAN of a legal move, e.g. "Ng1-f3", "e4xd5", "e7-e8=Q+".
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @param builder  The builder receiving the notation.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The builder.
+     */
+    public static StringBuilder writeLan(Position position, int move, StringBuilder builder, int[] buffer) {
+        return append(encode(position, move, true, buffer), builder);
+    }
+
+    /**
+     * Writes the LAN of a legal move as ASCII bytes.
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @param bytes    The array receiving the notation, with room for 8 bytes.
+     * @param offset   The index of the first byte written.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The index after the last byte written.
+     */
+    public static int writeLan(Position position, int move, byte[] bytes, int offset, int[] buffer) {
+        return copy(encode(position, move, true, buffer), bytes, offset);
+    }
+
+    /**
+     * Writes the SAN of a legal move.
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @return The notation.
+     */
+    public static String toString(Position position, int move) {
+        return write(position, move, new StringBuilder(8), new int[Position.MAX_MOVES]).toString();
+    }
+
+    /**
+     * Finds the castling move of the side to move, castling being rare enough to use the generator.
+     *
+     * @param position  The position.
+     * @param queenSide true for the queen side castling.
+     * @param buffer    A buffer of Position.MAX_MOVES moves.
+     * @return The move, or Move.NONE if the castling is not legal.
+     */
+    private static int castling(Position position, boolean queenSide, int[] buffer) {
+        int count = position.legalMoves(buffer);
+        for (int i = 0; i < count; i++)
+            if (Move.kind(buffer[i]) == Move.CASTLING && Attacks.x(Move.to(buffer[i])) == (queenSide ? 2 : 6))
+                return buffer[i];
+        return Move.NONE;
+    }
+
+    /**
+     * Finds the legal pawn move to a square: a push, a double push, a capture or an en passant.
+     *
+     * @param position  The position.
+     * @param to        The destination square, not occupied by the side to move.
+     * @param fromX     The file of the pawn, or -1 for a push.
+     * @param fromY     The rank of the pawn, or -1 if not given.
+     * @param promotion The promotion piece type, or 0.
+     * @return The move, or Move.NONE if no legal pawn move matches.
+     */
+    private static int pawn(Position position, int to, int fromX, int fromY, int promotion) {
+        int side = position.sideToMove(), pawn = Position.piece(side, Position.PAWN);
+        int forward = side == Position.WHITE ? 8 : -8, toX = Attacks.x(to), toY = Attacks.y(to);
+        int lastRank = side == Position.WHITE ? 7 : 0;
+        if (toY == 7 - lastRank || (toY == lastRank) != (promotion != 0))
+            return Move.NONE;
+
+        int from, kind = promotion != 0 ? Move.PROMOTION : Move.NORMAL;
+        if (fromX < 0 || fromX == toX) {
+            if (position.pieceAt(to) != Position.EMPTY)
+                return Move.NONE;
+            from = to - forward;
+            if (position.pieceAt(from) == Position.EMPTY && toY == (side == Position.WHITE ? 3 : 4))
+                from -= forward;
+        } else {
+            if (Math.abs(fromX - toX) != 1)
+                return Move.NONE;
+            from = Attacks.square(fromX, toY) - forward;
+            if (to == position.enPassantSquare())
+                kind = Move.EN_PASSANT;
+            else if (position.pieceAt(to) == Position.EMPTY)
+                return Move.NONE;
+        }
+        if (position.pieceAt(from) != pawn || fromY >= 0 && Attacks.y(from) != fromY)
+            return Move.NONE;
+
+        int move = Move.of(from, to, kind, promotion);
+        return position.isLegal(move) ? move : Move.NONE;
+    }
+
+    /**
+     * Finds the pieces of a type and color that can move to a square, walking back from the square
+     * along the attack tables. Pawns are not looked for.
+     *
+     * @param position The position.
+     * @param type     The piece type, not a pawn.
+     * @param color    The side of the pieces.
+     * @param to       The destination square.
+     * @param buffer   The buffer receiving the origin squares.
+     * @return The number of squares found.
+     */
+    private static int sources(Position position, int type, int color, int to, int[] buffer) {
+        int piece = Position.piece(color, type), count = 0;
+        if (type == Position.KNIGHT || type == Position.KING) {
+            for (int from : type == Position.KNIGHT ? Attacks.KNIGHT[to] : Attacks.KING[to])
+                if (position.pieceAt(from) == piece)
+                    buffer[count++] = from;
+            return count;
+        }
+
+        int first = type == Position.BISHOP ? 4 : 0, last = type == Position.ROOK ? 4 : 8;
+        for (int direction = first; direction < last; direction++) {
+            for (int from : Attacks.RAYS[to][direction]) {
+                int found = position.pieceAt(from);
+                if (found == Position.EMPTY)
+                    continue;
+                if (found == piece)
+                    buffer[count++] = from;
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Builds the notation of a legal move in a long, the first character in the lowest byte.
+     *
+     * @param position The position before the move, left unchanged.
+     * @param move     The move.
+     * @param lan      true for the long algebraic notation.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return The characters of the notation.
+     */
+    private static long encode(Position position, int move, boolean lan, int[] buffer) {
+        int from = Move.from(move), to = Move.to(move), kind = Move.kind(move);
+        int type = Position.typeOf(position.pieceAt(from)), side = position.sideToMove();
+        boolean capture = position.pieceAt(to) != Position.EMPTY || kind == Move.EN_PASSANT;
+        long chars;
+
+        if (kind == Move.CASTLING) {
+            chars = 'O' | '-' << 8 | 'O' << 16;
+            if (to < from)
+                chars |= (long) '-' << 24 | (long) 'O' << 32;
+        } else {
+            chars = type == Position.PAWN ? 0 : Position.LETTERS.charAt(type);
+            if (lan) {
+                chars = square(chars, from);
+                chars = put(chars, capture ? 'x' : '-');
+            } else if (type == Position.PAWN) {
+                if (capture)
+                    chars = put(put(chars, (char) ('a' + Attacks.x(from))), 'x');
+            } else {
+                // the other pieces of the type that can legally reach the square tell what to add
+                boolean other = false, sameFile = false, sameRank = false;
+                int count = sources(position, type, side, to, buffer);
+                for (int i = 0; i < count; i++) {
+                    int square = buffer[i];
+                    if (square == from || !position.isLegal(Move.of(square, to)))
+                        continue;
+                    other = true;
+                    sameFile |= Attacks.x(square) == Attacks.x(from);
+                    sameRank |= Attacks.y(square) == Attacks.y(from);
+                }
+                if (other && (!sameFile || sameRank))
+                    chars = put(chars, (char) ('a' + Attacks.x(from)));
+                if (other && sameFile)
+                    chars = put(chars, (char) ('1' + Attacks.y(from)));
+                if (capture)
+                    chars = put(chars, 'x');
+            }
+            chars = square(chars, to);
+            if (kind == Move.PROMOTION)
+                chars = put(put(chars, '='), Position.LETTERS.charAt(Move.promotion(move)));
+        }
+
+        position.make(move);
+        if (position.inCheck())
+            chars = put(chars, hasLegalMove(position, buffer) ? '+' : '#');
+        position.unmake();
+        return chars;
+    }
+
+    /**
+     * Tells if the side to move has a legal move, stopping at the first one.
+     *
+     * @param position The position.
+     * @param buffer   A buffer of Position.MAX_MOVES moves.
+     * @return true if there is a legal move.
+     */
+    private static boolean hasLegalMove(Position position, int[] buffer) {
+        int count = position.generate(buffer, 0, false);
+        for (int i = 0; i < count; i++)
+            if (position.isLegal(buffer[i]))
+                return true;
+        return false;
+    }
+
+    /**
+     * Adds the name of a square to the characters of a notation.
+     *
+     * @param chars  The characters.
+     * @param square The square.
+     * @return The characters followed by the square.
+     */
+    private static long square(long chars, int square) {
+        return put(put(chars, (char) ('a' + Attacks.x(square))), (char) ('1' + Attacks.y(square)));
+    }
+
+    /**
+     * Adds a character to the characters of a notation.
+     *
+     * @param chars The characters, in the lowest bytes.
+     * @param c     The character.
+     * @return The characters followed by c.
+     */
+    private static long put(long chars, char c) {
+        return chars | (long) c << (64 - Long.numberOfLeadingZeros(chars) + 7 >>> 3 << 3);
+    }
+
+    /**
+     * Appends the characters of a notation to a builder.
+     *
+     * @param chars   The characters.
+     * @param builder The builder.
+     * @return The builder.
+     */
+    private static StringBuilder append(long chars, StringBuilder builder) {
+        for (; chars != 0; chars >>>= 8)
+            builder.append((char) (chars & 0xFF));
+        return builder;
+    }
+
+    /**
+     * Copies the characters of a notation to an array.
+     *
+     * @param chars  The characters.
+     * @param bytes  The array.
+     * @param offset The index of the first byte written.
+     * @return The index after the last byte written.
+     */
+    private static int copy(long chars, byte[] bytes, int offset) {
+        for (; chars != 0; chars >>>= 8)
+            bytes[offset++] = (byte) chars;
+        return offset;
+    }
+}
@@ -0,0 +1,78 @@
+package engine.pgn;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The bytes of a game seen as characters, one byte per character, so that the moves can be parsed
+ * without decoding the text into strings.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class ByteChars implements CharSequence {
+
+    /**
+     * The bytes.
+     */
+    private byte[] bytes = new byte[1 << 12];
+
+    /**
+     * The number of bytes used.
+     */
+    private int length;
+
+    /**
+     * Gets the bytes, to fill them.
+     *
+     * @param length The number of bytes needed, the array grows if needed.
+     * @return The bytes.
+     */
+    byte[] bytes(int length) {
+        if (bytes.length < length)
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        this.length = length;
+        return bytes;
+    }
+
+    /**
+     * Gets the number of characters.
+     *
+     * @return The number of bytes used.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Gets a character.
+     *
+     * @param index The index of the character.
+     * @return The byte at the index, read as ISO-8859-1.
+     */
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[index] & 0xFF);
+    }
+
+    /**
+     * Copies characters in a string.
+     *
+     * @param start The index of the first character.
+     * @param end   The index after the last character.
+     * @return The characters, read as ISO-8859-1.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Copies the characters in a string.
+     *
+     * @return The characters, read as ISO-8859-1.
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+}
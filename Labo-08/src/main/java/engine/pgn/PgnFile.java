@@ -0,0 +1,106 @@
+package engine.pgn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped in memory as segments of 1 GB, so that a file of any size can be read at a long
+ * offset without being loaded on the heap. The pages are read by the operating system when touched.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class PgnFile {
+
+    /**
+     * The base 2 logarithm of the size of a segment.
+     */
+    private static final int SEGMENT_BITS = 30;
+
+    /**
+     * The mapped segments, each one SEGMENT_BITS long except the last one.
+     */
+    private final ByteBuffer[] segments;
+
+    /**
+     * The size of the file.
+     */
+    private final long size;
+
+    /**
+     * Maps a file. The file can be closed right away, the mapping stays valid.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file can't be mapped.
+     */
+    PgnFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            segments = new ByteBuffer[(int) ((size + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(1L << SEGMENT_BITS, size - start));
+            }
+        }
+    }
+
+    /**
+     * Gets the size of the file.
+     *
+     * @return The size in bytes.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of segments.
+     *
+     * @return The number of segments.
+     */
+    int segments() {
+        return segments.length;
+    }
+
+    /**
+     * Gets a segment, to scan it without computing the segment of each byte.
+     *
+     * @param index The index of the segment.
+     * @return The segment, starting at the offset index << 30 of the file.
+     */
+    ByteBuffer segment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * Gets the offset of a segment in the file.
+     *
+     * @param index The index of the segment.
+     * @return The offset.
+     */
+    static long offset(int index) {
+        return (long) index << SEGMENT_BITS;
+    }
+
+    /**
+     * Copies bytes of the file, possibly across two segments.
+     *
+     * @param offset The offset of the first byte.
+     * @param bytes  The array receiving the bytes from its index 0.
+     * @param length The number of bytes.
+     */
+    void copy(long offset, byte[] bytes, int length) {
+        int copied = 0;
+        while (copied < length) {
+            long at = offset + copied;
+            ByteBuffer segment = segments[(int) (at >>> SEGMENT_BITS)];
+            int inSegment = (int) (at & ((1L << SEGMENT_BITS) - 1));
+            int count = Math.min(length - copied, segment.limit() - inSegment);
+            segment.get(inSegment, bytes, copied, count);
+            copied += count;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package engine.pgn;
+
+import engine.board.Position;
+import engine.notation.Fen;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A game read from a PGN file and replayed: its tags, its legal moves and its result, or the error
+ * that stopped the replay with the line it was found on.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class PgnGame {
+
+    /**
+     * The index of the game in the file, from 0.
+     */
+    private final long number;
+
+    /**
+     * The offset of the first byte of the game in the file.
+     */
+    private final long offset;
+
+    /**
+     * The line of the file the game starts on, from 1.
+     */
+    private final long line;
+
+    /**
+     * The tags, in the order of the file.
+     */
+    private final Map<String, String> tags;
+
+    /**
+     * The FEN of the start position, as set up by the parser, or null for the initial position.
+     */
+    private final String start;
+
+    /**
+     * The moves replayed, up to the error if any.
+     */
+    private final int[] moves;
+
+    /**
+     * The game termination marker: "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    private final String result;
+
+    /**
+     * The error, or null if the whole game is legal.
+     */
+    private final String error;
+
+    /**
+     * The line of the file of the error, or 0.
+     */
+    private final long errorLine;
+
+    /**
+     * Constructs a game.
+     *
+     * @param number    The index of the game in the file.
+     * @param offset    The offset of the game in the file.
+     * @param line      The line the game starts on.
+     * @param tags      The tags.
+     * @param start     The FEN of the start position, or null for the initial position.
+     * @param moves     The moves replayed.
+     * @param result    The game termination marker.
+     * @param error     The error, or null.
+     * @param errorLine The line of the error, or 0.
+     */
+    PgnGame(long number, long offset, long line, Map<String, String> tags, String start, int[] moves,
+            String result, String error, long errorLine) {
+        this.number = number;
+        this.offset = offset;
+        this.line = line;
+        this.tags = Collections.unmodifiableMap(tags);
+        this.start = start;
+        this.moves = moves;
+        this.result = result;
+        this.error = error;
+        this.errorLine = errorLine;
+    }
+
+    /**
+     * Gets the index of the game in the file.
+     *
+     * @return The index, from 0.
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the offset of the game in the file.
+     *
+     * @return The offset of its first byte.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the line of the file the game starts on.
+     *
+     * @return The line, from 1.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the tags.
+     *
+     * @return The tags by name, in the order of the file.
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Gets a tag.
+     *
+     * @param name The name of the tag.
+     * @return The value, or null if the game has no such tag.
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Gets the moves replayed, up to the error if any. The array is shared, it must not be modified.
+     *
+     * @return The moves.
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the game termination marker.
+     *
+     * @return "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Tells if the whole game was read and replayed.
+     *
+     * @return true if the game has no error.
+     */
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /**
+     * Gets the error that stopped the replay.
+     *
+     * @return The error, or null if the game is valid.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Gets the line of the file of the error.
+     *
+     * @return The line, from 1, or 0 if the game is valid.
+     */
+    public long getErrorLine() {
+        return errorLine;
+    }
+
+    /**
+     * Sets up the position the game starts from: the one of the FEN tag, or the initial position. A game
+     * whose FEN tag is invalid starts from the initial position, without any move.
+     *
+     * @return A new position.
+     */
+    public Position startPosition() {
+        return start == null ? new Position() : Fen.parse(start);
+    }
+
+    /**
+     * Describes the game for the reports.
+     *
+     * @return The number and line of the game, and its error if any.
+     */
+    @Override
+    public String toString() {
+        String game = "game " + (number + 1) + " (line " + line + ")";
+        return error == null ? game + ": " + moves.length + " plies, " + result
+                : game + ": line " + errorLine + ": " + error;
+    }
+}
@@ -0,0 +1,318 @@
+package engine.pgn;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the text of one game and replays its moves. Each worker of the reader owns a parser, whose
+ * buffers are reused from one game to the next.
+ * <p>
+ * The movetext may hold move numbers, comments, variations (skipped), annotation glyphs and the
+ * termination marker. A game is invalid when a tag can't be read, a move is illegal or ambiguous,
+ * the termination marker is missing or differs from the Result tag, or text follows the marker.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class PgnParser {
+
+    /**
+     * The largest game read, anything longer is most likely not a PGN file.
+     */
+    static final int MAX_GAME_BYTES = 1 << 24;
+
+    /**
+     * The position of the game being replayed.
+     */
+    private final Position position = new Position();
+
+    /**
+     * The buffer of the legal moves.
+     */
+    private final int[] buffer = new int[Position.MAX_MOVES];
+
+    /**
+     * The buffer of the pieces of a FEN tag.
+     */
+    private final int[] pieces = new int[64];
+
+    /**
+     * The text of the game being read.
+     */
+    private final ByteChars text = new ByteChars();
+
+    /**
+     * The moves of the game being replayed.
+     */
+    private int[] moves = new int[256];
+
+    /**
+     * The FEN of the position set up by the FEN tag, written back by Fen, or null for the initial position.
+     */
+    private String fen;
+
+    /**
+     * The line of the character being read.
+     */
+    private long line;
+
+    /**
+     * The error of the game being read, or null.
+     */
+    private String error;
+
+    /**
+     * The line of the error.
+     */
+    private long errorLine;
+
+    /**
+     * Reads and replays a game.
+     *
+     * @param file   The file holding the game.
+     * @param number The index of the game in the file.
+     * @param offset The offset of the game in the file.
+     * @param length The length of the game in bytes.
+     * @param first  The line the game starts on.
+     * @return The game.
+     */
+    PgnGame parse(PgnFile file, long number, long offset, int length, long first) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        line = first;
+        fen = null;
+        error = null;
+        errorLine = 0;
+        if (length > MAX_GAME_BYTES) {
+            fail("game longer than " + MAX_GAME_BYTES + " bytes");
+            return new PgnGame(number, offset, first, tags, null, new int[0], "*", error, errorLine);
+        }
+
+        byte[] bytes = text.bytes(length);
+        file.copy(offset, bytes, length);
+        position.reset();
+        int count = 0, variations = 0;
+        String result = null;
+        boolean movetext = false, lineStart = true;
+
+        for (int i = 0; i < length; ) {
+            byte c = bytes[i];
+            if (c == '\n') {
+                line++;
+                lineStart = true;
+                i++;
+                continue;
+            }
+            boolean atLineStart = lineStart;
+            lineStart = false;
+            if (c >= 0 && c <= ' ') {
+                i++;
+            } else if (atLineStart && c == '%' || c == ';') {
+                i = skipLine(bytes, i, length);
+            } else if (c == '[' && !movetext) {
+                i = readTag(bytes, i, length, tags);
+            } else if (c == '{') {
+                i = skipComment(bytes, i, length);
+            } else if (c == '(' || c == ')') {
+                variations += c == '(' ? 1 : -1;
+                movetext = true;
+                i++;
+            } else {
+                movetext = true;
+                int start = i;
+                while (i < length && isTokenByte(bytes[i]))
+                    i++;
+                if (i == start) {
+                    fail("unexpected character '" + (char) (c & 0xFF) + "'");
+                    i++;
+                } else if (variations == 0) {
+                    if (result != null) {
+                        fail("text after the result " + result);
+                    } else if (isResult(bytes, start, i)) {
+                        result = text.subSequence(start, i).toString();
+                    } else if (error == null) {
+                        int move = readMove(bytes, start, i);
+                        if (move != Move.NONE) {
+                            if (count == moves.length)
+                                moves = Arrays.copyOf(moves, count * 2);
+                            moves[count++] = move;
+                            position.make(move);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (error == null && variations != 0)
+            fail("unbalanced variation");
+        if (error == null && result == null)
+            fail("missing game termination marker");
+        String tagResult = tags.get("Result");
+        if (error == null && tagResult != null && !tagResult.equals(result))
+            fail("result " + result + " differs from the Result tag " + tagResult);
+        return new PgnGame(number, offset, first, tags, fen, Arrays.copyOf(moves, count),
+                result == null ? "*" : result, error, errorLine);
+    }
+
+    /**
+     * Reads a token of the movetext that isn't a result: a move, possibly preceded by its number, a
+     * move number alone or an annotation glyph.
+     *
+     * @param bytes The text.
+     * @param start The index of the token.
+     * @param end   The index after the token.
+     * @return The move, or Move.NONE if the token holds no move or the move is illegal.
+     */
+    private int readMove(byte[] bytes, int start, int end) {
+        if (bytes[start] == '$')
+            return Move.NONE;
+        int skip = start;
+        while (skip < end && bytes[skip] >= '0' && bytes[skip] <= '9')
+            skip++;
+        if (skip > start && skip < end && bytes[skip] != '.')
+            return fail("unreadable token " + text.subSequence(start, end));
+        while (skip < end && bytes[skip] == '.')
+            skip++;
+        if (skip == end || end - skip == 4 && text.subSequence(skip, end).equals("e.p."))
+            return Move.NONE;
+
+        int move = San.parse(position, text, skip, end, buffer);
+        if (move == Move.NONE)
+            return fail("illegal move " + text.subSequence(skip, end));
+        return move;
+    }
+
+    /**
+     * Reads a tag, e.g. [White "Kasparov, Garry"], and sets up the position of a FEN tag.
+     *
+     * @param bytes The text.
+     * @param start The index of the opening bracket.
+     * @param end   The index after the last character of the game.
+     * @param tags  The tags read.
+     * @return The index after the tag.
+     */
+    private int readTag(byte[] bytes, int start, int end, Map<String, String> tags) {
+        int i = start + 1, name = i;
+        while (i < end && bytes[i] > ' ' && bytes[i] != '"' && bytes[i] != ']')
+            i++;
+        int nameEnd = i;
+        while (i < end && (bytes[i] == ' ' || bytes[i] == '\t'))
+            i++;
+        if (nameEnd == name || i == end || bytes[i] != '"') {
+            fail("malformed tag");
+            return skipLine(bytes, start, end);
+        }
+
+        // the value is copied without its escapes, in place since it only gets shorter
+        int value = ++i, valueEnd = i;
+        while (i < end && bytes[i] != '"' && bytes[i] != '\n') {
+            if (bytes[i] == '\\' && i + 1 < end && bytes[i + 1] != '\n')
+                i++;
+            bytes[valueEnd++] = bytes[i++];
+        }
+        if (i == end || bytes[i] != '"') {
+            fail("malformed tag");
+            return skipLine(bytes, start, end);
+        }
+        i++;
+        while (i < end && (bytes[i] == ' ' || bytes[i] == '\t'))
+            i++;
+        if (i == end || bytes[i] != ']') {
+            fail("malformed tag");
+            return skipLine(bytes, start, end);
+        }
+
+        String key = new String(bytes, name, nameEnd - name, StandardCharsets.ISO_8859_1);
+        String text = new String(bytes, value, valueEnd - value, StandardCharsets.UTF_8);
+        tags.put(key, text);
+        if (key.equals("FEN")) {
+            // the game replays from the position read here, so the tag and the replay never disagree
+            if (Fen.parse(position, text, 0, text.length(), pieces) < 0)
+                fail("invalid FEN " + text);
+            else
+                fen = Fen.toString(position);
+        }
+        return i + 1;
+    }
+
+    /**
+     * Skips a comment, counting its lines.
+     *
+     * @param bytes The text.
+     * @param start The index of the opening brace.
+     * @param end   The index after the last character of the game.
+     * @return The index after the closing brace.
+     */
+    private int skipComment(byte[] bytes, int start, int end) {
+        int i = start + 1;
+        while (i < end && bytes[i] != '}') {
+            if (bytes[i] == '\n')
+                line++;
+            i++;
+        }
+        if (i == end)
+            fail("unterminated comment");
+        return i + 1;
+    }
+
+    /**
+     * Skips the rest of a line.
+     *
+     * @param bytes The text.
+     * @param start The index of the first character skipped.
+     * @param end   The index after the last character of the game.
+     * @return The index of the end of line, or end.
+     */
+    private static int skipLine(byte[] bytes, int start, int end) {
+        int i = start;
+        while (i < end && bytes[i] != '\n')
+            i++;
+        return i;
+    }
+
+    /**
+     * Tells if a byte belongs to a token of the movetext.
+     *
+     * @param c The byte.
+     * @return true if it isn't a space nor a delimiter.
+     */
+    private static boolean isTokenByte(byte c) {
+        return (c < 0 || c > ' ') && c != '{' && c != '}' && c != '(' && c != ')' && c != ';' && c != '[' && c != ']';
+    }
+
+    /**
+     * Tells if a token is a game termination marker.
+     *
+     * @param bytes The text.
+     * @param start The index of the token.
+     * @param end   The index after the token.
+     * @return true for "1-0", "0-1", "1/2-1/2" and "*".
+     */
+    private boolean isResult(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length == 1)
+            return bytes[start] == '*';
+        if (length == 3)
+            return bytes[start + 1] == '-' && (bytes[start] == '1' && bytes[start + 2] == '0'
+                    || bytes[start] == '0' && bytes[start + 2] == '1');
+        return length == 7 && text.subSequence(start, end).equals("1/2-1/2");
+    }
+
+    /**
+     * Records the first error of the game.
+     *
+     * @param message The error.
+     * @return Move.NONE, for the callers that return a move.
+     */
+    private int fail(String message) {
+        if (error == null) {
+            error = message;
+            errorLine = line;
+        }
+        return Move.NONE;
+    }
+}
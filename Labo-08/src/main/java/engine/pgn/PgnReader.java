@@ -0,0 +1,377 @@
+package engine.pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the games of a PGN file of any size, replaying them on a pool of workers.
+ * <p>
+ * The file is mapped in memory and scanned once by a splitter thread, which only looks for the
+ * boundaries of the games and counts the lines. The games are handed out in batches to the workers,
+ * which parse and replay them with the legality checks of the position. The games come out of the
+ * stream in the order of the file; the number of batches in flight is bounded, so a slow consumer
+ * holds the reader back instead of filling the memory.
+ * <p>
+ * The stream must be closed when it isn't read to the end, like the one of Files.lines:
+ * <pre>
+ * try (Stream&lt;PgnGame&gt; games = PgnReader.read(path)) {
+ *     games.filter(game -&gt; !game.isValid()).forEach(System.out::println);
+ * }
+ * </pre>
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class PgnReader implements Iterator<PgnGame>, AutoCloseable {
+
+    /**
+     * The largest number of games in a batch.
+     */
+    private static final int BATCH_GAMES = 64;
+
+    /**
+     * The number of bytes after which a batch is handed out even if it has less games.
+     */
+    private static final int BATCH_BYTES = 1 << 18;
+
+    /**
+     * The number of batches in flight for each worker.
+     */
+    private static final int BATCHES_PER_WORKER = 4;
+
+    /**
+     * The mark put after the last batch.
+     */
+    private static final Future<PgnGame[]> END = CompletableFuture.completedFuture(null);
+
+    /**
+     * The number of the next reader, to name its threads.
+     */
+    private static final AtomicInteger READERS = new AtomicInteger();
+
+    /**
+     * The mapped file.
+     */
+    private final PgnFile file;
+
+    /**
+     * The workers replaying the games.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * The parser of each worker.
+     */
+    private final ThreadLocal<PgnParser> parsers = ThreadLocal.withInitial(PgnParser::new);
+
+    /**
+     * The batches handed out, in the order of the file.
+     */
+    private final BlockingQueue<Future<PgnGame[]>> batches;
+
+    /**
+     * The thread looking for the games in the file.
+     */
+    private final Thread splitter;
+
+    /**
+     * The games of the batch being read by the consumer.
+     */
+    private PgnGame[] current = new PgnGame[0];
+
+    /**
+     * The index of the next game of the current batch.
+     */
+    private int index;
+
+    /**
+     * Whether the last batch was read or the reader closed.
+     */
+    private volatile boolean finished;
+
+    /**
+     * Starts reading a file.
+     *
+     * @param path    The path of the PGN file.
+     * @param threads The number of workers.
+     * @throws IOException If the file can't be mapped.
+     */
+    private PgnReader(Path path, int threads) throws IOException {
+        file = new PgnFile(path);
+        batches = new ArrayBlockingQueue<>(threads * BATCHES_PER_WORKER);
+        String name = "pgn-" + READERS.incrementAndGet();
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread worker = new Thread(runnable, name + "-worker-" + workerNumber.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+        splitter = new Thread(this::split, name + "-splitter");
+        splitter.setDaemon(true);
+        splitter.start();
+    }
+
+    /**
+     * Reads the games of a PGN file with a worker per processor.
+     *
+     * @param path The path of the PGN file.
+     * @return The games, in the order of the file.
+     * @throws IOException If the file can't be mapped.
+     */
+    public static Stream<PgnGame> read(Path path) throws IOException {
+        return read(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads the games of a PGN file.
+     *
+     * @param path    The path of the PGN file.
+     * @param threads The number of workers.
+     * @return The games, in the order of the file.
+     * @throws IOException If the file can't be mapped.
+     */
+    public static Stream<PgnGame> read(Path path, int threads) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one worker is needed");
+        PgnReader reader = new PgnReader(path, threads);
+        Spliterator<PgnGame> games = Spliterators.spliteratorUnknownSize(reader,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(games, false).onClose(reader::close);
+    }
+
+    /**
+     * Tells if there are more games, waiting for the workers if needed.
+     *
+     * @return true if there is a next game.
+     * @throws UncheckedIOException If the file can't be read.
+     */
+    @Override
+    public boolean hasNext() {
+        while (index == current.length) {
+            if (finished)
+                return false;
+            try {
+                Future<PgnGame[]> batch = batches.take();
+                if (batch == END) {
+                    close();
+                    return false;
+                }
+                current = batch.get();
+                index = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for the games", e);
+            } catch (ExecutionException e) {
+                close();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new UncheckedIOException(new IOException("Can't read the PGN file", cause));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the next game.
+     *
+     * @return The game.
+     * @throws NoSuchElementException If there are no more games.
+     */
+    @Override
+    public PgnGame next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return current[index++];
+    }
+
+    /**
+     * Stops the splitter and the workers.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        splitter.interrupt();
+        workers.shutdownNow();
+        batches.clear();
+    }
+
+    /**
+     * Scans the file for the boundaries of the games and hands them out in batches. A game starts
+     * with a tag at the start of a line, once the previous game has its movetext or a blank line
+     * after its tags; the braces of the comments are followed so that a bracket in a comment doesn't
+     * start a game.
+     */
+    private void split() {
+        long number = 0, gameStart = -1, gameLine = 1, line = 1;
+        boolean lineStart = true, skipLine = false, comment = false, movetext = false, blank = false;
+        Batch batch = new Batch(0);
+        try {
+            for (int s = 0; s < file.segments(); s++) {
+                ByteBuffer segment = file.segment(s);
+                long base = PgnFile.offset(s);
+                for (int i = 0, limit = segment.limit(); i < limit; i++) {
+                    byte c = segment.get(i);
+                    if (c == '\n') {
+                        if (lineStart && gameStart >= 0 && !comment)
+                            blank = true;
+                        line++;
+                        lineStart = true;
+                        skipLine = false;
+                        continue;
+                    }
+                    if (lineStart && !comment) {
+                        if (c == '[') {
+                            if (gameStart >= 0 && (movetext || blank)) {
+                                batch = add(batch, number++, gameStart, base + i, gameLine);
+                                gameStart = -1;
+                            }
+                            if (gameStart < 0) {
+                                gameStart = base + i;
+                                gameLine = line;
+                                movetext = blank = false;
+                            }
+                            skipLine = true;
+                        } else if (c == '%') {
+                            skipLine = true;
+                        }
+                    }
+                    if (c != '\r')
+                        lineStart = false;
+                    if (skipLine || c >= 0 && c <= ' ')
+                        continue;
+                    if (comment) {
+                        comment = c != '}';
+                    } else if (c == '{') {
+                        comment = true;
+                    } else if (c == ';') {
+                        skipLine = true;
+                    } else {
+                        if (gameStart < 0) {
+                            gameStart = base + i;
+                            gameLine = line;
+                            blank = false;
+                        }
+                        movetext = true;
+                    }
+                }
+            }
+            if (gameStart >= 0)
+                batch = add(batch, number, gameStart, file.size(), gameLine);
+            if (batch.count > 0)
+                batches.put(workers.submit(batch));
+            batches.put(END);
+        } catch (InterruptedException e) {
+            // closed while waiting for the consumer
+        } catch (RuntimeException | Error e) {
+            // e.g. the mapped file was truncated: the consumer gets the error after the games read
+            try {
+                batches.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException closed) {
+                // closed while waiting for the consumer
+            }
+        }
+    }
+
+    /**
+     * Adds a game to a batch, and hands the batch out once full.
+     *
+     * @param batch  The batch being filled.
+     * @param number The index of the game.
+     * @param start  The offset of the game.
+     * @param end    The offset after the game.
+     * @param line   The line the game starts on.
+     * @return The batch to fill next.
+     * @throws InterruptedException If the reader is closed while waiting for room.
+     */
+    private Batch add(Batch batch, long number, long start, long end, long line) throws InterruptedException {
+        batch.offsets[batch.count] = start;
+        batch.lengths[batch.count] = (int) Math.min(end - start, Integer.MAX_VALUE);
+        batch.lines[batch.count] = line;
+        batch.bytes += batch.lengths[batch.count++];
+        if (batch.count < BATCH_GAMES && batch.bytes < BATCH_BYTES)
+            return batch;
+        batches.put(workers.submit(batch));
+        return new Batch(number + 1);
+    }
+
+    /**
+     * Games handed out together to a worker.
+     *
+     * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+     */
+    private final class Batch implements Callable<PgnGame[]> {
+
+        /**
+         * The index of the first game.
+         */
+        private final long first;
+
+        /**
+         * The offset of each game.
+         */
+        private final long[] offsets = new long[BATCH_GAMES];
+
+        /**
+         * The length of each game.
+         */
+        private final int[] lengths = new int[BATCH_GAMES];
+
+        /**
+         * The line each game starts on.
+         */
+        private final long[] lines = new long[BATCH_GAMES];
+
+        /**
+         * The number of games.
+         */
+        private int count;
+
+        /**
+         * The number of bytes of the games.
+         */
+        private long bytes;
+
+        /**
+         * Constructs an empty batch.
+         *
+         * @param first The index of its first game.
+         */
+        Batch(long first) {
+            this.first = first;
+        }
+
+        /**
+         * Reads and replays the games.
+         *
+         * @return The games.
+         */
+        @Override
+        public PgnGame[] call() {
+            PgnParser parser = parsers.get();
+            PgnGame[] games = new PgnGame[count];
+            for (int i = 0; i < count; i++)
+                games[i] = parser.parse(file, first + i, offsets[i], lengths[i], lines[i]);
+            return games;
+        }
+    }
+}
@@ -171,4 +171,13 @@ public class King extends Piece{
 
         return path;
     }
+
+    /**
+     * Sets whether the king has moved, e.g. when the board is set up from a position.
+     *
+     * @param hasMoved true if the king has moved.
+     */
+    public void setHasMoved(boolean hasMoved) {
+        this.hasMoved = hasMoved;
+    }
 }
@@ -191,4 +191,22 @@ public class Pawn extends Piece {
         //Only at first time we move the pawn and with a distance of 2
         targetEnPassant = !hasMoved && distance == 2;
     }
+
+    /**
+     * Sets whether the pawn has moved, e.g. when the board is set up from a position.
+     *
+     * @param hasMoved true if the pawn has moved.
+     */
+    public void setHasMoved(boolean hasMoved) {
+        this.hasMoved = hasMoved;
+    }
+
+    /**
+     * Sets whether the pawn just advanced two squares and can be taken en passant.
+     *
+     * @param targetEnPassant true if the pawn can be taken en passant.
+     */
+    public void setTargetEnPassant(boolean targetEnPassant) {
+        this.targetEnPassant = targetEnPassant;
+    }
 }
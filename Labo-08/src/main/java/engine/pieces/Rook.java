@@ -88,4 +88,13 @@ public class Rook extends Piece {
     public boolean getHasMoved() {
         return hasMoved;
     }
+
+    /**
+     * Sets whether the rook has moved, e.g. when the board is set up from a position.
+     *
+     * @param hasMoved true if the rook has moved.
+     */
+    public void setHasMoved(boolean hasMoved) {
+        this.hasMoved = hasMoved;
+    }
 }
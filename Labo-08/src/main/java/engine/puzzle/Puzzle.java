@@ -0,0 +1,151 @@
+package engine.puzzle;
+
+import engine.board.Move;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A tactical puzzle found in a game: the position after a mistake, the line which punishes it, and
+ * the themes of the line.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Puzzle {
+
+    /**
+     * The FEN of the position, the side to move solving the puzzle.
+     */
+    private final String fen;
+
+    /**
+     * The mistake which led to the position.
+     */
+    private final int lastMove;
+
+    /**
+     * The solution, the moves of the side to move and the replies of the opponent.
+     */
+    private final int[] solution;
+
+    /**
+     * The score of the solution, in centipawns for the side to move.
+     */
+    private final int score;
+
+    /**
+     * The number of moves until mate, or 0 if the solution doesn't mate.
+     */
+    private final int mate;
+
+    /**
+     * The themes.
+     */
+    private final List<String> tags;
+
+    /**
+     * The index of the game in its file.
+     */
+    private final long game;
+
+    /**
+     * Constructs a puzzle.
+     *
+     * @param fen      The FEN of the position.
+     * @param lastMove The mistake which led to the position.
+     * @param solution The solution, starting with a move of the side to move.
+     * @param score    The score of the solution.
+     * @param mate     The number of moves until mate, or 0.
+     * @param tags     The themes.
+     * @param game     The index of the game in its file.
+     */
+    Puzzle(String fen, int lastMove, int[] solution, int score, int mate, List<String> tags, long game) {
+        this.fen = fen;
+        this.lastMove = lastMove;
+        this.solution = solution;
+        this.score = score;
+        this.mate = mate;
+        this.tags = List.copyOf(tags);
+        this.game = game;
+    }
+
+    /**
+     * Gets the FEN of the position.
+     *
+     * @return The FEN, the side to move solving the puzzle.
+     */
+    public String getFen() {
+        return fen;
+    }
+
+    /**
+     * Gets the mistake which led to the position.
+     *
+     * @return The move.
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Gets the solution.
+     *
+     * @return A copy of the moves, an odd number of them.
+     */
+    public int[] getSolution() {
+        return Arrays.copyOf(solution, solution.length);
+    }
+
+    /**
+     * Gets the score of the solution.
+     *
+     * @return The score, in centipawns for the side to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the number of moves until mate.
+     *
+     * @return The number of moves of the side to move, or 0 if the solution doesn't mate.
+     */
+    public int getMate() {
+        return mate;
+    }
+
+    /**
+     * Gets the themes, e.g. "mateIn2", "capture" or "endgame".
+     *
+     * @return The themes.
+     */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Gets the index of the game the puzzle was found in.
+     *
+     * @return The index of the game in its file, from 0.
+     */
+    public long getGame() {
+        return game;
+    }
+
+    /**
+     * Converts the puzzle into a record of tab separated fields: the FEN, the mistake, the solution and
+     * the evaluation (#n for a mate), the themes and the index of the game. The moves are in
+     * coordinates, separated by spaces, like the themes.
+     *
+     * @return The record, without end of line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(160).append(fen).append('\t').append(Move.toString(lastMove))
+                .append('\t');
+        for (int i = 0; i < solution.length; i++)
+            builder.append(i == 0 ? "" : " ").append(Move.toString(solution[i]));
+        builder.append('\t').append(mate > 0 ? "#" + mate : (score > 0 ? "+" : "") + score).append('\t')
+                .append(String.join(" ", tags)).append('\t').append(game);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,578 @@
+package engine.puzzle;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.notation.Fen;
+import engine.pgn.PgnGame;
+import engine.search.MateResult;
+import engine.search.MateSolver;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Finds tactical puzzles in games: the positions where a move makes the evaluation swing, whose best
+ * reply is the only one that wins.
+ * <p>
+ * The games go through a pipeline of stages, each one taking its work from a bounded queue, so that
+ * all the cores work while the memory used stays bounded whatever the number of games:
+ * <ol>
+ * <li>the caller reads the games and queues them by batches;</li>
+ * <li>the scanners replay the games with a shallow search of each position, and queue the positions
+ * following a move which lost much of the evaluation of its side (a candidate);</li>
+ * <li>the verifiers search each candidate deeper with two lines, and keep it if the best line wins and
+ * the second one doesn't, proving the mates with the mate solver;</li>
+ * <li>a writer writes the puzzles.</li>
+ * </ol>
+ * Each game and each candidate is searched by a fresh search with a cleared table, so the positions of
+ * the puzzles found don't depend on the number of threads, only their order does.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class PuzzleMiner {
+
+    /**
+     * The number of plies of a game before which no puzzle is searched.
+     */
+    public static final int MIN_PLY = 10;
+
+    /**
+     * The minimum loss of the side which moved, in centipawns, for its move to be a mistake.
+     */
+    private static final int SWING = 300;
+
+    /**
+     * The minimum score of the side to move, in centipawns, for a position to be won.
+     */
+    private static final int WIN = 250;
+
+    /**
+     * The score from which a puzzle is crushing rather than an advantage.
+     */
+    private static final int CRUSHING = 600;
+
+    /**
+     * The bound of the scores compared by the scanners, so that mates don't make any swing.
+     */
+    private static final int SCAN_BOUND = 2000;
+
+    /**
+     * The depth of the search of each position of a game.
+     */
+    private static final int SCAN_DEPTH = 2;
+
+    /**
+     * The maximum number of nodes of the search of each position of a game.
+     */
+    private static final long SCAN_NODES = 20_000;
+
+    /**
+     * The maximum number of nodes of the search of a candidate.
+     */
+    private static final long VERIFY_NODES = 3_000_000;
+
+    /**
+     * The maximum number of nodes of the proof of a mate.
+     */
+    private static final long MATE_NODES = 1_000_000;
+
+    /**
+     * The maximum number of plies of a solution which doesn't mate.
+     */
+    private static final int MAX_SOLUTION = 5;
+
+    /**
+     * The number of games of a batch of the first queue.
+     */
+    private static final int BATCH = 16;
+
+    /**
+     * The size of the table of a scanner, in megabytes.
+     */
+    private static final int SCAN_MEGABYTES = 1;
+
+    /**
+     * The size of the table and of the mate table of a verifier, in megabytes.
+     */
+    private static final int VERIFY_MEGABYTES = 16;
+
+    /**
+     * The batch marking the end of the games.
+     */
+    private static final List<PgnGame> END_GAMES = new ArrayList<>();
+
+    /**
+     * The candidate marking the end of the candidates.
+     */
+    private static final Candidate END_CANDIDATES = new Candidate(null, Move.NONE, -1);
+
+    /**
+     * The puzzle marking the end of the puzzles.
+     */
+    private static final Puzzle END_PUZZLES = new Puzzle(null, Move.NONE, new int[0], 0, 0, List.of(), -1);
+
+    /**
+     * The number of scanner threads.
+     */
+    private final int scanners;
+
+    /**
+     * The number of verifier threads.
+     */
+    private final int verifiers;
+
+    /**
+     * The depth of the search of a candidate.
+     */
+    private final int depth;
+
+    /**
+     * The evaluators, one per thread.
+     */
+    private final Supplier<? extends Evaluator> evaluators;
+
+    /**
+     * The keys of the candidates already queued, so that a position reached in several games is searched
+     * once.
+     */
+    private final Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of games scanned.
+     */
+    private final AtomicLong games = new AtomicLong();
+
+    /**
+     * The number of candidates queued.
+     */
+    private final AtomicLong candidates = new AtomicLong();
+
+    /**
+     * The number of puzzles written.
+     */
+    private final AtomicLong puzzles = new AtomicLong();
+
+    /**
+     * The first error of a stage, or null.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Constructs a miner.
+     *
+     * @param scanners   The number of threads replaying the games, much faster than the verifiers.
+     * @param verifiers  The number of threads searching the candidates.
+     * @param depth      The depth of the search of a candidate.
+     * @param evaluators Creates the evaluator of each thread.
+     */
+    public PuzzleMiner(int scanners, int verifiers, int depth, Supplier<? extends Evaluator> evaluators) {
+        if (scanners < 1 || verifiers < 1 || depth <= SCAN_DEPTH)
+            throw new IllegalArgumentException("Invalid threads or depth: " + scanners + ", " + verifiers + ", "
+                    + depth);
+        this.scanners = scanners;
+        this.verifiers = verifiers;
+        this.depth = depth;
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Gets the number of games scanned.
+     *
+     * @return The number of games.
+     */
+    public long getGames() {
+        return games.get();
+    }
+
+    /**
+     * Gets the number of candidates searched by the verifiers.
+     *
+     * @return The number of positions.
+     */
+    public long getCandidates() {
+        return candidates.get();
+    }
+
+    /**
+     * Gets the number of puzzles written.
+     *
+     * @return The number of puzzles.
+     */
+    public long getPuzzles() {
+        return puzzles.get();
+    }
+
+    /**
+     * Finds the puzzles of games and writes them, one record per line (see Puzzle.toString()). The
+     * positions already searched by a previous call are skipped.
+     *
+     * @param source The games.
+     * @param output The output of the puzzles, only written by the writer thread.
+     * @return The number of puzzles written.
+     * @throws IOException          If the puzzles can't be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the stages.
+     */
+    public long mine(Iterator<PgnGame> source, Appendable output) throws IOException, InterruptedException {
+        long before = puzzles.get();
+        BlockingQueue<List<PgnGame>> gameQueue = new ArrayBlockingQueue<>(scanners * 4);
+        BlockingQueue<Candidate> candidateQueue = new ArrayBlockingQueue<>(verifiers * 8);
+        BlockingQueue<Puzzle> puzzleQueue = new ArrayBlockingQueue<>(256);
+        AtomicInteger scanning = new AtomicInteger(scanners), verifying = new AtomicInteger(verifiers);
+        List<Thread> threads = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < scanners; i++) {
+                Scanner scanner = new Scanner(candidateQueue);
+                threads.add(stage("puzzle-scan-" + i, gameQueue, END_GAMES, scanner::scan, () -> {
+                    if (scanning.decrementAndGet() == 0) {
+                        for (int j = 0; j < verifiers; j++)
+                            candidateQueue.put(END_CANDIDATES);
+                    }
+                }));
+            }
+            for (int i = 0; i < verifiers; i++) {
+                Verifier verifier = new Verifier(puzzleQueue);
+                threads.add(stage("puzzle-verify-" + i, candidateQueue, END_CANDIDATES, verifier::verify, () -> {
+                    if (verifying.decrementAndGet() == 0)
+                        puzzleQueue.put(END_PUZZLES);
+                }));
+            }
+            threads.add(stage("puzzle-write", puzzleQueue, END_PUZZLES, puzzle -> {
+                output.append(puzzle.toString()).append('\n');
+                puzzles.incrementAndGet();
+            }, () -> {
+            }));
+
+            List<PgnGame> batch = new ArrayList<>(BATCH);
+            while (source.hasNext() && failure == null) {
+                batch.add(source.next());
+                if (batch.size() == BATCH) {
+                    gameQueue.put(batch);
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty())
+                gameQueue.put(batch);
+            for (int i = 0; i < scanners; i++)
+                gameQueue.put(END_GAMES);
+            for (Thread thread : threads)
+                thread.join();
+        } finally {
+            for (Thread thread : threads)
+                thread.interrupt();
+        }
+
+        Throwable error = failure;
+        failure = null;
+        // a task only throws the checked IOException, the others are unchecked
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error != null)
+            throw (Error) error;
+        return puzzles.get() - before;
+    }
+
+    /**
+     * Starts the thread of a stage. A stage which failed still takes its work, so that the previous
+     * stage never waits for it.
+     *
+     * @param name  The name of the thread.
+     * @param input The queue of the work.
+     * @param end   The work marking the end of the queue.
+     * @param task  Does a work.
+     * @param done  Called once the end is taken.
+     * @param <T>   The type of the work.
+     * @return The started thread.
+     */
+    private <T> Thread stage(String name, BlockingQueue<T> input, T end, Task<T> task, Done done) {
+        Thread thread = new Thread(() -> {
+            try {
+                for (T work = input.take(); work != end; work = input.take()) {
+                    if (failure != null)
+                        continue;
+                    try {
+                        task.run(work);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        // an error of a search too, so that the next stage always gets its end
+                        if (failure == null)
+                            failure = e;
+                    }
+                }
+                done.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Computes the themes of a puzzle.
+     *
+     * @param position The position of the puzzle, left unchanged.
+     * @param solution The solution.
+     * @param score    The score of the solution.
+     * @param mate     The number of moves until mate, or 0.
+     * @return The themes.
+     */
+    private static List<String> tags(Position position, int[] solution, int score, int mate) {
+        List<String> tags = new ArrayList<>();
+        if (mate > 0) {
+            tags.add("mate");
+            tags.add("mateIn" + mate);
+        } else {
+            tags.add(score >= CRUSHING ? "crushing" : "advantage");
+        }
+        int moves = (solution.length + 1) / 2;
+        tags.add(moves == 1 ? "oneMove" : moves == 2 ? "short" : "long");
+
+        int first = solution[0];
+        boolean capture = position.pieceAt(Move.to(first)) != Position.EMPTY || Move.kind(first) == Move.EN_PASSANT;
+        boolean promotion = Move.kind(first) == Move.PROMOTION;
+        Position after = new Position(position);
+        after.make(first);
+        boolean check = after.inCheck();
+        if (capture)
+            tags.add("capture");
+        if (check)
+            tags.add("check");
+        if (promotion)
+            tags.add("promotion");
+        if (!capture && !check && !promotion)
+            tags.add("quietMove");
+
+        int pieces = 0;
+        for (int square = 0; square < 64; square++) {
+            int type = position.pieceAt(square) & 7;
+            pieces += type != Position.EMPTY && type != Position.PAWN && type != Position.KING ? 1 : 0;
+        }
+        tags.add(pieces <= 4 ? "endgame" : position.fullmoveNumber() <= 12 ? "opening" : "middlegame");
+        return tags;
+    }
+
+    /**
+     * The work of a stage.
+     *
+     * @param <T> The type of the work.
+     */
+    private interface Task<T> {
+
+        /**
+         * Does a work.
+         *
+         * @param work The work.
+         * @throws IOException          If the output can't be written.
+         * @throws InterruptedException If the thread is interrupted while queuing its result.
+         */
+        void run(T work) throws IOException, InterruptedException;
+    }
+
+    /**
+     * The end of a stage.
+     */
+    private interface Done {
+
+        /**
+         * Ends the stage, e.g. marks the end of the next queue.
+         *
+         * @throws InterruptedException If the thread is interrupted while queuing.
+         */
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * A position following a mistake, to verify.
+     */
+    private static final class Candidate {
+
+        /**
+         * The position, the side to move having the opportunity.
+         */
+        private final Position position;
+
+        /**
+         * The mistake.
+         */
+        private final int lastMove;
+
+        /**
+         * The index of the game in its file.
+         */
+        private final long game;
+
+        /**
+         * Constructs a candidate.
+         *
+         * @param position The position.
+         * @param lastMove The mistake.
+         * @param game     The index of the game in its file.
+         */
+        private Candidate(Position position, int lastMove, long game) {
+            this.position = position;
+            this.lastMove = lastMove;
+            this.game = game;
+        }
+    }
+
+    /**
+     * A scanner, replaying games with its own search.
+     */
+    private final class Scanner {
+
+        /**
+         * The queue of the candidates found.
+         */
+        private final BlockingQueue<Candidate> output;
+
+        /**
+         * The table of the searches.
+         */
+        private final TranspositionTable table = new TranspositionTable(SCAN_MEGABYTES);
+
+        /**
+         * The evaluator of the searches.
+         */
+        private final Evaluator evaluator = evaluators.get();
+
+        /**
+         * Constructs a scanner.
+         *
+         * @param output The queue of the candidates found.
+         */
+        private Scanner(BlockingQueue<Candidate> output) {
+            this.output = output;
+        }
+
+        /**
+         * Replays games and queues their candidates. The games with an error are scanned up to it.
+         *
+         * @param batch The games.
+         * @throws InterruptedException If the thread is interrupted while queuing.
+         */
+        private void scan(List<PgnGame> batch) throws InterruptedException {
+            for (PgnGame game : batch) {
+                table.clear();
+                Search search = new Search(table, evaluator);
+                Position position = game.startPosition();
+                int[] moves = game.getMoves();
+                int previous = score(search, position);
+                for (int ply = 0; ply < moves.length; ply++) {
+                    position.make(moves[ply]);
+                    int score = score(search, position);
+                    // the side which moved had previous, now has -score
+                    if (ply + 1 >= MIN_PLY && previous > -WIN && score >= WIN && previous + score >= SWING
+                            && seen.add(position.key())) {
+                        candidates.incrementAndGet();
+                        output.put(new Candidate(new Position(position), moves[ply], game.getNumber()));
+                    }
+                    previous = score;
+                }
+                games.incrementAndGet();
+            }
+        }
+
+        /**
+         * Searches a position of a game.
+         *
+         * @param search   The search.
+         * @param position The position.
+         * @return The score for the side to move, bounded.
+         */
+        private int score(Search search, Position position) {
+            int score = search.think(position, SCAN_DEPTH, SCAN_NODES, null).getScore();
+            return Math.max(-SCAN_BOUND, Math.min(SCAN_BOUND, score));
+        }
+    }
+
+    /**
+     * A verifier, searching candidates deeper with its own search.
+     */
+    private final class Verifier {
+
+        /**
+         * The queue of the puzzles found.
+         */
+        private final BlockingQueue<Puzzle> output;
+
+        /**
+         * The table of the searches.
+         */
+        private final TranspositionTable table = new TranspositionTable(VERIFY_MEGABYTES);
+
+        /**
+         * The solver of the mates.
+         */
+        private final MateSolver solver = new MateSolver(VERIFY_MEGABYTES);
+
+        /**
+         * The evaluator of the searches.
+         */
+        private final Evaluator evaluator = evaluators.get();
+
+        /**
+         * Constructs a verifier.
+         *
+         * @param output The queue of the puzzles found.
+         */
+        private Verifier(BlockingQueue<Puzzle> output) {
+            this.output = output;
+        }
+
+        /**
+         * Searches the two best lines of a candidate, and queues the puzzle if only the first one wins.
+         *
+         * @param candidate The candidate.
+         * @throws InterruptedException If the thread is interrupted while queuing.
+         */
+        private void verify(Candidate candidate) throws InterruptedException {
+            table.clear();
+            Position position = candidate.position;
+            List<SearchResult> lines = new Search(table, evaluator).analyse(position, 2, depth, VERIFY_NODES,
+                    null);
+            if (lines.size() < 2)
+                return;
+            int best = lines.get(0).getScore(), second = lines.get(1).getScore();
+            if (best < WIN || second >= WIN || best - second < SWING / 2)
+                return;
+
+            int[] solution = lines.get(0).getPv();
+            int mate = 0;
+            if (best >= Search.MATE_BOUND) {
+                mate = (Search.MATE - best + 1) / 2;
+                if (mate > MateSolver.MAX_LENGTH)
+                    return;
+                solver.clear();
+                MateResult proof = solver.solve(position, mate, MATE_NODES);
+                if (!proof.isMate())
+                    return;
+                solution = proof.getLine();
+                mate = proof.getLength();
+            } else {
+                // the solution ends with a move of the side to move
+                int length = Math.min(solution.length, MAX_SOLUTION);
+                solution = Arrays.copyOf(solution, length % 2 == 0 ? length - 1 : length);
+            }
+            output.put(new Puzzle(Fen.toString(position), candidate.lastMove, solution, best, mate,
+                    tags(position, solution, best, mate), candidate.game));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package engine.render;
+
+import chess.PieceType;
+import chess.PlayerColor;
+import chess.assets.GuiAssets;
+import engine.board.Position;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws positions into images with the sprites of the graphical view, without any Swing component, so
+ * that it also works in a headless JVM (java.awt.headless=true), e.g. to make the thumbnails of a
+ * game browser.
+ * <p>
+ * The sprites are scaled once per size of square, as the empty board of that size: a position is drawn
+ * by copying the empty board, then each piece. A renderer may be shared by several threads, each one
+ * drawing into its own image.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class BoardRenderer {
+
+    /**
+     * The color of the dark squares, the one of the graphical view.
+     */
+    private static final Color DARK = Color.GRAY;
+
+    /**
+     * The color of the light squares, the one of the graphical view.
+     */
+    private static final Color LIGHT = Color.WHITE;
+
+    /**
+     * The sprites, by piece code.
+     */
+    private final BufferedImage[] sprites = new BufferedImage[16];
+
+    /**
+     * The scaled sprites and the empty board, by size of square.
+     */
+    private final Map<Integer, Scaled> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the sprites of the graphical view.
+     *
+     * @throws IOException If a sprite can't be read.
+     */
+    public BoardRenderer() throws IOException {
+        for (PieceType type : PieceType.values()) {
+            for (PlayerColor color : PlayerColor.values()) {
+                // the piece types are in the same order as the codes of the positions
+                int piece = Position.piece(color == PlayerColor.WHITE ? Position.WHITE : Position.BLACK,
+                        type.ordinal() + Position.PAWN);
+                sprites[piece] = GuiAssets.pieceImage(type, color);
+            }
+        }
+    }
+
+    /**
+     * Creates an image of the size of a board.
+     *
+     * @param squareSize The size of a square, in pixels.
+     * @return The image, to draw positions into.
+     */
+    public static BufferedImage newImage(int squareSize) {
+        if (squareSize < 1)
+            throw new IllegalArgumentException("Invalid size of square: " + squareSize);
+        return new BufferedImage(squareSize * 8, squareSize * 8, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Draws a position, white at the bottom.
+     *
+     * @param position The position.
+     * @param image    The image, created by newImage(), the size of a square being the width of the
+     *                 image divided by 8.
+     * @throws IllegalArgumentException If the image was not created by newImage().
+     */
+    public void render(Position position, BufferedImage image) {
+        int squareSize = image.getWidth() / 8;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB || squareSize < 1 || image.getHeight() != squareSize * 8)
+            throw new IllegalArgumentException("Not an image of a board: " + image);
+        Scaled scaled = cache.computeIfAbsent(squareSize, this::scale);
+        int[] board = ((DataBufferInt) scaled.board.getRaster().getDataBuffer()).getData();
+        System.arraycopy(board, 0, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, board.length);
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int square = 0; square < 64; square++) {
+                int piece = position.pieceAt(square);
+                if (piece != Position.EMPTY)
+                    g.drawImage(scaled.sprites[piece], square % 8 * squareSize, (7 - square / 8) * squareSize, null);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draws a position into a new image.
+     *
+     * @param position   The position.
+     * @param squareSize The size of a square, in pixels.
+     * @return The image.
+     */
+    public BufferedImage render(Position position, int squareSize) {
+        BufferedImage image = newImage(squareSize);
+        render(position, image);
+        return image;
+    }
+
+    /**
+     * Scales the sprites and draws the empty board for a size of square.
+     *
+     * @param squareSize The size of a square, in pixels.
+     * @return The scaled sprites and the empty board.
+     */
+    private Scaled scale(int squareSize) {
+        BufferedImage[] scaled = new BufferedImage[sprites.length];
+        for (int piece = 0; piece < sprites.length; piece++) {
+            if (sprites[piece] == null)
+                continue;
+            // premultiplied alpha is the format drawn the fastest over an opaque image
+            scaled[piece] = new BufferedImage(squareSize, squareSize, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = scaled[piece].createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(sprites[piece], 0, 0, squareSize, squareSize, null);
+            g.dispose();
+        }
+
+        BufferedImage board = newImage(squareSize);
+        Graphics2D g = board.createGraphics();
+        for (int square = 0; square < 64; square++) {
+            int x = square % 8, y = square / 8;
+            g.setColor((x + y) % 2 == 0 ? DARK : LIGHT);
+            g.fillRect(x * squareSize, (7 - y) * squareSize, squareSize, squareSize);
+        }
+        g.dispose();
+        return new Scaled(scaled, board);
+    }
+
+    /**
+     * The sprites and the empty board of a size of square.
+     */
+    private static final class Scaled {
+
+        /**
+         * The sprites, by piece code.
+         */
+        private final BufferedImage[] sprites;
+
+        /**
+         * The empty board.
+         */
+        private final BufferedImage board;
+
+        /**
+         * Constructs the images of a size.
+         *
+         * @param sprites The sprites, by piece code.
+         * @param board   The empty board.
+         */
+        private Scaled(BufferedImage[] sprites, BufferedImage board) {
+            this.sprites = sprites;
+            this.board = board;
+        }
+    }
+}
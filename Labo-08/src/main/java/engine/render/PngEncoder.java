@@ -0,0 +1,150 @@
+package engine.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes the images of the boards into PNG, several times faster than ImageIO: the pixels are read
+ * directly from the raster, each row is filtered by the difference with the row above (Up filter),
+ * which turns the rows repeated by the squares into zeros, and compressed at the fastest level. The
+ * buffers are kept from an image to the next, so an encoder is used by one thread at a time.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class PngEncoder {
+
+    /**
+     * The signature starting a PNG file.
+     */
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * The type of the filter of a row comparing it with the row above.
+     */
+    private static final int FILTER_UP = 2;
+
+    /**
+     * The compressor.
+     */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    /**
+     * The checksum of the chunks.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The filtered rows.
+     */
+    private byte[] rows = new byte[0];
+
+    /**
+     * The compressed rows, as the content of a chunk.
+     */
+    private byte[] compressed = new byte[0];
+
+    /**
+     * The header of a chunk.
+     */
+    private final byte[] chunkHeader = new byte[8];
+
+    /**
+     * The content of the header chunk.
+     */
+    private final byte[] header = new byte[13];
+
+    /**
+     * Encodes an image.
+     *
+     * @param image The image, of the type TYPE_INT_RGB.
+     * @param out   The output of the PNG file.
+     * @throws IOException If the output can't be written.
+     */
+    void write(BufferedImage image, OutputStream out) throws IOException {
+        int width = image.getWidth(), height = image.getHeight(), stride = 1 + 3 * width;
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (rows.length < stride * height) {
+            rows = new byte[stride * height];
+            // the compressed rows of a random image are slightly larger than the rows
+            compressed = new byte[stride * height + stride * height / 100 + 64];
+        }
+
+        for (int y = 0, i = 0; y < height; y++) {
+            rows[i++] = FILTER_UP;
+            int row = y * width, above = row - width;
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[row + x], up = y > 0 ? pixels[above + x] : 0;
+                rows[i++] = (byte) ((rgb >>> 16) - (up >>> 16));
+                rows[i++] = (byte) ((rgb >>> 8) - (up >>> 8));
+                rows[i++] = (byte) (rgb - up);
+            }
+        }
+        deflater.reset();
+        deflater.setInput(rows, 0, stride * height);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        out.write(SIGNATURE);
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        // 8 bits per sample, truecolor, deflate, a filter per row, not interlaced
+        header[8] = 8;
+        header[9] = 2;
+        chunk(out, "IHDR", header, header.length);
+        chunk(out, "IDAT", compressed, length);
+        chunk(out, "IEND", header, 0);
+    }
+
+    /**
+     * Writes a chunk.
+     *
+     * @param out    The output.
+     * @param type   The type of the chunk.
+     * @param data   The content of the chunk.
+     * @param length The length of the content.
+     * @throws IOException If the output can't be written.
+     */
+    private void chunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        writeInt(chunkHeader, 0, length);
+        System.arraycopy(type.getBytes(StandardCharsets.US_ASCII), 0, chunkHeader, 4, 4);
+        crc.reset();
+        crc.update(chunkHeader, 4, 4);
+        crc.update(data, 0, length);
+        out.write(chunkHeader);
+        out.write(data, 0, length);
+        writeInt(chunkHeader, 0, (int) crc.getValue());
+        out.write(chunkHeader, 0, 4);
+    }
+
+    /**
+     * Writes an int in big endian order.
+     *
+     * @param bytes  The bytes.
+     * @param offset The index of the first byte.
+     * @param value  The int.
+     */
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Releases the compressor.
+     */
+    void dispose() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,287 @@
+package engine.render;
+
+import engine.board.Position;
+import engine.notation.Fen;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the PNG thumbnails of many positions, drawn and encoded on a pool of threads.
+ * <p>
+ * The positions are read from FEN lines, queued by batches in a bounded queue. Each thread draws into
+ * its own image and encodes it with its own PNG encoder (see PngEncoder), the encoding costing far more
+ * than the drawing. The thumbnails are spread over directories of 10,000 files.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class ThumbnailWriter {
+
+    /**
+     * The number of thumbnails of a directory.
+     */
+    public static final int DIRECTORY_FILES = 10_000;
+
+    /**
+     * The size of the buffer of a file written.
+     */
+    private static final int OUTPUT_BYTES = 1 << 16;
+
+    /**
+     * The number of positions of a batch of the queue.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The batch marking the end of the positions.
+     */
+    private static final Batch END = new Batch(-1, List.of());
+
+    /**
+     * The renderer, shared by the threads.
+     */
+    private final BoardRenderer renderer;
+
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+
+    /**
+     * The size of a square, in pixels.
+     */
+    private final int squareSize;
+
+    /**
+     * The number of thumbnails written.
+     */
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * The number of lines which were not a valid FEN.
+     */
+    private final AtomicLong invalid = new AtomicLong();
+
+    /**
+     * The number of lines read, the index of the next one.
+     */
+    private long lines;
+
+    /**
+     * The first error of a thread, or null.
+     */
+    private volatile Exception failure;
+
+    /**
+     * Constructs a writer.
+     *
+     * @param renderer   The renderer.
+     * @param threads    The number of threads.
+     * @param squareSize The size of a square, in pixels.
+     */
+    public ThumbnailWriter(BoardRenderer renderer, int threads, int squareSize) {
+        if (threads < 1 || squareSize < 1)
+            throw new IllegalArgumentException("Invalid threads or size: " + threads + ", " + squareSize);
+        this.renderer = renderer;
+        this.threads = threads;
+        this.squareSize = squareSize;
+    }
+
+    /**
+     * Gets the path of a thumbnail.
+     *
+     * @param directory The directory of the thumbnails.
+     * @param index     The index of the position, from 0.
+     * @return The path of the thumbnail.
+     */
+    public static Path thumbnail(Path directory, long index) {
+        return directory.resolve(String.format("%05d/%08d.png", index / DIRECTORY_FILES, index));
+    }
+
+    /**
+     * Gets the number of thumbnails written.
+     *
+     * @return The number of thumbnails.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of lines which were not a valid FEN.
+     *
+     * @return The number of lines skipped.
+     */
+    public long getInvalid() {
+        return invalid.get();
+    }
+
+    /**
+     * Writes the thumbnails of positions, the thumbnail of the n-th line read by the writer, over all the
+     * calls, having the index n. The invalid lines are skipped, their index isn't used.
+     *
+     * @param fens      The positions, as lines starting with a FEN (EPD records included).
+     * @param directory The directory of the thumbnails, created if needed.
+     * @return The number of thumbnails written.
+     * @throws IOException          If a thumbnail can't be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the pool.
+     */
+    public long write(Iterator<String> fens, Path directory) throws IOException, InterruptedException {
+        long before = written.get();
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(threads * 4);
+        Thread[] pool = new Thread[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                pool[i] = new Thread(() -> {
+                    try {
+                        Encoder encoder = new Encoder();
+                        for (Batch batch = queue.take(); batch != END; batch = queue.take()) {
+                            // a thread which failed still takes its batches, so that the reader never waits for it
+                            for (int j = 0; j < batch.lines.size() && failure == null; j++) {
+                                try {
+                                    encoder.write(batch.lines.get(j), directory, batch.start + j);
+                                } catch (IOException | RuntimeException e) {
+                                    if (failure == null)
+                                        failure = e;
+                                }
+                            }
+                        }
+                        encoder.dispose();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "thumbnail-" + i);
+                pool[i].setDaemon(true);
+                pool[i].start();
+            }
+
+            long index = lines;
+            List<String> batch = new ArrayList<>(BATCH);
+            while (fens.hasNext() && failure == null) {
+                batch.add(fens.next());
+                if (batch.size() == BATCH) {
+                    queue.put(new Batch(index, batch));
+                    index += BATCH;
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            lines = index + batch.size();
+            if (!batch.isEmpty())
+                queue.put(new Batch(index, batch));
+            for (int i = 0; i < threads; i++)
+                queue.put(END);
+            for (Thread thread : pool)
+                thread.join();
+        } finally {
+            for (Thread thread : pool) {
+                if (thread != null)
+                    thread.interrupt();
+            }
+        }
+
+        Exception error = failure;
+        failure = null;
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error != null)
+            throw (RuntimeException) error;
+        return written.get() - before;
+    }
+
+    /**
+     * Lines queued together.
+     */
+    private static final class Batch {
+
+        /**
+         * The index of the first line.
+         */
+        private final long start;
+
+        /**
+         * The lines.
+         */
+        private final List<String> lines;
+
+        /**
+         * Constructs a batch.
+         *
+         * @param start The index of the first line.
+         * @param lines The lines.
+         */
+        private Batch(long start, List<String> lines) {
+            this.start = start;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * The drawing and the encoding of a thread.
+     */
+    private final class Encoder {
+
+        /**
+         * The position drawn.
+         */
+        private final Position position = new Position();
+
+        /**
+         * The squares of the FEN read.
+         */
+        private final int[] pieces = new int[64];
+
+        /**
+         * The image drawn.
+         */
+        private final BufferedImage image = BoardRenderer.newImage(squareSize);
+
+        /**
+         * The PNG encoder.
+         */
+        private final PngEncoder encoder = new PngEncoder();
+
+        /**
+         * The last directory created, or null.
+         */
+        private Path created;
+
+        /**
+         * Draws a position and writes its thumbnail.
+         *
+         * @param line      The FEN of the position.
+         * @param directory The directory of the thumbnails.
+         * @param index     The index of the position.
+         * @throws IOException If the thumbnail can't be written.
+         */
+        private void write(String line, Path directory, long index) throws IOException {
+            if (Fen.parse(position, line, 0, line.length(), pieces) < 0) {
+                invalid.incrementAndGet();
+                return;
+            }
+            renderer.render(position, image);
+            Path path = thumbnail(directory, index);
+            if (!path.getParent().equals(created))
+                created = Files.createDirectories(path.getParent());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), OUTPUT_BYTES)) {
+                encoder.write(image, out);
+            }
+            written.incrementAndGet();
+        }
+
+        /**
+         * Releases the PNG encoder.
+         */
+        private void dispose() {
+            encoder.dispose();
+        }
+    }
+}
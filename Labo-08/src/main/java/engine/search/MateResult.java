@@ -0,0 +1,139 @@
+package engine.search;
+
+import engine.board.Move;
+
+/**
+ * The outcome of a mate search: the mating line when a forced mate was proven, otherwise whether no
+ * mate exists within the requested length or the budget ran out before deciding.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class MateResult {
+
+    /**
+     * The possible outcomes of a mate search.
+     */
+    public enum Status {
+        /**
+         * A forced mate was proven.
+         */
+        MATE,
+        /**
+         * It was proven that the side to move can't force mate within the requested number of moves.
+         */
+        NO_MATE,
+        /**
+         * The node budget ran out before the search could decide.
+         */
+        UNKNOWN
+    }
+
+    /**
+     * The outcome of the search.
+     */
+    private final Status status;
+
+    /**
+     * The number of moves of the mating side until mate, or the length searched.
+     */
+    private final int length;
+
+    /**
+     * The mating line, empty when no mate was proven.
+     */
+    private final int[] line;
+
+    /**
+     * The number of nodes expanded.
+     */
+    private final long nodes;
+
+    /**
+     * Constructs a result.
+     *
+     * @param status The outcome of the search.
+     * @param length The number of moves of the mating side, or the length searched.
+     * @param line   The mating line, empty when no mate was proven.
+     * @param nodes  The number of nodes expanded.
+     */
+    public MateResult(Status status, int length, int[] line, long nodes) {
+        this.status = status;
+        this.length = length;
+        this.line = line;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Gets the outcome of the search.
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Indicates if a forced mate was proven.
+     *
+     * @return true if getLine() holds a mating line.
+     */
+    public boolean isMate() {
+        return status == Status.MATE;
+    }
+
+    /**
+     * Gets the number of moves of the mating side until mate, or the length searched.
+     *
+     * @return The length in moves.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the mating line, the defence being the one that resisted the most during the proof.
+     *
+     * @return The moves of the line, empty when no mate was proven.
+     */
+    public int[] getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the first move of the mating line.
+     *
+     * @return The mating move, or Move.NONE.
+     */
+    public int getBestMove() {
+        return line.length > 0 ? line[0] : Move.NONE;
+    }
+
+    /**
+     * Gets the number of nodes expanded.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Describes the result, e.g. "mate in 2: f3f7 e8d8 f7d7".
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        switch (status) {
+            case MATE:
+                StringBuilder builder = new StringBuilder("mate in ").append(length).append(':');
+                for (int move : line)
+                    builder.append(' ').append(Move.toString(move));
+                return builder.toString();
+            case NO_MATE:
+                return "no mate in " + length;
+            default:
+                return "no mate within budget";
+        }
+    }
+}
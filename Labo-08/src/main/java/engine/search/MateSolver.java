@@ -0,0 +1,404 @@
+package engine.search;
+
+import engine.board.Position;
+import java.util.Arrays;
+
+/**
+ * Proves or refutes forced mates with a depth-first proof-number search (df-pn).
+ * <p>
+ * Instead of scoring every line like the alpha-beta search, each node only keeps how many leaves
+ * must still be proven (proof number) or refuted (disproof number) to decide it, and the search always
+ * expands the most promising node, within thresholds that keep it depth-first. Forcing lines are thus
+ * followed first and refuted moves are abandoned as soon as one defence holds.
+ * <p>
+ * The numbers are kept in a compact table of fixed size (four parallel arrays), the least worked
+ * entries being replaced when a bucket is full. The remaining length is part of the key, so that the
+ * graph has no cycle and a proof of a mate in n is never confused with one of a longer mate.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class MateSolver {
+
+    /**
+     * The longest mate searched, in moves of the mating side.
+     */
+    public static final int MAX_LENGTH = 32;
+
+    /**
+     * The number meaning proven (as disproof number) or refuted (as proof number).
+     */
+    private static final int INFINITY = 100_000_000;
+
+    /**
+     * The initial proof number of a quiet move of the mating side, checks being tried first.
+     */
+    private static final int QUIET_PROOF = 3;
+
+    /**
+     * The number of entries of a bucket of the table.
+     */
+    private static final int BUCKET = 4;
+
+    /**
+     * The size of an entry: the key, both numbers and the work.
+     */
+    private static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * The hash of the remaining plies, mixed in the key of a position.
+     */
+    private static final long[] PLIES_KEYS = new long[2 * MAX_LENGTH];
+
+    static {
+        long state = 0x6D617465L;
+        for (int i = 0; i < PLIES_KEYS.length; i++) {
+            long z = state += 0x9E3779B97F4A7C15L;
+            z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+            PLIES_KEYS[i] = z ^ z >>> 31;
+        }
+    }
+
+    /**
+     * The keys of the entries, 0 if empty.
+     */
+    private final long[] keys;
+
+    /**
+     * The proof numbers from the point of view of the side to move (phi): the proof number of the
+     * mating side, the disproof number of the defending side.
+     */
+    private final int[] phis;
+
+    /**
+     * The opposite numbers (delta).
+     */
+    private final int[] deltas;
+
+    /**
+     * The number of nodes expanded under each entry.
+     */
+    private final int[] works;
+
+    /**
+     * The number of buckets of the table.
+     */
+    private final int buckets;
+
+    /**
+     * The legal moves of each ply.
+     */
+    private final int[][] moves = new int[2 * MAX_LENGTH][Position.MAX_MOVES];
+
+    /**
+     * The keys of the children of each ply.
+     */
+    private final long[][] childKeys = new long[2 * MAX_LENGTH][Position.MAX_MOVES];
+
+    /**
+     * The numbers of the children of each ply when they are not in the table, packed phi << 32 | delta.
+     */
+    private final long[][] initial = new long[2 * MAX_LENGTH][Position.MAX_MOVES];
+
+    /**
+     * The position being solved.
+     */
+    private Position position;
+
+    /**
+     * The number of nodes expanded.
+     */
+    private long nodes;
+
+    /**
+     * The maximum number of nodes.
+     */
+    private long maxNodes;
+
+    /**
+     * Constructs a solver.
+     *
+     * @param megabytes The memory of the node table, in megabytes.
+     */
+    public MateSolver(int megabytes) {
+        buckets = (int) Math.max(1, Math.min((long) megabytes * 1024 * 1024 / ENTRY_BYTES / BUCKET,
+                Integer.MAX_VALUE / BUCKET));
+        keys = new long[buckets * BUCKET];
+        phis = new int[buckets * BUCKET];
+        deltas = new int[buckets * BUCKET];
+        works = new int[buckets * BUCKET];
+    }
+
+    /**
+     * Gets the number of entries of the table.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Empties the table. The entries stay valid between positions, so clearing is only useful to measure.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+    }
+
+    /**
+     * Searches a forced mate of the side to move within a number of moves. The whole length is searched
+     * at once: proving that no shorter mate exists costs far more than the proof itself, so the line
+     * found is a mate within the length, not necessarily the shortest one.
+     *
+     * @param root      The position, left unchanged.
+     * @param maxLength The longest mate searched, in moves of the side to move.
+     * @param maxNodes  The maximum number of nodes expanded.
+     * @return The mating line, the proof that there is none, or UNKNOWN if the budget ran out. The line
+     *         of a mate is cut short if the budget runs out again while it is rebuilt, the length of the
+     *         mate then being the length searched.
+     */
+    public MateResult solve(Position root, int maxLength, long maxNodes) {
+        if (maxLength < 1 || maxLength > MAX_LENGTH)
+            throw new IllegalArgumentException("The mate length must be between 1 and " + MAX_LENGTH);
+        position = new Position(root);
+        nodes = 0;
+        this.maxNodes = maxNodes;
+
+        int plies = 2 * maxLength - 1;
+        long key = position.key() ^ PLIES_KEYS[plies];
+        mid(0, plies, key, INFINITY, INFINITY);
+
+        int entry = probe(key);
+        if (entry >= 0 && deltas[entry] == INFINITY) {
+            int[] line = line(plies);
+            // a line cut by the budget only tells that the mate comes within the length searched
+            return new MateResult(MateResult.Status.MATE, mates(line) ? (line.length + 1) / 2 : maxLength, line,
+                    nodes);
+        }
+        MateResult.Status status = entry >= 0 && phis[entry] == INFINITY
+                ? MateResult.Status.NO_MATE : MateResult.Status.UNKNOWN;
+        return new MateResult(status, maxLength, new int[0], nodes);
+    }
+
+    /**
+     * Expands a node until its phi or its delta reaches its threshold, or the budget runs out.
+     *
+     * @param ply     The distance from the root.
+     * @param plies   The number of plies left, the last one being played by the mating side.
+     * @param key     The key of the node, including the plies left.
+     * @param thPhi   The threshold of phi.
+     * @param thDelta The threshold of delta.
+     */
+    private void mid(int ply, int plies, long key, int thPhi, int thDelta) {
+        long start = nodes++;
+        int count = expand(ply, plies);
+        boolean attacking = (ply & 1) == 0;
+        if (count == 0) {
+            // a stalemated defender escapes, any other side without move is lost
+            boolean escaped = !attacking && !position.inCheck();
+            store(key, escaped ? 0 : INFINITY, escaped ? INFINITY : 0, 1);
+            return;
+        }
+        if (plies == 0) {
+            store(key, 0, INFINITY, 1);
+            return;
+        }
+
+        while (true) {
+            int phi = INFINITY, delta = 0, secondDelta = INFINITY, best = 0, bestPhi = 0;
+            for (int i = 0; i < count; i++) {
+                long values = values(childKeys[ply][i], initial[ply][i]);
+                int childPhi = (int) (values >>> 32), childDelta = (int) values;
+                delta = childPhi == INFINITY || delta == INFINITY ? INFINITY
+                        : Math.min(INFINITY - 1, delta + childPhi);
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    best = i;
+                    bestPhi = childPhi;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+
+            if (phi >= thPhi || delta >= thDelta || nodes >= maxNodes) {
+                store(key, phi, delta, (int) Math.min(Integer.MAX_VALUE, nodes - start));
+                return;
+            }
+
+            int childThPhi = (int) Math.min(INFINITY, (long) thDelta + bestPhi - delta);
+            int childThDelta = Math.min(thPhi, secondDelta + 1);
+            position.make(moves[ply][best]);
+            mid(ply + 1, plies - 1, childKeys[ply][best], childThPhi, childThDelta);
+            position.unmake();
+        }
+    }
+
+    /**
+     * Generates the legal moves of a node with the keys and the initial numbers of its children. A
+     * quiet last move of the mating side can't mate, so it is refuted without being expanded.
+     *
+     * @param ply   The distance from the root.
+     * @param plies The number of plies left.
+     * @return The number of legal moves.
+     */
+    private int expand(int ply, int plies) {
+        int count = position.legalMoves(moves[ply]);
+        if (plies == 0)
+            return count;
+
+        boolean attacking = (ply & 1) == 0;
+        for (int i = 0; i < count; i++) {
+            position.make(moves[ply][i]);
+            childKeys[ply][i] = position.key() ^ PLIES_KEYS[plies - 1];
+            if (!attacking)
+                initial[ply][i] = pack(1, 1);
+            else if (position.inCheck())
+                initial[ply][i] = pack(1, 1);
+            else
+                initial[ply][i] = plies == 1 ? pack(0, INFINITY) : pack(1, QUIET_PROOF);
+            position.unmake();
+        }
+        return count;
+    }
+
+    /**
+     * Builds the mating line of a proven root, following the proven moves of the mating side that needed
+     * the least work, usually the shortest, and the defences that needed the most. A node whose entries
+     * were replaced is proven again, all these proofs sharing a budget as large as the one of the search:
+     * with a small table they could otherwise go on replacing each other's entries without end.
+     *
+     * @param plies The number of plies of the proven mate.
+     * @return The moves of the line, up to the node that couldn't be proven again within the budget.
+     */
+    private int[] line(int plies) {
+        int[] line = new int[plies];
+        int length = 0;
+        maxNodes = nodes + Math.min(maxNodes, Long.MAX_VALUE - nodes);
+        while (length < plies) {
+            int left = plies - length;
+            int move = proofMove(length, left);
+            if (move < 0 && nodes < maxNodes) {
+                mid(length, left, position.key() ^ PLIES_KEYS[left], INFINITY, INFINITY);
+                move = proofMove(length, left);
+            }
+            if (move <= 0)
+                break;
+            position.make(move);
+            line[length++] = move;
+        }
+        for (int i = 0; i < length; i++)
+            position.unmake();
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Tells if a line ends in mate.
+     *
+     * @param line The moves, legal from the position solved.
+     * @return true if the side to move at the end of the line is mated.
+     */
+    private boolean mates(int[] line) {
+        for (int move : line)
+            position.make(move);
+        boolean mated = position.inCheck() && position.legalMoves(moves[0]) == 0;
+        for (int i = 0; i < line.length; i++)
+            position.unmake();
+        return mated;
+    }
+
+    /**
+     * Chooses the move of a proven node: the proven move of the mating side whose proof took the least
+     * work, or the defence whose proof took the most.
+     *
+     * @param ply   The distance from the root.
+     * @param plies The number of plies left.
+     * @return The move, 0 if the node is mate, or -1 if the proof is no longer in the table.
+     */
+    private int proofMove(int ply, int plies) {
+        int count = expand(ply, plies);
+        if (count == 0)
+            return 0;
+
+        boolean attacking = (ply & 1) == 0;
+        int best = -1, bestWork = 0;
+        for (int i = 0; i < count; i++) {
+            // a proven child has a null proof number: its delta after a move of the mating side, else its phi
+            int entry = probe(childKeys[ply][i]);
+            if (entry < 0 || (attacking ? deltas[entry] : phis[entry]) != 0)
+                continue;
+            int work = attacking ? -works[entry] : works[entry];
+            if (best < 0 || work > bestWork) {
+                bestWork = work;
+                best = moves[ply][i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the numbers of a node.
+     *
+     * @param key      The key of the node.
+     * @param fallback The numbers used if the node is not in the table.
+     * @return The numbers, packed phi << 32 | delta.
+     */
+    private long values(long key, long fallback) {
+        int entry = probe(key);
+        return entry < 0 ? fallback : pack(phis[entry], deltas[entry]);
+    }
+
+    /**
+     * Finds the entry of a node.
+     *
+     * @param key The key of the node.
+     * @return The index of the entry, or -1 if the node is not in the table.
+     */
+    private int probe(long key) {
+        int first = (int) Long.remainderUnsigned(key, buckets) * BUCKET;
+        for (int entry = first; entry < first + BUCKET; entry++)
+            if (keys[entry] == key)
+                return entry;
+        return -1;
+    }
+
+    /**
+     * Stores the numbers of a node, adding the work to the previous one, or replacing the least worked
+     * entry of its bucket if needed.
+     *
+     * @param key   The key of the node.
+     * @param phi   The phi of the node.
+     * @param delta The delta of the node.
+     * @param work  The number of nodes expanded under the node by this visit.
+     */
+    private void store(long key, int phi, int delta, int work) {
+        int first = (int) Long.remainderUnsigned(key, buckets) * BUCKET;
+        int replaced = first;
+        for (int entry = first; entry < first + BUCKET; entry++) {
+            if (keys[entry] == key) {
+                replaced = entry;
+                work = (int) Math.min(Integer.MAX_VALUE, (long) work + works[entry]);
+                break;
+            }
+            if (keys[entry] == 0 || works[entry] < works[replaced])
+                replaced = entry;
+            if (keys[entry] == 0)
+                break;
+        }
+        keys[replaced] = key;
+        phis[replaced] = phi;
+        deltas[replaced] = delta;
+        works[replaced] = work;
+    }
+
+    /**
+     * Packs the numbers of a node.
+     *
+     * @param phi   The phi of the node.
+     * @param delta The delta of the node.
+     * @return The numbers, packed phi << 32 | delta.
+     */
+    private static long pack(int phi, int delta) {
+        return (long) phi << 32 | delta;
+    }
+}
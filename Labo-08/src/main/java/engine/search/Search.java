@@ -0,0 +1,634 @@
+package engine.search;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.listeners.PositionObserver;
+import engine.listeners.SearchEventsSource;
+import engine.listeners.SearchObserver;
+import engine.tablebase.Tablebase;
+import engine.tablebase.Tablebases;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Iterative deepening alpha-beta search (principal variation search with a quiescence search,
+ * a transposition table, null move pruning, killer moves and history heuristic).
+ * <p>
+ * A search is used by one thread at a time, but can be stopped from any thread.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Search {
+
+    /**
+     * The score of a mate at the root.
+     */
+    public static final int MATE = 32000;
+
+    /**
+     * The lowest score of a mate in any number of moves.
+     */
+    public static final int MATE_BOUND = MATE - 1000;
+
+    /**
+     * A score greater than any other.
+     */
+    public static final int INFINITY = MATE + 1;
+
+    /**
+     * The maximum distance from the root.
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * The value of each piece type to order the captures, indexed by type.
+     */
+    private static final int[] ORDER_VALUES = {0, 1, 5, 3, 3, 9, 0};
+
+    /**
+     * The transposition table, shared with other searches.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The evaluation of the leaves.
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * The move buffer of each ply.
+     */
+    private final int[][] moves = new int[MAX_PLY][Position.MAX_MOVES];
+
+    /**
+     * The ordering score of the moves of each ply.
+     */
+    private final int[][] orders = new int[MAX_PLY][Position.MAX_MOVES];
+
+    /**
+     * The two last quiet moves that caused a cutoff at each ply.
+     */
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    /**
+     * The success of the quiet moves, indexed by piece code and destination.
+     */
+    private final int[][] history = new int[16][64];
+
+    /**
+     * The principal variation found at each ply (triangular table).
+     */
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+
+    /**
+     * The length of the principal variation of each ply.
+     */
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    /**
+     * The root moves not searched, i.e. the best moves of the previous multi-PV passes.
+     */
+    private int[] excluded = new int[0];
+
+    /**
+     * The endgame tablebases probed inside the tree, or null.
+     */
+    private Tablebases tablebases;
+
+    /**
+     * Inner class used for notification handling to the observer.
+     */
+    private final SearchEventsSource events = new SearchEventsSource() {};
+
+    /**
+     * The position being searched, a copy of the root given to think().
+     */
+    private Position position;
+
+    /**
+     * The time limits of the current search, or null.
+     */
+    private TimeManager time;
+
+    /**
+     * The maximum number of nodes of the current search.
+     */
+    private long maxNodes;
+
+    /**
+     * The number of nodes searched.
+     */
+    private long nodes;
+
+    /**
+     * Whether the search has been asked to stop.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a search.
+     *
+     * @param table     The transposition table.
+     * @param evaluator The evaluation of the leaves, owned by this search.
+     */
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Attaches an observer notified after each iteration.
+     *
+     * @param observer The observer, or null.
+     */
+    public void attach(SearchObserver observer) {
+        events.attach(observer);
+    }
+
+    /**
+     * Sets the endgame tablebases probed inside the tree. The root is always searched, so that the
+     * search still plays the move leading to the mate.
+     *
+     * @param tablebases The tablebases, or null.
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Gets the transposition table used by the search.
+     *
+     * @return The transposition table.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Asks the current search to stop as soon as possible. The best move of the last completed
+     * iteration is returned.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the number of nodes searched by the current or last search.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches the best move of a position.
+     *
+     * @param root     The position to search, left unchanged.
+     * @param maxDepth The maximum depth of the iterations.
+     * @param maxNodes The maximum number of nodes, or Long.MAX_VALUE.
+     * @param time     The time limits, or null to search without clock.
+     * @return The result of the last completed iteration, with an empty variation if there is no legal move.
+     */
+    public SearchResult think(Position root, int maxDepth, long maxNodes, TimeManager time) {
+        stopped = false;
+        return iterate(root, 1, maxDepth, maxNodes, time).get(0);
+    }
+
+    /**
+     * Searches the best moves of a position (multi-PV): at each depth, the root is searched once per
+     * line, each pass excluding the root moves found by the previous ones. The passes share the
+     * transposition table, so the following passes mostly reuse the work of the first one.
+     *
+     * @param root     The position to search, left unchanged.
+     * @param lines    The number of lines wanted.
+     * @param maxDepth The maximum depth of the iterations.
+     * @param maxNodes The maximum number of nodes, or Long.MAX_VALUE.
+     * @param time     The time limits, or null to search without clock.
+     * @return The lines of the last completed iteration, best first, at most one per legal move.
+     */
+    public List<SearchResult> analyse(Position root, int lines, int maxDepth, long maxNodes, TimeManager time) {
+        stopped = false;
+        return iterate(root, lines, maxDepth, maxNodes, time);
+    }
+
+    /**
+     * Clears the stop request before a search is handed to another thread, so that a stop() arriving
+     * before the search actually starts is not lost.
+     */
+    void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * Searches the best lines of a position, without clearing a pending stop request.
+     *
+     * @param root     The position to search, left unchanged.
+     * @param lines    The number of lines wanted.
+     * @param maxDepth The maximum depth of the iterations.
+     * @param maxNodes The maximum number of nodes, or Long.MAX_VALUE.
+     * @param time     The time limits, or null to search without clock.
+     * @return The lines of the last completed iteration, best first, with a single empty line if there
+     * is no legal move.
+     */
+    List<SearchResult> iterate(Position root, int lines, int maxDepth, long maxNodes, TimeManager time) {
+        position = new Position(root);
+        this.time = time;
+        this.maxNodes = maxNodes;
+        nodes = 0;
+        for (int[] killer : killers)
+            Arrays.fill(killer, Move.NONE);
+        for (int[] row : history)
+            for (int i = 0; i < 64; i++)
+                row[i] /= 8;
+        table.newSearch();
+
+        int legal = position.legalMoves(moves[0]);
+        if (legal == 0)
+            return List.of(new SearchResult(0, position.inCheck() ? -MATE : 0, 0, 0, new int[0]));
+        lines = Math.max(1, Math.min(lines, legal));
+        if (evaluator instanceof PositionObserver)
+            position.attach((PositionObserver) evaluator);
+
+        long start = System.nanoTime();
+        SearchResult[] best = null;
+        int[] previous = new int[lines];
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            SearchResult[] found = new SearchResult[lines];
+            int[] foundMoves = new int[lines];
+            int completed = 0;
+            while (completed < lines) {
+                excluded = Arrays.copyOf(foundMoves, completed);
+                int score = aspiration(depth, previous[completed]);
+                if (stopped)
+                    break;
+                int[] line = Arrays.copyOf(pv[0], pvLength[0]);
+                found[completed] = new SearchResult(depth, score, nodes, (System.nanoTime() - start) / 1_000_000,
+                        line, completed + 1);
+                foundMoves[completed++] = line[0];
+            }
+            excluded = new int[0];
+
+            if (completed < lines) {
+                // an interrupted iteration only counts if nothing was completed before
+                if (best == null)
+                    best = new SearchResult[]{completed > 0 ? found[0] : new SearchResult(depth, 0, nodes,
+                            (System.nanoTime() - start) / 1_000_000, partialOrAnyMove())};
+                break;
+            }
+
+            Arrays.sort(found, (a, b) -> Integer.compare(b.getScore(), a.getScore()));
+            for (int i = 0; i < lines; i++) {
+                found[i] = found[i].withRank(i + 1);
+                previous[i] = found[i].getScore();
+                events.notifyIteration(found[i]);
+            }
+            boolean changed = best == null || best[0].getBestMove() != found[0].getBestMove();
+            int drop = best == null ? 0 : best[0].getScore() - found[0].getScore();
+            best = found;
+            if (time != null && !time.continueIterating(changed, drop))
+                break;
+        }
+        position.attach(null);
+        return List.of(best);
+    }
+
+    /**
+     * Gets the partial variation of an interrupted first iteration, or any legal move if it has none.
+     *
+     * @return A variation starting with a legal move.
+     */
+    private int[] partialOrAnyMove() {
+        if (pvLength[0] > 0)
+            return Arrays.copyOf(pv[0], pvLength[0]);
+        int[] buffer = new int[Position.MAX_MOVES];
+        position.legalMoves(buffer);
+        return new int[]{buffer[0]};
+    }
+
+    /**
+     * Searches an iteration with a narrow window around the previous score, widened on failure.
+     *
+     * @param depth    The depth of the iteration.
+     * @param previous The score of the previous iteration.
+     * @return The score of the iteration.
+     */
+    private int aspiration(int depth, int previous) {
+        if (depth < 5)
+            return alphaBeta(depth, 0, -INFINITY, INFINITY, false);
+
+        int delta = 25, alpha = Math.max(previous - delta, -INFINITY), beta = Math.min(previous + delta, INFINITY);
+        while (true) {
+            int score = alphaBeta(depth, 0, alpha, beta, false);
+            if (stopped)
+                return score;
+            if (score <= alpha)
+                alpha = Math.max(score - delta, -INFINITY);
+            else if (score >= beta)
+                beta = Math.min(score + delta, INFINITY);
+            else
+                return score;
+            delta *= 2;
+        }
+    }
+
+    /**
+     * Searches a node of the tree.
+     *
+     * @param depth     The remaining depth.
+     * @param ply       The distance from the root.
+     * @param alpha     The lower bound of the window.
+     * @param beta      The upper bound of the window.
+     * @param allowNull Whether a null move may be tried.
+     * @return The score of the node, from the side to move point of view.
+     */
+    private int alphaBeta(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        pvLength[ply] = 0;
+        if (ply > 0) {
+            if (position.halfmoveClock() >= 100 || position.isRepetition())
+                return 0;
+            // a shorter mate was already found
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta)
+                return alpha;
+            if (tablebases != null && position.pieceCount() <= tablebases.getMaxPieces()
+                    && position.castlingRights() == 0 && position.enPassantSquare() < 0) {
+                int code = tablebases.probe(position);
+                if (code != Tablebases.NOT_FOUND)
+                    return Tablebase.score(code, ply);
+            }
+        }
+
+        boolean inCheck = position.inCheck();
+        if (inCheck)
+            depth++;
+        if (depth <= 0 || ply >= MAX_PLY - 1)
+            return quiesce(ply, alpha, beta);
+
+        if (countNode())
+            return 0;
+
+        boolean pvNode = beta - alpha > 1;
+        long entry = table.probe(position.key());
+        int hashMove = TranspositionTable.moveOf(entry);
+        if (entry != TranspositionTable.MISS && ply > 0 && !pvNode && TranspositionTable.depthOf(entry) >= depth) {
+            int score = TranspositionTable.fromTable(TranspositionTable.scoreOf(entry), ply);
+            int bound = TranspositionTable.boundOf(entry);
+            if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && score >= beta
+                    || bound == TranspositionTable.UPPER && score <= alpha)
+                return score;
+        }
+
+        if (allowNull && !pvNode && !inCheck && depth >= 3 && hasPieces() && evaluator.evaluate(position) >= beta) {
+            position.makeNull();
+            int score = -alphaBeta(depth - 3, ply + 1, -beta, -beta + 1, false);
+            position.unmake();
+            if (stopped)
+                return 0;
+            if (score >= beta)
+                return score >= MATE_BOUND ? beta : score;
+        }
+
+        int[] buffer = moves[ply];
+        int count = position.generate(buffer, 0, false);
+        order(buffer, orders[ply], count, hashMove, ply);
+
+        int best = -INFINITY, bestMove = Move.NONE, legal = 0, originalAlpha = alpha;
+        for (int i = 0; i < count; i++) {
+            int move = next(buffer, orders[ply], i, count);
+            if (ply == 0 && isExcluded(move))
+                continue;
+            position.make(move);
+            if (position.leftInCheck()) {
+                position.unmake();
+                continue;
+            }
+            legal++;
+
+            int score;
+            if (legal == 1) {
+                score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && score < beta)
+                    score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, true);
+            }
+            position.unmake();
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (isQuiet(move))
+                            rewardQuiet(move, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legal == 0)
+            return inCheck ? -MATE + ply : 0;
+
+        // the root score of a multi-PV pass only covers the moves left, so it is not stored
+        if (ply > 0 || excluded.length == 0) {
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(position.key(), bestMove, TranspositionTable.toTable(best, ply), depth, bound);
+        }
+        return best;
+    }
+
+    /**
+     * Searches only the captures until the position is quiet, so that the leaves are not evaluated
+     * in the middle of an exchange.
+     *
+     * @param ply   The distance from the root.
+     * @param alpha The lower bound of the window.
+     * @param beta  The upper bound of the window.
+     * @return The score of the node, from the side to move point of view.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (countNode())
+            return 0;
+
+        boolean inCheck = position.inCheck();
+        if (ply >= MAX_PLY - 1)
+            return inCheck ? 0 : evaluator.evaluate(position);
+
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = evaluator.evaluate(position);
+            if (best >= beta)
+                return best;
+            alpha = Math.max(alpha, best);
+        }
+
+        int[] buffer = moves[ply];
+        int count = position.generate(buffer, 0, !inCheck), legal = 0;
+        order(buffer, orders[ply], count, Move.NONE, ply);
+        for (int i = 0; i < count; i++) {
+            int move = next(buffer, orders[ply], i, count);
+            position.make(move);
+            if (position.leftInCheck()) {
+                position.unmake();
+                continue;
+            }
+            legal++;
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            position.unmake();
+            if (stopped)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta)
+                        break;
+                }
+            }
+        }
+        return inCheck && legal == 0 ? -MATE + ply : best;
+    }
+
+    /**
+     * Counts a node and checks the limits of the search.
+     *
+     * @return true if the search must stop.
+     */
+    private boolean countNode() {
+        if (++nodes >= maxNodes || (nodes & 1023) == 0 && time != null && time.isHardExpired())
+            stopped = true;
+        return stopped;
+    }
+
+    /**
+     * Gives an ordering score to each move: hash move, captures by value of the victim then of the
+     * attacker, killer moves, then the other quiet moves by history.
+     *
+     * @param buffer   The moves.
+     * @param scores   The ordering scores, filled.
+     * @param count    The number of moves.
+     * @param hashMove The best move stored in the transposition table.
+     * @param ply      The distance from the root.
+     */
+    private void order(int[] buffer, int[] scores, int count, int hashMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int victim = Position.typeOf(position.pieceAt(Move.to(move)));
+            int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+            if (move == hashMove)
+                scores[i] = 1 << 30;
+            else if (victim != Position.EMPTY || Move.kind(move) == Move.EN_PASSANT)
+                scores[i] = (1 << 29) + ORDER_VALUES[victim] * 16 - ORDER_VALUES[attacker];
+            else if (Move.kind(move) == Move.PROMOTION)
+                scores[i] = (1 << 29) + ORDER_VALUES[Move.promotion(move)] * 16;
+            else if (move == killers[ply][0])
+                scores[i] = (1 << 28) + 1;
+            else if (move == killers[ply][1])
+                scores[i] = 1 << 28;
+            else
+                scores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+        }
+    }
+
+    /**
+     * Selects the best ordered move among the remaining ones and swaps it at the given index.
+     *
+     * @param buffer The moves.
+     * @param scores The ordering scores.
+     * @param index  The index of the move to play next.
+     * @param count  The number of moves.
+     * @return The move at the index.
+     */
+    private static int next(int[] buffer, int[] scores, int index, int count) {
+        int bestIndex = index;
+        for (int i = index + 1; i < count; i++)
+            if (scores[i] > scores[bestIndex])
+                bestIndex = i;
+
+        int move = buffer[bestIndex], score = scores[bestIndex];
+        buffer[bestIndex] = buffer[index];
+        scores[bestIndex] = scores[index];
+        buffer[index] = move;
+        scores[index] = score;
+        return move;
+    }
+
+    /**
+     * Indicates if a move neither captures nor promotes.
+     *
+     * @param move The move.
+     * @return true if the move is quiet.
+     */
+    private boolean isQuiet(int move) {
+        return position.pieceAt(Move.to(move)) == Position.EMPTY && Move.kind(move) != Move.EN_PASSANT
+                && Move.kind(move) != Move.PROMOTION;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff.
+     *
+     * @param move  The move.
+     * @param depth The remaining depth.
+     * @param ply   The distance from the root.
+     */
+    private void rewardQuiet(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] row = history[position.pieceAt(Move.from(move))];
+        row[Move.to(move)] = Math.min(row[Move.to(move)] + depth * depth, 1 << 27);
+    }
+
+    /**
+     * Sets the principal variation of a ply to a move followed by the variation of the next ply.
+     *
+     * @param ply  The distance from the root.
+     * @param move The best move of the ply.
+     */
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Indicates if the side to move has pieces other than pawns, to avoid null moves in zugzwang.
+     *
+     * @return true if the side to move has a knight, bishop, rook or queen.
+     */
+    private boolean hasPieces() {
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.EMPTY && Position.colorOf(piece) == position.sideToMove()
+                    && Position.typeOf(piece) != Position.PAWN && Position.typeOf(piece) != Position.KING)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indicates if a root move is excluded.
+     *
+     * @param move The move.
+     * @return true if the move must not be searched.
+     */
+    private boolean isExcluded(int move) {
+        for (int excludedMove : excluded)
+            if (excludedMove == move)
+                return true;
+        return false;
+    }
+}
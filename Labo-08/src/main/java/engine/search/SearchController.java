@@ -0,0 +1,234 @@
+package engine.search;
+
+import engine.board.Move;
+import engine.book.OpeningBook;
+import engine.board.Position;
+import engine.eval.Evaluator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the searches of a bot on a dedicated thread, so that the caller (e.g. the view) never waits,
+ * and manages its clock.
+ * <p>
+ * After playing a move, the bot can ponder: it searches the position after the expected reply while
+ * the opponent thinks. If the opponent plays that reply (ponder hit), the ponder becomes a normal
+ * timed search and answers instantly when it already searched long enough; otherwise the ponder is
+ * dropped and a new search starts.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class SearchController implements AutoCloseable {
+
+    /**
+     * The thread running the searches.
+     */
+    private final ExecutorService thread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread searchThread = new Thread(runnable, "search");
+        searchThread.setDaemon(true);
+        return searchThread;
+    });
+
+    /**
+     * The search run by the thread.
+     */
+    private final Search search;
+
+    /**
+     * The time limits of the running search, or null if none is running.
+     */
+    private TimeManager time;
+
+    /**
+     * The result of the running search.
+     */
+    private CompletableFuture<SearchResult> current;
+
+    /**
+     * The hash of the position being pondered, if the running search is a ponder.
+     */
+    private long ponderKey;
+
+    /**
+     * Whether the running search is a ponder waiting for the opponent's move.
+     */
+    private boolean pondering;
+
+    /**
+     * The opening book, or null to always search.
+     */
+    private OpeningBook book;
+
+    /**
+     * The random generator choosing the book moves.
+     */
+    private Random random;
+
+    /**
+     * Constructs a controller.
+     *
+     * @param table     The transposition table, kept between the moves.
+     * @param evaluator The evaluation used by the search, owned by the search thread.
+     */
+    public SearchController(TranspositionTable table, Evaluator evaluator) {
+        search = new Search(table, evaluator);
+    }
+
+    /**
+     * Gets the search run by the controller, e.g. to attach an observer.
+     *
+     * @return The search.
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    /**
+     * Sets the opening book played before searching.
+     *
+     * @param book   The book, or null to always search.
+     * @param random The random generator choosing among the book moves.
+     */
+    public synchronized void setBook(OpeningBook book, Random random) {
+        this.book = book;
+        this.random = random;
+    }
+
+    /**
+     * Starts searching the best move with the clock of the side to move, or answers instantly with a
+     * book move.
+     *
+     * @param position  The position to search, copied before returning.
+     * @param remaining The time left on the clock, in milliseconds.
+     * @param increment The time added after each move, in milliseconds.
+     * @param movesToGo The number of moves before the next time control, or 0 for the whole game.
+     * @return The result, completed on the search thread.
+     */
+    public synchronized CompletableFuture<SearchResult> go(Position position, long remaining, long increment,
+                                                           int movesToGo) {
+        int bookMove = book == null ? Move.NONE : book.pick(position, random);
+        if (bookMove != Move.NONE) {
+            stop();
+            return CompletableFuture.completedFuture(new SearchResult(0, 0, 0, 0, new int[]{bookMove}));
+        }
+        return start(position, new TimeManager(remaining, increment, movesToGo), Search.MAX_PLY, false);
+    }
+
+    /**
+     * Starts searching to a fixed depth, without clock.
+     *
+     * @param position The position to search, copied before returning.
+     * @param depth    The depth of the search.
+     * @return The result, completed on the search thread.
+     */
+    public synchronized CompletableFuture<SearchResult> goDepth(Position position, int depth) {
+        return start(position, null, depth, false);
+    }
+
+    /**
+     * Starts analysing the best lines of a position (multi-PV), without clock. Each line is also sent to
+     * the observers of the search as soon as its iteration completes.
+     *
+     * @param position The position to analyse, copied before returning.
+     * @param lines    The number of lines wanted.
+     * @param depth    The depth of the analysis.
+     * @return The lines, best first, completed on the search thread.
+     */
+    public synchronized CompletableFuture<List<SearchResult>> analyse(Position position, int lines, int depth) {
+        stop();
+        Position root = new Position(position);
+        time = null;
+        pondering = false;
+        search.clearStop();
+        CompletableFuture<List<SearchResult>> analysis = CompletableFuture.supplyAsync(
+                () -> search.iterate(root, lines, depth, Long.MAX_VALUE, null), thread);
+        current = analysis.thenApply(found -> found.get(0));
+        return analysis;
+    }
+
+    /**
+     * Starts pondering on the expected reply of the opponent, until opponentMoved() or stop() is called.
+     *
+     * @param position      The position after the bot's move, copied before returning.
+     * @param expectedReply The expected reply, usually SearchResult.getPonderMove().
+     * @return The result, completed when the ponder is converted or stopped; null if there is nothing to ponder.
+     */
+    public synchronized CompletableFuture<SearchResult> ponder(Position position, int expectedReply) {
+        if (expectedReply == Move.NONE)
+            return null;
+
+        Position after = new Position(position);
+        after.make(expectedReply);
+        if (after.leftInCheck())
+            return null;
+
+        ponderKey = after.key();
+        return start(after, new TimeManager(), Search.MAX_PLY, true);
+    }
+
+    /**
+     * Tells the controller the opponent played, converting a ponder hit into a timed search or starting
+     * a new search on a ponder miss.
+     *
+     * @param position  The position after the opponent's move.
+     * @param remaining The time left on the bot's clock, in milliseconds.
+     * @param increment The time added after each move, in milliseconds.
+     * @param movesToGo The number of moves before the next time control, or 0 for the whole game.
+     * @return The result, completed on the search thread.
+     */
+    public synchronized CompletableFuture<SearchResult> opponentMoved(Position position, long remaining,
+                                                                      long increment, int movesToGo) {
+        if (pondering && position.key() == ponderKey) {
+            pondering = false;
+            time.ponderHit(remaining, increment, movesToGo);
+            if (time.isOptimumExpired())
+                search.stop();
+            return current;
+        }
+        stop();
+        return go(position, remaining, increment, movesToGo);
+    }
+
+    /**
+     * Stops the running search, if any, and waits for it to return its best move.
+     */
+    public synchronized void stop() {
+        if (current == null)
+            return;
+        search.stop();
+        current.join();
+        pondering = false;
+    }
+
+    /**
+     * Stops the search and its thread.
+     */
+    @Override
+    public synchronized void close() {
+        stop();
+        thread.shutdown();
+    }
+
+    /**
+     * Submits a search to the thread, after stopping the running one.
+     *
+     * @param position The position to search, copied.
+     * @param time     The time limits, or null.
+     * @param depth    The maximum depth.
+     * @param ponder   Whether the search is a ponder.
+     * @return The result, completed on the search thread.
+     */
+    private CompletableFuture<SearchResult> start(Position position, TimeManager time, int depth, boolean ponder) {
+        stop();
+        Position root = new Position(position);
+        this.time = time;
+        pondering = ponder;
+        search.clearStop();
+        current = CompletableFuture.supplyAsync(() -> search.iterate(root, 1, depth, Long.MAX_VALUE, time).get(0),
+                thread);
+        return current;
+    }
+}
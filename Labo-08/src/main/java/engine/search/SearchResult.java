@@ -0,0 +1,193 @@
+package engine.search;
+
+import engine.board.Move;
+
+/**
+ * The outcome of a completed search iteration: the best move, its score and its principal variation.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class SearchResult {
+
+    /**
+     * The depth of the iteration.
+     */
+    private final int depth;
+
+    /**
+     * The score of the best move, in centipawns or mate distance, from the side to move point of view.
+     */
+    private final int score;
+
+    /**
+     * The number of nodes searched since the start of the search.
+     */
+    private final long nodes;
+
+    /**
+     * The time elapsed since the start of the search, in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * The principal variation, starting with the best move.
+     */
+    private final int[] pv;
+
+    /**
+     * The rank of the line in a multi-PV analysis, 1 for the best.
+     */
+    private final int rank;
+
+    /**
+     * Constructs a result.
+     *
+     * @param depth  The depth of the iteration.
+     * @param score  The score of the best move.
+     * @param nodes  The number of nodes searched.
+     * @param millis The time elapsed in milliseconds.
+     * @param pv     The principal variation.
+     */
+    public SearchResult(int depth, int score, long nodes, long millis, int[] pv) {
+        this(depth, score, nodes, millis, pv, 1);
+    }
+
+    /**
+     * Constructs a line of a multi-PV analysis.
+     *
+     * @param depth  The depth of the iteration.
+     * @param score  The score of the first move of the line.
+     * @param nodes  The number of nodes searched.
+     * @param millis The time elapsed in milliseconds.
+     * @param pv     The principal variation of the line.
+     * @param rank   The rank of the line, 1 for the best.
+     */
+    public SearchResult(int depth, int score, long nodes, long millis, int[] pv, int rank) {
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+        this.rank = rank;
+    }
+
+    /**
+     * Gets a copy of this result with another rank.
+     *
+     * @param rank The rank of the line, 1 for the best.
+     * @return The result with the given rank.
+     */
+    public SearchResult withRank(int rank) {
+        return rank == this.rank ? this : new SearchResult(depth, score, nodes, millis, pv, rank);
+    }
+
+    /**
+     * Gets the rank of the line in a multi-PV analysis.
+     *
+     * @return The rank, 1 for the best line.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Gets the depth of the iteration.
+     *
+     * @return The depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the score of the best move.
+     *
+     * @return The score, from the side to move point of view.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the number of nodes searched.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the time elapsed since the start of the search.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Gets the principal variation.
+     *
+     * @return A copy of the moves of the variation.
+     */
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    /**
+     * Gets the best move.
+     *
+     * @return The first move of the variation, or Move.NONE if there is no legal move.
+     */
+    public int getBestMove() {
+        return pv.length > 0 ? pv[0] : Move.NONE;
+    }
+
+    /**
+     * Gets the expected reply of the opponent, used to ponder.
+     *
+     * @return The second move of the variation, or Move.NONE.
+     */
+    public int getPonderMove() {
+        return pv.length > 1 ? pv[1] : Move.NONE;
+    }
+
+    /**
+     * Indicates if the score is a forced mate.
+     *
+     * @return true if the score is a mate for either side.
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * Gets the nodes searched per second.
+     *
+     * @return The speed of the search.
+     */
+    public long getNps() {
+        return millis == 0 ? nodes * 1000 : nodes * 1000 / millis;
+    }
+
+    /**
+     * Converts the result in a line similar to the UCI info output.
+     *
+     * @return The text of the result.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("depth ").append(depth).append(" multipv ").append(rank)
+                .append(" score ");
+        if (isMate())
+            builder.append("mate ").append(score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2);
+        else
+            builder.append("cp ").append(score);
+        builder.append(" nodes ").append(nodes).append(" nps ").append(getNps()).append(" time ").append(millis)
+                .append(" pv");
+        for (int move : pv)
+            builder.append(' ').append(Move.toString(move));
+        return builder.toString();
+    }
+}
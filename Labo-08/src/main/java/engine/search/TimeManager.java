@@ -0,0 +1,172 @@
+package engine.search;
+
+/**
+ * Decides how long a search may think with the clock of the side to move.
+ * <p>
+ * The remaining time is split over the moves still to play plus most of the increment. This optimum
+ * is shortened when the best move stays the same for several iterations and lengthened when it changes
+ * or when the score drops (fail low), but never beyond a hard limit that keeps a safety margin on the
+ * clock. While pondering, no limit applies until the opponent plays the expected move.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TimeManager {
+
+    /**
+     * The time kept on the clock for the communication and the scheduling, in milliseconds.
+     */
+    public static final long MOVE_OVERHEAD = 30;
+
+    /**
+     * The number of moves assumed to remain when the clock has no time control.
+     */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    /**
+     * The drop of score, in centipawns, from which an iteration is considered as failing low.
+     */
+    private static final int FAIL_LOW_MARGIN = 30;
+
+    /**
+     * The time at which the thinking started, in nanoseconds.
+     */
+    private volatile long start;
+
+    /**
+     * The time the search should use, in nanoseconds.
+     */
+    private volatile long optimum;
+
+    /**
+     * The time the search must never exceed, in nanoseconds.
+     */
+    private volatile long maximum;
+
+    /**
+     * The number of iterations in a row that returned the same best move.
+     */
+    private int stableIterations;
+
+    /**
+     * The factor applied to the optimum by the last iterations.
+     */
+    private double factor = 1;
+
+    /**
+     * true if the search should use all its time, whatever the iterations return.
+     */
+    private final boolean fixed;
+
+    /**
+     * Constructs a manager without limit, for an infinite analysis or a ponder.
+     */
+    public TimeManager() {
+        start = System.nanoTime();
+        optimum = maximum = Long.MAX_VALUE;
+        fixed = false;
+    }
+
+    /**
+     * Constructs a manager for a fixed time, e.g. to analyse a test suite: the search starts new
+     * iterations until the time is spent, then stops.
+     *
+     * @param moveTime The time of the search, in milliseconds.
+     */
+    public TimeManager(long moveTime) {
+        start = System.nanoTime();
+        optimum = maximum = Math.max(1, moveTime) * 1_000_000L;
+        fixed = true;
+    }
+
+    /**
+     * Constructs a manager for a clock.
+     *
+     * @param remaining The time left on the clock, in milliseconds.
+     * @param increment The time added after each move, in milliseconds.
+     * @param movesToGo The number of moves before the next time control, or 0 for the whole game.
+     */
+    public TimeManager(long remaining, long increment, int movesToGo) {
+        start = System.nanoTime();
+        fixed = false;
+        allocate(remaining, increment, movesToGo);
+    }
+
+    /**
+     * Converts a ponder into a normal search once the opponent played the expected move: the time
+     * already spent pondering was taken on the opponent's clock, so it is a free head start.
+     *
+     * @param remaining The time left on the clock, in milliseconds.
+     * @param increment The time added after each move, in milliseconds.
+     * @param movesToGo The number of moves before the next time control, or 0 for the whole game.
+     */
+    public void ponderHit(long remaining, long increment, int movesToGo) {
+        long ponderTime = System.nanoTime() - start;
+        allocate(remaining, increment, movesToGo);
+        // the hard limit still runs from now on, the optimum includes what was pondered
+        maximum += ponderTime;
+        optimum = Math.min(optimum + ponderTime / 2, maximum);
+    }
+
+    /**
+     * Gets the time elapsed since the start of the thinking.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long elapsed() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Indicates if the search must stop immediately.
+     *
+     * @return true if the hard limit is reached.
+     */
+    public boolean isHardExpired() {
+        return elapsed() >= maximum;
+    }
+
+    /**
+     * Indicates if the optimum time is already spent, e.g. to answer a ponder hit instantly.
+     *
+     * @return true if the search should not start another iteration.
+     */
+    public boolean isOptimumExpired() {
+        return elapsed() >= optimum * factor;
+    }
+
+    /**
+     * Decides, after an iteration, if the search should start the next one.
+     *
+     * @param bestMoveChanged true if the iteration changed the best move.
+     * @param scoreDrop       How much the score dropped since the previous iteration.
+     * @return true if there is enough time to start another iteration.
+     */
+    public boolean continueIterating(boolean bestMoveChanged, int scoreDrop) {
+        if (fixed)
+            return elapsed() < maximum;
+        stableIterations = bestMoveChanged ? 0 : stableIterations + 1;
+        factor = bestMoveChanged ? 1.3 : stableIterations >= 3 ? 0.5 : stableIterations >= 2 ? 0.8 : 1;
+        if (scoreDrop > FAIL_LOW_MARGIN)
+            factor *= 2;
+
+        // the next iteration usually takes longer than all the previous ones together
+        return elapsed() < Math.min(optimum * factor, maximum) * 0.6;
+    }
+
+    /**
+     * Computes the optimum and maximum times for a clock.
+     *
+     * @param remaining The time left on the clock, in milliseconds.
+     * @param increment The time added after each move, in milliseconds.
+     * @param movesToGo The number of moves before the next time control, or 0 for the whole game.
+     */
+    private void allocate(long remaining, long increment, int movesToGo) {
+        long usable = Math.max(1, remaining - MOVE_OVERHEAD);
+        int moves = movesToGo > 0 ? Math.min(movesToGo, DEFAULT_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+        long ideal = Math.min(usable / moves + increment * 3 / 4, usable);
+        long hard = Math.min(ideal * 4, movesToGo == 1 ? usable : usable / 2);
+
+        maximum = Math.max(1, hard) * 1_000_000L;
+        optimum = Math.min(ideal * 1_000_000L, maximum);
+    }
+}
@@ -0,0 +1,373 @@
+package engine.search;
+
+import engine.board.Zobrist;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table remembering the results of the searched positions, shared by the iterations
+ * of a search and by the following searches.
+ * <p>
+ * Each entry is two longs: the hash of the position xored with the data, and the data itself (move,
+ * score, depth, bound and age), so that an entry torn by a concurrent write is simply not found.
+ * <p>
+ * The table can be saved to a snapshot file and loaded back, e.g. when an analysis server restarts,
+ * so that the positions already searched deeply are found at once. A snapshot only holds the used
+ * entries, so it can be loaded in a table of another size.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TranspositionTable {
+
+    /**
+     * The score is exact.
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * The score is a lower bound (the search failed high).
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * The score is an upper bound (the search failed low).
+     */
+    public static final int UPPER = 3;
+
+    /**
+     * The value returned when a position is not in the table.
+     */
+    public static final long MISS = 0;
+
+    /**
+     * The magic number of the snapshot files ("TTAB").
+     */
+    public static final int MAGIC = 0x54544142;
+
+    /**
+     * The version of the snapshot format, to be raised when the layout of the data changes.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the snapshot header: magic, version, age, padding, Zobrist fingerprint, number of
+     * entries and checksum.
+     */
+    private static final int HEADER_BYTES = 40;
+
+    /**
+     * The number of entries written at once to a snapshot.
+     */
+    private static final int WRITE_ENTRIES = 1 << 16;
+
+    /**
+     * The number of entries of a snapshot mapped at once, a mapping being limited to 2 GB.
+     */
+    private static final int MAP_ENTRIES = 1 << 26;
+
+    /**
+     * The hashes of the entries, xored with their data.
+     */
+    private final long[] keys;
+
+    /**
+     * The data of the entries.
+     */
+    private final long[] data;
+
+    /**
+     * The mask giving the index of a hash.
+     */
+    private final int mask;
+
+    /**
+     * The age of the current search, used to replace the entries of the previous searches first.
+     */
+    private int age;
+
+    /**
+     * Constructs a table.
+     *
+     * @param megabytes The memory used by the table, rounded down to a power of two entries.
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1, (long) megabytes << 20 >> 4));
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Gets the number of entries of the table.
+     *
+     * @return The capacity of the table.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Starts a new search: the entries of the previous ones become replaceable.
+     */
+    public void newSearch() {
+        age = age + 1 & 0xFF;
+    }
+
+    /**
+     * Forgets all entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key The hash of the position.
+     * @return The data of the entry, or MISS.
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return entry != MISS && (keys[index] ^ entry) == key ? entry : MISS;
+    }
+
+    /**
+     * Stores the result of a search.
+     *
+     * @param key   The hash of the position.
+     * @param move  The best move found, or Move.NONE.
+     * @param score The score, already adjusted with toTable.
+     * @param depth The depth searched.
+     * @param bound EXACT, LOWER or UPPER.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long old = data[index];
+        boolean same = (keys[index] ^ old) == key;
+        if (old != MISS && ageOf(old) == age && depthOf(old) > depth + 2 && !same && bound != EXACT)
+            return;
+        if (same && move == 0)
+            move = moveOf(old);
+
+        long entry = (long) move
+                | (long) (score + 32768 & 0xFFFF) << 17
+                | (long) (Math.max(0, Math.min(depth, 255))) << 33
+                | (long) bound << 41
+                | (long) age << 43;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Saves the used entries to a snapshot file. The file is written beside the target then renamed,
+     * so that a crash never leaves a truncated snapshot. The searches should be stopped: an entry
+     * written meanwhile may be saved torn, and is then simply never found after loading.
+     *
+     * @param path The path of the snapshot.
+     * @return The number of entries saved.
+     * @throws IOException If the file can't be written.
+     */
+    public long save(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long count = 0, checksum = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_ENTRIES * 2 * Long.BYTES);
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < data.length; i++) {
+                // read once, so that the checksum matches what is written even during a search
+                long entry = data[i], key = keys[i] ^ entry;
+                if (entry == MISS)
+                    continue;
+                if (buffer.remaining() < 2 * Long.BYTES)
+                    flush(channel, buffer);
+                buffer.putLong(key).putLong(entry);
+                checksum = checksum(checksum, key, entry);
+                count++;
+            }
+            flush(channel, buffer);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(age).putInt(0)
+                    .putLong(Zobrist.BLACK_TO_MOVE).putLong(count).putLong(checksum).flip();
+            channel.write(buffer, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Loads a snapshot file, mapped in memory. The whole file is validated before the first entry is
+     * stored, so that a damaged or foreign snapshot leaves the table unchanged. An entry loaded
+     * replaces the one of its slot unless that one is deeper.
+     *
+     * @param path The path of the snapshot.
+     * @return The number of entries loaded.
+     * @throws IOException If the file can't be read or is not a valid snapshot for this engine.
+     */
+    public long load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES)
+                throw new IOException("Not a transposition table snapshot: " + path);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Not a transposition table snapshot of version " + VERSION + ": " + path);
+            if (header.getLong(16) != Zobrist.BLACK_TO_MOVE)
+                throw new IOException("Snapshot made with other hash keys: " + path);
+            long count = header.getLong(24);
+            if (count < 0 || HEADER_BYTES + count * 2 * Long.BYTES != length)
+                throw new IOException("Truncated transposition table snapshot: " + path);
+
+            long checksum = 0;
+            for (long first = 0; first < count; first += MAP_ENTRIES) {
+                LongBuffer entries = map(channel, first, count);
+                for (int i = 0; i < entries.limit(); i += 2) {
+                    long entry = entries.get(i + 1);
+                    if (entry == MISS || boundOf(entry) == 0)
+                        throw new IOException("Corrupted transposition table snapshot: " + path);
+                    checksum = checksum(checksum, entries.get(i), entry);
+                }
+            }
+            if (checksum != header.getLong(32))
+                throw new IOException("Corrupted transposition table snapshot: " + path);
+
+            for (long first = 0; first < count; first += MAP_ENTRIES) {
+                LongBuffer entries = map(channel, first, count);
+                for (int i = 0; i < entries.limit(); i += 2) {
+                    long key = entries.get(i), entry = entries.get(i + 1);
+                    int index = (int) key & mask;
+                    if (data[index] == MISS || depthOf(data[index]) <= depthOf(entry)) {
+                        data[index] = entry;
+                        keys[index] = key ^ entry;
+                    }
+                }
+            }
+            age = header.getInt(8);
+            return count;
+        }
+    }
+
+    /**
+     * Maps a part of the entries of a snapshot.
+     *
+     * @param channel The snapshot.
+     * @param first   The first entry mapped.
+     * @param count   The number of entries of the snapshot.
+     * @return The keys and data of at most MAP_ENTRIES entries.
+     * @throws IOException If the file can't be mapped.
+     */
+    private static LongBuffer map(FileChannel channel, long first, long count) throws IOException {
+        long entries = Math.min(count - first, MAP_ENTRIES);
+        return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * 2 * Long.BYTES,
+                entries * 2 * Long.BYTES).asLongBuffer();
+    }
+
+    /**
+     * Writes the content of a buffer and clears it.
+     *
+     * @param channel The file.
+     * @param buffer  The buffer.
+     * @throws IOException If the file can't be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Adds an entry to the checksum of a snapshot.
+     *
+     * @param checksum The checksum of the previous entries.
+     * @param key      The hash of the position.
+     * @param entry    The data of the entry.
+     * @return The new checksum.
+     */
+    private static long checksum(long checksum, long key, long entry) {
+        return (checksum * 31 + key) * 31 + entry;
+    }
+
+    /**
+     * Gets the move of an entry.
+     *
+     * @param entry The data of the entry.
+     * @return The best move, or Move.NONE.
+     */
+    public static int moveOf(long entry) {
+        return (int) (entry & 0x1FFFF);
+    }
+
+    /**
+     * Gets the score of an entry, to be adjusted with fromTable.
+     *
+     * @param entry The data of the entry.
+     * @return The stored score.
+     */
+    public static int scoreOf(long entry) {
+        return (int) (entry >>> 17 & 0xFFFF) - 32768;
+    }
+
+    /**
+     * Gets the depth of an entry.
+     *
+     * @param entry The data of the entry.
+     * @return The depth searched.
+     */
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 33 & 0xFF);
+    }
+
+    /**
+     * Gets the bound of an entry.
+     *
+     * @param entry The data of the entry.
+     * @return EXACT, LOWER or UPPER.
+     */
+    public static int boundOf(long entry) {
+        return (int) (entry >>> 41 & 3);
+    }
+
+    /**
+     * Gets the age of an entry.
+     *
+     * @param entry The data of the entry.
+     * @return The age of the search that stored it.
+     */
+    private static int ageOf(long entry) {
+        return (int) (entry >>> 43 & 0xFF);
+    }
+
+    /**
+     * Converts a mate score relative to the root into a score relative to the stored position.
+     *
+     * @param score The score relative to the root.
+     * @param ply   The distance from the root.
+     * @return The score to store.
+     */
+    public static int toTable(int score, int ply) {
+        return score >= Search.MATE_BOUND ? score + ply : score <= -Search.MATE_BOUND ? score - ply : score;
+    }
+
+    /**
+     * Converts a stored mate score into a score relative to the root.
+     *
+     * @param score The stored score.
+     * @param ply   The distance from the root.
+     * @return The score relative to the root.
+     */
+    public static int fromTable(int score, int ply) {
+        return score >= Search.MATE_BOUND ? score - ply : score <= -Search.MATE_BOUND ? score + ply : score;
+    }
+}
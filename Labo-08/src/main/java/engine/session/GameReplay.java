@@ -0,0 +1,151 @@
+package engine.session;
+
+import engine.board.Position;
+import engine.pgn.PgnGame;
+import java.util.Arrays;
+
+/**
+ * The moves of a game with a checkpoint of its position every few plies, so that the position after
+ * any ply is set up from the nearest checkpoint before it and a few moves, whatever the length of the
+ * game.
+ * <p>
+ * A checkpoint takes 38 bytes: a nibble per square, the side to move and the castling rights, the en
+ * passant square and the clocks. A replay is not modified once built, so several threads may seek in
+ * it at once.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class GameReplay {
+
+    /**
+     * The number of plies between two checkpoints by default.
+     */
+    public static final int DEFAULT_INTERVAL = 16;
+
+    /**
+     * The size of a checkpoint, in bytes.
+     */
+    private static final int CHECKPOINT_BYTES = 38;
+
+    /**
+     * The moves.
+     */
+    private final int[] moves;
+
+    /**
+     * The number of plies between two checkpoints.
+     */
+    private final int interval;
+
+    /**
+     * The checkpoints, the first one being the start position.
+     */
+    private final byte[] checkpoints;
+
+    /**
+     * Builds the replay of a game read from a PGN file, up to its error if any.
+     *
+     * @param game The game.
+     */
+    public GameReplay(PgnGame game) {
+        this(game.startPosition(), game.getMoves(), game.getMoves().length, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Builds the replay of a game, making its moves once.
+     *
+     * @param start    The start position, left unchanged.
+     * @param moves    The moves, legal from the start position.
+     * @param count    The number of moves.
+     * @param interval The number of plies between two checkpoints.
+     */
+    public GameReplay(Position start, int[] moves, int count, int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("Invalid interval between checkpoints: " + interval);
+        this.moves = Arrays.copyOf(moves, count);
+        this.interval = interval;
+        checkpoints = new byte[(count / interval + 1) * CHECKPOINT_BYTES];
+        Position position = new Position(start);
+        for (int ply = 0; ; ply++) {
+            if (ply % interval == 0)
+                write(position, ply / interval * CHECKPOINT_BYTES);
+            if (ply == count)
+                break;
+            position.make(moves[ply]);
+        }
+    }
+
+    /**
+     * Gets the number of plies of the game.
+     *
+     * @return The number of moves.
+     */
+    public int size() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move of the game.
+     *
+     * @param ply The ply of the move, from 0.
+     * @return The move.
+     */
+    public int moveAt(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Sets up the position after a number of plies. The position only remembers the moves made since
+     * the checkpoint, so it can't unmake the moves before it.
+     *
+     * @param ply      The number of plies played, from 0 for the start position to size().
+     * @param position The position to set up.
+     * @throws IndexOutOfBoundsException If the game has no such ply.
+     */
+    public void seek(int ply, Position position) {
+        if (ply < 0 || ply > moves.length)
+            throw new IndexOutOfBoundsException("No ply " + ply + " in a game of " + moves.length + " plies");
+        int checkpoint = ply / interval;
+        read(checkpoint * CHECKPOINT_BYTES, position);
+        for (int i = checkpoint * interval; i < ply; i++)
+            position.make(moves[i]);
+    }
+
+    /**
+     * Writes a checkpoint.
+     *
+     * @param position The position.
+     * @param offset   The index of the checkpoint.
+     */
+    private void write(Position position, int offset) {
+        for (int square = 0; square < 64; square += 2)
+            checkpoints[offset + square / 2] = (byte) (position.pieceAt(square) | position.pieceAt(square + 1) << 4);
+        checkpoints[offset + 32] = (byte) (position.sideToMove() | position.castlingRights() << 1);
+        checkpoints[offset + 33] = (byte) (position.enPassantSquare() + 1);
+        int halfmoveClock = Math.min(position.halfmoveClock(), 0xFFFF);
+        int fullmoveNumber = Math.min(position.fullmoveNumber(), 0xFFFF);
+        checkpoints[offset + 34] = (byte) (halfmoveClock >>> 8);
+        checkpoints[offset + 35] = (byte) halfmoveClock;
+        checkpoints[offset + 36] = (byte) (fullmoveNumber >>> 8);
+        checkpoints[offset + 37] = (byte) fullmoveNumber;
+    }
+
+    /**
+     * Sets up the position of a checkpoint.
+     *
+     * @param offset   The index of the checkpoint.
+     * @param position The position to set up.
+     */
+    private void read(int offset, Position position) {
+        int[] pieces = new int[64];
+        for (int square = 0; square < 64; square += 2) {
+            int b = checkpoints[offset + square / 2];
+            pieces[square] = b & 15;
+            pieces[square + 1] = b >>> 4 & 15;
+        }
+        int state = checkpoints[offset + 32];
+        position.setUp(pieces, state & 1, state >>> 1 & 15, checkpoints[offset + 33] - 1,
+                (checkpoints[offset + 34] & 0xFF) << 8 | checkpoints[offset + 35] & 0xFF,
+                (checkpoints[offset + 36] & 0xFF) << 8 | checkpoints[offset + 37] & 0xFF);
+    }
+}
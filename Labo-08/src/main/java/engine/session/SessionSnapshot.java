@@ -0,0 +1,245 @@
+package engine.session;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Writes and reads the snapshot of a game session: the position the game started from, its state
+ * (side to move, castling rights, en passant square and clocks) and the moves played since, so that a
+ * game can be parked or moved to another process and resumed with its whole history.
+ * <p>
+ * A snapshot is a header (magic, version), a flag byte, the start position unless it is the initial
+ * one (a nibble per square, the state bits and the clocks), the number of plies, two bytes per move
+ * and a CRC32 of the bytes before it: about 20 bytes plus 2 per ply. Restoring sets up the start
+ * position and makes the moves again, a few microseconds for a whole game.
+ * <p>
+ * A snapshot keeps its buffers, so a thread reuses one for all its sessions; it is not thread-safe.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class SessionSnapshot {
+
+    /**
+     * The magic number of the format ("GSNP").
+     */
+    public static final int MAGIC = 0x47534E50;
+
+    /**
+     * The version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The flag of a snapshot whose start position is the initial one, not written.
+     */
+    private static final int INITIAL_FLAG = 1;
+
+    /**
+     * The size of a snapshot without its moves, at most: header, flags, board, state, clocks, plies
+     * and checksum.
+     */
+    private static final int FIXED_BYTES = 8 + 1 + 32 + 2 + 5 + 5 + 5 + 4;
+
+    /**
+     * The initial position, to know if a start position needs to be written.
+     */
+    private static final Position INITIAL = new Position();
+
+    /**
+     * The position walked back to its start while writing.
+     */
+    private final Position start = new Position();
+
+    /**
+     * The pieces of the start position read.
+     */
+    private final int[] pieces = new int[64];
+
+    /**
+     * The moves read.
+     */
+    private int[] moves = new int[256];
+
+    /**
+     * The checksum of the snapshots.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Gets the size of the snapshot of a game, at most.
+     *
+     * @param plies The number of moves made since the start position.
+     * @return The number of bytes a buffer needs to hold the snapshot.
+     */
+    public static int maxBytes(int plies) {
+        return FIXED_BYTES + 2 * plies;
+    }
+
+    /**
+     * Writes the snapshot of a game.
+     *
+     * @param position The position reached, with the moves made since its start. It isn't modified.
+     * @param buffer   The buffer, positioned after the snapshot when it returns.
+     * @return The number of bytes written.
+     * @throws java.nio.BufferOverflowException If the buffer has less room than maxBytes(position.ply()).
+     */
+    public int write(Position position, ByteBuffer buffer) {
+        start.copyFrom(position);
+        while (start.ply() > 0)
+            start.unmake();
+
+        int offset = buffer.position();
+        buffer.putInt(MAGIC).putInt(VERSION);
+        boolean initial = isInitial(start);
+        buffer.put((byte) (initial ? INITIAL_FLAG : 0));
+        if (!initial) {
+            for (int square = 0; square < 64; square += 2)
+                buffer.put((byte) (start.pieceAt(square) | start.pieceAt(square + 1) << 4));
+            buffer.putShort((short) (start.sideToMove() | start.castlingRights() << 1
+                    | start.enPassantSquare() + 1 << 5));
+            putVarInt(buffer, start.halfmoveClock());
+            putVarInt(buffer, start.fullmoveNumber());
+        }
+        int plies = position.ply();
+        putVarInt(buffer, plies);
+        for (int ply = 0; ply < plies; ply++)
+            buffer.putShort(pack(position.moveAt(ply)));
+        buffer.putInt(checksum(buffer, offset, buffer.position()));
+        return buffer.position() - offset;
+    }
+
+    /**
+     * Reads the snapshot of a game and restores it in a position.
+     *
+     * @param buffer   The buffer, positioned at the snapshot and after it when it returns.
+     * @param position The position set up at the start of the game, with the moves made.
+     * @throws IllegalArgumentException If the bytes are not a valid snapshot, the position being unchanged.
+     */
+    public void read(ByteBuffer buffer, Position position) {
+        int offset = buffer.position(), flags, side = Position.WHITE, castling = 15, enPassant = -1;
+        int halfmoveClock = 0, fullmoveNumber = 1, plies;
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IllegalArgumentException("Not a session snapshot of version " + VERSION);
+            flags = buffer.get();
+            if ((flags & INITIAL_FLAG) == 0) {
+                for (int square = 0; square < 64; square += 2) {
+                    int b = buffer.get();
+                    pieces[square] = b & 15;
+                    pieces[square + 1] = b >>> 4 & 15;
+                }
+                int state = buffer.getShort();
+                side = state & 1;
+                castling = state >>> 1 & 15;
+                enPassant = (state >>> 5 & 127) - 1;
+                halfmoveClock = getVarInt(buffer);
+                fullmoveNumber = getVarInt(buffer);
+            }
+            plies = getVarInt(buffer);
+            if (plies > buffer.remaining() / 2)
+                throw new IllegalArgumentException("Truncated session snapshot");
+            if (plies > moves.length)
+                moves = new int[Math.max(plies, moves.length * 2)];
+            for (int ply = 0; ply < plies; ply++)
+                moves[ply] = unpack(buffer.getShort());
+            if (buffer.getInt() != checksum(buffer, offset, buffer.position() - 4))
+                throw new IllegalArgumentException("Corrupted session snapshot");
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated session snapshot", e);
+        }
+
+        if ((flags & INITIAL_FLAG) != 0)
+            position.reset();
+        else
+            position.setUp(pieces, side, castling, enPassant, halfmoveClock, fullmoveNumber);
+        for (int ply = 0; ply < plies; ply++) {
+            if (moves[ply] == Move.NONE)
+                position.makeNull();
+            else
+                position.make(moves[ply]);
+        }
+    }
+
+    /**
+     * Indicates if a position is the initial one, state and clocks included.
+     *
+     * @param position The position.
+     * @return true if it is the initial position.
+     */
+    private static boolean isInitial(Position position) {
+        if (position.key() != INITIAL.key() || position.halfmoveClock() != 0 || position.fullmoveNumber() != 1)
+            return false;
+        for (int square = 0; square < 64; square++) {
+            if (position.pieceAt(square) != INITIAL.pieceAt(square))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Packs a move in 16 bits, the type of a promotion being coded from the rook.
+     *
+     * @param move The move, NONE for a null move.
+     * @return The packed move.
+     */
+    private static short pack(int move) {
+        int promotion = Move.kind(move) == Move.PROMOTION ? Move.promotion(move) - Position.ROOK : 0;
+        return (short) (move & 0x3FFF | promotion << 14);
+    }
+
+    /**
+     * Unpacks a move packed in 16 bits.
+     *
+     * @param packed The packed move.
+     * @return The move.
+     */
+    private static int unpack(short packed) {
+        int move = packed & 0x3FFF;
+        return Move.kind(move) == Move.PROMOTION ? move | ((packed >>> 14 & 3) + Position.ROOK) << 14 : move;
+    }
+
+    /**
+     * Computes the checksum of bytes of a buffer.
+     *
+     * @param buffer The buffer.
+     * @param from   The index of the first byte.
+     * @param to     The index after the last byte.
+     * @return The CRC32 of the bytes.
+     */
+    private int checksum(ByteBuffer buffer, int from, int to) {
+        crc.reset();
+        crc.update(buffer.duplicate().limit(to).position(from));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a number in bytes of 7 bits, the lowest first, the high bit telling that more follow.
+     *
+     * @param buffer The buffer.
+     * @param value  The number, not negative.
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        for (; value >= 0x80; value >>>= 7)
+            buffer.put((byte) (value | 0x80));
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a number written in bytes of 7 bits.
+     *
+     * @param buffer The buffer, positioned after the number when it returns.
+     * @return The number.
+     */
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0, shift = 0, b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 35);
+        return value;
+    }
+}
@@ -0,0 +1,226 @@
+package engine.suite;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A position of a test suite written in EPD: the first four fields of a FEN, then operations such as
+ * {@code bm Nf3 Qd5; am e4; id "WAC.001";}. The best moves (bm) and the moves to avoid (am) tell if a
+ * search solved the position, the other operations but the identifier are ignored.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class EpdRecord {
+
+    /**
+     * The identifier of the position.
+     */
+    private final String id;
+
+    /**
+     * The position.
+     */
+    private final Position position;
+
+    /**
+     * The best moves, any of them solving the position.
+     */
+    private final int[] bestMoves;
+
+    /**
+     * The moves to avoid, none of them solving the position.
+     */
+    private final int[] avoidMoves;
+
+    /**
+     * Constructs a record.
+     *
+     * @param id         The identifier of the position.
+     * @param position   The position.
+     * @param bestMoves  The best moves.
+     * @param avoidMoves The moves to avoid.
+     */
+    private EpdRecord(String id, Position position, int[] bestMoves, int[] avoidMoves) {
+        this.id = id;
+        this.position = position;
+        this.bestMoves = bestMoves;
+        this.avoidMoves = avoidMoves;
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param line The line of the record.
+     * @param name The identifier of the position if the record has no id operation.
+     * @return The record.
+     * @throws IllegalArgumentException If the line is not a valid record, or has neither best moves
+     *                                  nor moves to avoid.
+     */
+    public static EpdRecord parse(String line, String name) {
+        Position position = new Position();
+        int i = Fen.parse(position, line, 0, line.length(), new int[64]);
+        if (i < 0)
+            throw new IllegalArgumentException("Invalid EPD position: " + line);
+
+        String id = name;
+        int[] bestMoves = new int[0], avoidMoves = new int[0];
+        List<String> operands = new ArrayList<>();
+        int end = line.length();
+        while (true) {
+            while (i < end && Character.isWhitespace(line.charAt(i)))
+                i++;
+            if (i >= end)
+                break;
+            int start = i;
+            while (i < end && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != ';')
+                i++;
+            String opcode = line.substring(start, i);
+            operands.clear();
+            while (true) {
+                while (i < end && line.charAt(i) == ' ')
+                    i++;
+                if (i >= end)
+                    throw new IllegalArgumentException("Unterminated EPD operation " + opcode + ": " + line);
+                if (line.charAt(i) == ';') {
+                    i++;
+                    break;
+                }
+                start = i;
+                if (line.charAt(i) == '"') {
+                    i = line.indexOf('"', i + 1);
+                    if (i < 0)
+                        throw new IllegalArgumentException("Unterminated EPD string: " + line);
+                    operands.add(line.substring(start + 1, i++));
+                } else {
+                    while (i < end && line.charAt(i) != ' ' && line.charAt(i) != ';')
+                        i++;
+                    operands.add(line.substring(start, i));
+                }
+            }
+
+            switch (opcode) {
+                case "bm":
+                    bestMoves = moves(position, operands, line);
+                    break;
+                case "am":
+                    avoidMoves = moves(position, operands, line);
+                    break;
+                case "id":
+                    if (!operands.isEmpty())
+                        id = operands.get(0);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (bestMoves.length == 0 && avoidMoves.length == 0)
+            throw new IllegalArgumentException("No bm nor am operation: " + line);
+        return new EpdRecord(id, position, bestMoves, avoidMoves);
+    }
+
+    /**
+     * Reads the records of a suite, skipping the empty lines and the lines starting with '#'.
+     *
+     * @param path The EPD file.
+     * @return The records, in the order of the file.
+     * @throws IOException              If the file can't be read.
+     * @throws IllegalArgumentException If a line is not a valid record.
+     */
+    public static List<EpdRecord> read(Path path) throws IOException {
+        List<EpdRecord> records = new ArrayList<>();
+        List<String> lines = Files.readAllLines(path, StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (!line.isEmpty() && line.charAt(0) != '#')
+                records.add(parse(line, path.getFileName() + ":" + (i + 1)));
+        }
+        return records;
+    }
+
+    /**
+     * Finds the moves of an operation.
+     *
+     * @param position The position.
+     * @param operands The moves in SAN.
+     * @param line     The line of the record.
+     * @return The moves.
+     * @throws IllegalArgumentException If a move is not legal.
+     */
+    private static int[] moves(Position position, List<String> operands, String line) {
+        int[] moves = new int[operands.size()];
+        int[] buffer = new int[Position.MAX_MOVES];
+        for (int i = 0; i < moves.length; i++) {
+            String san = operands.get(i);
+            moves[i] = San.parse(position, san, 0, san.length(), buffer);
+            if (moves[i] == Move.NONE)
+                throw new IllegalArgumentException("Illegal EPD move " + san + ": " + line);
+        }
+        return moves;
+    }
+
+    /**
+     * Gets the identifier of the position.
+     *
+     * @return The id operation, or the file and line of the record.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the position, to copy before modifying it.
+     *
+     * @return The position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Indicates if a move solves the position: it is one of the best moves if there are some, and
+     * none of the moves to avoid.
+     *
+     * @param move The move found.
+     * @return true if the move solves the position.
+     */
+    public boolean isSolvedBy(int move) {
+        for (int avoid : avoidMoves) {
+            if (avoid == move)
+                return false;
+        }
+        if (bestMoves.length == 0)
+            return move != Move.NONE;
+        for (int best : bestMoves) {
+            if (best == move)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the best moves.
+     *
+     * @return A copy of the best moves.
+     */
+    public int[] getBestMoves() {
+        return Arrays.copyOf(bestMoves, bestMoves.length);
+    }
+
+    /**
+     * Gets the moves to avoid.
+     *
+     * @return A copy of the moves to avoid.
+     */
+    public int[] getAvoidMoves() {
+        return Arrays.copyOf(avoidMoves, avoidMoves.length);
+    }
+}
@@ -0,0 +1,145 @@
+package engine.suite;
+
+import engine.board.Move;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The analysis of a test suite: a result per position, in the order of the suite, and the totals.
+ * <p>
+ * The report is written as tab separated values, so that two builds are compared with diff: a line of
+ * totals, a line of column names, then a line per position. With a node budget, the searches don't
+ * depend on the host nor on the other positions, so only the times change between two runs of the
+ * same build.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class SuiteReport {
+
+    /**
+     * The version of the format of the report.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The results, in the order of the suite.
+     */
+    private final List<SuiteResult> results;
+
+    /**
+     * The wall time of the analysis, in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * The number of threads which analysed the suite.
+     */
+    private final int threads;
+
+    /**
+     * Constructs a report.
+     *
+     * @param results The results, in the order of the suite.
+     * @param millis  The wall time of the analysis, in milliseconds.
+     * @param threads The number of threads which analysed the suite.
+     */
+    SuiteReport(List<SuiteResult> results, long millis, int threads) {
+        this.results = List.copyOf(results);
+        this.millis = millis;
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the results.
+     *
+     * @return The results, in the order of the suite.
+     */
+    public List<SuiteResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Gets the number of positions solved.
+     *
+     * @return The number of positions.
+     */
+    public int getSolved() {
+        int solved = 0;
+        for (SuiteResult result : results)
+            solved += result.isSolved() ? 1 : 0;
+        return solved;
+    }
+
+    /**
+     * Gets the number of nodes searched by all the threads.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (SuiteResult result : results)
+            nodes += result.getNodes();
+        return nodes;
+    }
+
+    /**
+     * Gets the wall time of the analysis.
+     *
+     * @return The time, in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Gets the nodes searched per second by all the threads together.
+     *
+     * @return The number of nodes per second.
+     */
+    public long getNps() {
+        return getNodes() * 1000 / Math.max(1, millis);
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param path The file of the report, replaced if it exists.
+     * @throws IOException If the file can't be written.
+     */
+    public void write(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param out The output.
+     * @throws IOException If the output can't be written.
+     */
+    public void write(Appendable out) throws IOException {
+        out.append("suite\t").append(Integer.toString(VERSION))
+                .append("\tpositions\t").append(Integer.toString(results.size()))
+                .append("\tsolved\t").append(Integer.toString(getSolved()))
+                .append("\tnodes\t").append(Long.toString(getNodes()))
+                .append("\tms\t").append(Long.toString(millis))
+                .append("\tnps\t").append(Long.toString(getNps()))
+                .append("\tthreads\t").append(Integer.toString(threads)).append('\n');
+        out.append("id\tmove\tsolved\tsolved_ms\tdepth\tscore\tnodes\tms\n");
+        for (SuiteResult result : results) {
+            out.append(result.getId().replace('\t', ' '))
+                    .append('\t').append(result.getMove() == Move.NONE ? "-" : Move.toString(result.getMove()))
+                    .append('\t').append(result.isSolved() ? '1' : '0')
+                    .append('\t').append(Long.toString(result.getSolvedMillis()))
+                    .append('\t').append(Integer.toString(result.getDepth()))
+                    .append('\t').append(Integer.toString(result.getScore()))
+                    .append('\t').append(Long.toString(result.getNodes()))
+                    .append('\t').append(Long.toString(result.getMillis())).append('\n');
+        }
+    }
+}
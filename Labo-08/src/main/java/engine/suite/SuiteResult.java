@@ -0,0 +1,138 @@
+package engine.suite;
+
+/**
+ * The analysis of a position of a test suite.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class SuiteResult {
+
+    /**
+     * The identifier of the position.
+     */
+    private final String id;
+
+    /**
+     * The move found, or Move.NONE.
+     */
+    private final int move;
+
+    /**
+     * The depth of the last iteration completed.
+     */
+    private final int depth;
+
+    /**
+     * The score of the move found, for the side to move.
+     */
+    private final int score;
+
+    /**
+     * The number of nodes searched.
+     */
+    private final long nodes;
+
+    /**
+     * The time of the search, in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * The time from which the search kept a solving move, in milliseconds, or -1.
+     */
+    private final long solvedMillis;
+
+    /**
+     * Constructs a result.
+     *
+     * @param id           The identifier of the position.
+     * @param move         The move found.
+     * @param depth        The depth of the last iteration completed.
+     * @param score        The score of the move found.
+     * @param nodes        The number of nodes searched.
+     * @param millis       The time of the search, in milliseconds.
+     * @param solvedMillis The time from which the search kept a solving move, or -1 if it didn't solve.
+     */
+    SuiteResult(String id, int move, int depth, int score, long nodes, long millis, long solvedMillis) {
+        this.id = id;
+        this.move = move;
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.solvedMillis = solvedMillis;
+    }
+
+    /**
+     * Gets the identifier of the position.
+     *
+     * @return The identifier.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the move found.
+     *
+     * @return The move, or Move.NONE if the position has no legal move.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Gets the depth of the last iteration completed.
+     *
+     * @return The depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the score of the move found.
+     *
+     * @return The score, in centipawns for the side to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the number of nodes searched.
+     *
+     * @return The number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the time of the search.
+     *
+     * @return The time, in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Indicates if the move found solves the position.
+     *
+     * @return true if the position is solved.
+     */
+    public boolean isSolved() {
+        return solvedMillis >= 0;
+    }
+
+    /**
+     * Gets the time to solution: the time of the first iteration from which the search kept a solving
+     * move until its end.
+     *
+     * @return The time, in milliseconds, or -1 if the position is not solved.
+     */
+    public long getSolvedMillis() {
+        return solvedMillis;
+    }
+}
@@ -0,0 +1,178 @@
+package engine.suite;
+
+import engine.eval.Evaluator;
+import engine.listeners.SearchObserver;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TimeManager;
+import engine.search.TranspositionTable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Analyses the positions of a test suite on a pool of threads, each position under a budget of nodes
+ * or of time, to measure the tactical strength and the speed of a build.
+ * <p>
+ * Each thread has its own table and evaluator, and takes the next position not analysed yet. Like the
+ * bench, each position is searched with a fresh search and a cleared table, so that a result doesn't
+ * depend on the positions analysed before it by the same thread.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class SuiteRunner {
+
+    /**
+     * The size of the table of a thread, in megabytes.
+     */
+    private static final int TABLE_MEGABYTES = 16;
+
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+
+    /**
+     * The maximum number of nodes of a position, or Long.MAX_VALUE.
+     */
+    private final long maxNodes;
+
+    /**
+     * The time of a position, in milliseconds, or 0 for no limit.
+     */
+    private final long moveTime;
+
+    /**
+     * The evaluators, one per thread.
+     */
+    private final Supplier<? extends Evaluator> evaluators;
+
+    /**
+     * The first error of a thread, or null.
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructs a runner.
+     *
+     * @param threads    The number of threads.
+     * @param maxNodes   The maximum number of nodes of a position, or Long.MAX_VALUE.
+     * @param moveTime   The time of a position, in milliseconds, or 0 for no limit.
+     * @param evaluators The evaluators, called once per thread.
+     * @throws IllegalArgumentException If there is no thread, or neither a node nor a time budget.
+     */
+    public SuiteRunner(int threads, long maxNodes, long moveTime, Supplier<? extends Evaluator> evaluators) {
+        if (threads < 1 || maxNodes < 1 || moveTime < 0 || maxNodes == Long.MAX_VALUE && moveTime == 0)
+            throw new IllegalArgumentException("Invalid threads or budget: " + threads + ", " + maxNodes + " nodes, "
+                    + moveTime + " ms");
+        this.threads = threads;
+        this.maxNodes = maxNodes;
+        this.moveTime = moveTime;
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Analyses the positions of a suite.
+     *
+     * @param records The positions.
+     * @return The report, with the results in the order of the positions.
+     * @throws InterruptedException If the thread is interrupted while waiting for the pool.
+     */
+    public SuiteReport run(List<EpdRecord> records) throws InterruptedException {
+        SuiteResult[] results = new SuiteResult[records.size()];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        Thread[] pool = new Thread[Math.min(threads, Math.max(1, records.size()))];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Thread(() -> {
+                try {
+                    TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+                    Evaluator evaluator = evaluators.get();
+                    for (int index = next.getAndIncrement(); index < results.length && failure == null;
+                         index = next.getAndIncrement())
+                        results[index] = analyse(table, evaluator, records.get(index));
+                } catch (RuntimeException e) {
+                    if (failure == null)
+                        failure = e;
+                }
+            }, "suite-" + i);
+            pool[i].setDaemon(true);
+            pool[i].start();
+        }
+        try {
+            for (Thread thread : pool)
+                thread.join();
+        } catch (InterruptedException e) {
+            // the workers stop after their current position
+            failure = new IllegalStateException("Suite interrupted");
+            throw e;
+        }
+        RuntimeException error = failure;
+        failure = null;
+        if (error != null)
+            throw error;
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new SuiteReport(Arrays.asList(results), millis, pool.length);
+    }
+
+    /**
+     * Analyses a position.
+     *
+     * @param table     The table of the thread.
+     * @param evaluator The evaluator of the thread.
+     * @param record    The position.
+     * @return The result.
+     */
+    private SuiteResult analyse(TranspositionTable table, Evaluator evaluator, EpdRecord record) {
+        table.clear();
+        Search search = new Search(table, evaluator);
+        Solution solution = new Solution(record);
+        search.attach(solution);
+        SearchResult result = search.think(record.getPosition(), Search.MAX_PLY, maxNodes,
+                moveTime > 0 ? new TimeManager(moveTime) : null);
+        int move = result.getBestMove();
+        long solvedMillis = !record.isSolvedBy(move) ? -1
+                : solution.since >= 0 ? solution.since : result.getMillis();
+        return new SuiteResult(record.getId(), move, result.getDepth(), result.getScore(), result.getNodes(),
+                result.getMillis(), solvedMillis);
+    }
+
+    /**
+     * Follows the iterations of a search to find when it settled on a solving move.
+     */
+    private static final class Solution implements SearchObserver {
+
+        /**
+         * The position searched.
+         */
+        private final EpdRecord record;
+
+        /**
+         * The time of the first iteration of the solving moves found since, or -1.
+         */
+        private long since = -1;
+
+        /**
+         * Constructs an observer.
+         *
+         * @param record The position searched.
+         */
+        private Solution(EpdRecord record) {
+            this.record = record;
+        }
+
+        /**
+         * Remembers when the best move became a solving one, and forgets it when it stops being one.
+         *
+         * @param result The best line found by the iteration.
+         */
+        @Override
+        public void updateIteration(SearchResult result) {
+            if (!record.isSolvedBy(result.getBestMove()))
+                since = -1;
+            else if (since < 0)
+                since = result.getMillis();
+        }
+    }
+}
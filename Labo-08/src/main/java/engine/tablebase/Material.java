@@ -0,0 +1,257 @@
+package engine.tablebase;
+
+import engine.board.Position;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The pieces of an endgame covered by a tablebase, e.g. KQvK, and the index of its positions.
+ * <p>
+ * The pieces are ordered white first, each side starting with its king followed by the queens,
+ * rooks, bishops, knights and pawns. A position is indexed by its side to move and the square of
+ * each piece in that order: side * 64^n + the squares read as a base 64 number. The index is not
+ * reduced by the symmetries of the board: it wastes space but keeps the generation and the probes
+ * trivial, which is fine up to four pieces.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class Material {
+
+    /**
+     * The maximum number of pieces of a tablebase, kings included.
+     */
+    public static final int MAX_PIECES = 4;
+
+    /**
+     * The letters of the piece types, in the order of the pieces of a side.
+     */
+    private static final String ORDER = "KQRBNP";
+
+    /**
+     * The piece codes, in index order.
+     */
+    private final int[] pieces;
+
+    /**
+     * Constructs a material.
+     *
+     * @param pieces The piece codes, in index order.
+     */
+    private Material(int[] pieces) {
+        this.pieces = pieces;
+    }
+
+    /**
+     * Reads the name of an endgame, e.g. "KQvK", "KBNvK", "KPvKP".
+     *
+     * @param name The name, white pieces first.
+     * @return The material.
+     * @throws IllegalArgumentException If the name isn't a valid endgame of at most MAX_PIECES pieces.
+     */
+    public static Material parse(String name) {
+        int separator = name.indexOf('v');
+        if (separator < 1 || name.length() - 1 > MAX_PIECES || name.charAt(0) != 'K'
+                || separator + 1 >= name.length() || name.charAt(separator + 1) != 'K')
+            throw new IllegalArgumentException("Not an endgame of at most " + MAX_PIECES + " pieces: " + name);
+
+        int[] pieces = new int[name.length() - 1];
+        int count = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (i == separator)
+                continue;
+            int type = Position.LETTERS.indexOf(name.charAt(i));
+            if (type <= 0 || type == Position.KING && i != 0 && i != separator + 1)
+                throw new IllegalArgumentException("Not an endgame: " + name);
+            pieces[count++] = Position.piece(i < separator ? Position.WHITE : Position.BLACK, type);
+        }
+        return of(pieces, count);
+    }
+
+    /**
+     * Builds the material of some pieces, in any order.
+     *
+     * @param pieces The piece codes.
+     * @param count  The number of pieces.
+     * @return The material, its pieces sorted in index order.
+     */
+    public static Material of(int[] pieces, int count) {
+        int[] sorted = Arrays.copyOf(pieces, count);
+        for (int i = 1; i < count; i++)
+            for (int j = i; j > 0 && rank(sorted[j]) < rank(sorted[j - 1]); j--) {
+                int piece = sorted[j];
+                sorted[j] = sorted[j - 1];
+                sorted[j - 1] = piece;
+            }
+        return new Material(sorted);
+    }
+
+    /**
+     * Gets the rank of a piece in the index order.
+     *
+     * @param piece The piece code.
+     * @return The rank, white pieces first.
+     */
+    static int rank(int piece) {
+        return Position.colorOf(piece) * 8 + ORDER.indexOf(Position.LETTERS.charAt(Position.typeOf(piece)));
+    }
+
+    /**
+     * Gets the number of pieces.
+     *
+     * @return The number of pieces, kings included.
+     */
+    public int size() {
+        return pieces.length;
+    }
+
+    /**
+     * Gets a piece.
+     *
+     * @param index The index of the piece.
+     * @return The piece code.
+     */
+    public int piece(int index) {
+        return pieces[index];
+    }
+
+    /**
+     * Gets the number of positions indexed, legal or not.
+     *
+     * @return 2 * 64^size.
+     */
+    public int entries() {
+        return 2 << 6 * pieces.length;
+    }
+
+    /**
+     * Computes the index of a position.
+     *
+     * @param side    The side to move.
+     * @param squares The square of each piece, in index order.
+     * @return The index.
+     */
+    public int index(int side, int[] squares) {
+        int index = side;
+        for (int i = 0; i < pieces.length; i++)
+            index = index << 6 | squares[i];
+        return index;
+    }
+
+    /**
+     * Decodes an index.
+     *
+     * @param index   The index.
+     * @param squares Receives the square of each piece, in index order.
+     * @return The side to move.
+     */
+    public int decode(int index, int[] squares) {
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the material with the colors swapped, e.g. KvKQ for KQvK.
+     *
+     * @return The mirrored material.
+     */
+    public Material mirror() {
+        int[] mirrored = new int[pieces.length];
+        for (int i = 0; i < pieces.length; i++)
+            mirrored[i] = pieces[i] ^ 8;
+        return of(mirrored, mirrored.length);
+    }
+
+    /**
+     * Indicates if no side can ever mate: two kings alone, or with a single minor piece.
+     *
+     * @return true if every position is a draw.
+     */
+    public boolean isDrawn() {
+        if (pieces.length != 3)
+            return pieces.length == 2;
+        for (int piece : pieces)
+            if (Position.typeOf(piece) == Position.BISHOP || Position.typeOf(piece) == Position.KNIGHT)
+                return true;
+        return false;
+    }
+
+    /**
+     * Gets the endgames reached by a capture or a promotion, the ones a tablebase needs to be generated.
+     *
+     * @return The materials, without duplicates.
+     */
+    public List<Material> successors() {
+        List<Material> successors = new ArrayList<>();
+        for (int i = 0; i < pieces.length; i++) {
+            int type = Position.typeOf(pieces[i]);
+            if (type == Position.KING)
+                continue;
+            int[] others = new int[pieces.length - 1];
+            for (int j = 0, k = 0; j < pieces.length; j++)
+                if (j != i)
+                    others[k++] = pieces[j];
+            addUnique(successors, of(others, others.length));
+
+            if (type == Position.PAWN) {
+                for (int promotion : new int[]{Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT}) {
+                    int[] promoted = pieces.clone();
+                    promoted[i] = Position.piece(Position.colorOf(pieces[i]), promotion);
+                    addUnique(successors, of(promoted, promoted.length));
+                }
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * Adds a material to a list if it is not already there.
+     *
+     * @param materials The list.
+     * @param material  The material.
+     */
+    private static void addUnique(List<Material> materials, Material material) {
+        if (!materials.contains(material))
+            materials.add(material);
+    }
+
+    /**
+     * Compares the pieces of two materials.
+     *
+     * @param other The other object.
+     * @return true if the other object is a material with the same pieces.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Material && Arrays.equals(pieces, ((Material) other).pieces);
+    }
+
+    /**
+     * Hashes the pieces.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(pieces);
+    }
+
+    /**
+     * Gets the name of the endgame, e.g. "KQvK".
+     *
+     * @return The name, white pieces first.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            if (i > 0 && Position.colorOf(pieces[i]) != Position.colorOf(pieces[i - 1]))
+                builder.append('v');
+            builder.append(Position.LETTERS.charAt(Position.typeOf(pieces[i])));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package engine.tablebase;
+
+import engine.search.Search;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The distance to mate of every position of an endgame, read from a memory-mapped file.
+ * <p>
+ * Each position holds a code: 0 for a draw (or an illegal position), otherwise the number of plies
+ * to mate plus one. An odd number of plies is a win for the side to move, an even one a loss. The
+ * codes are bit-packed with just enough bits for the longest mate, in big-endian 64 bits words after
+ * a header giving the pieces and the width of a code.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Tablebase {
+
+    /**
+     * The magic number of the file format ("TBAS").
+     */
+    public static final int MAGIC = 0x54424153;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header: magic, version, number of pieces, bits per code and the pieces, padded
+     * to align the words.
+     */
+    private static final int HEADER_BYTES = 24;
+
+    /**
+     * The endgame of the table.
+     */
+    private final Material material;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of bits of a code.
+     */
+    private final int bits;
+
+    /**
+     * Constructs a table over a mapped file.
+     *
+     * @param material The endgame of the table.
+     * @param buffer   The mapped file.
+     * @param bits     The number of bits of a code.
+     */
+    private Tablebase(Material material, ByteBuffer buffer, int bits) {
+        this.material = material;
+        this.buffer = buffer;
+        this.bits = bits;
+    }
+
+    /**
+     * Maps a table file.
+     *
+     * @param path The path of the table.
+     * @return The table.
+     * @throws IOException If the file can't be read or is not a table.
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Not a tablebase file of version " + VERSION + ": " + path);
+
+            int count = buffer.getInt(8), bits = buffer.getInt(12);
+            if (count < 2 || count > Material.MAX_PIECES || bits < 1 || bits > 8)
+                throw new IOException("Corrupted tablebase header: " + path);
+            int[] pieces = new int[count];
+            for (int i = 0; i < count; i++)
+                pieces[i] = buffer.get(16 + i);
+            Material material = Material.of(pieces, count);
+            if (buffer.limit() != HEADER_BYTES + words(material, bits) * Long.BYTES)
+                throw new IOException("Truncated tablebase: " + path);
+            return new Tablebase(material, buffer, bits);
+        }
+    }
+
+    /**
+     * Writes a table file.
+     *
+     * @param path     The path of the table.
+     * @param material The endgame of the table.
+     * @param codes    The code of each position, as unsigned bytes.
+     * @throws IOException If the file can't be written.
+     */
+    static void write(Path path, Material material, byte[] codes) throws IOException {
+        int max = 0;
+        for (byte code : codes)
+            max = Math.max(max, code & 0xFF);
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+
+        try (OutputStream file = Files.newOutputStream(path)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(material.size());
+            out.writeInt(bits);
+            for (int i = 16; i < HEADER_BYTES; i++)
+                out.writeByte(i - 16 < material.size() ? material.piece(i - 16) : 0);
+
+            long word = 0;
+            int used = 0;
+            long written = 0;
+            for (byte code : codes) {
+                long value = code & 0xFF;
+                word |= value << used;
+                used += bits;
+                if (used >= 64) {
+                    out.writeLong(word);
+                    written++;
+                    used -= 64;
+                    word = used == 0 ? 0 : value >>> bits - used;
+                }
+            }
+            // the last word and a padding word, so that a code never reads beyond the file
+            for (; written < words(material, bits); written++) {
+                out.writeLong(word);
+                word = 0;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Gets the number of words of a file.
+     *
+     * @param material The endgame of the table.
+     * @param bits     The number of bits of a code.
+     * @return The number of 64 bits words, padding included.
+     */
+    private static long words(Material material, int bits) {
+        return ((long) material.entries() * bits + 63) / 64 + 1;
+    }
+
+    /**
+     * Gets the endgame of the table.
+     *
+     * @return The material.
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Gets the code of a position.
+     *
+     * @param index The index of the position in the material.
+     * @return The code: 0 for a draw, otherwise the number of plies to mate plus one.
+     */
+    public int probe(int index) {
+        long bit = (long) index * bits;
+        int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+        long value = buffer.getLong(HEADER_BYTES + word * Long.BYTES) >>> shift;
+        if (shift + bits > 64)
+            value |= buffer.getLong(HEADER_BYTES + (word + 1) * Long.BYTES) << 64 - shift;
+        return (int) (value & (1 << bits) - 1);
+    }
+
+    /**
+     * Indicates if a code is a win for the side to move.
+     *
+     * @param code The code.
+     * @return true for a mate in an odd number of plies.
+     */
+    public static boolean isWin(int code) {
+        return code > 0 && (code & 1) == 0;
+    }
+
+    /**
+     * Indicates if a code is a loss for the side to move.
+     *
+     * @param code The code.
+     * @return true for a mate in an even number of plies.
+     */
+    public static boolean isLoss(int code) {
+        return code > 0 && (code & 1) == 1;
+    }
+
+    /**
+     * Converts a code into a score of the search.
+     *
+     * @param code The code.
+     * @param ply  The distance of the position from the root of the search.
+     * @return The mate score, or 0 for a draw.
+     */
+    public static int score(int code, int ply) {
+        if (code == 0)
+            return 0;
+        int distance = ply + code - 1;
+        return isWin(code) ? Search.MATE - distance : -Search.MATE + distance;
+    }
+}
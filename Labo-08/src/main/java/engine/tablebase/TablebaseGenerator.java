@@ -0,0 +1,512 @@
+package engine.tablebase;
+
+import engine.board.Attacks;
+import engine.board.Position;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the distance to mate of every position of an endgame by retrograde analysis.
+ * <p>
+ * A first sweep plays the moves of every position: the mates are lost in 0 plies, the captures and
+ * promotions are probed in the smaller tables, and the other moves are counted. Then the sweep of
+ * level n goes back from the positions resolved at n - 1 with un-moves: the predecessors of a loss are
+ * won in n plies, and a predecessor of a win whose last unresolved move was just counted down is lost
+ * in n plies. What stays unresolved is a draw.
+ * <p>
+ * Each sweep is split in blocks of indices run in parallel; the counters and the codes are updated
+ * atomically.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+final class TablebaseGenerator {
+
+    /**
+     * The atomic access to the arrays.
+     */
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * The number of indices of a block of a sweep.
+     */
+    private static final int BLOCK = 1 << 12;
+
+    /**
+     * The longest mate, in plies, that a code can hold.
+     */
+    private static final int MAX_PLIES = 253;
+
+    /**
+     * The marker of the positions that can't lose: a capture or a promotion reaches a draw, or the
+     * position is illegal.
+     */
+    private static final int NEVER_LOST = 0xFF;
+
+    /**
+     * The tables of the captures and the promotions.
+     */
+    private final Tablebases tablebases;
+
+    /**
+     * The endgame generated.
+     */
+    private final Material material;
+
+    /**
+     * The code of each position: 0 while unresolved, otherwise the plies to mate plus one.
+     */
+    private final byte[] codes;
+
+    /**
+     * The number of moves of each position staying in the table and not yet known to lose.
+     */
+    private final byte[] counters;
+
+    /**
+     * The plies of the fastest mate reached by a capture or a promotion, or 0.
+     */
+    private final byte[] wins;
+
+    /**
+     * The plies of the slowest mate suffered after a capture or a promotion, or NEVER_LOST.
+     */
+    private final byte[] losses;
+
+    /**
+     * The deepest level at which a capture or a promotion resolves a position.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Constructs a generator.
+     *
+     * @param tablebases The tables of the captures and the promotions, already generated.
+     * @param material   The endgame to generate.
+     */
+    TablebaseGenerator(Tablebases tablebases, Material material) {
+        this.tablebases = tablebases;
+        this.material = material;
+        int entries = material.entries();
+        codes = new byte[entries];
+        counters = new byte[entries];
+        wins = new byte[entries];
+        losses = new byte[entries];
+    }
+
+    /**
+     * Generates the table.
+     *
+     * @return The code of each position.
+     */
+    byte[] generate() {
+        sweep(Scratch::initialize);
+        for (int plies = 1; plies <= MAX_PLIES; plies++) {
+            AtomicBoolean changed = new AtomicBoolean();
+            int level = plies;
+            sweep((scratch, index) -> {
+                if (resolve(scratch, index, level))
+                    changed.set(true);
+            });
+            if (!changed.get() && plies >= pending.get())
+                break;
+        }
+        return codes;
+    }
+
+    /**
+     * Runs a task on every index, the blocks being spread on the common fork-join pool.
+     *
+     * @param task The task, called once per index with the board of the block.
+     */
+    private void sweep(ObjIntConsumer<Scratch> task) {
+        int entries = material.entries();
+        IntStream.range(0, (entries + BLOCK - 1) / BLOCK).parallel().forEach(block -> {
+            Scratch scratch = new Scratch();
+            for (int index = block * BLOCK; index < Math.min(entries, (block + 1) * BLOCK); index++)
+                task.accept(scratch, index);
+        });
+    }
+
+    /**
+     * Resolves a position at a level, or goes back from it if it was resolved at the previous level.
+     *
+     * @param scratch The board of the worker.
+     * @param index   The index of the position.
+     * @param plies   The level of the sweep.
+     * @return true if a position was resolved.
+     */
+    private boolean resolve(Scratch scratch, int index, int plies) {
+        int code = codes[index] & 0xFF;
+        if (code == plies)
+            return scratch.retract(index, plies);
+        if (code != 0)
+            return false;
+
+        int win = wins[index] & 0xFF, loss = losses[index] & 0xFF;
+        if (win == plies || win == 0 && loss == plies && counters[index] == 0)
+            return set(index, plies);
+        return false;
+    }
+
+    /**
+     * Sets the code of an unresolved position.
+     *
+     * @param index The index of the position.
+     * @param plies The plies to mate.
+     * @return true if the position was unresolved.
+     */
+    private boolean set(int index, int plies) {
+        return BYTES.compareAndSet(codes, index, (byte) 0, (byte) (plies + 1));
+    }
+
+    /**
+     * Counts down the unresolved moves of a position.
+     *
+     * @param index The index of the position.
+     * @return The number of moves left.
+     */
+    private int countDown(int index) {
+        // an atomic decrement written as a compare-and-set loop, several workers counting down the same position
+        byte count;
+        do {
+            count = (byte) BYTES.getVolatile(counters, index);
+        } while (!BYTES.compareAndSet(counters, index, count, (byte) (count - 1)));
+        return count - 1;
+    }
+
+    /**
+     * Raises the deepest level resolved by a capture or a promotion.
+     *
+     * @param plies The level.
+     */
+    private void pending(int plies) {
+        pending.accumulateAndGet(plies, Math::max);
+    }
+
+    /**
+     * The board of a position decoded by a worker.
+     */
+    private final class Scratch {
+
+        /**
+         * The piece code on each square.
+         */
+        private final int[] board = new int[64];
+
+        /**
+         * The square of each piece, in index order.
+         */
+        private final int[] squares = new int[material.size()];
+
+        /**
+         * The destinations or origins of a piece.
+         */
+        private final int[] targets = new int[32];
+
+        /**
+         * The pieces of a position reached by a capture or a promotion.
+         */
+        private final int[] childPieces = new int[Material.MAX_PIECES];
+
+        /**
+         * The squares of a position reached by a capture or a promotion.
+         */
+        private final int[] childSquares = new int[Material.MAX_PIECES];
+
+        /**
+         * Plays the moves of a position to find the mates, probe the captures and the promotions and
+         * count the other moves.
+         *
+         * @param index The index of the position.
+         */
+        void initialize(int index) {
+            int side = decode(index);
+            if (side < 0 || attacked(king(side ^ 1), side)) {
+                losses[index] = (byte) NEVER_LOST;
+                return;
+            }
+
+            int inTable = 0, win = 0, loss = 0;
+            boolean legal = false, drawn = false;
+            for (int i = 0; i < squares.length; i++) {
+                int piece = material.piece(i), from = squares[i];
+                if (Position.colorOf(piece) != side)
+                    continue;
+                int count = destinations(from, piece);
+                for (int t = 0; t < count; t++) {
+                    int to = targets[t], captured = board[to];
+                    boolean promotes = Position.typeOf(piece) == Position.PAWN && (to < 8 || to >= 56);
+                    for (int promotion = promotes ? Position.ROOK : 0; promotion <= (promotes ? Position.QUEEN : 0);
+                         promotion++) {
+                        board[from] = Position.EMPTY;
+                        board[to] = piece;
+                        squares[i] = to;
+                        if (!attacked(king(side), side ^ 1)) {
+                            legal = true;
+                            if (captured == Position.EMPTY && !promotes) {
+                                inTable++;
+                            } else {
+                                int code = probeChild(i, promotion, to, side ^ 1);
+                                if (code == 0)
+                                    drawn = true;
+                                else if (Tablebase.isLoss(code))
+                                    win = win == 0 ? code : Math.min(win, code);
+                                else
+                                    loss = Math.max(loss, code);
+                            }
+                        }
+                        squares[i] = from;
+                        board[to] = captured;
+                        board[from] = piece;
+                    }
+                }
+            }
+
+            if (!legal) {
+                if (attacked(king(side), side ^ 1))
+                    codes[index] = 1;
+                losses[index] = (byte) NEVER_LOST;
+                return;
+            }
+            counters[index] = (byte) inTable;
+            wins[index] = (byte) win;
+            losses[index] = (byte) (drawn ? NEVER_LOST : loss);
+            if (win > 0 || !drawn && loss > 0)
+                pending(win > 0 ? win : loss);
+        }
+
+        /**
+         * Goes back from a position resolved at the previous level to its predecessors.
+         *
+         * @param index The index of the position.
+         * @param plies The level of the sweep.
+         * @return true if a predecessor was resolved.
+         */
+        boolean retract(int index, int plies) {
+            int side = decode(index), mover = side ^ 1;
+            boolean lost = (plies - 1) % 2 == 0, resolved = false;
+            for (int i = 0; i < squares.length; i++) {
+                int piece = material.piece(i), to = squares[i];
+                if (Position.colorOf(piece) != mover)
+                    continue;
+                int count = origins(to, piece);
+                for (int o = 0; o < count; o++) {
+                    int from = targets[o];
+                    board[to] = Position.EMPTY;
+                    board[from] = piece;
+                    squares[i] = from;
+                    if (!attacked(king(side), mover)) {
+                        int predecessor = material.index(mover, squares);
+                        if (lost) {
+                            resolved |= set(predecessor, plies);
+                        } else if (countDown(predecessor) == 0
+                                && wins[predecessor] == 0 && (losses[predecessor] & 0xFF) <= plies) {
+                            resolved |= set(predecessor, plies);
+                        }
+                    }
+                    squares[i] = to;
+                    board[from] = Position.EMPTY;
+                    board[to] = piece;
+                }
+            }
+            return resolved;
+        }
+
+        /**
+         * Probes the table of the position reached by a capture or a promotion.
+         *
+         * @param moved     The index of the piece moved.
+         * @param promotion The piece type of the promotion, or 0.
+         * @param to        The destination of the move.
+         * @param side      The side to move after the move.
+         * @return The code of the position reached.
+         * @throws IllegalStateException If the table is missing.
+         */
+        private int probeChild(int moved, int promotion, int to, int side) {
+            int count = 0;
+            for (int i = 0; i < squares.length; i++) {
+                if (i != moved && squares[i] == to)
+                    continue;
+                int piece = material.piece(i);
+                childPieces[count] = i == moved && promotion != 0 ? Position.piece(Position.colorOf(piece), promotion)
+                        : piece;
+                childSquares[count++] = squares[i];
+            }
+            int code = tablebases.probe(childPieces, childSquares, count, side);
+            if (code < 0)
+                throw new IllegalStateException("Missing tablebase " + Material.of(childPieces, count));
+            return code;
+        }
+
+        /**
+         * Places the pieces of an index on the board.
+         *
+         * @param index The index of the position.
+         * @return The side to move, or -1 if two pieces share a square or a pawn stands on a last rank.
+         */
+        private int decode(int index) {
+            // the squares still hold the previous position, whose pieces are the only ones on the board
+            for (int i = 0; i < squares.length; i++)
+                board[squares[i]] = Position.EMPTY;
+            int side = material.decode(index, squares);
+            for (int i = 0; i < squares.length; i++) {
+                int square = squares[i], piece = material.piece(i);
+                if (board[square] != Position.EMPTY
+                        || Position.typeOf(piece) == Position.PAWN && (square < 8 || square >= 56)) {
+                    for (int j = 0; j < squares.length; j++)
+                        board[squares[j]] = Position.EMPTY;
+                    return -1;
+                }
+                board[square] = piece;
+            }
+            return side;
+        }
+
+        /**
+         * Gets the square of a king.
+         *
+         * @param color The color of the king.
+         * @return The square.
+         */
+        private int king(int color) {
+            for (int i = 0; i < squares.length; i++)
+                if (material.piece(i) == Position.piece(color, Position.KING))
+                    return squares[i];
+            return -1;
+        }
+
+        /**
+         * Lists the destinations of a piece, captures of the enemy king excluded.
+         *
+         * @param from  The square of the piece.
+         * @param piece The piece code.
+         * @return The number of destinations written in targets.
+         */
+        private int destinations(int from, int piece) {
+            int color = Position.colorOf(piece), type = Position.typeOf(piece), count = 0;
+            if (type == Position.PAWN) {
+                int forward = color == Position.WHITE ? 8 : -8, x = Attacks.x(from);
+                if (board[from + forward] == Position.EMPTY) {
+                    targets[count++] = from + forward;
+                    int start = color == Position.WHITE ? 1 : 6;
+                    if (Attacks.y(from) == start && board[from + 2 * forward] == Position.EMPTY)
+                        targets[count++] = from + 2 * forward;
+                }
+                for (int dx = -1; dx <= 1; dx += 2) {
+                    if (x + dx < 0 || x + dx > 7)
+                        continue;
+                    int target = board[from + forward + dx];
+                    if (target != Position.EMPTY && Position.colorOf(target) != color
+                            && Position.typeOf(target) != Position.KING)
+                        targets[count++] = from + forward + dx;
+                }
+                return count;
+            }
+
+            if (type == Position.KING || type == Position.KNIGHT) {
+                for (int to : type == Position.KING ? Attacks.KING[from] : Attacks.KNIGHT[from])
+                    if (isTarget(to, color))
+                        targets[count++] = to;
+                return count;
+            }
+            for (int direction = type == Position.BISHOP ? 4 : 0; direction < (type == Position.ROOK ? 4 : 8);
+                 direction++) {
+                for (int to : Attacks.RAYS[from][direction]) {
+                    if (isTarget(to, color))
+                        targets[count++] = to;
+                    if (board[to] != Position.EMPTY)
+                        break;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Indicates if a piece can move to a square: empty or holding an enemy piece other than the king.
+         *
+         * @param square The square.
+         * @param color  The color of the piece.
+         * @return true if the square is a destination.
+         */
+        private boolean isTarget(int square, int color) {
+            int target = board[square];
+            return target == Position.EMPTY
+                    || Position.colorOf(target) != color && Position.typeOf(target) != Position.KING;
+        }
+
+        /**
+         * Lists the squares a piece may come from by a move that is neither a capture nor a promotion.
+         *
+         * @param to    The square of the piece.
+         * @param piece The piece code.
+         * @return The number of origins written in targets.
+         */
+        private int origins(int to, int piece) {
+            int color = Position.colorOf(piece), type = Position.typeOf(piece), count = 0;
+            if (type == Position.PAWN) {
+                int backward = color == Position.WHITE ? -8 : 8, from = to + backward;
+                int y = Attacks.y(from), start = color == Position.WHITE ? 1 : 6;
+                if (y >= 1 && y <= 6 && board[from] == Position.EMPTY) {
+                    targets[count++] = from;
+                    if (Attacks.y(to) == start - 2 * backward / 8 && board[from + backward] == Position.EMPTY)
+                        targets[count++] = from + backward;
+                }
+                return count;
+            }
+
+            if (type == Position.KING || type == Position.KNIGHT) {
+                for (int from : type == Position.KING ? Attacks.KING[to] : Attacks.KNIGHT[to])
+                    if (board[from] == Position.EMPTY)
+                        targets[count++] = from;
+                return count;
+            }
+            for (int direction = type == Position.BISHOP ? 4 : 0; direction < (type == Position.ROOK ? 4 : 8);
+                 direction++) {
+                for (int from : Attacks.RAYS[to][direction]) {
+                    if (board[from] != Position.EMPTY)
+                        break;
+                    targets[count++] = from;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Indicates if a square is attacked by a side.
+         *
+         * @param square The square.
+         * @param by     The attacking side.
+         * @return true if a piece of the side attacks the square.
+         */
+        private boolean attacked(int square, int by) {
+            int x = Attacks.x(square), pawnY = Attacks.y(square) + (by == Position.WHITE ? -1 : 1);
+            int pawn = Position.piece(by, Position.PAWN);
+            if (pawnY >= 0 && pawnY < 8 && (x > 0 && board[pawnY * 8 + x - 1] == pawn
+                    || x < 7 && board[pawnY * 8 + x + 1] == pawn))
+                return true;
+            for (int from : Attacks.KNIGHT[square])
+                if (board[from] == Position.piece(by, Position.KNIGHT))
+                    return true;
+            for (int from : Attacks.KING[square])
+                if (board[from] == Position.piece(by, Position.KING))
+                    return true;
+            int queen = Position.piece(by, Position.QUEEN);
+            for (int direction = 0; direction < 8; direction++) {
+                int slider = Position.piece(by, direction < 4 ? Position.ROOK : Position.BISHOP);
+                for (int from : Attacks.RAYS[square][direction]) {
+                    int piece = board[from];
+                    if (piece == Position.EMPTY)
+                        continue;
+                    if (piece == slider || piece == queen)
+                        return true;
+                    break;
+                }
+            }
+            return false;
+        }
+    }
+}
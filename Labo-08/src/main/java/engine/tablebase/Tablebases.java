@@ -0,0 +1,251 @@
+package engine.tablebase;
+
+import engine.board.Position;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tablebases of a directory, one file "KQvK.tb" per endgame, probed by the search and the game
+ * adjudication.
+ * <p>
+ * An endgame is probed in the table of its material or, with the colors swapped, in the table of the
+ * mirrored material: KvKQ uses KQvK. The endgames that can't be won (kings alone or with a single minor
+ * piece) need no table and are always drawn.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Tablebases {
+
+    /**
+     * The result of a probe of a position not covered by the tables.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * The extension of the table files.
+     */
+    private static final String EXTENSION = ".tb";
+
+    /**
+     * The directory of the tables.
+     */
+    private final Path directory;
+
+    /**
+     * The tables, by signature of their material.
+     */
+    private final Map<Integer, Tablebase> tables = new ConcurrentHashMap<>();
+
+    /**
+     * The largest number of pieces of a table.
+     */
+    private volatile int maxPieces = 3;
+
+    /**
+     * The pieces of the position probed by each thread, the search probing in every node.
+     */
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Constructs the tablebases of a directory, none loaded.
+     *
+     * @param directory The directory of the tables.
+     */
+    public Tablebases(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Maps all the tables of the directory.
+     *
+     * @return The number of tables loaded.
+     * @throws IOException If the directory or a table can't be read.
+     */
+    public int load() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                add(Tablebase.open(file));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the table of an endgame, and before it the missing tables of its captures and
+     * promotions, unless it is already loaded.
+     *
+     * @param material The endgame.
+     * @return The table, or null if the endgame is always drawn.
+     * @throws IOException If a table can't be written.
+     */
+    public Tablebase generate(Material material) throws IOException {
+        if (material.isDrawn())
+            return null;
+        Tablebase table = tables.get(signature(material));
+        if (table == null)
+            table = tables.get(signature(material.mirror()));
+        if (table != null)
+            return table;
+
+        for (Material successor : material.successors())
+            generate(successor);
+        Path path = directory.resolve(material + EXTENSION);
+        Tablebase.write(path, material, new TablebaseGenerator(this, material).generate());
+        table = Tablebase.open(path);
+        add(table);
+        return table;
+    }
+
+    /**
+     * Gets the largest number of pieces of a table, so that the positions with more pieces are not
+     * probed at all.
+     *
+     * @return The number of pieces, kings included.
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Probes a position. En passant and castling rights are ignored: no table position has them.
+     *
+     * @param position The position.
+     * @return The code (0 for a draw, otherwise the plies to mate plus one) or NOT_FOUND.
+     */
+    public int probe(Position position) {
+        if (position.pieceCount() > maxPieces)
+            return NOT_FOUND;
+        Scratch scratch = scratches.get();
+        int[] pieces = scratch.pieces, squares = scratch.squares;
+        int count = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.EMPTY) {
+                pieces[count] = piece;
+                squares[count++] = square;
+            }
+        }
+        return probe(pieces, squares, count, position.sideToMove());
+    }
+
+    /**
+     * Probes a position given by its pieces.
+     *
+     * @param pieces  The piece codes, in any order; reordered by the probe.
+     * @param squares The square of each piece; reordered by the probe.
+     * @param count   The number of pieces.
+     * @param side    The side to move.
+     * @return The code (0 for a draw, otherwise the plies to mate plus one) or NOT_FOUND.
+     */
+    int probe(int[] pieces, int[] squares, int count, int side) {
+        int signature = 0;
+        for (int i = 0; i < count; i++)
+            signature += signature(pieces[i]);
+        if (isDrawn(signature, count))
+            return 0;
+
+        Tablebase table = tables.get(signature);
+        if (table == null) {
+            table = tables.get(mirror(signature));
+            if (table == null)
+                return NOT_FOUND;
+            for (int i = 0; i < count; i++) {
+                pieces[i] ^= 8;
+                squares[i] ^= 56;
+            }
+            side ^= 1;
+        }
+
+        // sorts the pieces in index order, the squares along
+        for (int i = 1; i < count; i++)
+            for (int j = i; j > 0 && Material.rank(pieces[j]) < Material.rank(pieces[j - 1]); j--) {
+                int piece = pieces[j], square = squares[j];
+                pieces[j] = pieces[j - 1];
+                squares[j] = squares[j - 1];
+                pieces[j - 1] = piece;
+                squares[j - 1] = square;
+            }
+        return table.probe(table.getMaterial().index(side, squares));
+    }
+
+    /**
+     * Adds a table.
+     *
+     * @param table The table.
+     */
+    private void add(Tablebase table) {
+        Material material = table.getMaterial();
+        tables.put(signature(material), table);
+        maxPieces = Math.max(maxPieces, material.size());
+    }
+
+    /**
+     * Computes the signature of a material: 3 bits counting each piece type of each color, kings
+     * excluded.
+     *
+     * @param material The material.
+     * @return The signature.
+     */
+    private static int signature(Material material) {
+        int signature = 0;
+        for (int i = 0; i < material.size(); i++)
+            signature += signature(material.piece(i));
+        return signature;
+    }
+
+    /**
+     * Computes the contribution of a piece to a signature.
+     *
+     * @param piece The piece code.
+     * @return The contribution, 0 for a king.
+     */
+    private static int signature(int piece) {
+        int type = Position.typeOf(piece);
+        return type == Position.KING ? 0 : 1 << 3 * (Position.colorOf(piece) * 5 + type - 1);
+    }
+
+    /**
+     * Swaps the colors of a signature.
+     *
+     * @param signature The signature.
+     * @return The signature of the mirrored material.
+     */
+    private static int mirror(int signature) {
+        return signature >>> 15 | (signature & 0x7FFF) << 15;
+    }
+
+    /**
+     * Indicates if the material of a signature can't be won.
+     *
+     * @param signature The signature.
+     * @param count     The number of pieces.
+     * @return true for the kings alone or with a single minor piece.
+     */
+    private static boolean isDrawn(int signature, int count) {
+        int minors = signature(Position.piece(Position.WHITE, Position.BISHOP))
+                | signature(Position.piece(Position.WHITE, Position.KNIGHT));
+        return count == 2 || count == 3 && (signature & (minors | minors << 15)) != 0;
+    }
+
+    /**
+     * The buffers of the probes of a thread.
+     */
+    private static final class Scratch {
+
+        /**
+         * The piece codes.
+         */
+        private final int[] pieces = new int[Material.MAX_PIECES];
+
+        /**
+         * The square of each piece.
+         */
+        private final int[] squares = new int[Material.MAX_PIECES];
+    }
+}
@@ -0,0 +1,69 @@
+package engine.tools;
+
+import engine.archive.ArchivedGame;
+import engine.archive.GameArchive;
+import engine.archive.GameArchiveWriter;
+import engine.index.DuplicateFilter;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Compresses the games of PGN files into a game archive, then reads the archive back and prints its
+ * size and throughput. With --dedup, the games already seen in the files or in the previous imports
+ * using the same directory are skipped.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class ArchiveCompiler {
+
+    /**
+     * Compresses the games.
+     *
+     * @param args Optionally --dedup and the directory of the fingerprints, then the path of the archive
+     *             and the PGN files.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        int first = args.length > 0 && args[0].equals("--dedup") ? 2 : 0;
+        if (args.length < first + 2) {
+            System.err.println("Usage: ArchiveCompiler [--dedup <directory>] <output.garc> <games.pgn>...");
+            System.exit(1);
+        }
+        Path output = Path.of(args[first]);
+        long start = System.nanoTime(), pgnBytes = 0, plies = 0;
+        try (GameArchiveWriter writer = GameArchiveWriter.create(output);
+             DuplicateFilter filter = first > 0 ? DuplicateFilter.open(Path.of(args[1])) : null) {
+            for (int i = first + 1; i < args.length; i++) {
+                pgnBytes += Files.size(Path.of(args[i]));
+                try (Stream<PgnGame> games = PgnReader.read(Path.of(args[i]))) {
+                    for (PgnGame game : (Iterable<PgnGame>) games::iterator) {
+                        if (filter != null && !filter.add(game))
+                            continue;
+                        writer.add(game);
+                        plies += game.getMoves().length;
+                    }
+                }
+            }
+            if (filter != null)
+                System.out.printf("%d duplicates in %d games, %d searches on disk, %d bytes of filter%n",
+                        filter.getDuplicates(), filter.getGames(), filter.getLookups(), filter.getFilterBytes());
+        }
+        double written = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        long games = 0;
+        try (GameArchive archive = GameArchive.open(output)) {
+            for (ArchivedGame game : archive)
+                games += game.getMoves().length >= 0 ? 1 : 0;
+        }
+        double read = (System.nanoTime() - start) / 1e9;
+        long size = Files.size(output);
+        System.out.printf("%d games, %d bytes (%.1f per game, %.2f bits per ply, %.1f%% of the PGN)%n", games, size,
+                (double) size / Math.max(1, games), size * 8.0 / Math.max(1, plies), size * 100.0 / pgnBytes);
+        System.out.printf("written in %.1f s, read in %.1f s (%.0f games/s)%n", written, read, games / read);
+    }
+}
@@ -0,0 +1,92 @@
+package engine.tools;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.notation.San;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+
+/**
+ * Searches a fixed set of positions to a fixed depth on a single thread, as a smoke test of a build
+ * or a host. The total number of nodes is a signature of the search: it only changes when the search
+ * or the evaluation behaves differently. The nodes per second tell if the host or the build is slower.
+ * <p>
+ * Each position is searched with a fresh search and a cleared table, so that the signature doesn't
+ * depend on the order of the positions nor on the previous searches.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class Bench {
+
+    /**
+     * The default depth of the searches.
+     */
+    public static final int DEFAULT_DEPTH = 6;
+
+    /**
+     * The positions searched, as the moves leading to them from the initial position: openings,
+     * middle games and a queenless middle game.
+     */
+    private static final String[] POSITIONS = {
+            "",
+            "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 O-O Be7",
+            "d4 Nf6 c4 e6 Nc3 Bb4 e3 O-O Bd3 d5 Nf3 c5 O-O",
+            "e4 c5 Nf3 d6 d4 cxd4 Nxd4 Nf6 Nc3 a6 Be3 e5 Nb3 Be6 f3",
+            "e4 e6 d4 d5 Nc3 Bb4 e5 c5 a3 Bxc3+ bxc3 Ne7 Qg4 Qc7",
+            "d4 d5 c4 c6 Nf3 Nf6 Nc3 dxc4 a4 Bf5 e3 e6 Bxc4 Bb4 O-O O-O",
+            "c4 e5 Nc3 Nf6 g3 d5 cxd5 Nxd5 Bg2 Nb6 Nf3 Nc6 O-O Be7 d3 O-O a3",
+            "e4 e5 Nf3 Nc6 d4 exd4 Nxd4 Nf6 Nxc6 bxc6 e5 Qe7 Qe2 Nd5 c4 Ba6 b3 g6 f4",
+            "d4 d5 c4 e6 Nc3 Nf6 Bg5 Be7 e3 O-O Nf3 h6 Bh4 b6 cxd5 Nxd5 Bxe7 Qxe7 Nxd5 exd5 Rc1 Be6 Qa4 c5 "
+                    + "Qa3 Rc8 Bb5 a6 dxc5 bxc5 O-O Ra7 Be2 Nd7 Nd4 Qf8 Nxe6 fxe6 e4 d4 f4 Qe7 e5 Rb8 Bc4 Kh8",
+            "e4 e5 Nf3 Nc6 Bc4 Bc5 c3 Nf6 d4 exd4 cxd4 Bb4+ Bd2 Bxd2+ Nbxd2 d5 exd5 Nxd5 Qb3 Nce7 O-O O-O "
+                    + "Rfe1 c6 a4 Qb6 Qxb6 axb6 Ne4 Nf5 Nc3 Nxc3 bxc3 Rd8 Rad1 Bd7 Kf1 Kf8 Ne5 Be8 Ke2 Ke7"
+    };
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optionally the depth of the searches.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        TranspositionTable table = new TranspositionTable(16);
+        long nodes = 0, nanos = 0;
+
+        for (int i = 0; i < POSITIONS.length; i++) {
+            Position position = position(POSITIONS[i]);
+            table.clear();
+            Search search = new Search(table, new HandcraftedEvaluator());
+            long start = System.nanoTime();
+            SearchResult result = search.think(position, depth, Long.MAX_VALUE, null);
+            nanos += System.nanoTime() - start;
+            nodes += result.getNodes();
+            System.out.printf("position %2d: %10d nodes, best move %s%n", i + 1, result.getNodes(),
+                    Move.toString(result.getBestMove()));
+        }
+
+        long millis = Math.max(1, nanos / 1_000_000);
+        System.out.printf("bench: %d nodes, %d nps, %d ms, depth %d%n", nodes, nodes * 1000 / millis, millis, depth);
+    }
+
+    /**
+     * Plays moves from the initial position.
+     *
+     * @param moves The moves, in standard algebraic notation separated by spaces.
+     * @return The position reached.
+     * @throws IllegalStateException If a move is illegal.
+     */
+    private static Position position(String moves) {
+        Position position = new Position();
+        for (String san : moves.split(" ")) {
+            if (san.isEmpty())
+                continue;
+            int move = San.parse(position, san);
+            if (move == Move.NONE)
+                throw new IllegalStateException("Illegal bench move " + san + " in " + moves);
+            position.make(move);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,37 @@
+package engine.tools;
+
+import engine.book.BookBuilder;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Compiles an opening book from PGN files.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class BookCompiler {
+
+    /**
+     * Compiles the book.
+     *
+     * @param args The path of the book, the number of plies kept, the minimum weight of a move and the PGN files.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: BookCompiler <output.book> <plies> <min weight> <games.pgn>...");
+            System.exit(1);
+        }
+        BookBuilder builder = new BookBuilder(Integer.parseInt(args[1]));
+        for (int i = 3; i < args.length; i++) {
+            try (Stream<PgnGame> games = PgnReader.read(Path.of(args[i]))) {
+                builder.add(games.iterator());
+            }
+        }
+        long entries = builder.write(Path.of(args[0]), Integer.parseInt(args[2]));
+        System.out.printf("%d games, %d entries%n", builder.getGames(), entries);
+    }
+}
@@ -0,0 +1,50 @@
+package engine.tools;
+
+import engine.eval.HandcraftedEvaluator;
+import engine.suite.EpdRecord;
+import engine.suite.SuiteReport;
+import engine.suite.SuiteRunner;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyses EPD test suites under a budget of nodes or of time per position, on all the processors or
+ * on the number of threads given, then writes the report to compare with the report of another build.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class EpdSuite {
+
+    /**
+     * Analyses the suites.
+     *
+     * @param args "nodes" or "time" and the budget of a position (nodes or milliseconds), the number of
+     *             threads (0 for all the processors), the path of the report, then the EPD files.
+     * @throws IOException          If a file can't be read or written.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 5 || !args[0].equals("nodes") && !args[0].equals("time")) {
+            System.err.println("Usage: EpdSuite nodes <nodes> <threads> <report.tsv> <suite.epd>...");
+            System.err.println("       EpdSuite time <milliseconds> <threads> <report.tsv> <suite.epd>...");
+            System.exit(1);
+        }
+        long budget = Long.parseLong(args[1]);
+        int threads = Integer.parseInt(args[2]);
+        if (threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+        List<EpdRecord> records = new ArrayList<>();
+        for (int i = 4; i < args.length; i++)
+            records.addAll(EpdRecord.read(Path.of(args[i])));
+
+        SuiteRunner runner = args[0].equals("nodes") ? new SuiteRunner(threads, budget, 0, HandcraftedEvaluator::new)
+                : new SuiteRunner(threads, Long.MAX_VALUE, budget, HandcraftedEvaluator::new);
+        SuiteReport report = runner.run(records);
+        report.write(Path.of(args[3]));
+        System.out.printf("%d/%d solved (%.1f%%), %d nodes, %d ms, %d nps on %d threads%n", report.getSolved(),
+                records.size(), report.getSolved() * 100.0 / Math.max(1, records.size()), report.getNodes(),
+                report.getMillis(), report.getNps(), threads);
+    }
+}
@@ -0,0 +1,111 @@
+package engine.tools;
+
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.eval.HandcraftedEvaluator;
+import engine.eval.nnue.DenseKernel;
+import engine.eval.nnue.Network;
+import engine.eval.nnue.NnueEvaluator;
+import engine.eval.nnue.ScalarKernel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the evaluations per second of the handcrafted evaluator and of the neural network, with
+ * both kernels, on the same random games. Each game is played move by move and evaluated after each
+ * move, then unmade, as a search would do.
+ * <p>
+ * Run with --add-modules jdk.incubator.vector to measure the SIMD kernel.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class EvalBenchmark {
+
+    /**
+     * The number of random games played.
+     */
+    private static final int GAMES = 2000;
+
+    /**
+     * The maximum length of a random game.
+     */
+    private static final int PLIES = 120;
+
+    /**
+     * The number of measures of each evaluator, the first ones warming up the JIT.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Unused.
+     */
+    public static void main(String[] args) {
+        int[][] games = randomGames(new Random(20230601));
+        Network network = Network.loadDefault();
+        DenseKernel best = DenseKernel.best();
+
+        measure("handcrafted", new HandcraftedEvaluator(), games);
+        measure("nnue " + new ScalarKernel(), new NnueEvaluator(network, new ScalarKernel()), games);
+        if (!(best instanceof ScalarKernel))
+            measure("nnue " + best, new NnueEvaluator(network, best), games);
+    }
+
+    /**
+     * Plays random legal games from the initial position.
+     *
+     * @param random The random generator.
+     * @return The moves of each game.
+     */
+    private static int[][] randomGames(Random random) {
+        Position position = new Position();
+        int[] moves = new int[Position.MAX_MOVES];
+        int[][] games = new int[GAMES][];
+        for (int game = 0; game < GAMES; game++) {
+            position.reset();
+            int ply = 0;
+            int[] played = new int[PLIES];
+            while (ply < PLIES) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    break;
+                played[ply] = moves[random.nextInt(count)];
+                position.make(played[ply++]);
+            }
+            games[game] = Arrays.copyOf(played, ply);
+        }
+        return games;
+    }
+
+    /**
+     * Measures an evaluator and prints its best speed.
+     *
+     * @param name      The name of the evaluator.
+     * @param evaluator The evaluator.
+     * @param games     The games to replay.
+     */
+    private static void measure(String name, Evaluator evaluator, int[][] games) {
+        Position position = new Position();
+        if (evaluator instanceof NnueEvaluator)
+            position.attach((NnueEvaluator) evaluator);
+
+        double best = 0;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long evaluations = 0, start = System.nanoTime();
+            for (int[] game : games) {
+                position.reset();
+                for (int move : game) {
+                    position.make(move);
+                    checksum += evaluator.evaluate(position);
+                    evaluations++;
+                }
+                for (int i = 0; i < game.length; i++)
+                    position.unmake();
+            }
+            best = Math.max(best, evaluations * 1e9 / (System.nanoTime() - start));
+        }
+        System.out.printf("%-24s %,12.0f evals/s   (checksum %d)%n", name, best, checksum);
+    }
+}
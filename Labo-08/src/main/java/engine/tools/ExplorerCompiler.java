@@ -0,0 +1,41 @@
+package engine.tools;
+
+import engine.index.OpeningExplorerBuilder;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Builds an opening explorer from PGN files.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class ExplorerCompiler {
+
+    /**
+     * Builds the explorer.
+     *
+     * @param args The path of the explorer, the number of plies kept and the PGN files.
+     * @throws IOException          If a file can't be read or written.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: ExplorerCompiler <output.explorer> <plies> <games.pgn>...");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        OpeningExplorerBuilder builder = new OpeningExplorerBuilder(Integer.parseInt(args[1]), threads);
+        for (int i = 2; i < args.length; i++) {
+            try (Stream<PgnGame> games = PgnReader.read(Path.of(args[i]), threads)) {
+                builder.add(games.iterator());
+            }
+        }
+        long entries = builder.write(Path.of(args[0]));
+        System.out.printf("%d games, %d entries, %.1f s%n", builder.getGames(), entries,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
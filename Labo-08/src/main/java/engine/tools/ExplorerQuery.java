@@ -0,0 +1,44 @@
+package engine.tools;
+
+import engine.board.Position;
+import engine.index.OpeningExplorer;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Prints the moves played in a position with their number of games and their results.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class ExplorerQuery {
+
+    /**
+     * Queries the explorer.
+     *
+     * @param args The path of the explorer and the FEN of the position, the initial position by default.
+     * @throws IOException If the explorer can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ExplorerQuery <games.explorer> [fen]");
+            System.exit(1);
+        }
+        OpeningExplorer explorer = OpeningExplorer.open(Path.of(args[0]));
+        Position position = Fen.parse(args.length > 1 ? args[1] : Fen.INITIAL);
+        int[] moves = new int[Position.MAX_MOVES], results = new int[Position.MAX_MOVES * 3];
+
+        long start = System.nanoTime();
+        int count = explorer.lookup(position.key(), moves, results);
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < count; i++) {
+            int white = results[i * 3], draws = results[i * 3 + 1], black = results[i * 3 + 2];
+            double games = white + draws + black;
+            System.out.printf("%-8s %8d games  %5.1f%% white  %5.1f%% draws  %5.1f%% black%n",
+                    San.toString(position, moves[i]), white + draws + black, white * 100 / games,
+                    draws * 100 / games, black * 100 / games);
+        }
+        System.out.printf("%d moves, %.1f us%n", count, elapsed / 1e3);
+    }
+}
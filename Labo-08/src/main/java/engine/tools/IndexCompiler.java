@@ -0,0 +1,40 @@
+package engine.tools;
+
+import engine.index.PositionIndexBuilder;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Builds the index of the positions reached by the games of a PGN file.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class IndexCompiler {
+
+    /**
+     * Builds the index.
+     *
+     * @param args The path of the index and the PGN file.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: IndexCompiler <output.idx> <games.pgn>");
+            System.exit(1);
+        }
+        Path output = Path.of(args[0]).toAbsolutePath();
+        long start = System.nanoTime();
+        PositionIndexBuilder builder = new PositionIndexBuilder(output.getParent(),
+                PositionIndexBuilder.DEFAULT_RUN_PAIRS);
+        try (Stream<PgnGame> games = PgnReader.read(Path.of(args[1]))) {
+            for (PgnGame game : (Iterable<PgnGame>) games::iterator)
+                builder.add(game);
+        }
+        long keys = builder.write(output);
+        System.out.printf("%d games, %d positions, %.1f s%n", builder.getGames(), keys,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,37 @@
+package engine.tools;
+
+import engine.index.PositionIndex;
+import engine.notation.Fen;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Prints the games of a PGN database reaching a position, with their offset in the PGN file.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class IndexQuery {
+
+    /**
+     * Queries the index.
+     *
+     * @param args The path of the index, the FEN of the position and optionally the maximum number of games.
+     * @throws IOException If the index can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: IndexQuery <positions.idx> <fen> [max games]");
+            System.exit(1);
+        }
+        PositionIndex index = PositionIndex.open(Path.of(args[0]));
+        long key = Fen.parse(args[1]).key();
+        long[] games = new long[args.length > 2 ? Integer.parseInt(args[2]) : 20];
+
+        long start = System.nanoTime();
+        int count = index.lookup(key, games);
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < count; i++)
+            System.out.printf("game %d at offset %d%n", games[i], index.offset(games[i]));
+        System.out.printf("%d of %d games, %.1f us%n", count, index.count(key), elapsed / 1e3);
+    }
+}
@@ -0,0 +1,32 @@
+package engine.tools;
+
+import engine.eval.EvalParameters;
+import engine.eval.nnue.Network;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the untrained network approximating the handcrafted evaluation, shipped as the default
+ * network in src/main/resources/engine/eval/nnue/default.nnue.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class NetworkBootstrap {
+
+    /**
+     * Writes the network.
+     *
+     * @param args The path of the file to write.
+     * @throws IOException If the file can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: NetworkBootstrap <output.nnue>");
+            System.exit(1);
+        }
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            Network.bootstrap(new EvalParameters()).write(out);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package engine.tools;
+
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Replays the games of PGN files and prints the games that can't be replayed, with the line of the
+ * error, then the number of games and the throughput.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class PgnCheck {
+
+    /**
+     * Checks the files.
+     *
+     * @param args The PGN files, optionally preceded by "--threads" and the number of workers.
+     * @throws IOException If a file can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors(), first = 0;
+        if (args.length > 1 && args[0].equals("--threads")) {
+            threads = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length == first) {
+            System.err.println("Usage: PgnCheck [--threads <workers>] <games.pgn>...");
+            System.exit(1);
+        }
+
+        for (int i = first; i < args.length; i++) {
+            Path path = Path.of(args[i]);
+            long start = System.nanoTime(), games = 0, invalid = 0, plies = 0;
+            try (Stream<PgnGame> stream = PgnReader.read(path, threads)) {
+                for (PgnGame game : (Iterable<PgnGame>) stream::iterator) {
+                    games++;
+                    plies += game.getMoves().length;
+                    if (!game.isValid()) {
+                        invalid++;
+                        System.out.println(path + ": " + game);
+                    }
+                }
+            }
+            double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+            System.out.printf("%s: %d games, %d invalid, %d plies, %.0f games/s, %.1f MB/s, %d workers%n", path,
+                    games, invalid, plies, games / seconds, Files.size(path) / seconds / 1e6, threads);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package engine.tools;
+
+import engine.eval.HandcraftedEvaluator;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import engine.puzzle.PuzzleMiner;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Finds the tactical puzzles of PGN files and writes them, one record per line. A quarter of the
+ * processors replay the games, all of them verify the candidates.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class PuzzleMine {
+
+    /**
+     * Finds the puzzles.
+     *
+     * @param args The file of the puzzles, the depth of the verification, then the PGN files.
+     * @throws IOException          If a file can't be read or written.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: PuzzleMine <puzzles.tsv> <depth> <games.pgn>...");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        PuzzleMiner miner = new PuzzleMiner(Math.max(1, threads / 4), threads, Integer.parseInt(args[1]),
+                HandcraftedEvaluator::new);
+        try (BufferedWriter writer = Files.newBufferedWriter(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            for (int i = 2; i < args.length; i++) {
+                try (Stream<PgnGame> games = PgnReader.read(Path.of(args[i]))) {
+                    miner.mine(games.iterator(), writer);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d puzzles from %d candidates in %d games, %.1f s (%.0f games/s)%n", miner.getPuzzles(),
+                miner.getCandidates(), miner.getGames(), seconds, miner.getGames() / seconds);
+    }
+}
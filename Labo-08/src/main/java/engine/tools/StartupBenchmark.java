@@ -0,0 +1,48 @@
+package engine.tools;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time to the first move of a freshly started JVM: the tables initialisation, then a
+ * shallow search of the initial position. The build runs it to dump the class data archive mapped by
+ * the JVM at startup; run it with and without the archive to compare:
+ * <pre>
+ * java -XX:SharedArchiveFile=Labo-08-1.0-SNAPSHOT-launcher.jsa -cp Labo-08-1.0-SNAPSHOT-launcher.jar \
+ *         engine.tools.StartupBenchmark
+ * java -cp Labo-08-1.0-SNAPSHOT-launcher.jar engine.tools.StartupBenchmark
+ * </pre>
+ * The archive is only valid for the JDK that wrote it, the JVM ignores it otherwise.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class StartupBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optionally the depth of the first search, 1 by default.
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        Position position = new Position();
+        long tables = System.nanoTime();
+        SearchResult result = new Search(new TranspositionTable(1), new HandcraftedEvaluator())
+                .think(position, depth, Long.MAX_VALUE, null);
+        long end = System.nanoTime();
+
+        long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        boolean archive = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile"));
+        System.out.printf("class data archive %s, tables: %.3f ms, first move %s: %.3f ms, %d ms since the JVM start%n",
+                archive ? "on" : "off", (tables - start) / 1e6,
+                Move.toString(result.getBestMove()), (end - start) / 1e6, sinceJvmStart);
+    }
+}
@@ -0,0 +1,38 @@
+package engine.tools;
+
+import engine.tablebase.Material;
+import engine.tablebase.Tablebase;
+import engine.tablebase.Tablebases;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates endgame tablebases, with the smaller tables they depend on.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TablebaseBuilder {
+
+    /**
+     * Generates the tables.
+     *
+     * @param args The directory of the tables and the endgames, e.g. KQvK KRvK KPvK KBNvK.
+     * @throws IOException If a table can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseBuilder <directory> <endgame>...");
+            System.exit(1);
+        }
+        Path directory = Files.createDirectories(Path.of(args[0]));
+        Tablebases tablebases = new Tablebases(directory);
+        tablebases.load();
+        for (int i = 1; i < args.length; i++) {
+            long start = System.currentTimeMillis();
+            Tablebase table = tablebases.generate(Material.parse(args[i]));
+            System.out.printf("%s: %s in %d ms%n", args[i], table == null ? "drawn, no table" : "ready",
+                    System.currentTimeMillis() - start);
+        }
+    }
+}
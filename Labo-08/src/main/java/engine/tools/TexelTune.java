@@ -0,0 +1,66 @@
+package engine.tools;
+
+import engine.eval.EvalParameters;
+import engine.eval.TexelTuner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tunes the parameters of the handcrafted evaluation on labelled positions and writes the table
+ * loaded by the engine, e.g. as the resource EvalParameters.DEFAULT_RESOURCE.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TexelTune {
+
+    /**
+     * Runs the tuning.
+     *
+     * @param args The output parameters, the number of iterations, the learning rate, the labelled
+     *             positions files, and optionally "--from" and the parameters to start from.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: TexelTune <output.params> <iterations> <learning rate> <positions.epd>... "
+                    + "[--from <initial.params>]");
+            System.exit(1);
+        }
+        EvalParameters initial = new EvalParameters();
+        TexelTuner tuner = new TexelTuner();
+        long start = System.currentTimeMillis();
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("--from") && i + 1 < args.length) {
+                try (InputStream in = Files.newInputStream(Path.of(args[++i]))) {
+                    initial = EvalParameters.load(in);
+                }
+            } else {
+                try (Reader in = Files.newBufferedReader(Path.of(args[i]), StandardCharsets.ISO_8859_1)) {
+                    tuner.read(in);
+                }
+            }
+        }
+        System.out.printf("%d quiet positions, %d rejected, loaded in %d ms%n", tuner.size(), tuner.getRejected(),
+                System.currentTimeMillis() - start);
+
+        double[] values = new double[EvalParameters.SIZE];
+        for (int i = 0; i < values.length; i++)
+            values[i] = initial.get(i);
+        start = System.currentTimeMillis();
+        double scale = tuner.fitScale(values);
+        System.out.printf("scale %.3f, error %.6f%n", scale, tuner.error(values, scale));
+
+        EvalParameters tuned = tuner.tune(initial, Integer.parseInt(args[1]), Double.parseDouble(args[2]));
+        for (int i = 0; i < values.length; i++)
+            values[i] = tuned.get(i);
+        System.out.printf("tuned error %.6f in %d ms%n", tuner.error(values, scale), System.currentTimeMillis() - start);
+        try (OutputStream out = Files.newOutputStream(Path.of(args[0]))) {
+            tuned.write(out);
+        }
+    }
+}
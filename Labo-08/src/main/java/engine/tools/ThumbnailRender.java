@@ -0,0 +1,45 @@
+package engine.tools;
+
+import engine.render.BoardRenderer;
+import engine.render.ThumbnailWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Writes the PNG thumbnails of the positions of FEN or EPD files, one position per line, on all the
+ * processors and without any display.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class ThumbnailRender {
+
+    /**
+     * Writes the thumbnails.
+     *
+     * @param args The directory of the thumbnails, the size of a square in pixels, then the files.
+     * @throws IOException          If a file can't be read or written.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: ThumbnailRender <directory> <square size> <positions.fen>...");
+            System.exit(1);
+        }
+        // set before the first use of AWT, so that no display is needed
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThumbnailWriter writer = new ThumbnailWriter(new BoardRenderer(), threads, Integer.parseInt(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            try (Stream<String> lines = Files.lines(Path.of(args[i]), StandardCharsets.ISO_8859_1)) {
+                writer.write(lines.iterator(), Path.of(args[0]));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d thumbnails, %d invalid lines, %.1f s (%.0f images/s on %d threads)%n",
+                writer.getWritten(), writer.getInvalid(), seconds, writer.getWritten() / seconds, threads);
+    }
+}
@@ -0,0 +1,55 @@
+package engine.tools;
+
+import engine.eval.HandcraftedEvaluator;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import engine.training.TrainingDataGenerator;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Generates training data for the evaluation, from PGN files or from games played by the engine.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public class TrainingDataGen {
+
+    /**
+     * The number of random plies opening a game played.
+     */
+    private static final int RANDOM_PLIES = 8;
+
+    /**
+     * Generates the data.
+     *
+     * @param args The directory of the shards, the depth of the search (0 for the static evaluation), then
+     *             either "pgn" and the PGN files, or "selfplay" and the number of games.
+     * @throws IOException          If a file can't be read or written.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4 || !args[2].equals("pgn") && !args[2].equals("selfplay")) {
+            System.err.println("Usage: TrainingDataGen <directory> <depth> pgn <games.pgn>...");
+            System.err.println("       TrainingDataGen <directory> <depth> selfplay <games>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (TrainingDataGenerator generator = new TrainingDataGenerator(Path.of(args[0]), threads,
+                Integer.parseInt(args[1]), HandcraftedEvaluator::new)) {
+            if (args[2].equals("selfplay")) {
+                generator.selfPlay(Long.parseLong(args[3]), RANDOM_PLIES, System.nanoTime());
+            } else {
+                for (int i = 3; i < args.length; i++) {
+                    try (Stream<PgnGame> games = PgnReader.read(Path.of(args[i]), threads)) {
+                        generator.fromGames(games.iterator());
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d positions in %d shards, %.1f s, %.2f M positions/min%n", generator.getPositions(),
+                    threads, seconds, generator.getPositions() / seconds * 60 / 1e6);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package engine.training;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.Evaluator;
+import engine.eval.TexelTuner;
+import engine.pgn.PgnGame;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Generates training data for the evaluation: positions labelled with their score and the result of
+ * their game, packed in records of 32 bytes (see TrainingRecord).
+ * <p>
+ * The positions come from games read from PGN files or played by the engine against itself. Each
+ * worker thread has its own shard file, written through a direct buffer of a megabyte, its own
+ * evaluator and its own search, so that the workers share nothing but the games to replay. Only the
+ * positions whose score is meaningful are kept: not in check, quiet for a static evaluation, without
+ * a capture or a promotion as best move for a search, and not a mate.
+ * <p>
+ * A shard starts with a header the size of a record (magic, version, size of a record), followed by
+ * the records.
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class TrainingDataGenerator implements AutoCloseable {
+
+    /**
+     * The magic number of the shard files ("TDAT").
+     */
+    public static final int MAGIC = 0x54444154;
+
+    /**
+     * The version of the format of the shard files.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of plies of a game skipped, its opening being known rather than evaluated.
+     */
+    public static final int MIN_PLY = 8;
+
+    /**
+     * The maximum number of nodes of the search of a position.
+     */
+    static final long MAX_NODES = 1 << 16;
+
+    /**
+     * The number of plies after which a game played is drawn.
+     */
+    private static final int MAX_PLIES = 400;
+
+    /**
+     * The number of games given to a worker at once.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The size of the output buffer of a worker.
+     */
+    private static final int OUTPUT_BYTES = 1 << 20;
+
+    /**
+     * The size of the transposition table of a worker, in megabytes.
+     */
+    private static final int TABLE_MEGABYTES = 8;
+
+    /**
+     * The workers, each one writing its shard.
+     */
+    private final Worker[] workers;
+
+    /**
+     * The first error of a worker, or null.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Creates the shards of a generator.
+     *
+     * @param directory  The directory of the shards, created if needed. The shards of the same name are replaced.
+     * @param threads    The number of workers and shards.
+     * @param depth      The depth of the search of a position, or 0 for its static evaluation.
+     * @param evaluators Creates the evaluator of each worker.
+     * @throws IOException If a shard can't be created.
+     */
+    public TrainingDataGenerator(Path directory, int threads, int depth, Supplier<? extends Evaluator> evaluators)
+            throws IOException {
+        Files.createDirectories(directory);
+        workers = new Worker[threads];
+        try {
+            for (int i = 0; i < threads; i++)
+                workers[i] = new Worker(i, shard(directory, i), depth, evaluators.get());
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the path of a shard.
+     *
+     * @param directory The directory of the shards.
+     * @param index     The index of the shard, from 0.
+     * @return The path of the shard.
+     */
+    public static Path shard(Path directory, int index) {
+        return directory.resolve(String.format("shard-%03d.tdat", index));
+    }
+
+    /**
+     * Gets the number of records written.
+     *
+     * @return The number of positions written to all the shards.
+     */
+    public long getPositions() {
+        long positions = 0;
+        for (Worker worker : workers)
+            positions += worker.written;
+        return positions;
+    }
+
+    /**
+     * Writes the positions of games, replayed on the workers. The games not finished are skipped, the
+     * games with an error only give the positions before it.
+     *
+     * @param source The games.
+     * @return The number of positions written.
+     * @throws IOException          If a shard can't be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public long fromGames(Iterator<PgnGame> source) throws IOException, InterruptedException {
+        long before = getPositions();
+        BlockingQueue<List<PgnGame>> queue = new ArrayBlockingQueue<>(workers.length * 4);
+        List<PgnGame> end = new ArrayList<>();
+        Thread[] threads = start(worker -> {
+            for (List<PgnGame> batch = queue.take(); batch != end; batch = queue.take()) {
+                // a worker which failed still takes its batches, so that the reader never waits for it
+                for (int i = 0; i < batch.size() && failure == null; i++) {
+                    try {
+                        worker.replay(batch.get(i));
+                    } catch (Throwable e) {
+                        if (failure == null)
+                            failure = e;
+                    }
+                }
+            }
+        });
+
+        try {
+            List<PgnGame> batch = new ArrayList<>(BATCH);
+            while (source.hasNext() && failure == null) {
+                PgnGame game = source.next();
+                if (result(game.getResult()) == 2)
+                    continue;
+                batch.add(game);
+                if (batch.size() == BATCH) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty())
+                queue.put(batch);
+            for (int i = 0; i < threads.length; i++)
+                queue.put(end);
+            join(threads);
+        } finally {
+            for (Thread thread : threads)
+                thread.interrupt();
+        }
+        return getPositions() - before;
+    }
+
+    /**
+     * Writes the positions of games played by the engine against itself, each game starting with random
+     * moves so that the games differ.
+     *
+     * @param games       The number of games to play.
+     * @param randomPlies The number of random plies opening each game.
+     * @param seed        The seed of the random moves.
+     * @return The number of positions written.
+     * @throws IOException          If a shard can't be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public long selfPlay(long games, int randomPlies, long seed) throws IOException, InterruptedException {
+        long before = getPositions();
+        AtomicLong remaining = new AtomicLong(games);
+        Thread[] threads = start(worker -> {
+            Random random = new Random(seed + worker.index);
+            while (failure == null && remaining.getAndDecrement() > 0)
+                worker.play(random, randomPlies);
+        });
+        try {
+            join(threads);
+        } finally {
+            for (Thread thread : threads)
+                thread.interrupt();
+        }
+        return getPositions() - before;
+    }
+
+    /**
+     * Closes the shards.
+     *
+     * @throws IOException If a shard can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Worker worker : workers) {
+            try {
+                if (worker != null)
+                    worker.channel.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Starts a thread per worker, each one flushing its shard when its task ends.
+     *
+     * @param task The task of a worker.
+     * @return The threads.
+     */
+    private Thread[] start(Task task) {
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < threads.length; i++) {
+            Worker worker = workers[i];
+            threads[i] = new Thread(() -> {
+                try {
+                    task.run(worker);
+                    worker.flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    if (failure == null)
+                        failure = e;
+                }
+            }, "training-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    /**
+     * Waits for the workers, then throws the first error of a worker.
+     *
+     * @param threads The threads of the workers.
+     * @throws IOException          If a shard couldn't be written.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private void join(Thread[] threads) throws IOException, InterruptedException {
+        for (Thread thread : threads)
+            thread.join();
+        Throwable error = failure;
+        failure = null;
+        // a task only throws the checked IOException, the others are unchecked
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error != null)
+            throw (Error) error;
+    }
+
+    /**
+     * Gets the result of a game for white.
+     *
+     * @param result The result of the game.
+     * @return 1, 0 or -1, or 2 if the game is not finished.
+     */
+    private static int result(String result) {
+        switch (result) {
+            case "1-0":
+                return 1;
+            case "0-1":
+                return -1;
+            case "1/2-1/2":
+                return 0;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * The work of a worker.
+     */
+    private interface Task {
+
+        /**
+         * Runs the work.
+         *
+         * @param worker The worker.
+         * @throws IOException          If the shard can't be written.
+         * @throws InterruptedException If the thread is interrupted.
+         */
+        void run(Worker worker) throws IOException, InterruptedException;
+    }
+
+    /**
+     * A worker, with its shard and all it needs to evaluate positions.
+     */
+    private static final class Worker {
+
+        /**
+         * The index of the worker.
+         */
+        private final int index;
+
+        /**
+         * The shard.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The records not written to the shard yet.
+         */
+        private final ByteBuffer out = ByteBuffer.allocateDirect(OUTPUT_BYTES);
+
+        /**
+         * The records of the game being played, whose result is not known yet.
+         */
+        private ByteBuffer game = ByteBuffer.allocate(TrainingRecord.BYTES * MAX_PLIES);
+
+        /**
+         * The depth of the search, or 0 for the static evaluation.
+         */
+        private final int depth;
+
+        /**
+         * The evaluator.
+         */
+        private final Evaluator evaluator;
+
+        /**
+         * The search, created when first needed.
+         */
+        private Search search;
+
+        /**
+         * The position of the game played.
+         */
+        private final Position position = new Position();
+
+        /**
+         * The buffer of the moves.
+         */
+        private final int[] moves = new int[Position.MAX_MOVES];
+
+        /**
+         * The number of records written.
+         */
+        private long written;
+
+        /**
+         * Creates the shard of a worker and writes its header.
+         *
+         * @param index     The index of the worker.
+         * @param path      The path of the shard.
+         * @param depth     The depth of the search, or 0 for the static evaluation.
+         * @param evaluator The evaluator, owned by the worker.
+         * @throws IOException If the shard can't be created.
+         */
+        private Worker(int index, Path path, int depth, Evaluator evaluator) throws IOException {
+            this.index = index;
+            this.depth = depth;
+            this.evaluator = evaluator;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            out.putInt(MAGIC).putInt(VERSION).putInt(TrainingRecord.BYTES);
+            out.position(TrainingRecord.BYTES);
+        }
+
+        /**
+         * Writes the positions of a game.
+         *
+         * @param game The game, finished.
+         * @throws IOException If the shard can't be written.
+         */
+        private void replay(PgnGame game) throws IOException {
+            int white = result(game.getResult());
+            Position replayed = game.startPosition();
+            int[] played = game.getMoves();
+            for (int ply = 0; ; ply++) {
+                if (ply >= MIN_PLY) {
+                    int score = score(replayed);
+                    if (score != Search.INFINITY) {
+                        flushIfFull(TrainingRecord.BYTES);
+                        TrainingRecord.pack(replayed, score, replayed.sideToMove() == Position.WHITE ? white : -white,
+                                out);
+                        written++;
+                    }
+                }
+                if (ply == played.length)
+                    break;
+                replayed.make(played[ply]);
+            }
+        }
+
+        /**
+         * Plays a game against itself and writes its positions once its result is known.
+         *
+         * @param random      The random generator of the opening moves.
+         * @param randomPlies The number of random plies opening the game.
+         * @throws IOException If the shard can't be written.
+         */
+        private void play(Random random, int randomPlies) throws IOException {
+            position.reset();
+            for (int ply = 0; ply < randomPlies; ply++) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    return;
+                position.make(moves[random.nextInt(count)]);
+            }
+
+            game.clear();
+            int white;
+            while (true) {
+                int side = position.sideToMove();
+                if (position.legalMoves(moves) == 0) {
+                    white = position.inCheck() ? (side == Position.WHITE ? -1 : 1) : 0;
+                    break;
+                }
+                if (position.halfmoveClock() >= 100 || position.isRepetition() || position.ply() >= MAX_PLIES) {
+                    white = 0;
+                    break;
+                }
+                SearchResult result = search().think(position, Math.max(depth, 1), MAX_NODES, null);
+                int move = result.getPv().length > 0 ? result.getPv()[0] : moves[0];
+                // a mate found ends the game, its positions being scored by the search
+                if (Math.abs(result.getScore()) >= Search.MATE_BOUND) {
+                    white = result.getScore() > 0 == (side == Position.WHITE) ? 1 : -1;
+                    break;
+                }
+                if (!position.inCheck() && !isNoisy(position, move)) {
+                    if (game.remaining() < TrainingRecord.BYTES)
+                        game = ByteBuffer.allocate(game.capacity() * 2).put(game.flip());
+                    TrainingRecord.pack(position, result.getScore(), 0, game);
+                }
+                position.make(move);
+            }
+
+            for (int offset = 0; offset < game.position(); offset += TrainingRecord.BYTES) {
+                int side = TrainingRecord.sideToMove(game, offset);
+                game.put(offset + TrainingRecord.RESULT, (byte) (side == Position.WHITE ? white : -white));
+            }
+            written += game.position() / TrainingRecord.BYTES;
+            game.flip();
+            while (game.hasRemaining()) {
+                flushIfFull(TrainingRecord.BYTES);
+                int chunk = Math.min(game.remaining(), out.remaining());
+                out.put(game.slice().limit(chunk));
+                game.position(game.position() + chunk);
+            }
+        }
+
+        /**
+         * Scores a position if its score is meaningful.
+         *
+         * @param position The position.
+         * @return The score for the side to move, or INFINITY if the position is not kept.
+         */
+        private int score(Position position) {
+            if (position.pieceCount() > 32)
+                return Search.INFINITY;
+            int score;
+            if (depth == 0) {
+                if (!TexelTuner.isQuiet(position, moves))
+                    return Search.INFINITY;
+                score = evaluator.evaluate(position);
+            } else {
+                if (position.inCheck())
+                    return Search.INFINITY;
+                SearchResult result = search().think(position, depth, MAX_NODES, null);
+                if (result.getPv().length == 0 || isNoisy(position, result.getPv()[0]))
+                    return Search.INFINITY;
+                score = result.getScore();
+            }
+            return Math.abs(score) >= Search.MATE_BOUND ? Search.INFINITY : score;
+        }
+
+        /**
+         * Gets the search of the worker, creating it at the first call.
+         *
+         * @return The search.
+         */
+        private Search search() {
+            if (search == null)
+                search = new Search(new TranspositionTable(TABLE_MEGABYTES), evaluator);
+            return search;
+        }
+
+        /**
+         * Indicates if a move changes the material, so that the score of its position is not quiet.
+         *
+         * @param position The position.
+         * @param move     The move.
+         * @return true for a capture or a promotion.
+         */
+        private static boolean isNoisy(Position position, int move) {
+            return position.pieceAt(Move.to(move)) != Position.EMPTY || Move.kind(move) == Move.PROMOTION
+                    || Move.kind(move) == Move.EN_PASSANT;
+        }
+
+        /**
+         * Writes the buffer to the shard if it has less room than needed.
+         *
+         * @param needed The number of bytes about to be put.
+         * @throws IOException If the shard can't be written.
+         */
+        private void flushIfFull(int needed) throws IOException {
+            if (out.remaining() < needed)
+                flush();
+        }
+
+        /**
+         * Writes the buffer to the shard.
+         *
+         * @throws IOException If the shard can't be written.
+         */
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining())
+                channel.write(out);
+            out.clear();
+        }
+    }
+}
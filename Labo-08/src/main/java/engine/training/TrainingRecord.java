@@ -0,0 +1,131 @@
+package engine.training;
+
+import engine.board.Position;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs a training position with its evaluation and the result of its game in 32 bytes, so that the
+ * records of a file can be read at any index without parsing:
+ * <ul>
+ * <li>bytes 0-7: the occupied squares, the bit of a square being its index;</li>
+ * <li>bytes 8-23: the piece codes of the occupied squares in the order of the squares, a nibble each,
+ * the low one first;</li>
+ * <li>byte 24: the side to move, then the castling rights from the bit 1;</li>
+ * <li>byte 25: the en passant square plus one, 0 if there is none;</li>
+ * <li>byte 26: the half move clock, at most 255;</li>
+ * <li>byte 27: the result for the side to move: 1 for a win, 0 for a draw, -1 for a loss;</li>
+ * <li>bytes 28-29: the score in centipawns for the side to move;</li>
+ * <li>bytes 30-31: the full move number, at most 65535.</li>
+ * </ul>
+ *
+ * @author Émilie Bressoud, Kevin Farine, Timothée Van Hove
+ */
+public final class TrainingRecord {
+
+    /**
+     * The size of a record, in bytes.
+     */
+    public static final int BYTES = 32;
+
+    /**
+     * The index of the result in a record.
+     */
+    static final int RESULT = 27;
+
+    /**
+     * Prevents the instantiation.
+     */
+    private TrainingRecord() {
+    }
+
+    /**
+     * Packs a position.
+     *
+     * @param position The position, with at most 32 pieces.
+     * @param score    The score for the side to move, in centipawns.
+     * @param result   The result of the game for the side to move: 1, 0 or -1.
+     * @param buffer   The buffer, positioned after the record when it returns.
+     * @throws IllegalArgumentException If the position has more than 32 pieces.
+     */
+    public static void pack(Position position, int score, int result, ByteBuffer buffer) {
+        if (position.pieceCount() > 32)
+            throw new IllegalArgumentException("A training position holds at most 32 pieces");
+        long occupied = 0, low = 0, high = 0;
+        int index = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece == Position.EMPTY)
+                continue;
+            occupied |= 1L << square;
+            if (index < 16)
+                low |= (long) piece << 4 * index;
+            else
+                high |= (long) piece << 4 * (index - 16);
+            index++;
+        }
+        buffer.putLong(occupied).putLong(low).putLong(high);
+        buffer.put((byte) (position.sideToMove() | position.castlingRights() << 1));
+        buffer.put((byte) (position.enPassantSquare() + 1));
+        buffer.put((byte) Math.min(position.halfmoveClock(), 255));
+        buffer.put((byte) result);
+        buffer.putShort((short) Math.max(-Short.MAX_VALUE, Math.min(score, Short.MAX_VALUE)));
+        buffer.putShort((short) Math.min(position.fullmoveNumber(), 0xFFFF));
+    }
+
+    /**
+     * Sets up the position of a record.
+     *
+     * @param buffer   The buffer holding the record.
+     * @param offset   The index of the record.
+     * @param position The position to set up.
+     * @param pieces   A buffer of 64 squares.
+     */
+    public static void unpack(ByteBuffer buffer, int offset, Position position, int[] pieces) {
+        long occupied = buffer.getLong(offset), low = buffer.getLong(offset + 8), high = buffer.getLong(offset + 16);
+        int index = 0;
+        for (int square = 0; square < 64; square++) {
+            if ((occupied >>> square & 1) == 0) {
+                pieces[square] = Position.EMPTY;
+                continue;
+            }
+            pieces[square] = (int) ((index < 16 ? low >>> 4 * index : high >>> 4 * (index - 16)) & 15);
+            index++;
+        }
+        int state = buffer.get(offset + 24);
+        position.setUp(pieces, state & 1, state >>> 1 & 15, (buffer.get(offset + 25) & 0xFF) - 1,
+                buffer.get(offset + 26) & 0xFF, buffer.getShort(offset + 30) & 0xFFFF);
+    }
+
+    /**
+     * Gets the score of a record.
+     *
+     * @param buffer The buffer holding the record.
+     * @param offset The index of the record.
+     * @return The score for the side to move, in centipawns.
+     */
+    public static int score(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset + 28);
+    }
+
+    /**
+     * Gets the result of a record.
+     *
+     * @param buffer The buffer holding the record.
+     * @param offset The index of the record.
+     * @return The result of the game for the side to move: 1, 0 or -1.
+     */
+    public static int result(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + RESULT);
+    }
+
+    /**
+     * Gets the side to move of a record.
+     *
+     * @param buffer The buffer holding the record.
+     * @param offset The index of the record.
+     * @return The side to move.
+     */
+    static int sideToMove(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + 24) & 1;
+    }
+}
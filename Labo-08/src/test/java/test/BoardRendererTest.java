@@ -0,0 +1,113 @@
+package test;
+
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.render.BoardRenderer;
+import engine.render.ThumbnailWriter;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardRendererTest {
+
+    @TempDir
+    Path folder;
+
+    @BeforeAll
+    static void headless() {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    /**
+     * Tests if a square of an image is only of one color.
+     *
+     * @param image      The image.
+     * @param square     The square.
+     * @param squareSize The size of a square, in pixels.
+     * @param color      The color.
+     * @return true if all the pixels of the square are of the color.
+     */
+    private static boolean isEmpty(BufferedImage image, int square, int squareSize, Color color) {
+        for (int y = 0; y < squareSize; y++) {
+            for (int x = 0; x < squareSize; x++) {
+                int rgb = image.getRGB(square % 8 * squareSize + x, (7 - square / 8) * squareSize + y) & 0xFFFFFF;
+                if (rgb != (color.getRGB() & 0xFFFFFF))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    @DisplayName("test that the pieces are drawn on their squares, the other squares keeping their color")
+    public void testRender() throws IOException {
+        BoardRenderer renderer = new BoardRenderer();
+        Position position = new Position();
+        for (int squareSize : new int[]{20, 41, 64}) {
+            BufferedImage image = renderer.render(position, squareSize);
+            assertEquals(8 * squareSize, image.getWidth());
+            for (int square = 0; square < 64; square++) {
+                Color color = (square % 8 + square / 8) % 2 == 0 ? Color.GRAY : Color.WHITE;
+                assertEquals(position.pieceAt(square) == Position.EMPTY, isEmpty(image, square, squareSize, color),
+                        "square " + square + ", size " + squareSize);
+            }
+        }
+
+        // the image is drawn again from the empty board
+        BufferedImage image = BoardRenderer.newImage(32);
+        renderer.render(position, image);
+        renderer.render(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), image);
+        assertTrue(isEmpty(image, 0, 32, Color.GRAY));
+        assertFalse(isEmpty(image, 4, 32, Color.GRAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> renderer.render(position, new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB)));
+    }
+
+    @Test
+    @DisplayName("test that the thumbnails are written in parallel under the index of their line")
+    public void testThumbnails() throws IOException, InterruptedException {
+        List<String> fens = new ArrayList<>();
+        Position position = new Position();
+        int[] buffer = new int[Position.MAX_MOVES];
+        Random random = new Random(4);
+        for (int i = 0; i < 150; i++) {
+            int count = position.legalMoves(buffer);
+            if (count == 0)
+                position.reset();
+            else
+                position.make(buffer[random.nextInt(count)]);
+            fens.add(i == 70 ? "not a position" : Fen.toString(position) + (i % 2 == 0 ? " bm e4;" : ""));
+        }
+        ThumbnailWriter writer = new ThumbnailWriter(new BoardRenderer(), 3, 16);
+        assertEquals(149, writer.write(fens.iterator(), folder));
+        assertEquals(1, writer.getInvalid());
+        assertFalse(Files.exists(ThumbnailWriter.thumbnail(folder, 70)));
+
+        BoardRenderer renderer = new BoardRenderer();
+        for (int i : new int[]{0, 69, 71, 149}) {
+            BufferedImage image = ImageIO.read(ThumbnailWriter.thumbnail(folder, i).toFile());
+            assertEquals(128, image.getHeight());
+            BufferedImage expected = renderer.render(Fen.parse(fens.get(i).replace(" bm e4;", "")), 16);
+            for (int y = 0; y < 128; y++) {
+                for (int x = 0; x < 128; x++)
+                    assertEquals(expected.getRGB(x, y), image.getRGB(x, y), "thumbnail " + i);
+            }
+        }
+
+        // the indexes go on with the next call
+        assertEquals(1, writer.write(List.of(Fen.INITIAL).iterator(), folder));
+        assertTrue(Files.exists(ThumbnailWriter.thumbnail(folder, 150)));
+    }
+}
@@ -4,6 +4,7 @@ import chess.PlayerColor;
 import engine.board.Board;
 import engine.board.Cell;
 import engine.listeners.EngineObserver;
+import engine.notation.Fen;
 import engine.pieces.*;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -510,6 +511,24 @@ class BoardTest implements EngineObserver {
     }
 
 
+    @Test
+    @DisplayName("test that a board set up from a FEN keeps the castling rights and the en passant target")
+    public void testSetUpFromFen() {
+        Board board = new Board(this);
+        board.setUp(Fen.parse("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kk d6 0 1"));
+        assertEquals(8, board.getPieces().size());
+        assertTrue(board.getPieces().get(new Cell(0, 0)).getHasMoved(), "white lost the queen side castling");
+        assertFalse(board.getPieces().get(new Cell(7, 0)).getHasMoved(), "white can castle king side");
+        assertTrue(board.getPieces().get(new Cell(0, 7)).getHasMoved(), "black lost the queen side castling");
+
+        assertTrue(board.move(4, 4, 3, 5, white), "the pawn should be taken en passant");
+        assertNull(board.getPieces().get(new Cell(3, 4)), "the black pawn should have been taken");
+        board.move(4, 7, 6, 7, black);
+        assertTrue(board.getPieces().get(new Cell(6, 7)) instanceof King, "black should castle king side");
+        assertTrue(board.getPieces().get(new Cell(5, 7)) instanceof Rook, "black should castle king side");
+    }
+
+
     //leave empty
     @Override
     public void updateRemovePiece(Cell cell) {}
@@ -0,0 +1,132 @@
+package test;
+
+import engine.board.Position;
+import engine.index.DuplicateFilter;
+import engine.index.ScalableBloomFilter;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFilterTest {
+
+    /**
+     * A game, the same moves with other tags, a transposition of the game, and the game cut short.
+     */
+    private static final String GAMES = "[White \"A\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 1-0\n\n"
+            + "[White \"B\"]\n[Result \"*\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 *\n\n"
+            + "[White \"C\"]\n[Result \"1-0\"]\n\n1. Nf3 Nc6 2. e4 e5 3. Bb5 1-0\n\n"
+            + "[White \"D\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 Nc6 1-0\n\n";
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Sets up a distinct position for a number, with two kings and two other pieces, the squares being
+     * the digits of the number in base 64.
+     *
+     * @param position The position to set up.
+     * @param number   The number of the position, below 1 << 24.
+     * @return false if two pieces would be on the same square, the position being unchanged.
+     */
+    private static boolean setUp(Position position, int number) {
+        int[] pieces = new int[64];
+        int[] codes = {Position.KING, Position.piece(Position.BLACK, Position.KING), Position.QUEEN,
+                Position.piece(Position.BLACK, Position.ROOK)};
+        for (int i = 0; i < codes.length; i++, number >>>= 6) {
+            if (pieces[number & 63] != Position.EMPTY)
+                return false;
+            pieces[number & 63] = codes[i];
+        }
+        position.setUp(pieces, Position.WHITE, 0, -1, 0, 1);
+        return true;
+    }
+
+    @Test
+    @DisplayName("test that the same moves are a duplicate whatever the tags, unlike a transposition")
+    public void testDuplicates() throws IOException {
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, GAMES, StandardCharsets.ISO_8859_1);
+        List<PgnGame> games;
+        try (Stream<PgnGame> stream = PgnReader.read(pgn)) {
+            games = stream.collect(Collectors.toList());
+        }
+        try (DuplicateFilter filter = DuplicateFilter.open(folder.resolve("fingerprints"))) {
+            assertTrue(filter.add(games.get(0)));
+            assertFalse(filter.add(games.get(1)));
+            assertTrue(filter.add(games.get(2)), "a transposition should not be a duplicate");
+            assertTrue(filter.add(games.get(3)), "a game cut short should not be a duplicate");
+            assertFalse(filter.add(games.get(3)));
+            assertEquals(5, filter.getGames());
+            assertEquals(2, filter.getDuplicates());
+        }
+        try (DuplicateFilter filter = DuplicateFilter.open(folder.resolve("fingerprints"))) {
+            for (PgnGame game : games)
+                assertFalse(filter.add(game), "the games of the previous import should be duplicates");
+        }
+    }
+
+    @Test
+    @DisplayName("test that the games written on disk and merged are still found, and reopened")
+    public void testStore() throws IOException {
+        Path directory = folder.resolve("fingerprints");
+        Position position = new Position();
+        int count = 0, limit = 1_400_000;
+        try (DuplicateFilter filter = DuplicateFilter.open(directory)) {
+            for (int i = 0; i < limit; i++) {
+                if (setUp(position, i)) {
+                    assertTrue(filter.add(position, new int[0], 0), "position " + i);
+                    count++;
+                }
+            }
+            for (int i = 0; i < limit; i += 997) {
+                if (setUp(position, i))
+                    assertFalse(filter.add(position, new int[0], 0), "position " + i);
+            }
+            assertTrue(filter.getLookups() < filter.getDuplicates() + count / 50, filter.getLookups() + " lookups");
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() <= 3, "the runs should have been merged");
+        }
+        try (DuplicateFilter filter = DuplicateFilter.open(directory)) {
+            for (int i = 5; i < limit; i += 1009) {
+                if (setUp(position, i))
+                    assertFalse(filter.add(position, new int[0], 0), "position " + i);
+            }
+            assertTrue(setUp(position, limit + 1));
+            assertTrue(filter.add(position, new int[0], 0));
+        }
+    }
+
+    @Test
+    @DisplayName("test that the Bloom filter never forgets a key and has few false positives as it grows")
+    public void testBloomFilter() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.004);
+        SplittableRandom random = new SplittableRandom(9);
+        long[] keys = new long[400_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            filter.add(keys[i], ~keys[i]);
+        }
+        assertEquals(keys.length, filter.size());
+        for (long key : keys)
+            assertTrue(filter.mightContain(key, ~key));
+        int positives = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long key = random.nextLong();
+            positives += filter.mightContain(key, ~key) ? 1 : 0;
+        }
+        assertTrue(positives < keys.length / 50, positives + " false positives");
+    }
+}
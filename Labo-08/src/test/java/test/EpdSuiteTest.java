@@ -0,0 +1,107 @@
+package test;
+
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.notation.Fen;
+import engine.notation.San;
+import engine.suite.EpdRecord;
+import engine.suite.SuiteReport;
+import engine.suite.SuiteResult;
+import engine.suite.SuiteRunner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpdSuiteTest {
+
+    /**
+     * A suite: a back rank mate, a queen to take, a poisoned pawn to avoid, and a record without id.
+     */
+    private static final String SUITE = "# a small suite\n"
+            + "6k1/5ppp/8/8/8/8/8/R5K1 w - - bm Ra8#; id \"mate; in 1\";\n"
+            + "4k3/8/8/3q4/8/8/3R4/4K3 w - - bm Rxd5; id \"queen\";\n"
+            + "\n"
+            + "4k3/8/8/8/2p5/1p6/8/1R2K3 w - - am Rxb3; c0 \"a comment\";\n"
+            + "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - bm e4 d4 Nf3 c4 g3 Nc3 b3 f4;\n";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("test that the operations of a record are read, quoted strings included")
+    public void testParse() {
+        EpdRecord record = EpdRecord.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - bm Ra8#; id \"mate; in 1\";", "x");
+        Position position = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("mate; in 1", record.getId());
+        assertEquals(position.key(), record.getPosition().key());
+        assertArrayEquals(new int[]{San.parse(position, "Ra8")}, record.getBestMoves());
+        assertTrue(record.isSolvedBy(San.parse(position, "Ra8")));
+        assertFalse(record.isSolvedBy(San.parse(position, "Rb1")));
+
+        record = EpdRecord.parse("4k3/8/8/8/2p5/1p6/8/1R2K3 w - - am Rxb3; hmvc 3;", "suite.epd:4");
+        position = Fen.parse("4k3/8/8/8/2p5/1p6/8/1R2K3 w - - 0 1");
+        assertEquals("suite.epd:4", record.getId());
+        assertEquals(1, record.getAvoidMoves().length);
+        assertFalse(record.isSolvedBy(San.parse(position, "Rxb3")));
+        assertTrue(record.isSolvedBy(San.parse(position, "Ke2")));
+
+        assertThrows(IllegalArgumentException.class, () -> EpdRecord.parse("8/8/8 w - - bm e4;", "x"));
+        assertThrows(IllegalArgumentException.class, () -> EpdRecord.parse(Fen.INITIAL + " bm e5;", "x"));
+        assertThrows(IllegalArgumentException.class, () -> EpdRecord.parse(Fen.INITIAL + " bm e4", "x"));
+        assertThrows(IllegalArgumentException.class, () -> EpdRecord.parse(Fen.INITIAL + " id \"x\";", "x"));
+    }
+
+    @Test
+    @DisplayName("test that a suite analysed under a node budget is solved, in order, the same on every run")
+    public void testRun() throws IOException, InterruptedException {
+        Path suite = folder.resolve("suite.epd");
+        Files.writeString(suite, SUITE, StandardCharsets.ISO_8859_1);
+        List<EpdRecord> records = EpdRecord.read(suite);
+        assertEquals(4, records.size());
+        assertEquals("suite.epd:5", records.get(2).getId());
+
+        SuiteReport report = new SuiteRunner(3, 20_000, 0, HandcraftedEvaluator::new).run(records);
+        List<SuiteResult> results = report.getResults();
+        assertEquals(4, results.size());
+        assertEquals("mate; in 1", results.get(0).getId());
+        assertEquals(4, report.getSolved());
+        for (SuiteResult result : results) {
+            assertTrue(result.getNodes() <= 20_000);
+            assertTrue(result.getSolvedMillis() >= 0 && result.getSolvedMillis() <= result.getMillis());
+        }
+
+        SuiteReport again = new SuiteRunner(1, 20_000, 0, HandcraftedEvaluator::new).run(records);
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).getMove(), again.getResults().get(i).getMove());
+            assertEquals(results.get(i).getNodes(), again.getResults().get(i).getNodes());
+        }
+
+        Path path = folder.resolve("report.tsv");
+        report.write(path);
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(6, lines.size());
+        assertTrue(lines.get(0).startsWith("suite\t" + SuiteReport.VERSION + "\tpositions\t4\tsolved\t4\t"));
+        assertEquals("id\tmove\tsolved\tsolved_ms\tdepth\tscore\tnodes\tms", lines.get(1));
+        assertTrue(lines.get(2).startsWith("mate; in 1\ta1a8\t1\t"));
+        assertTrue(lines.get(3).startsWith("queen\td2d5\t1\t"));
+    }
+
+    @Test
+    @DisplayName("test that a time budget stops the analysis of a position")
+    public void testTimeBudget() throws InterruptedException {
+        List<EpdRecord> records = List.of(EpdRecord.parse(Fen.INITIAL + " bm e4 d4;", "initial"));
+        SuiteReport report = new SuiteRunner(1, Long.MAX_VALUE, 200, HandcraftedEvaluator::new).run(records);
+        SuiteResult result = report.getResults().get(0);
+        assertTrue(result.getMillis() < 1000, result.getMillis() + " ms");
+        assertTrue(report.getMillis() >= 150, report.getMillis() + " ms");
+        assertThrows(IllegalArgumentException.class, () -> new SuiteRunner(1, Long.MAX_VALUE, 0,
+                HandcraftedEvaluator::new));
+    }
+}
@@ -0,0 +1,68 @@
+package test;
+
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.eval.nnue.Network;
+import engine.eval.nnue.NnueEvaluator;
+import engine.eval.nnue.ScalarKernel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    @Test
+    @DisplayName("test that the initial position is balanced")
+    public void testInitialBalanced() {
+        Position position = new Position();
+        assertEquals(0, new HandcraftedEvaluator().evaluate(position));
+        assertEquals(0, new NnueEvaluator().evaluate(position));
+    }
+
+    @Test
+    @DisplayName("test that the incremental accumulators match a refresh from scratch")
+    public void testIncrementalMatchesRefresh() {
+        Position position = new Position(), detached = new Position();
+        NnueEvaluator incremental = new NnueEvaluator(Network.loadDefault(), new ScalarKernel());
+        NnueEvaluator scratch = new NnueEvaluator(Network.loadDefault(), new ScalarKernel());
+        position.attach(incremental);
+
+        Random random = new Random(7);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int ply = 0; ply < 200; ply++) {
+            int count = position.legalMoves(moves);
+            if (count == 0)
+                break;
+            int move = moves[random.nextInt(count)];
+            position.make(move);
+            detached.make(move);
+            assertEquals(scratch.evaluate(detached), incremental.evaluate(position), 1,
+                    "the incremental evaluation should follow the moves at ply " + ply);
+        }
+        while (position.ply() > 0) {
+            position.unmake();
+            detached.unmake();
+        }
+        assertEquals(scratch.evaluate(detached), incremental.evaluate(position), 1,
+                "the incremental evaluation should follow the unmade moves");
+    }
+
+    @Test
+    @DisplayName("test that the bootstrap network follows the material")
+    public void testNetworkFollowsMaterial() {
+        Position position = new Position();
+        int[] pieces = new int[64];
+        pieces[4] = Position.piece(Position.WHITE, Position.KING);
+        pieces[3] = Position.piece(Position.WHITE, Position.QUEEN);
+        pieces[60] = Position.piece(Position.BLACK, Position.KING);
+        position.setUp(pieces, Position.WHITE, 0, -1, 0, 1);
+
+        int score = new NnueEvaluator().evaluate(position);
+        assertTrue(score > 800, "white should be a queen up, got " + score);
+        position.makeNull();
+        assertEquals(-score, new NnueEvaluator().evaluate(position), 1, "the score should follow the side to move");
+    }
+}
@@ -0,0 +1,95 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.notation.San;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenTest {
+
+    @Test
+    @DisplayName("test that a FEN is written back as it was read")
+    public void testRoundTrip() {
+        String[] fens = {
+                Fen.INITIAL,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 17 52",
+                "4k3/8/8/8/8/8/8/R3K2R b Q - 99 120"
+        };
+        for (String fen : fens)
+            assertEquals(fen, Fen.toString(Fen.parse(fen)));
+    }
+
+    @Test
+    @DisplayName("test that the FEN restores the castling rights, the en passant square and the clocks")
+    public void testState() {
+        Position position = Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w Kq f6 4 3");
+        assertEquals(Position.BLACK_QUEEN_SIDE | Position.WHITE_KING_SIDE, position.castlingRights());
+        assertEquals(5 * 8 + 5, position.enPassantSquare());
+        assertEquals(4, position.halfmoveClock());
+        assertEquals(3, position.fullmoveNumber());
+        assertEquals("e5f6", Move.toString(San.parse(position, "exf6")));
+
+        Position played = new Position();
+        for (String san : "e4 d5 e5 f5".split(" "))
+            played.make(San.parse(played, san));
+        Position read = Fen.parse(Fen.toString(played));
+        assertEquals(played.key(), read.key(), "the same position should have the same hash");
+    }
+
+    @Test
+    @DisplayName("test that an en passant square nobody can use and a castling right without rook are dropped")
+    public void testNormalised() {
+        Position read = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        assertEquals(-1, read.enPassantSquare());
+        Position played = new Position();
+        played.make(San.parse(played, "e4"));
+        assertEquals(played.key(), read.key());
+
+        assertEquals(Position.WHITE_KING_SIDE, Fen.parse("4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1").castlingRights());
+    }
+
+    @Test
+    @DisplayName("test that the clocks may be omitted and the operations of an EPD record are left")
+    public void testEpd() {
+        String epd = "1k1r4/pp1b1R2/3q2pp/4p3/2B5/4Q3/PPP2B2/2K5 b - - bm Qd1+; id \"BK.01\";";
+        Position position = new Position();
+        int end = Fen.parse(position, epd, 0, epd.length(), new int[64]);
+        assertEquals(" bm Qd1+; id \"BK.01\";", epd.substring(end));
+        assertEquals(Position.BLACK, position.sideToMove());
+        assertEquals(0, position.halfmoveClock());
+        assertEquals(1, position.fullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("test that an invalid FEN is rejected and leaves the position unchanged")
+    public void testInvalid() {
+        String[] invalid = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqqbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkz - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1x",
+                "Pnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+        };
+        int[] pieces = new int[64];
+        for (String fen : invalid) {
+            Position position = new Position();
+            long key = position.key();
+            assertEquals(-1, Fen.parse(position, fen, 0, fen.length(), pieces), fen);
+            assertEquals(key, position.key(), fen);
+            assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen));
+        }
+    }
+}
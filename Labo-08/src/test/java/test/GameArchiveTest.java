@@ -0,0 +1,113 @@
+package test;
+
+import engine.archive.ArchivedGame;
+import engine.archive.GameArchive;
+import engine.archive.GameArchiveWriter;
+import engine.board.Move;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    /**
+     * The results given to the games in turn.
+     */
+    private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("test that the games are read back in order and by number, with their start and result")
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(17);
+        int[] buffer = new int[Position.MAX_MOVES];
+        List<int[]> games = new ArrayList<>();
+        List<String> starts = new ArrayList<>();
+        Path path = folder.resolve("games.garc");
+        try (GameArchiveWriter writer = GameArchiveWriter.create(path)) {
+            for (int game = 0; game < 300; game++) {
+                String fen = game % 50 == 7 ? "4k3/8/8/3pP3/8/8/8/4K2R w K d6 0 30" : Fen.INITIAL;
+                Position position = Fen.parse(fen);
+                int[] moves = new int[game % 37 == 0 ? 0 : random.nextInt(200)];
+                int count = 0;
+                while (count < moves.length) {
+                    int legal = position.legalMoves(buffer);
+                    if (legal == 0)
+                        break;
+                    moves[count] = buffer[random.nextInt(legal)];
+                    position.make(moves[count++]);
+                }
+                games.add(Arrays.copyOf(moves, count));
+                starts.add(fen);
+                assertEquals(game, writer.add(Fen.parse(fen), moves, count, RESULTS[game % 4]));
+            }
+        }
+
+        try (GameArchive archive = GameArchive.open(path)) {
+            assertEquals(300, archive.size());
+            int number = 0;
+            for (ArchivedGame game : archive) {
+                assertEquals(number, game.getNumber());
+                assertArrayEquals(games.get(number), game.getMoves(), game.toString());
+                assertEquals(RESULTS[number % 4], game.getResult());
+                assertEquals(starts.get(number), Fen.toString(game.startPosition()));
+                number++;
+            }
+            assertEquals(300, number);
+
+            for (int i = 0; i < 500; i++) {
+                int game = random.nextInt(300);
+                assertArrayEquals(games.get(game), archive.get(game).getMoves(), "game " + game);
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.get(300));
+        }
+    }
+
+    @Test
+    @DisplayName("test that the moves of a real game take less than 5 bits each")
+    public void testCompression() throws IOException {
+        // Morphy's opera game
+        String[] sans = ("e4 e5 Nf3 d6 d4 Bg4 dxe5 Bxf3 Qxf3 dxe5 Bc4 Nf6 Qb3 Qe7 Nc3 c6 Bg5 b5 Nxb5 cxb5 Bxb5+ Nbd7 "
+                + "O-O-O Rd8 Rxd7 Rxd7 Rd1 Qe6 Bxd7+ Nxd7 Qb8+ Nxb8 Rd8#").split(" ");
+        Position position = new Position();
+        int[] moves = new int[sans.length];
+        for (int i = 0; i < sans.length; i++) {
+            moves[i] = San.parse(position, sans[i]);
+            assertNotEquals(Move.NONE, moves[i], sans[i]);
+            position.make(moves[i]);
+        }
+        Path path = folder.resolve("games.garc");
+        try (GameArchiveWriter writer = GameArchiveWriter.create(path)) {
+            writer.add(new Position(), moves, moves.length, "1-0");
+        }
+        // header, trailer, offset table, size, flags and number of plies
+        long code = Files.size(path) - 8 - 24 - 8 - 3;
+        assertTrue(code * 8 < moves.length * 5, code + " bytes for " + moves.length + " plies");
+        try (GameArchive archive = GameArchive.open(path)) {
+            assertArrayEquals(moves, archive.get(0).getMoves());
+        }
+    }
+
+    @Test
+    @DisplayName("test that a file which is not an archive is rejected")
+    public void testInvalidFile() throws IOException {
+        Path path = folder.resolve("games.garc");
+        Files.write(path, new byte[64]);
+        IOException e = assertThrows(IOException.class, () -> GameArchive.open(path));
+        assertEquals("Not a game archive file of version " + GameArchive.VERSION + ": " + path, e.getMessage());
+    }
+}
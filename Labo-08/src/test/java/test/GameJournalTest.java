@@ -0,0 +1,190 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.journal.GameJournal;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Plays moves in SAN and journals them.
+     *
+     * @param journal  The journal.
+     * @param game     The identifier of the game.
+     * @param position The position of the game.
+     * @param moves    The moves in SAN.
+     */
+    private static void play(GameJournal journal, int game, Position position, String... moves) {
+        for (String san : moves) {
+            int move = San.parse(position, san);
+            assertNotEquals(Move.NONE, move, san);
+            journal.append(game, position.ply(), move);
+            position.make(move);
+        }
+    }
+
+    /**
+     * Lists the segments of the journal.
+     *
+     * @return The paths of the segments, in order.
+     * @throws IOException If the folder can't be listed.
+     */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("test that the games not ended are recovered with their moves, promotions and castlings")
+    public void testRecover() throws IOException {
+        Position first = new Position(), second = new Position();
+        int firstId, secondId, endedId;
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.GROUP_COMMIT)) {
+            assertTrue(journal.getRecovered().isEmpty());
+            firstId = journal.startGame();
+            secondId = journal.startGame();
+            endedId = journal.startGame();
+            play(journal, firstId, first, "e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6", "O-O");
+            play(journal, secondId, second, "h4", "g5", "hxg5", "Nf6", "gxf6", "Bg7", "fxg7", "a6", "gxh8=N");
+            play(journal, endedId, new Position(), "d4");
+            journal.endGame(endedId);
+        }
+
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.OS)) {
+            Map<Integer, Position> recovered = journal.getRecovered();
+            assertEquals(List.of(firstId, secondId), new ArrayList<>(recovered.keySet()));
+            assertEquals(Fen.toString(first), Fen.toString(recovered.get(firstId)));
+            assertEquals(Fen.toString(second), Fen.toString(recovered.get(secondId)));
+            assertEquals(9, recovered.get(secondId).ply());
+            assertTrue(journal.startGame() > endedId, "an identifier is never given twice");
+        }
+        assertEquals(1, segments().size(), "the recovery rewrites the live games and deletes the old segments");
+    }
+
+    @Test
+    @DisplayName("test that a move played again at a ply takes back the moves after it")
+    public void testTakeBack() throws IOException {
+        Position position = new Position();
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.PERIODIC)) {
+            int game = journal.startGame();
+            play(journal, game, position, "e4", "e5", "Qh5", "Nc6");
+            position.unmake();
+            position.unmake();
+            play(journal, game, position, "Nf3");
+        }
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.OS)) {
+            Position recovered = journal.getRecovered().values().iterator().next();
+            assertEquals(3, recovered.ply());
+            assertEquals(Fen.toString(position), Fen.toString(recovered));
+        }
+    }
+
+    @Test
+    @DisplayName("test that a game missing a record stops at the gap whatever records follow it")
+    public void testGap() throws IOException {
+        Position position = new Position();
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.GROUP_COMMIT)) {
+            int game = journal.startGame();
+            play(journal, game, position, "e4", "e5");
+            // the record of the ply 2 is lost, then a take-back to the ply 1 follows two records
+            journal.append(game, 3, Move.of(57, 42));
+            journal.append(game, 4, Move.of(6, 21));
+            journal.append(game, 1, Move.of(50, 34));
+        }
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.OS)) {
+            Position recovered = journal.getRecovered().values().iterator().next();
+            assertEquals(Fen.toString(position), Fen.toString(recovered));
+        }
+    }
+
+    @Test
+    @DisplayName("test that a torn record ends the recovery of its segment, and that another file is rejected")
+    public void testTornRecord() throws IOException {
+        Position position = new Position();
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.GROUP_COMMIT)) {
+            int game = journal.startGame();
+            play(journal, game, position, "d4", "d5", "c4");
+        }
+        // the last move, after the header, the start and 2 moves, is half written
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 16 * 4 + 8);
+        }
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.OS)) {
+            Position recovered = journal.getRecovered().values().iterator().next();
+            assertEquals(2, recovered.ply());
+            assertEquals("d2d4", Move.toString(recovered.moveAt(0)));
+            assertEquals("d7d5", Move.toString(recovered.moveAt(1)));
+        }
+
+        Files.write(folder.resolve("journal-99999999.seg"), new byte[64]);
+        IOException e = assertThrows(IOException.class, () -> GameJournal.open(folder, GameJournal.Durability.OS));
+        assertTrue(e.getMessage().startsWith("Not a game journal segment of version " + GameJournal.VERSION));
+    }
+
+    @Test
+    @DisplayName("test that the games written by many threads over many segments are all recovered")
+    public void testConcurrentGames() throws Exception {
+        int threads = 8, gamesPerThread = 25;
+        Map<Integer, Position> expected = new ConcurrentHashMap<>();
+        // small segments, so that the journal rolls many times
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.GROUP_COMMIT, 4096)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                workers.add(new Thread(() -> {
+                    int[] moves = new int[Position.MAX_MOVES];
+                    for (int g = 0; g < gamesPerThread; g++) {
+                        int game = journal.startGame();
+                        Position position = new Position();
+                        for (int ply = random.nextInt(60); ply > 0; ply--) {
+                            int count = position.legalMoves(moves);
+                            if (count == 0)
+                                break;
+                            int move = moves[random.nextInt(count)];
+                            journal.append(game, position.ply(), move);
+                            position.make(move);
+                        }
+                        if (g % 5 == 4)
+                            journal.endGame(game);
+                        else
+                            expected.put(game, position);
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            for (Thread worker : workers)
+                worker.join();
+        }
+        assertTrue(segments().size() > 2);
+
+        try (GameJournal journal = GameJournal.open(folder, GameJournal.Durability.OS)) {
+            assertEquals(expected.keySet(), journal.getRecovered().keySet());
+            for (Map.Entry<Integer, Position> game : expected.entrySet())
+                assertEquals(Fen.toString(game.getValue()), Fen.toString(journal.getRecovered().get(game.getKey())));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package test;
+
+import chess.ChessView;
+import chess.PieceType;
+import chess.PlayerColor;
+import engine.ChessEngine;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.session.GameReplay;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayTest {
+
+    /**
+     * Gets the moves played in a position.
+     *
+     * @param position The position.
+     * @return The moves, from the first one.
+     */
+    private static int[] moves(Position position) {
+        int[] moves = new int[position.ply()];
+        for (int ply = 0; ply < moves.length; ply++)
+            moves[ply] = position.moveAt(ply);
+        return moves;
+    }
+
+    @Test
+    @DisplayName("test that seeking any ply gives the position of a replay from the start")
+    public void testSeek() {
+        Random random = new Random(7);
+        String[] fens = {Fen.INITIAL, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 3 17"};
+        Position seeked = new Position();
+        for (int game = 0; game < 12; game++) {
+            Position start = Fen.parse(fens[game % fens.length]);
+            Position end = new Position(start);
+            PositionTest.play(end, 100 + random.nextInt(300), random);
+            int[] moves = moves(end);
+            for (int interval : new int[]{1, 7, GameReplay.DEFAULT_INTERVAL}) {
+                GameReplay replay = new GameReplay(start, moves, moves.length, interval);
+                assertEquals(moves.length, replay.size());
+                Position linear = new Position(start);
+                for (int ply = 0; ; ply++) {
+                    replay.seek(ply, seeked);
+                    assertEquals(Fen.toString(linear), Fen.toString(seeked), "ply " + ply);
+                    assertEquals(linear.key(), seeked.key(), "ply " + ply);
+                    assertTrue(seeked.ply() < interval);
+                    if (ply == moves.length)
+                        break;
+                    assertEquals(moves[ply], replay.moveAt(ply));
+                    linear.make(moves[ply]);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("test that a ply out of the game is rejected")
+    public void testOutOfRange() {
+        Position end = new Position();
+        PositionTest.play(end, 30, new Random(3));
+        GameReplay replay = new GameReplay(new Position(), moves(end), end.ply(), GameReplay.DEFAULT_INTERVAL);
+        Position position = new Position();
+        assertThrows(IndexOutOfBoundsException.class, () -> replay.seek(-1, position));
+        assertThrows(IndexOutOfBoundsException.class, () -> replay.seek(end.ply() + 1, position));
+        replay.seek(end.ply(), position);
+        assertEquals(end.key(), position.key());
+        assertThrows(IllegalArgumentException.class, () -> new GameReplay(new Position(), new int[0], 0, 0));
+    }
+
+    @Test
+    @DisplayName("test that the engine only shows the final position of a seek")
+    public void testShowPly() {
+        Position end = new Position();
+        PositionTest.play(end, 120, new Random(11));
+        GameReplay replay = new GameReplay(new Position(), moves(end), end.ply(), GameReplay.DEFAULT_INTERVAL);
+        int[] puts = new int[1];
+        ChessEngine engine = new ChessEngine();
+        engine.start(new ChessView() {
+            @Override
+            public void startView() {
+            }
+
+            @Override
+            public void removePiece(int x, int y) {
+            }
+
+            @Override
+            public void putPiece(PieceType type, PlayerColor color, int x, int y) {
+                puts[0]++;
+            }
+
+            @Override
+            public void displayMessage(String msg) {
+            }
+
+            @Override
+            @SafeVarargs
+            public final <T extends UserChoice> T askUser(String title, String question, T... possibilities) {
+                return possibilities[0];
+            }
+        });
+        Position seeked = new Position();
+        replay.seek(93, seeked);
+        int pieces = 0;
+        for (int square = 0; square < 64; square++)
+            pieces += seeked.pieceAt(square) != Position.EMPTY ? 1 : 0;
+        engine.showPly(replay, 93);
+        assertEquals(pieces, puts[0]);
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.search.MateResult;
+import engine.search.MateSolver;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MateSolverTest {
+
+    @Test
+    @DisplayName("test that the solver finds a back rank mate in one")
+    public void testMateInOne() {
+        Position position = new Position();
+        PositionTest.setUp(position, "6k1/5ppp/8/8/8/8/8/R5K1", Position.WHITE, 0);
+
+        MateResult result = new MateSolver(1).solve(position, 1, 100_000);
+        assertTrue(result.isMate());
+        assertEquals(1, result.getLength());
+        assertEquals("a1a8", Move.toString(result.getBestMove()));
+    }
+
+    @Test
+    @DisplayName("test that the solver finds a mate in two with a sacrifice and its line")
+    public void testMateInTwo() {
+        Position position = new Position();
+        PositionTest.setUp(position, "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R", Position.WHITE, 15);
+
+        MateResult result = new MateSolver(4).solve(position, 3, 1_000_000);
+        assertTrue(result.isMate(), result.toString());
+        assertEquals(2, result.getLength());
+        assertEquals("d5f6", Move.toString(result.getBestMove()));
+        assertEquals(3, result.getLine().length);
+
+        for (int move : result.getLine())
+            position.make(move);
+        assertTrue(position.inCheck());
+        assertEquals(0, position.legalMoves(new int[Position.MAX_MOVES]), "the line should end in mate");
+    }
+
+    @Test
+    @DisplayName("test that the solver refutes a mate from the initial position")
+    public void testNoMate() {
+        MateResult result = new MateSolver(4).solve(new Position(), 2, 1_000_000);
+        assertEquals(MateResult.Status.NO_MATE, result.getStatus());
+        assertEquals(0, result.getLine().length);
+    }
+
+    @Test
+    @DisplayName("test that the solver gives up when the budget runs out")
+    public void testBudget() {
+        Position position = new Position();
+        PositionTest.setUp(position, "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R", Position.WHITE, 15);
+
+        MateResult result = new MateSolver(1).solve(position, 3, 3);
+        assertEquals(MateResult.Status.UNKNOWN, result.getStatus());
+        assertEquals("no mate within budget", result.toString());
+    }
+}
@@ -0,0 +1,54 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.mcts.MonteCarloSearch;
+import engine.mcts.NodeArena;
+import engine.search.SearchResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloSearchTest {
+
+    @Test
+    @DisplayName("test that parallel playouts win a hanging queen and count every playout once")
+    public void testWinsQueen() {
+        Position position = new Position();
+        PositionTest.setUp(position, "4k3/8/8/3q4/8/8/3R4/4K3", Position.WHITE, 0);
+        try (MonteCarloSearch search = new MonteCarloSearch(16, 4, HandcraftedEvaluator::new)) {
+            SearchResult result = search.think(position, 20_000, Long.MAX_VALUE, 0, new Random(1));
+            assertEquals("d2d5", Move.toString(result.getBestMove()));
+            assertEquals(20_000, result.getNodes(), "the root should be visited once per playout");
+            assertTrue(result.getScore() > 300);
+        }
+    }
+
+    @Test
+    @DisplayName("test that the tree of the position reached is reused after a move")
+    public void testTreeReuse() {
+        Position position = new Position();
+        try (MonteCarloSearch search = new MonteCarloSearch(16, 2, HandcraftedEvaluator::new)) {
+            SearchResult result = search.think(position, 10_000, Long.MAX_VALUE, 0, new Random(1));
+            position.make(result.getBestMove());
+            position.make(result.getPonderMove());
+
+            SearchResult next = search.think(position, 2_000, Long.MAX_VALUE, 0, new Random(1));
+            assertTrue(next.getNodes() > 2_000, "the playouts through the reply should be kept");
+        }
+    }
+
+    @Test
+    @DisplayName("test that the children of a node never straddle two buffers of the arena")
+    public void testArenaAllocation() {
+        NodeArena arena = new NodeArena(128);
+        int perChunk = 1 << 21;
+        assertEquals(0, arena.allocate(perChunk - 10));
+        assertEquals(perChunk, arena.allocate(20), "the end of the first buffer should be skipped");
+        assertEquals(-1, arena.allocate(arena.capacity()), "a full arena should refuse the allocation");
+    }
+}
@@ -0,0 +1,95 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.book.BookBuilder;
+import engine.book.OpeningBook;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    private static final String PGN = "[Event \"a\"]\n[Result \"1-0\"]\n\n"
+            + "1. e4 e5 2. Nf3 {main line} Nc6 (2... d6 3. d4) 3. Bb5 a6 $1 1-0\n\n"
+            + "[Event \"b\"]\n[Result \"1/2-1/2\"]\n\n1.e4 c5 2.Nf3 d6 1/2-1/2\n\n"
+            + "[Event \"c\"]\n[Result \"0-1\"]\n\n1. d4 d5 2. c4 e6 0-1\n\n"
+            + "[Event \"d\"]\n[SetUp \"1\"]\n[FEN \"8/8/8/8/8/8/4k3/4K3 w - - 0 1\"]\n[Result \"1-0\"]\n\n"
+            + "1. Kf1 1-0\n\n"
+            + "[Event \"e\"]\n[Result \"0-1\"\n\n1. e4 e5 0-1\n\n"
+            + "[Event \"f\"]\n[Result \"*\"]\n\n1. e4 e5 *\n";
+
+    /**
+     * Adds the test games to a builder.
+     *
+     * @param builder   The builder.
+     * @param directory The directory of the PGN file.
+     * @throws IOException If the file can't be written or read.
+     */
+    private static void add(BookBuilder builder, Path directory) throws IOException {
+        Path pgn = directory.resolve("test.pgn");
+        Files.writeString(pgn, PGN, StandardCharsets.ISO_8859_1);
+        try (Stream<PgnGame> games = PgnReader.read(pgn, 1)) {
+            builder.add(games.iterator());
+        }
+    }
+
+    @Test
+    @DisplayName("test that the book compiled from PGN games holds their weighted moves")
+    public void testBuildAndLookup(@TempDir Path directory) throws IOException {
+        BookBuilder builder = new BookBuilder(4);
+        add(builder, directory);
+        assertEquals(3, builder.getGames(), "the games from a FEN, malformed or unfinished shouldn't be added");
+
+        Path path = directory.resolve("test.book");
+        builder.write(path, 0);
+        OpeningBook book = OpeningBook.open(path);
+
+        Position position = new Position();
+        int[] moves = new int[8], weights = new int[8];
+        assertEquals(2, book.lookup(position.key(), moves, weights));
+        assertEquals("e2e4", Move.toString(moves[0]));
+        assertEquals(3, weights[0], "a win and a draw");
+        assertEquals("d2d4", Move.toString(moves[1]));
+        assertEquals(0, weights[1], "a loss");
+
+        position.make(moves[0]);
+        assertEquals(2, book.lookup(position.key(), moves, weights));
+        assertEquals("c7c5", Move.toString(moves[0]), "the draw is worth more than the loss for black");
+
+        position.make(position.findMove(52, 36, 0));
+        position.make(position.findMove(6, 21, 0));
+        position.make(position.findMove(57, 42, 0));
+        assertEquals(0, book.lookup(position.key(), moves, weights), "the fifth ply shouldn't be kept");
+    }
+
+    @Test
+    @DisplayName("test that the book only picks legal moves with a weight")
+    public void testPick(@TempDir Path directory) throws IOException {
+        BookBuilder builder = new BookBuilder(8);
+        add(builder, directory);
+        Path path = directory.resolve("test.book");
+        builder.write(path, 1);
+        OpeningBook book = OpeningBook.open(path);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 20; i++)
+            assertEquals("e2e4", Move.toString(book.pick(new Position(), random)));
+        Position position = new Position();
+        position.make(position.findMove(11, 27, 0));
+        assertEquals("d7d5", Move.toString(book.pick(position, random)), "black won that game");
+        position.make(position.findMove(51, 35, 0));
+        assertEquals(Move.NONE, book.pick(position, random), "the moves of a lost game are dropped");
+    }
+}
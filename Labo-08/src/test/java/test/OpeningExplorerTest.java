@@ -0,0 +1,157 @@
+package test;
+
+import engine.board.Position;
+import engine.index.OpeningExplorer;
+import engine.index.OpeningExplorerBuilder;
+import engine.notation.Fen;
+import engine.notation.San;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningExplorerTest {
+
+    /**
+     * Games whose moves transpose, with every result and an unfinished game.
+     */
+    private static final String GAMES = "[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 1-0\n\n"
+            + "[Result \"0-1\"]\n\n1. Nf3 Nc6 2. e4 e5 3. Bc4 0-1\n\n"
+            + "[Result \"1/2-1/2\"]\n\n1. e4 c5 1/2-1/2\n\n"
+            + "[Result \"*\"]\n\n1. d4 d5 *\n\n";
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Builds an explorer from a PGN text.
+     *
+     * @param text    The PGN text.
+     * @param maxPly  The number of plies of each game.
+     * @param threads The number of workers.
+     * @return The explorer.
+     * @throws Exception If a file can't be written or read.
+     */
+    private OpeningExplorer build(String text, int maxPly, int threads) throws Exception {
+        Path pgn = folder.resolve("games.pgn"), path = folder.resolve("games-" + threads + ".explorer");
+        Files.writeString(pgn, text, StandardCharsets.ISO_8859_1);
+        OpeningExplorerBuilder builder = new OpeningExplorerBuilder(maxPly, threads);
+        try (Stream<PgnGame> games = PgnReader.read(pgn, 2)) {
+            builder.add(games.iterator());
+        }
+        builder.write(path);
+        return OpeningExplorer.open(path);
+    }
+
+    /**
+     * Writes the moves of a position with their results.
+     *
+     * @param explorer The explorer.
+     * @param position The position.
+     * @return The moves in SAN, with their white wins, draws and black wins.
+     */
+    private static String moves(OpeningExplorer explorer, Position position) {
+        int[] moves = new int[Position.MAX_MOVES], results = new int[Position.MAX_MOVES * 3];
+        int count = explorer.lookup(position.key(), moves, results);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            text.append(i > 0 ? " " : "").append(San.toString(position, moves[i])).append(' ')
+                    .append(results[i * 3]).append('/').append(results[i * 3 + 1]).append('/')
+                    .append(results[i * 3 + 2]);
+        return text.toString();
+    }
+
+    @Test
+    @DisplayName("test that the moves of a position are counted by result, transpositions merged")
+    public void testExplore() throws Exception {
+        OpeningExplorer explorer = build(GAMES, 40, 2);
+        assertEquals(3, explorer.games(), "the unfinished game should be skipped");
+        assertEquals("e4 1/1/0 Nf3 0/0/1", moves(explorer, new Position()));
+        String e4 = moves(explorer, Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"));
+        assertTrue(e4.equals("e5 1/0/0 c5 0/1/0") || e4.equals("c5 0/1/0 e5 1/0/0"), e4);
+        String transposed = moves(explorer,
+                Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3"));
+        assertTrue(transposed.equals("Bb5 1/0/0 Bc4 0/0/1") || transposed.equals("Bc4 0/0/1 Bb5 1/0/0"),
+                transposed);
+        assertEquals("", moves(explorer, Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+
+        OpeningExplorer shallow = build(GAMES, 1, 1);
+        assertEquals("", moves(shallow,
+                Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1")));
+    }
+
+    @Test
+    @DisplayName("test that the explorer doesn't depend on the number of workers")
+    public void testWorkers() throws Exception {
+        Random random = new Random(11);
+        int[] moves = new int[Position.MAX_MOVES];
+        String[] results = {"1-0", "0-1", "1/2-1/2"};
+        Set<String> fens = new HashSet<>();
+        StringBuilder text = new StringBuilder();
+        for (int game = 0; game < 400; game++) {
+            String result = results[random.nextInt(3)];
+            text.append("[Result \"").append(result).append("\"]\n\n");
+            Position position = new Position();
+            for (int ply = 0; ply < 12; ply++) {
+                fens.add(Fen.toString(position));
+                int count = position.legalMoves(moves);
+                int move = moves[random.nextInt(Math.min(count, 3))];
+                text.append(San.toString(position, move)).append(' ');
+                position.make(move);
+            }
+            text.append(result).append("\n\n");
+        }
+        OpeningExplorer one = build(text.toString(), 8, 1), four = build(text.toString(), 8, 4);
+        assertArrayEquals(Files.readAllBytes(folder.resolve("games-1.explorer")),
+                Files.readAllBytes(folder.resolve("games-4.explorer")));
+        for (String fen : fens)
+            assertEquals(moves(one, Fen.parse(fen)), moves(four, Fen.parse(fen)), fen);
+    }
+
+    @Test
+    @DisplayName("test that a file which is not an explorer is rejected")
+    public void testInvalidFile() throws IOException {
+        Path path = folder.resolve("games.explorer");
+        Files.write(path, new byte[48]);
+        IOException e = assertThrows(IOException.class, () -> OpeningExplorer.open(path));
+        assertEquals("Not an opening explorer file of version " + OpeningExplorer.VERSION + ": " + path,
+                e.getMessage());
+    }
+
+    @Test
+    @DisplayName("test that a game which can't be replayed fails the build instead of blocking the reader")
+    public void testFailure() throws Exception {
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, GAMES.repeat(1000), StandardCharsets.ISO_8859_1);
+        List<PgnGame> games;
+        try (Stream<PgnGame> stream = PgnReader.read(pgn, 2)) {
+            games = stream.collect(Collectors.toCollection(ArrayList::new));
+        }
+        // the parser never makes such a game, its start position is set up when it is replayed
+        Constructor<PgnGame> constructor = PgnGame.class.getDeclaredConstructor(long.class, long.class, long.class,
+                Map.class, String.class, int[].class, String.class, String.class, long.class);
+        constructor.setAccessible(true);
+        games.add(0, constructor.newInstance(0L, 0L, 1L, Map.of(), "not a FEN", new int[0], "1-0", null, 0L));
+
+        OpeningExplorerBuilder builder = new OpeningExplorerBuilder(8, 1);
+        assertTimeoutPreemptively(Duration.ofSeconds(60),
+                () -> assertThrows(IllegalArgumentException.class, () -> builder.add(games.iterator())));
+    }
+}
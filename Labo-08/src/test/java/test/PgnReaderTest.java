@@ -0,0 +1,162 @@
+package test;
+
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnReaderTest {
+
+    /**
+     * Games covering the syntax of the PGN exports: comments, variations, glyphs, a FEN, an illegal
+     * move, a wrong result and a bracket in a comment.
+     */
+    private static final String GAMES = "[Event \"Test \\\"one\\\"\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 {best by test [%clk 0:03:00]} e5 2. Nf3 (2. f4 exf4) 2... Nc6 3. Bb5 $1 a6!?\n"
+            + "4. Ba4 Nf6 5. O-O 1-0\n"
+            + "\n"
+            + "[Event \"Illegal\"]\r\n"
+            + "[Result \"*\"]\r\n"
+            + "\r\n"
+            + "1.d4 d5 2.Nf3\r\n"
+            + "Nf6 3.Bxd5 *\r\n"
+            + "\n"
+            + "[Event \"FEN\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 40\"]\n"
+            + "[Result \"1/2-1/2\"]\n"
+            + "\n"
+            + "40. e4 Kd7 ; a rest of line comment\n"
+            + "41. e5 1/2-1/2\n"
+            + "\n"
+            + "[Event \"Wrong result\"]\n"
+            + "[Result \"0-1\"]\n"
+            + "\n"
+            + "1. e4 { a comment spread\n"
+            + "[over lines] } e5 1-0\n"
+            + "\n"
+            + "[Event \"Empty\"]\n"
+            + "[Result \"*\"]\n"
+            + "\n"
+            + "*\n";
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Reads all the games of a text.
+     *
+     * @param text    The PGN text.
+     * @param threads The number of workers.
+     * @return The games.
+     * @throws IOException If the file can't be written or read.
+     */
+    private List<PgnGame> read(String text, int threads) throws IOException {
+        Path path = folder.resolve("games.pgn");
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+        try (Stream<PgnGame> games = PgnReader.read(path, threads)) {
+            return games.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("test that the games are read with their tags, moves and results")
+    public void testRead() throws IOException {
+        List<PgnGame> games = read(GAMES, 2);
+        assertEquals(5, games.size());
+
+        PgnGame first = games.get(0);
+        assertTrue(first.isValid(), first.toString());
+        assertEquals("Test \"one\"", first.getTag("Event"));
+        assertEquals(9, first.getMoves().length, "the variation should be skipped");
+        assertEquals("1-0", first.getResult());
+        assertEquals(1, first.getLine());
+        assertEquals(0, first.getOffset());
+
+        PgnGame fen = games.get(2);
+        assertTrue(fen.isValid(), fen.toString());
+        assertEquals(3, fen.getMoves().length);
+        Position position = fen.startPosition();
+        for (int move : fen.getMoves())
+            position.make(move);
+        assertEquals("8/3k4/8/4P3/8/8/8/4K3 b - - 0 41", Fen.toString(position));
+
+        PgnGame empty = games.get(4);
+        assertTrue(empty.isValid(), empty.toString());
+        assertEquals(0, empty.getMoves().length);
+        for (int i = 0; i < games.size(); i++)
+            assertEquals(i, games.get(i).getNumber());
+    }
+
+    @Test
+    @DisplayName("test that an illegal game reports its error and the line of the error")
+    public void testErrors() throws IOException {
+        List<PgnGame> games = read(GAMES, 1);
+
+        PgnGame illegal = games.get(1);
+        assertFalse(illegal.isValid());
+        assertEquals(7, illegal.getLine());
+        assertEquals(11, illegal.getErrorLine());
+        assertEquals("illegal move Bxd5", illegal.getError());
+        assertEquals(4, illegal.getMoves().length, "the moves before the error should be kept");
+
+        PgnGame wrong = games.get(3);
+        assertFalse(wrong.isValid());
+        assertEquals(2, wrong.getMoves().length, "the bracket in the comment should not start a game");
+        assertTrue(wrong.getError().contains("Result tag"), wrong.getError());
+    }
+
+    @Test
+    @DisplayName("test that many games come out in the order of the file whatever the number of workers")
+    public void testOrder() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append("[Round \"").append(i).append("\"]\n\n1. e4 e5 2. Nf3 ").append(i % 7 == 0 ? "Ke6" : "Nc6")
+                    .append(" *\n\n");
+        List<PgnGame> games = read(text.toString(), 4);
+        assertEquals(1000, games.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertEquals(String.valueOf(i), games.get(i).getTag("Round"));
+            assertEquals(i % 7 != 0, games.get(i).isValid());
+            assertEquals(i * 4L + 1, games.get(i).getLine());
+        }
+
+        Path path = folder.resolve("games.pgn");
+        try (Stream<PgnGame> stream = PgnReader.read(path, 2)) {
+            assertEquals(3, stream.limit(3).count(), "a stream closed early should stop the reader");
+        }
+    }
+
+    @Test
+    @DisplayName("test that a game replays from the FEN tag as it was read, trailing text or invalid")
+    public void testFenTag() throws IOException {
+        List<PgnGame> games = read("[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 40 bm e4;\"]\n\n40. e4 *\n\n"
+                + "[FEN \"4k3/8/8/8/8/8/4P3/4K3 x - - 0 40\"]\n\n40. e4 *\n", 1);
+        PgnGame trailing = games.get(0);
+        assertTrue(trailing.isValid(), trailing.toString());
+        Position position = trailing.startPosition();
+        assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 40", Fen.toString(position));
+        position.make(trailing.getMoves()[0]);
+        assertEquals("4k3/8/8/8/4P3/8/8/4K3 b - - 0 40", Fen.toString(position));
+
+        PgnGame invalid = games.get(1);
+        assertFalse(invalid.isValid());
+        assertTrue(invalid.getError().startsWith("invalid FEN"), invalid.getError());
+        assertEquals(0, invalid.getMoves().length);
+        assertEquals(Fen.INITIAL, Fen.toString(invalid.startPosition()));
+    }
+}
@@ -0,0 +1,99 @@
+package test;
+
+import engine.board.Position;
+import engine.index.PositionIndex;
+import engine.index.PositionIndexBuilder;
+import engine.notation.Fen;
+import engine.notation.San;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionIndexTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("test that the index finds every game reaching a position, in order and without duplicates")
+    public void testLookup() throws IOException {
+        // random games sharing their first moves, so that positions have many games
+        Random random = new Random(5);
+        int[] moves = new int[Position.MAX_MOVES];
+        Map<Long, TreeSet<Long>> expected = new HashMap<>();
+        List<Long> offsets = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int game = 0; game < 300; game++) {
+            offsets.add((long) text.length());
+            text.append("[Round \"").append(game).append("\"]\n\n");
+            Position position = new Position();
+            expected.computeIfAbsent(position.key(), key -> new TreeSet<>()).add((long) game);
+            for (int ply = 0; ply < 40; ply++) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    break;
+                int move = moves[ply < 4 ? random.nextInt(Math.min(count, 2)) : random.nextInt(count)];
+                text.append(San.toString(position, move)).append(' ');
+                position.make(move);
+                expected.computeIfAbsent(position.key(), key -> new TreeSet<>()).add((long) game);
+            }
+            text.append("*\n\n");
+        }
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, text, StandardCharsets.ISO_8859_1);
+
+        // tiny runs, so that the postings of a position are merged from many runs
+        PositionIndexBuilder builder = new PositionIndexBuilder(folder, 100);
+        try (Stream<PgnGame> games = PgnReader.read(pgn, 2)) {
+            for (PgnGame game : (Iterable<PgnGame>) games::iterator)
+                builder.add(game);
+        }
+        Path path = folder.resolve("games.idx");
+        assertEquals(expected.size(), builder.write(path));
+        try (Stream<Path> files = Files.list(folder)) {
+            assertEquals(2, files.count(), "the runs should be deleted");
+        }
+
+        PositionIndex index = PositionIndex.open(path);
+        assertEquals(300, index.games());
+        assertEquals(expected.size(), index.keys());
+        long[] games = new long[300];
+        for (Map.Entry<Long, TreeSet<Long>> entry : expected.entrySet()) {
+            int count = index.lookup(entry.getKey(), games);
+            assertEquals(entry.getValue().size(), count);
+            assertEquals(count, index.count(entry.getKey()));
+            int i = 0;
+            for (long game : entry.getValue())
+                assertEquals(game, games[i++]);
+        }
+        assertEquals(300, index.count(new Position().key()));
+        assertEquals(2, index.lookup(new Position().key(), new long[2]), "the games should stop at the array");
+        assertEquals(0, index.count(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1").key()));
+        for (int game = 0; game < 300; game++)
+            assertEquals(offsets.get(game), index.offset(game));
+    }
+
+    @Test
+    @DisplayName("test that a file which is not an index is rejected")
+    public void testInvalidFile() throws IOException {
+        Path path = folder.resolve("games.idx");
+        Files.write(path, new byte[64]);
+        IOException e = assertThrows(IOException.class, () -> PositionIndex.open(path));
+        assertEquals("Not a position index file of version " + PositionIndex.VERSION + ": " + path, e.getMessage());
+    }
+}
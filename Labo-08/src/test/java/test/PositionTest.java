@@ -0,0 +1,133 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionTest {
+
+    /**
+     * Function that sets up a position from the piece placement field of a FEN
+     *
+     * @param position  the position to set up
+     * @param placement the piece placement, rank 8 first
+     * @param side      the side to move
+     * @param castling  the castling rights bits
+     */
+    public static void setUp(Position position, String placement, int side, int castling) {
+        int[] pieces = new int[64];
+        int x = 0, y = 7;
+        for (char c : placement.toCharArray()) {
+            if (c == '/') {
+                x = 0;
+                y--;
+            } else if (Character.isDigit(c)) {
+                x += c - '0';
+            } else {
+                int color = Character.isUpperCase(c) ? Position.WHITE : Position.BLACK;
+                int type = Position.LETTERS.indexOf(Character.toUpperCase(c));
+                pieces[y * 8 + x++] = Position.piece(color, type);
+            }
+        }
+        position.setUp(pieces, side, castling, -1, 0, 1);
+    }
+
+    /**
+     * Plays random legal moves.
+     *
+     * @param position The position, at the end of the game when it returns.
+     * @param plies    The number of moves to play, fewer if the game ends.
+     * @param random   The random generator.
+     */
+    public static void play(Position position, int plies, Random random) {
+        int[] buffer = new int[Position.MAX_MOVES];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = position.legalMoves(buffer);
+            if (count == 0)
+                return;
+            position.make(buffer[random.nextInt(count)]);
+        }
+    }
+
+    /**
+     * Function that counts the leaf nodes of the legal move tree
+     *
+     * @param position the position to explore
+     * @param depth    the depth of the tree
+     * @return the number of leaf nodes
+     */
+    public long perft(Position position, int depth) {
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.legalMoves(moves);
+        if (depth == 1)
+            return count;
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.make(moves[i]);
+            nodes += perft(position, depth - 1);
+            position.unmake();
+        }
+        return nodes;
+    }
+
+    @Test
+    @DisplayName("test the number of legal move sequences from the initial position")
+    public void testPerftInitial() {
+        Position position = new Position();
+        long key = position.key();
+
+        assertEquals(20, perft(position, 1));
+        assertEquals(400, perft(position, 2));
+        assertEquals(8902, perft(position, 3));
+        assertEquals(197281, perft(position, 4));
+        assertEquals(key, position.key(), "unmake should restore the hash");
+    }
+
+    @Test
+    @DisplayName("test castling, promotions and en passant in a tactical position")
+    public void testPerftKiwipete() {
+        Position position = new Position();
+        setUp(position, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R", Position.WHITE, 15);
+
+        assertEquals(48, perft(position, 1));
+        assertEquals(2039, perft(position, 2));
+        assertEquals(97862, perft(position, 3));
+    }
+
+    @Test
+    @DisplayName("test en passant pins and checks in an endgame")
+    public void testPerftEndgame() {
+        Position position = new Position();
+        setUp(position, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8", Position.WHITE, 0);
+
+        assertEquals(14, perft(position, 1));
+        assertEquals(191, perft(position, 2));
+        assertEquals(2812, perft(position, 3));
+        assertEquals(43238, perft(position, 4));
+    }
+
+    @Test
+    @DisplayName("test that the incremental hash matches a hash computed from scratch")
+    public void testIncrementalKey() {
+        Position position = new Position();
+        for (String move : new String[]{"e2e4", "d7d5", "e4e5", "f7f5", "e5f6", "e8f7", "g1f3", "b8c6"}) {
+            int from = (move.charAt(1) - '1') * 8 + move.charAt(0) - 'a';
+            int to = (move.charAt(3) - '1') * 8 + move.charAt(2) - 'a';
+            int found = position.findMove(from, to, 0);
+            assertNotEquals(Move.NONE, found, move + " should be legal");
+            position.make(found);
+        }
+        int[] pieces = new int[64];
+        for (int square = 0; square < 64; square++)
+            pieces[square] = position.pieceAt(square);
+
+        Position scratch = new Position();
+        scratch.setUp(pieces, position.sideToMove(), position.castlingRights(), position.enPassantSquare(), 0, 1);
+        assertEquals(scratch.key(), position.key());
+    }
+}
@@ -0,0 +1,91 @@
+package test;
+
+import engine.eval.HandcraftedEvaluator;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import engine.puzzle.PuzzleMiner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzleMinerTest {
+
+    /**
+     * A queen left to a rook, a knight leaving the defence of a mate, an opening without mistake, and the
+     * first game again.
+     */
+    private static final String GAMES = "[FEN \"6k1/p3qppp/8/8/8/8/P4PPP/3R2K1 w - - 0 1\"]\n[Result \"1-0\"]\n\n"
+            + "1. a3 a6 2. a4 a5 3. h3 h6 4. g3 g6 5. Kg2 Qd6 6. Rxd6 1-0\n\n"
+            + "[FEN \"3q1rk1/p4ppp/5n2/8/8/3Q4/P4PPP/1B4K1 w - - 0 1\"]\n[Result \"1-0\"]\n\n"
+            + "1. a3 a6 2. a4 a5 3. Kh1 Qe7 4. Kg1 Qe8 5. Kh1 Nd5 6. Qxh7# 1-0\n\n"
+            + "[Result \"*\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 *\n\n"
+            + "[FEN \"6k1/p3qppp/8/8/8/8/P4PPP/3R2K1 w - - 0 1\"]\n[Result \"1-0\"]\n\n"
+            + "1. a3 a6 2. a4 a5 3. h3 h6 4. g3 g6 5. Kg2 Qd6 6. Rxd6 1-0\n\n";
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Mines the test games.
+     *
+     * @param miner The miner.
+     * @return The records of the puzzles, sorted.
+     */
+    private List<String> mine(PuzzleMiner miner) throws IOException, InterruptedException {
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, GAMES, StandardCharsets.ISO_8859_1);
+        StringBuilder output = new StringBuilder();
+        try (Stream<PgnGame> games = PgnReader.read(pgn)) {
+            miner.mine(games.iterator(), output);
+        }
+        return Arrays.stream(output.toString().split("\n")).filter(line -> !line.isEmpty()).sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("test that the mistakes are found once, with their unique solution and themes")
+    public void testMine() throws IOException, InterruptedException {
+        PuzzleMiner miner = new PuzzleMiner(1, 2, 6, HandcraftedEvaluator::new);
+        List<String> puzzles = mine(miner);
+        assertEquals(4, miner.getGames());
+        assertEquals(2, puzzles.size(), String.join("\n", puzzles));
+        assertEquals(2, miner.getPuzzles());
+
+        String[] mate = puzzles.get(0).split("\t");
+        assertEquals("4qrk1/5ppp/8/p2n4/P7/3Q4/5PPP/1B5K w - - 6 6", mate[0]);
+        assertEquals("f6d5", mate[1]);
+        assertEquals("d3h7", mate[2]);
+        assertEquals("#1", mate[3]);
+        assertEquals(List.of("mate", "mateIn1", "oneMove", "capture", "check", "opening"),
+                List.of(mate[4].split(" ")));
+        assertEquals("1", mate[5]);
+
+        String[] queen = puzzles.get(1).split("\t");
+        assertEquals("6k1/5p2/3q2pp/p7/P7/6PP/5PK1/3R4 w - - 2 6", queen[0]);
+        assertEquals("e7d6", queen[1]);
+        assertTrue(queen[2].startsWith("d1d6"), queen[2]);
+        assertEquals(1, queen[2].split(" ").length % 2);
+        assertTrue(queen[3].startsWith("+"));
+        assertTrue(queen[4].contains("capture") && queen[4].contains("endgame"), queen[4]);
+        assertEquals("0", queen[5]);
+    }
+
+    @Test
+    @DisplayName("test that the puzzles found don't depend on the number of threads")
+    public void testThreads() throws IOException, InterruptedException {
+        List<String> single = mine(new PuzzleMiner(1, 1, 5, HandcraftedEvaluator::new));
+        List<String> parallel = mine(new PuzzleMiner(2, 3, 5, HandcraftedEvaluator::new));
+        assertEquals(single, parallel);
+        assertThrows(IllegalArgumentException.class, () -> new PuzzleMiner(1, 0, 5, HandcraftedEvaluator::new));
+    }
+}
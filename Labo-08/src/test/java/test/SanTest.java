@@ -0,0 +1,111 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.notation.San;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SanTest {
+
+    /**
+     * Writes the SAN of the move between two squares.
+     *
+     * @param position The position.
+     * @param move     The move in coordinates.
+     * @return The SAN.
+     */
+    private static String san(Position position, String move) {
+        int found = San.parse(position, move);
+        assertNotEquals(Move.NONE, found, move);
+        return San.toString(position, found);
+    }
+
+    @Test
+    @DisplayName("test that the SAN adds the file, the rank or both only when another piece can move there")
+    public void testDisambiguation() {
+        Position position = Fen.parse("4k3/8/8/8/1N3N2/Q7/7K/Q1Q5 w - - 0 1");
+        assertEquals("Nbd5", san(position, "b4d5"));
+        assertEquals("Nfd3", san(position, "f4d3"));
+        assertEquals("Na6", san(position, "b4a6"), "no other knight reaches a6");
+        assertEquals("Q3a2", san(position, "a3a2"), "the queens share the file");
+        assertEquals("Qce3+", san(position, "c1e3"), "the queens share no file");
+        assertEquals("Qcb2", san(position, "c1b2"), "the queens share the rank");
+        assertEquals("Qa1b2", san(position, "a1b2"), "the queens share the file and the rank");
+
+        // the knight on e3 is pinned, so the other one needs no disambiguation
+        Position pinned = Fen.parse("4k3/4r3/8/8/8/4N1N1/8/4K3 w - - 0 1");
+        assertEquals("Nf5", san(pinned, "g3f5"));
+        assertEquals(Move.NONE, San.parse(pinned, "Nef5"));
+    }
+
+    @Test
+    @DisplayName("test that the captures, promotions, castlings, checks and mates are written")
+    public void testSuffixes() {
+        Position position = Fen.parse("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1");
+        assertEquals("exd6", san(position, "e5d6"));
+        assertEquals("bxa8=Q+", san(position, "b7a8q"));
+        assertEquals("b8=N", san(position, "b7b8n"));
+        assertEquals("O-O", san(position, "e1g1"));
+        assertEquals("O-O-O", san(position, "e1c1"));
+        assertEquals("Rxa8+", san(position, "a1a8"));
+
+        Position mate = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", san(mate, "a1a8"));
+    }
+
+    @Test
+    @DisplayName("test that the reader accepts SAN, LAN and coordinates and rejects illegal or ambiguous moves")
+    public void testParse() {
+        Position position = Fen.parse("r3k2r/1P6/8/3pP3/8/2N3N1/8/R3K2R w KQkq d6 0 1");
+        assertEquals("e5d6", Move.toString(San.parse(position, "exd6")));
+        assertEquals("e5d6", Move.toString(San.parse(position, "e5xd6")));
+        assertEquals("c3e4", Move.toString(San.parse(position, "Nc3-e4")));
+        assertEquals("g3e4", Move.toString(San.parse(position, "g3e4")));
+        assertEquals("b7b8r", Move.toString(San.parse(position, "b8=R")));
+        assertEquals("e1g1", Move.toString(San.parse(position, "0-0")));
+        assertEquals("a1a8", Move.toString(San.parse(position, "Rxa8+!")));
+
+        assertEquals(Move.NONE, San.parse(position, "Ne4"), "both knights reach e4");
+        assertEquals(Move.NONE, San.parse(position, "b8"), "a promotion needs its piece");
+        assertEquals(Move.NONE, San.parse(position, "b8=K"));
+        assertEquals(Move.NONE, San.parse(position, "e7"));
+        assertEquals(Move.NONE, San.parse(position, "Ke3"));
+        assertEquals(Move.NONE, San.parse(position, "Rh9"));
+        assertEquals(Move.NONE, San.parse(position, "Bc4"));
+    }
+
+    @Test
+    @DisplayName("test that every legal move of random games is written and read back, in SAN and in LAN")
+    public void testRoundTrip() {
+        Random random = new Random(3);
+        int[] moves = new int[Position.MAX_MOVES], buffer = new int[Position.MAX_MOVES];
+        StringBuilder builder = new StringBuilder();
+        byte[] bytes = new byte[8];
+        for (int game = 0; game < 40; game++) {
+            Position position = new Position();
+            for (int ply = 0; ply < 150; ply++) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    break;
+                for (int i = 0; i < count; i++) {
+                    builder.setLength(0);
+                    String san = San.write(position, moves[i], builder, buffer).toString();
+                    assertEquals(moves[i], San.parse(position, san), san + " in " + Fen.toString(position));
+                    int length = San.write(position, moves[i], bytes, 0, buffer);
+                    assertEquals(san, new String(bytes, 0, length, StandardCharsets.US_ASCII));
+
+                    builder.setLength(0);
+                    String lan = San.writeLan(position, moves[i], builder, buffer).toString();
+                    assertEquals(moves[i], San.parse(position, lan), lan + " in " + Fen.toString(position));
+                }
+                position.make(moves[random.nextInt(count)]);
+            }
+        }
+    }
+}
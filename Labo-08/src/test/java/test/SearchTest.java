@@ -0,0 +1,149 @@
+package test;
+
+import engine.board.Move;
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.search.Search;
+import engine.search.SearchController;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+
+    @Test
+    @DisplayName("test that the search finds a mate in one")
+    public void testMateInOne() {
+        Position position = new Position();
+        PositionTest.setUp(position, "6k1/5ppp/8/8/8/8/8/R5K1", Position.WHITE, 0);
+
+        SearchResult result = new Search(new TranspositionTable(1), new HandcraftedEvaluator())
+                .think(position, 4, Long.MAX_VALUE, null);
+        assertEquals("a1a8", Move.toString(result.getBestMove()), "the rook should mate on the back rank");
+        assertEquals(Search.MATE - 1, result.getScore());
+    }
+
+    @Test
+    @DisplayName("test that the search wins a hanging queen")
+    public void testWinsQueen() {
+        Position position = new Position();
+        PositionTest.setUp(position, "4k3/8/8/3q4/8/8/3R4/4K3", Position.WHITE, 0);
+
+        SearchResult result = new Search(new TranspositionTable(1), new HandcraftedEvaluator())
+                .think(position, 5, Long.MAX_VALUE, null);
+        assertEquals("d2d5", Move.toString(result.getBestMove()));
+    }
+
+    @Test
+    @DisplayName("test that a multi-PV analysis returns distinct lines sorted by score")
+    public void testMultiPv() {
+        Position position = new Position();
+        PositionTest.setUp(position, "4k3/8/8/3q4/8/8/3R4/4K3", Position.WHITE, 0);
+        Search search = new Search(new TranspositionTable(1), new HandcraftedEvaluator());
+        List<SearchResult> streamed = new ArrayList<>();
+        search.attach(streamed::add);
+
+        List<SearchResult> lines = search.analyse(position, 3, 4, Long.MAX_VALUE, null);
+        assertEquals(3, lines.size());
+        assertEquals("d2d5", Move.toString(lines.get(0).getBestMove()));
+        Set<Integer> moves = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(i + 1, lines.get(i).getRank());
+            assertTrue(moves.add(lines.get(i).getBestMove()), "the lines should start with distinct moves");
+            if (i > 0)
+                assertTrue(lines.get(i - 1).getScore() >= lines.get(i).getScore());
+        }
+        assertEquals(4 * 3, streamed.size(), "each depth should stream its three lines");
+    }
+
+    @Test
+    @DisplayName("test that a clocked search answers within its time")
+    public void testClockRespected() {
+        try (SearchController controller = new SearchController(new TranspositionTable(8), new HandcraftedEvaluator())) {
+            long start = System.nanoTime();
+            SearchResult result = controller.go(new Position(), 600, 0, 0).join();
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertNotEquals(Move.NONE, result.getBestMove());
+            assertTrue(elapsed < 600, "the search used " + elapsed + " ms of a 600 ms clock");
+        }
+    }
+
+    @Test
+    @DisplayName("test that a ponder hit after a long ponder answers instantly")
+    public void testPonderHit() throws InterruptedException {
+        try (SearchController controller = new SearchController(new TranspositionTable(8), new HandcraftedEvaluator())) {
+            Position position = new Position();
+            int reply = position.findMove(12, 28, 0);
+            CompletableFuture<SearchResult> pondered = controller.ponder(position, reply);
+            Thread.sleep(300);
+
+            position.make(reply);
+            long start = System.nanoTime();
+            CompletableFuture<SearchResult> answer = controller.opponentMoved(position, 2000, 0, 40);
+            SearchResult result = answer.join();
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertSame(pondered, answer, "the ponder should be converted instead of starting a new search");
+            assertNotEquals(Move.NONE, result.getBestMove());
+            assertTrue(elapsed < 500, "the ponder hit took " + elapsed + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("test that a transposition table snapshot is reloaded, even in a table of another size")
+    public void testSnapshot(@TempDir Path directory) throws IOException {
+        TranspositionTable table = new TranspositionTable(4);
+        new Search(table, new HandcraftedEvaluator()).think(new Position(), 5, Long.MAX_VALUE, null);
+        long root = table.probe(new Position().key());
+        assertNotEquals(TranspositionTable.MISS, root);
+
+        Path snapshot = directory.resolve("table.snapshot");
+        long saved = table.save(snapshot);
+        assertTrue(saved > 0);
+
+        TranspositionTable same = new TranspositionTable(4);
+        assertEquals(saved, same.load(snapshot));
+        assertEquals(root, same.probe(new Position().key()));
+
+        TranspositionTable larger = new TranspositionTable(16);
+        larger.load(snapshot);
+        assertEquals(root, larger.probe(new Position().key()));
+    }
+
+    @Test
+    @DisplayName("test that a damaged snapshot is rejected and leaves the table unchanged")
+    public void testDamagedSnapshot(@TempDir Path directory) throws IOException {
+        TranspositionTable table = new TranspositionTable(4);
+        new Search(table, new HandcraftedEvaluator()).think(new Position(), 4, Long.MAX_VALUE, null);
+        Path snapshot = directory.resolve("table.snapshot");
+        table.save(snapshot);
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer entry = ByteBuffer.allocate(8);
+            channel.read(entry, 40);
+            entry.flip();
+            long key = entry.getLong() ^ 1;
+            channel.write(ByteBuffer.allocate(8).putLong(0, key), 40);
+        }
+
+        TranspositionTable reloaded = new TranspositionTable(4);
+        assertThrows(IOException.class, () -> reloaded.load(snapshot));
+        assertEquals(TranspositionTable.MISS, reloaded.probe(new Position().key()));
+    }
+}
@@ -0,0 +1,140 @@
+package test;
+
+import chess.ChessView;
+import chess.PieceType;
+import chess.PlayerColor;
+import engine.ChessEngine;
+import engine.board.Position;
+import engine.notation.Fen;
+import engine.session.SessionSnapshot;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSnapshotTest {
+
+    @Test
+    @DisplayName("test that a restored session has the same position, history and clocks")
+    public void testRoundTrip() {
+        Random random = new Random(5);
+        String[] fens = {Fen.INITIAL, "4k3/1P6/8/3pP3/8/8/6p1/R3K2R w KQ d6 12 40",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 3 17"};
+        SessionSnapshot snapshot = new SessionSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        Position restored = new Position();
+        for (int game = 0; game < 60; game++) {
+            Position position = Fen.parse(fens[game % fens.length]);
+            PositionTest.play(position, random.nextInt(300), random);
+            buffer.clear();
+            int size = snapshot.write(position, buffer);
+            assertEquals(size, buffer.position());
+            assertTrue(size <= SessionSnapshot.maxBytes(position.ply()));
+            snapshot.read(buffer.flip(), restored);
+            assertFalse(buffer.hasRemaining());
+
+            assertEquals(Fen.toString(position), Fen.toString(restored));
+            assertEquals(position.key(), restored.key());
+            assertEquals(position.ply(), restored.ply());
+            for (int ply = 0; ply < position.ply(); ply++)
+                assertEquals(position.moveAt(ply), restored.moveAt(ply), "ply " + ply);
+            while (restored.ply() > 0)
+                restored.unmake();
+            assertEquals(fens[game % fens.length], Fen.toString(restored));
+        }
+    }
+
+    @Test
+    @DisplayName("test that a game of a hundred plies takes a few hundred bytes, one snapshot after the other")
+    public void testSize() {
+        Position first = new Position(), second = Fen.parse("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+        PositionTest.play(first, 100, new Random(1));
+        PositionTest.play(second, 10, new Random(2));
+        SessionSnapshot snapshot = new SessionSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        int size = snapshot.write(first, buffer);
+        assertEquals(8 + 1 + 1 + 2 * 100 + 4, size);
+        snapshot.write(second, buffer);
+
+        Position restored = new Position();
+        buffer.flip();
+        snapshot.read(buffer, restored);
+        assertEquals(first.key(), restored.key());
+        snapshot.read(buffer, restored);
+        assertEquals(second.key(), restored.key());
+        assertEquals(second.ply(), restored.ply());
+    }
+
+    @Test
+    @DisplayName("test that a damaged or truncated snapshot is rejected and leaves the position unchanged")
+    public void testInvalid() {
+        Position position = new Position();
+        PositionTest.play(position, 40, new Random(3));
+        SessionSnapshot snapshot = new SessionSnapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int size = snapshot.write(position, buffer);
+        byte[] bytes = new byte[size];
+        buffer.flip().get(bytes);
+
+        Position restored = Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        long key = restored.key();
+        byte[] damaged = bytes.clone();
+        damaged[20] ^= 4;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> snapshot.read(ByteBuffer.wrap(damaged), restored));
+        assertEquals("Corrupted session snapshot", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class,
+                () -> snapshot.read(ByteBuffer.wrap(bytes, 0, size - 1), restored));
+        assertEquals("Truncated session snapshot", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class, () -> snapshot.read(ByteBuffer.allocate(64), restored));
+        assertEquals("Not a session snapshot of version " + SessionSnapshot.VERSION, e.getMessage());
+        assertEquals(key, restored.key());
+        assertEquals(0, restored.ply());
+    }
+
+    @Test
+    @DisplayName("test that a move the board accepts but the position rejects leaves the game unchanged")
+    public void testBoardMismatch() {
+        List<String> messages = new ArrayList<>();
+        ChessEngine engine = new ChessEngine();
+        engine.start(new ChessView() {
+            @Override
+            public void startView() {
+            }
+
+            @Override
+            public void removePiece(int x, int y) {
+            }
+
+            @Override
+            public void putPiece(PieceType type, PlayerColor color, int x, int y) {
+            }
+
+            @Override
+            public void displayMessage(String msg) {
+                messages.add(msg);
+            }
+
+            @Override
+            @SafeVarargs
+            public final <T extends UserChoice> T askUser(String title, String question, T... possibilities) {
+                return possibilities[0];
+            }
+        });
+        engine.newGame("8/8/8/3k4/8/3K4/8/8 w - - 0 1");
+        // the board doesn't see that the kings would stand side by side
+        assertFalse(engine.move(3, 2, 3, 3));
+        assertTrue(engine.move(3, 2, 4, 2));
+        assertEquals("black turn", messages.get(messages.size() - 1));
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        engine.saveSession(buffer);
+        Position restored = new Position();
+        new SessionSnapshot().read(buffer.flip(), restored);
+        assertEquals("8/8/8/3k4/8/4K3/8/8 b - - 1 1", Fen.toString(restored));
+    }
+}
@@ -0,0 +1,117 @@
+package test;
+
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.search.Search;
+import engine.search.SearchResult;
+import engine.search.TranspositionTable;
+import engine.tablebase.Material;
+import engine.tablebase.Tablebase;
+import engine.tablebase.Tablebases;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Gets the longest mate of a table.
+     *
+     * @param table The table.
+     * @return The largest code.
+     */
+    private static int longest(Tablebase table) {
+        int max = 0;
+        for (int index = 0; index < table.getMaterial().entries(); index++)
+            max = Math.max(max, table.probe(index));
+        return max;
+    }
+
+    /**
+     * Builds a position with no castling right.
+     *
+     * @param board The board part of a FEN.
+     * @param side  The side to move.
+     * @return The position.
+     */
+    private static Position position(String board, int side) {
+        Position position = new Position();
+        PositionTest.setUp(position, board, side, 0);
+        return position;
+    }
+
+    @Test
+    @DisplayName("test that the longest mates of KQvK and KRvK are 10 and 16 moves, 20 and 32 plies")
+    public void testLongestMates() throws IOException {
+        Tablebases tablebases = new Tablebases(directory);
+        assertEquals(21, longest(tablebases.generate(Material.parse("KQvK"))));
+        assertEquals(33, longest(tablebases.generate(Material.parse("KRvK"))));
+        assertTrue(Files.exists(directory.resolve("KQvK.tb")));
+    }
+
+    @Test
+    @DisplayName("test that the probes give the distance to mate from both sides")
+    public void testProbe() throws IOException {
+        Tablebases tablebases = new Tablebases(directory);
+        tablebases.generate(Material.parse("KQvK"));
+
+        assertEquals(2, tablebases.probe(position("k7/8/1K6/8/8/8/8/6Q1", Position.WHITE)));
+        assertEquals(1, tablebases.probe(position("k5Q1/8/1K6/8/8/8/8/8", Position.BLACK)));
+        assertEquals(2, tablebases.probe(position("6q1/8/8/8/8/1k6/8/K7", Position.BLACK)));
+        assertEquals(0, tablebases.probe(position("k7/8/8/8/8/8/8/6NK", Position.WHITE)));
+        assertEquals(Tablebases.NOT_FOUND, tablebases.probe(position("k7/8/8/8/8/8/8/6RK", Position.WHITE)));
+    }
+
+    @Test
+    @DisplayName("test that KPvK is generated with its promotions and knows the stalemate and the won pawn")
+    public void testPawn() throws IOException {
+        Tablebases tablebases = new Tablebases(directory);
+        tablebases.generate(Material.parse("KPvK"));
+        assertTrue(Files.exists(directory.resolve("KQvK.tb")));
+        assertTrue(Files.exists(directory.resolve("KRvK.tb")));
+
+        assertEquals(0, tablebases.probe(position("4k3/4P3/4K3/8/8/8/8/8", Position.BLACK)));
+        assertTrue(Tablebase.isWin(tablebases.probe(position("4k3/8/4K3/4P3/8/8/8/8", Position.WHITE))));
+        assertTrue(Tablebase.isLoss(tablebases.probe(position("4K3/8/4k3/4p3/8/8/8/8", Position.WHITE))));
+
+        Tablebases reloaded = new Tablebases(directory);
+        assertEquals(3, reloaded.load());
+        assertEquals(tablebases.probe(position("4k3/8/4K3/4P3/8/8/8/8", Position.WHITE)),
+                reloaded.probe(position("4k3/8/4K3/4P3/8/8/8/8", Position.WHITE)));
+    }
+
+    @Test
+    @DisplayName("test that the search scores a tablebase endgame with the exact distance to mate")
+    public void testSearch() throws IOException {
+        Tablebases tablebases = new Tablebases(directory);
+        tablebases.generate(Material.parse("KRvK"));
+        Position position = position("8/8/8/3k4/8/8/8/R3K3", Position.WHITE);
+        int code = tablebases.probe(position);
+        assertTrue(Tablebase.isWin(code));
+
+        Search search = new Search(new TranspositionTable(1), new HandcraftedEvaluator());
+        search.setTablebases(tablebases);
+        SearchResult result = search.think(position, 2, Long.MAX_VALUE, null);
+        assertEquals(Search.MATE - (code - 1), result.getScore());
+    }
+
+    @Test
+    @DisplayName("test that the piece count follows the captures")
+    public void testPieceCount() {
+        Position position = position("4k3/8/8/3q4/8/8/3R4/4K3", Position.WHITE);
+        assertEquals(4, position.pieceCount());
+        int move = position.findMove(11, 35, 0);
+        position.make(move);
+        assertEquals(3, position.pieceCount());
+        position.unmake();
+        assertEquals(4, position.pieceCount());
+    }
+}
@@ -0,0 +1,96 @@
+package test;
+
+import engine.board.Position;
+import engine.eval.EvalParameters;
+import engine.eval.TexelTuner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TexelTunerTest {
+
+    /**
+     * Counts the material of a side with the usual 1, 3, 3, 5, 9 values.
+     *
+     * @param position The position.
+     * @param color    The side.
+     * @return The material.
+     */
+    private static int material(Position position, int color) {
+        int[] values = {0, 1, 5, 3, 3, 9, 0};
+        int material = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece != Position.EMPTY && Position.colorOf(piece) == color)
+                material += values[Position.typeOf(piece)];
+        }
+        return material;
+    }
+
+    @Test
+    @DisplayName("test that the reader keeps the quiet positions with their result")
+    public void testRead() throws IOException {
+        TexelTuner tuner = new TexelTuner();
+        String text = "4k3/8/8/8/8/8/8/3QK3 w - - 0 1 [1.0]\n"
+                + "4k3/8/8/8/8/8/3q4/3QK3 w - - 0 1 [0.5]\n"
+                + "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - c9 \"1/2-1/2\";\n"
+                + "4k3/8/8/8/8/8/8/4K3 w - - no result\n";
+        assertEquals(2, tuner.read(new StringReader(text)));
+        assertEquals(1, tuner.getRejected(), "the queen hanging on d2 is not quiet");
+    }
+
+    @Test
+    @DisplayName("test that the tuning lowers the error of a poor parameter table")
+    public void testTuneLowersError() {
+        TexelTuner tuner = new TexelTuner();
+        Random random = new Random(11);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int game = 0; game < 300; game++) {
+            Position position = new Position();
+            for (int ply = 0; ply < 80; ply++) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    break;
+                position.make(moves[random.nextInt(count)]);
+                int balance = material(position, Position.WHITE) - material(position, Position.BLACK);
+                tuner.add(position, balance > 0 ? 1 : balance < 0 ? 0 : 0.5);
+            }
+        }
+        assertTrue(tuner.size() > 5000);
+
+        int[] poor = new EvalParameters().toArray();
+        for (int phase = 0; phase < 2; phase++)
+            for (int type = Position.PAWN; type < Position.KING; type++)
+                poor[EvalParameters.material(phase, type)] = 10;
+        double[] before = new double[EvalParameters.SIZE], after = new double[EvalParameters.SIZE];
+        EvalParameters tuned = tuner.tune(new EvalParameters(poor), 100, 5);
+        for (int i = 0; i < before.length; i++) {
+            before[i] = poor[i];
+            after[i] = tuned.get(i);
+        }
+        double scale = tuner.fitScale(before);
+        assertTrue(tuner.error(after, scale) < tuner.error(before, scale) * 0.9,
+                "the error should drop from " + tuner.error(before, scale));
+        assertTrue(tuned.get(EvalParameters.material(0, Position.QUEEN))
+                > tuned.get(EvalParameters.material(0, Position.PAWN)), "a queen should be worth more than a pawn");
+    }
+
+    @Test
+    @DisplayName("test that a parameter table is written and loaded back")
+    public void testParametersRoundTrip() throws IOException {
+        int[] values = new EvalParameters().toArray();
+        values[EvalParameters.material(1, Position.KNIGHT)] = 333;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EvalParameters(values).write(out);
+
+        EvalParameters loaded = EvalParameters.load(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(values, loaded.toArray());
+        assertThrows(IOException.class, () -> EvalParameters.load(new ByteArrayInputStream(new byte[12])));
+    }
+}
@@ -0,0 +1,161 @@
+package test;
+
+import engine.board.Position;
+import engine.eval.HandcraftedEvaluator;
+import engine.notation.Fen;
+import engine.pgn.PgnGame;
+import engine.pgn.PgnReader;
+import engine.search.Search;
+import engine.training.TrainingDataGenerator;
+import engine.training.TrainingRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainingDataTest {
+
+    /**
+     * Morphy's opera game, won by white, and an unfinished game.
+     */
+    private static final String GAMES = "[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 "
+            + "6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 "
+            + "14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n\n"
+            + "[Result \"*\"]\n\n1. d4 d5 2. c4 e6 3. Nc3 Nf6 4. Bg5 Be7 5. e3 O-O 6. Nf3 h6 *\n\n";
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Reads the records of the shards, checking their header.
+     *
+     * @param threads The number of shards.
+     * @return The records.
+     * @throws IOException If a shard can't be read.
+     */
+    private ByteBuffer read(int threads) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(1 << 20);
+        for (int i = 0; i < threads; i++) {
+            ByteBuffer shard = ByteBuffer.wrap(Files.readAllBytes(TrainingDataGenerator.shard(folder, i)));
+            assertEquals(TrainingDataGenerator.MAGIC, shard.getInt(0));
+            assertEquals(TrainingDataGenerator.VERSION, shard.getInt(4));
+            assertEquals(TrainingRecord.BYTES, shard.getInt(8));
+            assertEquals(0, shard.limit() % TrainingRecord.BYTES);
+            records.put(shard.position(TrainingRecord.BYTES));
+        }
+        return records.flip();
+    }
+
+    @Test
+    @DisplayName("test that a packed position is unpacked with its state, score and result")
+    public void testPack() {
+        Random random = new Random(11);
+        int[] moves = new int[Position.MAX_MOVES], pieces = new int[64];
+        ByteBuffer buffer = ByteBuffer.allocate(TrainingRecord.BYTES);
+        Position unpacked = new Position();
+        for (int game = 0; game < 50; game++) {
+            Position position = Fen.parse(game % 2 == 0 ? Fen.INITIAL
+                    : "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            for (int ply = random.nextInt(120); ply > 0; ply--) {
+                int count = position.legalMoves(moves);
+                if (count == 0)
+                    break;
+                position.make(moves[random.nextInt(count)]);
+                int score = random.nextInt(4000) - 2000, result = random.nextInt(3) - 1;
+                TrainingRecord.pack(position, score, result, buffer.clear());
+                assertEquals(TrainingRecord.BYTES, buffer.position());
+                TrainingRecord.unpack(buffer, 0, unpacked, pieces);
+                assertEquals(Fen.toString(position), Fen.toString(unpacked));
+                assertEquals(position.key(), unpacked.key());
+                assertEquals(score, TrainingRecord.score(buffer, 0));
+                assertEquals(result, TrainingRecord.result(buffer, 0));
+            }
+        }
+        TrainingRecord.pack(new Position(), 100000, 1, buffer.clear());
+        assertEquals(Short.MAX_VALUE, TrainingRecord.score(buffer, 0), "the score should be clamped");
+    }
+
+    @Test
+    @DisplayName("test that the quiet positions of the finished games are written with the result of their game")
+    public void testFromGames() throws Exception {
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, GAMES, StandardCharsets.ISO_8859_1);
+        Set<Long> keys = new HashSet<>();
+        Position played = new Position();
+        try (Stream<PgnGame> games = PgnReader.read(pgn)) {
+            for (int move : games.findFirst().orElseThrow().getMoves()) {
+                played.make(move);
+                keys.add(played.key());
+            }
+        }
+
+        long written;
+        try (TrainingDataGenerator generator = new TrainingDataGenerator(folder, 2, 0, HandcraftedEvaluator::new);
+             Stream<PgnGame> games = PgnReader.read(pgn)) {
+            written = generator.fromGames(games.iterator());
+            assertEquals(written, generator.getPositions());
+        }
+        ByteBuffer records = read(2);
+        assertEquals(written * TrainingRecord.BYTES, records.limit());
+        assertTrue(written > 10 && written < 34 - TrainingDataGenerator.MIN_PLY, written + " positions");
+
+        Position position = new Position();
+        int[] pieces = new int[64];
+        HandcraftedEvaluator evaluator = new HandcraftedEvaluator();
+        for (int offset = 0; offset < records.limit(); offset += TrainingRecord.BYTES) {
+            TrainingRecord.unpack(records, offset, position, pieces);
+            assertTrue(keys.contains(position.key()), "the positions should come from the finished game");
+            assertFalse(position.inCheck());
+            assertEquals(position.sideToMove() == Position.WHITE ? 1 : -1, TrainingRecord.result(records, offset));
+            assertEquals(evaluator.evaluate(position), TrainingRecord.score(records, offset));
+        }
+    }
+
+    @Test
+    @DisplayName("test that the games played by the engine give positions scored by the search")
+    public void testSelfPlay() throws Exception {
+        long written;
+        try (TrainingDataGenerator generator = new TrainingDataGenerator(folder, 2, 1, HandcraftedEvaluator::new)) {
+            written = generator.selfPlay(4, 6, 3);
+        }
+        ByteBuffer records = read(2);
+        assertTrue(written > 0);
+        assertEquals(written * TrainingRecord.BYTES, records.limit());
+
+        Position position = new Position();
+        int[] pieces = new int[64];
+        for (int offset = 0; offset < records.limit(); offset += TrainingRecord.BYTES) {
+            TrainingRecord.unpack(records, offset, position, pieces);
+            assertTrue(position.kingSquare(Position.WHITE) >= 0);
+            assertTrue(position.kingSquare(Position.BLACK) >= 0);
+            assertFalse(position.inCheck());
+            assertTrue(Math.abs(TrainingRecord.score(records, offset)) < Search.MATE_BOUND);
+            assertTrue(Math.abs(TrainingRecord.result(records, offset)) <= 1);
+        }
+    }
+
+    @Test
+    @DisplayName("test that a worker which throws fails the generation instead of blocking the reader")
+    public void testFailure() throws Exception {
+        Path pgn = folder.resolve("games.pgn");
+        Files.writeString(pgn, GAMES.repeat(2000), StandardCharsets.ISO_8859_1);
+        try (TrainingDataGenerator generator = new TrainingDataGenerator(folder, 1, 0, () -> position -> {
+            throw new IllegalStateException("broken evaluator");
+        }); Stream<PgnGame> games = PgnReader.read(pgn)) {
+            IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(60),
+                    () -> assertThrows(IllegalStateException.class, () -> generator.fromGames(games.iterator())));
+            assertEquals("broken evaluator", e.getMessage());
+        }
+    }
+}